@@ -0,0 +1,232 @@
+// ASM: a very small and fast Java bytecode manipulation framework
+// Copyright (c) 2000-2011 INRIA, France Telecom
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+// 1. Redistributions of source code must retain the above copyright
+//    notice, this list of conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright
+//    notice, this list of conditions and the following disclaimer in the
+//    documentation and/or other materials provided with the distribution.
+// 3. Neither the name of the copyright holders nor the names of its
+//    contributors may be used to endorse or promote products derived from
+//    this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+// THE POSSIBILITY OF SUCH DAMAGE.
+package org.objectweb.asm.agent;
+
+import java.lang.instrument.ClassFileTransformer;
+import java.security.ProtectionDomain;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
+
+/**
+ * A base class for the {@link ClassFileTransformer} of Java agents based on ASM. This class takes
+ * care of the ClassReader -&gt; ClassVisitor -&gt; ClassWriter pipeline, and subclasses only need
+ * to provide the class visitor which implements the transformation, in {@link #createClassVisitor}.
+ * Before parsing a class, this transformer checks it against a {@link ClassNameFilter} and an
+ * optional {@link ConstantPoolFilter}, which are much cheaper than a full parse. The stack map
+ * frames, if computed, use a {@link ClassHierarchy} which reads the class files through the class
+ * loader resources instead of loading classes. Some {@link TransformMetrics} are updated for each
+ * class. The ClassReader and ClassWriter of a class are only created if {@link #createClassVisitor}
+ * returns a non null visitor, so that skipped classes do not pay for a copy of their constant pool.
+ *
+ * <p>This class does not use monitors, global locks nor thread locals in its transformation path
+ * (the {@link ClassHierarchy} caches are concurrent maps), and can thus be used by several threads
+ * loading classes concurrently, including virtual threads. The class visitors returned by {@link
+ * #createClassVisitor} must not be shared between threads.
+ */
+public abstract class AgentClassFileTransformer implements ClassFileTransformer {
+
+  /** The filter used to skip classes based on their name. */
+  private final ClassNameFilter classNameFilter;
+
+  /** The filter used to skip classes based on their constant pool, or {@literal null}. */
+  private final ConstantPoolFilter constantPoolFilter;
+
+  /** The options used to parse the classes. See {@link ClassReader#accept(ClassVisitor, int)}. */
+  private final int parsingOptions;
+
+  /** The options used to write the classes. See {@link ClassWriter#ClassWriter(int)}. */
+  private final int writerFlags;
+
+  /** The class hierarchy used to compute the stack map frames. */
+  private final ClassHierarchy classHierarchy;
+
+  /** The metrics of this transformer. */
+  private final TransformMetrics metrics;
+
+  /**
+   * Constructs a new {@link AgentClassFileTransformer}.
+   *
+   * @param classNameFilter the filter used to skip classes based on their name.
+   * @param constantPoolFilter the filter used to skip classes based on their constant pool, or
+   *     {@literal null} to parse all the classes accepted by classNameFilter.
+   * @param parsingOptions the options used to parse the classes. See {@link
+   *     ClassReader#accept(ClassVisitor, int)}.
+   * @param writerFlags the options used to write the classes. See {@link
+   *     ClassWriter#ClassWriter(int)}.
+   */
+  protected AgentClassFileTransformer(
+      final ClassNameFilter classNameFilter,
+      final ConstantPoolFilter constantPoolFilter,
+      final int parsingOptions,
+      final int writerFlags) {
+    this(classNameFilter, constantPoolFilter, parsingOptions, writerFlags, new ClassHierarchy());
+  }
+
+  /**
+   * Constructs a new {@link AgentClassFileTransformer}.
+   *
+   * @param classNameFilter the filter used to skip classes based on their name.
+   * @param constantPoolFilter the filter used to skip classes based on their constant pool, or
+   *     {@literal null} to parse all the classes accepted by classNameFilter.
+   * @param parsingOptions the options used to parse the classes. See {@link
+   *     ClassReader#accept(ClassVisitor, int)}.
+   * @param writerFlags the options used to write the classes. See {@link
+   *     ClassWriter#ClassWriter(int)}.
+   * @param classHierarchy the class hierarchy used to compute the stack map frames (it can be
+   *     shared between several transformers).
+   */
+  protected AgentClassFileTransformer(
+      final ClassNameFilter classNameFilter,
+      final ConstantPoolFilter constantPoolFilter,
+      final int parsingOptions,
+      final int writerFlags,
+      final ClassHierarchy classHierarchy) {
+    this.classNameFilter = classNameFilter;
+    this.constantPoolFilter = constantPoolFilter;
+    this.parsingOptions = parsingOptions;
+    this.writerFlags = writerFlags;
+    this.classHierarchy = classHierarchy;
+    this.metrics = new TransformMetrics();
+  }
+
+  /**
+   * Returns the metrics of this transformer.
+   *
+   * @return the metrics of this transformer.
+   */
+  public TransformMetrics getMetrics() {
+    return metrics;
+  }
+
+  @Override
+  public final byte[] transform(
+      final ClassLoader loader,
+      final String className,
+      final Class<?> classBeingRedefined,
+      final ProtectionDomain protectionDomain,
+      final byte[] classfileBuffer) {
+    metrics.addClassSeen();
+    if (className == null || !classNameFilter.accepts(className)) {
+      metrics.addClassFilteredByName();
+      return null;
+    }
+    if (constantPoolFilter != null && !constantPoolFilter.matches(classfileBuffer)) {
+      metrics.addClassFilteredByConstantPool();
+      return null;
+    }
+    long startTime = System.nanoTime();
+    try {
+      // The ClassWriter copies the constant pool of the ClassReader, so it is only created, and
+      // connected to the transformation class visitor, once we know the class is not skipped.
+      ClassVisitor classWriterDelegate = new ClassWriterDelegate();
+      ClassVisitor classVisitor =
+          createClassVisitor(loader, className, classBeingRedefined, classWriterDelegate);
+      if (classVisitor == null) {
+        metrics.addClassSkipped();
+        return null;
+      }
+      ClassReader classReader = new ClassReader(classfileBuffer);
+      ClassWriter classWriter =
+          new AgentClassWriter(classReader, writerFlags, classHierarchy, loader);
+      classWriterDelegate.cv = classWriter;
+      classReader.accept(classVisitor, parsingOptions);
+      byte[] result = classWriter.toByteArray();
+      metrics.addClassTransformed(System.nanoTime() - startTime);
+      return result;
+    } catch (RuntimeException e) {
+      // The exceptions thrown by a ClassFileTransformer are silently ignored by the JVM.
+      metrics.addClassFailed(System.nanoTime() - startTime);
+      onError(loader, className, e);
+      return null;
+    }
+  }
+
+  /**
+   * Returns the class visitor implementing the transformation of the given class.
+   *
+   * @param loader the defining loader of the class, or {@literal null} for the bootstrap loader.
+   * @param className the internal name of the class.
+   * @param classBeingRedefined the class being redefined or retransformed, or {@literal null} for a
+   *     class being loaded.
+   * @param classVisitor the class visitor to which the returned visitor must delegate. It is only
+   *     connected to the ClassWriter after this method returns, and must therefore not be visited
+   *     by this method.
+   * @return the class visitor implementing the transformation of the given class, or {@literal
+   *     null} to leave this class unchanged.
+   */
+  protected abstract ClassVisitor createClassVisitor(
+      ClassLoader loader,
+      String className,
+      Class<?> classBeingRedefined,
+      ClassVisitor classVisitor);
+
+  /**
+   * Called when the transformation of a class fails. The default implementation does nothing.
+   *
+   * @param loader the defining loader of the class, or {@literal null} for the bootstrap loader.
+   * @param className the internal name of the class.
+   * @param exception the exception thrown by the transformation.
+   */
+  protected void onError(
+      final ClassLoader loader, final String className, final RuntimeException exception) {
+    // Nothing to do by default.
+  }
+
+  /** A ClassVisitor delegating to a ClassWriter set after its construction. */
+  static final class ClassWriterDelegate extends ClassVisitor {
+
+    ClassWriterDelegate() {
+      super(Opcodes.ASM9);
+    }
+  }
+
+  /** A ClassWriter computing common super classes with a {@link ClassHierarchy}. */
+  static final class AgentClassWriter extends ClassWriter {
+
+    final ClassHierarchy classHierarchy;
+
+    final ClassLoader classLoader;
+
+    AgentClassWriter(
+        final ClassReader classReader,
+        final int flags,
+        final ClassHierarchy classHierarchy,
+        final ClassLoader classLoader) {
+      super(classReader, flags, null);
+      this.classHierarchy = classHierarchy;
+      this.classLoader = classLoader;
+    }
+
+    @Override
+    public String getCommonSuperClass(final String type1, final String type2) {
+      return classHierarchy.getCommonSuperClass(classLoader, type1, type2);
+    }
+  }
+}
@@ -0,0 +1,83 @@
+// ASM: a very small and fast Java bytecode manipulation framework
+// Copyright (c) 2000-2011 INRIA, France Telecom
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+// 1. Redistributions of source code must retain the above copyright
+//    notice, this list of conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright
+//    notice, this list of conditions and the following disclaimer in the
+//    documentation and/or other materials provided with the distribution.
+// 3. Neither the name of the copyright holders nor the names of its
+//    contributors may be used to endorse or promote products derived from
+//    this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+// THE POSSIBILITY OF SUCH DAMAGE.
+package org.objectweb.asm.agent;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A pool of byte arrays. The arrays are stored in a fixed number of slots, and each thread uses the
+ * slot corresponding to its identifier, so that the threads rarely compete for the same array. This
+ * pool does not use locks nor thread locals, so that it can be used by a large number of (possibly
+ * virtual) threads without retaining one array per thread.
+ */
+final class BufferPool {
+
+  /** The size of the arrays allocated by this pool. */
+  static final int DEFAULT_BUFFER_SIZE = 8192;
+
+  /** The maximum size of the arrays kept in this pool. Larger arrays are not reused. */
+  static final int MAX_BUFFER_SIZE = 1024 * 1024;
+
+  /** The available arrays, or {@literal null} for the empty slots. */
+  private final AtomicReferenceArray<byte[]> slots;
+
+  /**
+   * Constructs a new {@link BufferPool}.
+   *
+   * @param numSlots the number of slots of this pool.
+   */
+  BufferPool(final int numSlots) {
+    slots = new AtomicReferenceArray<byte[]>(numSlots);
+  }
+
+  /**
+   * Returns an array from this pool, or a new array if the pool slot of the current thread is
+   * empty. The returned array must be given back with {@link #release}.
+   *
+   * @return an array of at least {@link #DEFAULT_BUFFER_SIZE} bytes.
+   */
+  byte[] acquire() {
+    byte[] buffer = slots.getAndSet(getSlot(), null);
+    return buffer != null ? buffer : new byte[DEFAULT_BUFFER_SIZE];
+  }
+
+  /**
+   * Gives back an array to this pool.
+   *
+   * @param buffer an array returned by {@link #acquire}, possibly replaced with a larger one.
+   */
+  void release(final byte[] buffer) {
+    if (buffer.length <= MAX_BUFFER_SIZE) {
+      slots.compareAndSet(getSlot(), null, buffer);
+    }
+  }
+
+  private int getSlot() {
+    return (int) ((Thread.currentThread().getId() & 0x7FFFFFFF) % slots.length());
+  }
+}
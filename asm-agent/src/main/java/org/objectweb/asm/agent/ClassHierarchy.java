@@ -0,0 +1,329 @@
+// ASM: a very small and fast Java bytecode manipulation framework
+// Copyright (c) 2000-2011 INRIA, France Telecom
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+// 1. Redistributions of source code must retain the above copyright
+//    notice, this list of conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright
+//    notice, this list of conditions and the following disclaimer in the
+//    documentation and/or other materials provided with the distribution.
+// 3. Neither the name of the copyright holders nor the names of its
+//    contributors may be used to endorse or promote products derived from
+//    this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+// THE POSSIBILITY OF SUCH DAMAGE.
+package org.objectweb.asm.agent;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.Opcodes;
+
+/**
+ * A provider of class hierarchy information, which reads the class files through the resources of
+ * their class loader, instead of loading the classes with {@link Class#forName}. This avoids
+ * loading classes during a class transformation, which can fail (e.g. with a
+ * ClassCircularityError), deadlock, or change the class initialization order of the application.
+ * The hierarchy information is cached per class loader, without preventing these class loaders from
+ * being garbage collected. This class is thread safe, and does not use any monitor nor global lock
+ * (the caches are {@link ConcurrentHashMap} instances, indexed by weak references to the class
+ * loaders), so that it can be used by many (possibly virtual) threads loading classes concurrently.
+ */
+public class ClassHierarchy {
+
+  /** The name of the Object class. */
+  private static final String OBJECT = "java/lang/Object";
+
+  /** The hierarchy information of the classes of each class loader, indexed by class name. */
+  private final ConcurrentHashMap<Object, ConcurrentHashMap<String, ClassInfo>> classLoaderCaches;
+
+  /** The keys of {@link #classLoaderCaches} whose class loader has been garbage collected. */
+  private final ReferenceQueue<ClassLoader> staleClassLoaderKeys;
+
+  /** The hierarchy information of the bootstrap classes, indexed by class name. */
+  private final ConcurrentHashMap<String, ClassInfo> bootstrapCache;
+
+  /** The buffers used to read the class files. */
+  private final BufferPool bufferPool;
+
+  /** Constructs a new {@link ClassHierarchy}. */
+  public ClassHierarchy() {
+    classLoaderCaches = new ConcurrentHashMap<Object, ConcurrentHashMap<String, ClassInfo>>();
+    staleClassLoaderKeys = new ReferenceQueue<ClassLoader>();
+    bootstrapCache = new ConcurrentHashMap<String, ClassInfo>();
+    bufferPool = new BufferPool(2 * Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * Returns the common super type of the two given types, with the same semantics as {@link
+   * org.objectweb.asm.ClassWriter#getCommonSuperClass}.
+   *
+   * @param classLoader the class loader used to find the given types, or {@literal null} for the
+   *     bootstrap class loader.
+   * @param type1 the internal name of a class.
+   * @param type2 the internal name of another class.
+   * @return the internal name of the common super class of the two given classes.
+   * @throws TypeNotPresentException if the class file of a type can't be found or read.
+   */
+  public String getCommonSuperClass(
+      final ClassLoader classLoader, final String type1, final String type2) {
+    if (isAssignableFrom(classLoader, type1, type2)) {
+      return type1;
+    }
+    if (isAssignableFrom(classLoader, type2, type1)) {
+      return type2;
+    }
+    if (isInterface(classLoader, type1) || isInterface(classLoader, type2)) {
+      return OBJECT;
+    }
+    String superType = type1;
+    do {
+      superType = getSuperClass(classLoader, superType);
+      if (superType == null) {
+        return OBJECT;
+      }
+    } while (!isAssignableFrom(classLoader, superType, type2));
+    return superType;
+  }
+
+  /**
+   * Returns whether the given type is an interface.
+   *
+   * @param classLoader the class loader used to find the given type, or {@literal null} for the
+   *     bootstrap class loader.
+   * @param type the internal name of a class or interface.
+   * @return whether the given type is an interface.
+   * @throws TypeNotPresentException if the class file of the type can't be found or read.
+   */
+  public boolean isInterface(final ClassLoader classLoader, final String type) {
+    return getClassInfo(classLoader, type).isInterface;
+  }
+
+  /**
+   * Returns the super class of the given type.
+   *
+   * @param classLoader the class loader used to find the given type, or {@literal null} for the
+   *     bootstrap class loader.
+   * @param type the internal name of a class or interface.
+   * @return the internal name of the super class of type, or {@literal null} for Object.
+   * @throws TypeNotPresentException if the class file of the type can't be found or read.
+   */
+  public String getSuperClass(final ClassLoader classLoader, final String type) {
+    return getClassInfo(classLoader, type).superName;
+  }
+
+  /**
+   * Returns whether a type is a super type of (or is equal to) another type.
+   *
+   * @param classLoader the class loader used to find the given types, or {@literal null} for the
+   *     bootstrap class loader.
+   * @param type1 the internal name of a class or interface.
+   * @param type2 the internal name of another class or interface.
+   * @return whether type2 is a sub type of (or is equal to) type1.
+   * @throws TypeNotPresentException if the class file of a type can't be found or read.
+   */
+  public boolean isAssignableFrom(
+      final ClassLoader classLoader, final String type1, final String type2) {
+    if (type1.equals(type2) || type1.equals(OBJECT)) {
+      return true;
+    }
+    ClassInfo classInfo = getClassInfo(classLoader, type2);
+    if (classInfo.superName != null && isAssignableFrom(classLoader, type1, classInfo.superName)) {
+      return true;
+    }
+    for (String interfaceName : classInfo.interfaces) {
+      if (isAssignableFrom(classLoader, type1, interfaceName)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Returns the content of the class file of the given type. The default implementation uses the
+   * {@link ClassLoader#getResourceAsStream} method of the given class loader, or the system class
+   * loader for the bootstrap class loader.
+   *
+   * @param classLoader the class loader used to find the given type, or {@literal null} for the
+   *     bootstrap class loader.
+   * @param type the internal name of a class or interface.
+   * @return an input stream to read the class file of the given type, or {@literal null} if it
+   *     can't be found.
+   */
+  protected InputStream getClassFile(final ClassLoader classLoader, final String type) {
+    String resourceName = type + ".class";
+    return classLoader == null
+        ? ClassLoader.getSystemResourceAsStream(resourceName)
+        : classLoader.getResourceAsStream(resourceName);
+  }
+
+  private ClassInfo getClassInfo(final ClassLoader classLoader, final String type) {
+    ConcurrentHashMap<String, ClassInfo> cache;
+    if (classLoader == null) {
+      cache = bootstrapCache;
+    } else {
+      cache = getClassLoaderCache(classLoader);
+    }
+    ClassInfo classInfo = cache.get(type);
+    if (classInfo == null) {
+      // Several threads can read the same class file concurrently, which is harmless: they all
+      // compute equal ClassInfo objects.
+      classInfo = readClassInfo(classLoader, type);
+      ClassInfo previousClassInfo = cache.putIfAbsent(type, classInfo);
+      if (previousClassInfo != null) {
+        classInfo = previousClassInfo;
+      }
+    }
+    return classInfo;
+  }
+
+  private ConcurrentHashMap<String, ClassInfo> getClassLoaderCache(final ClassLoader classLoader) {
+    Reference<? extends ClassLoader> staleClassLoaderKey;
+    while ((staleClassLoaderKey = staleClassLoaderKeys.poll()) != null) {
+      classLoaderCaches.remove(staleClassLoaderKey);
+    }
+    ConcurrentHashMap<String, ClassInfo> cache =
+        classLoaderCaches.get(new ClassLoaderLookupKey(classLoader));
+    if (cache == null) {
+      cache = new ConcurrentHashMap<String, ClassInfo>();
+      ConcurrentHashMap<String, ClassInfo> previousCache =
+          classLoaderCaches.putIfAbsent(
+              new ClassLoaderKey(classLoader, staleClassLoaderKeys), cache);
+      if (previousCache != null) {
+        cache = previousCache;
+      }
+    }
+    return cache;
+  }
+
+  private ClassInfo readClassInfo(final ClassLoader classLoader, final String type) {
+    InputStream inputStream = getClassFile(classLoader, type);
+    if (inputStream == null) {
+      throw new TypeNotPresentException(type, null);
+    }
+    byte[] buffer = bufferPool.acquire();
+    try {
+      try {
+        int length = 0;
+        int bytesRead;
+        while ((bytesRead = inputStream.read(buffer, length, buffer.length - length)) != -1) {
+          length += bytesRead;
+          if (length == buffer.length) {
+            byte[] newBuffer = new byte[2 * buffer.length];
+            System.arraycopy(buffer, 0, newBuffer, 0, length);
+            buffer = newBuffer;
+          }
+        }
+        ClassReader classReader = new ClassReader(buffer, 0, length);
+        return new ClassInfo(
+            (classReader.getAccess() & Opcodes.ACC_INTERFACE) != 0,
+            classReader.getSuperName(),
+            classReader.getInterfaces());
+      } finally {
+        inputStream.close();
+      }
+    } catch (IOException e) {
+      throw new TypeNotPresentException(type, e);
+    } catch (IllegalArgumentException e) {
+      throw new TypeNotPresentException(type, e);
+    } catch (ArrayIndexOutOfBoundsException e) {
+      throw new TypeNotPresentException(type, e);
+    } finally {
+      bufferPool.release(buffer);
+    }
+  }
+
+  /**
+   * A key of {@link #classLoaderCaches}, which does not prevent its class loader from being garbage
+   * collected. It is equal to the other keys, and to the {@link ClassLoaderLookupKey}, of the same
+   * class loader. Once its class loader has been garbage collected, it is only equal to itself.
+   */
+  static final class ClassLoaderKey extends WeakReference<ClassLoader> {
+
+    /** The identity hash code of the class loader. */
+    private final int hashCode;
+
+    ClassLoaderKey(final ClassLoader classLoader, final ReferenceQueue<ClassLoader> queue) {
+      super(classLoader, queue);
+      this.hashCode = System.identityHashCode(classLoader);
+    }
+
+    @Override
+    public boolean equals(final Object object) {
+      if (object == this) {
+        return true;
+      }
+      ClassLoader classLoader = get();
+      if (classLoader == null) {
+        return false;
+      }
+      if (object instanceof ClassLoaderKey) {
+        return ((ClassLoaderKey) object).get() == classLoader;
+      }
+      return object instanceof ClassLoaderLookupKey
+          && ((ClassLoaderLookupKey) object).classLoader == classLoader;
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+  }
+
+  /** A temporary key used to look up a class loader in {@link #classLoaderCaches}. */
+  static final class ClassLoaderLookupKey {
+
+    /** The class loader to look up. */
+    final ClassLoader classLoader;
+
+    ClassLoaderLookupKey(final ClassLoader classLoader) {
+      this.classLoader = classLoader;
+    }
+
+    @Override
+    public boolean equals(final Object object) {
+      return object instanceof ClassLoaderKey && ((ClassLoaderKey) object).get() == classLoader;
+    }
+
+    @Override
+    public int hashCode() {
+      return System.identityHashCode(classLoader);
+    }
+  }
+
+  /** The hierarchy information of a class. */
+  static final class ClassInfo {
+
+    /** Whether the class is an interface. */
+    final boolean isInterface;
+
+    /** The internal name of the super class, or {@literal null} for Object. */
+    final String superName;
+
+    /** The internal names of the directly implemented interfaces. */
+    final String[] interfaces;
+
+    ClassInfo(final boolean isInterface, final String superName, final String[] interfaces) {
+      this.isInterface = isInterface;
+      this.superName = superName;
+      this.interfaces = interfaces;
+    }
+  }
+}
@@ -0,0 +1,140 @@
+// ASM: a very small and fast Java bytecode manipulation framework
+// Copyright (c) 2000-2011 INRIA, France Telecom
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+// 1. Redistributions of source code must retain the above copyright
+//    notice, this list of conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright
+//    notice, this list of conditions and the following disclaimer in the
+//    documentation and/or other materials provided with the distribution.
+// 3. Neither the name of the copyright holders nor the names of its
+//    contributors may be used to endorse or promote products derived from
+//    this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+// THE POSSIBILITY OF SUCH DAMAGE.
+package org.objectweb.asm.agent;
+
+/**
+ * A filter of class names, based on name prefixes. A class name is accepted if the longest included
+ * or excluded prefix it starts with is an included prefix. If a class name does not start with any
+ * included or excluded prefix, it is accepted if and only if there are no included prefixes. The
+ * prefixes are stored in a trie, so that the cost of {@link #accepts} only depends on the class
+ * name length, and not on the number of prefixes.
+ */
+public final class ClassNameFilter {
+
+  /** The decision of a trie node which does not correspond to an included or excluded prefix. */
+  private static final byte NONE = 0;
+
+  /** The decision of a trie node which corresponds to an included prefix. */
+  private static final byte INCLUDED = 1;
+
+  /** The decision of a trie node which corresponds to an excluded prefix. */
+  private static final byte EXCLUDED = 2;
+
+  /** The root of the trie, corresponding to the empty prefix. */
+  private final Node root;
+
+  /** Whether the class names which do not start with any prefix are accepted. */
+  private final boolean acceptedByDefault;
+
+  /**
+   * Constructs a new {@link ClassNameFilter}. If a prefix is both included and excluded, it is
+   * excluded.
+   *
+   * @param includedPrefixes the prefixes of the internal names of the accepted classes (e.g.
+   *     "com/example/"). May be empty, to accept all the classes which are not excluded.
+   * @param excludedPrefixes the prefixes of the internal names of the rejected classes (e.g.
+   *     "java/", "sun/" or "com/example/internal/").
+   */
+  public ClassNameFilter(final String[] includedPrefixes, final String[] excludedPrefixes) {
+    root = new Node();
+    for (String includedPrefix : includedPrefixes) {
+      root.getOrAddNode(includedPrefix).decision = INCLUDED;
+    }
+    for (String excludedPrefix : excludedPrefixes) {
+      root.getOrAddNode(excludedPrefix).decision = EXCLUDED;
+    }
+    acceptedByDefault = includedPrefixes.length == 0;
+  }
+
+  /**
+   * Returns whether the given class is accepted by this filter.
+   *
+   * @param className the internal name of a class.
+   * @return whether the given class is accepted by this filter.
+   */
+  public boolean accepts(final String className) {
+    Node node = root;
+    byte decision = root.decision;
+    int length = className.length();
+    for (int i = 0; i < length; ++i) {
+      node = node.getChild(className.charAt(i));
+      if (node == null) {
+        break;
+      }
+      if (node.decision != NONE) {
+        decision = node.decision;
+      }
+    }
+    return decision == NONE ? acceptedByDefault : decision == INCLUDED;
+  }
+
+  /** A node of the prefix trie. */
+  static final class Node {
+
+    /** The labels of the edges to the children of this node. */
+    char[] labels = new char[0];
+
+    /** The children of this node, in the same order as {@link #labels}. */
+    Node[] children = new Node[0];
+
+    /** Whether this node corresponds to an included or excluded prefix, or to neither. */
+    byte decision;
+
+    Node getChild(final char label) {
+      char[] currentLabels = labels;
+      for (int i = 0; i < currentLabels.length; ++i) {
+        if (currentLabels[i] == label) {
+          return children[i];
+        }
+      }
+      return null;
+    }
+
+    Node getOrAddNode(final String prefix) {
+      Node node = this;
+      for (int i = 0; i < prefix.length(); ++i) {
+        char label = prefix.charAt(i);
+        Node child = node.getChild(label);
+        if (child == null) {
+          int numChildren = node.labels.length;
+          char[] newLabels = new char[numChildren + 1];
+          Node[] newChildren = new Node[numChildren + 1];
+          System.arraycopy(node.labels, 0, newLabels, 0, numChildren);
+          System.arraycopy(node.children, 0, newChildren, 0, numChildren);
+          child = new Node();
+          newLabels[numChildren] = label;
+          newChildren[numChildren] = child;
+          node.labels = newLabels;
+          node.children = newChildren;
+        }
+        node = child;
+      }
+      return node;
+    }
+  }
+}
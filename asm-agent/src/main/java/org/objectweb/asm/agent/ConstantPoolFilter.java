@@ -0,0 +1,176 @@
+// ASM: a very small and fast Java bytecode manipulation framework
+// Copyright (c) 2000-2011 INRIA, France Telecom
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+// 1. Redistributions of source code must retain the above copyright
+//    notice, this list of conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright
+//    notice, this list of conditions and the following disclaimer in the
+//    documentation and/or other materials provided with the distribution.
+// 3. Neither the name of the copyright holders nor the names of its
+//    contributors may be used to endorse or promote products derived from
+//    this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+// THE POSSIBILITY OF SUCH DAMAGE.
+package org.objectweb.asm.agent;
+
+import java.io.UnsupportedEncodingException;
+
+/**
+ * A filter of class files, based on the content of their constant pool. This filter does not parse
+ * the class files with a ClassReader: it only scans their constant pool, looking for CONSTANT_Utf8
+ * entries containing some given strings. It can thus be used to cheaply skip the classes which
+ * can't be affected by a transformation (e.g. a transformation of the calls to some method can only
+ * affect the classes whose constant pool contains the name of this method).
+ */
+public final class ConstantPoolFilter {
+
+  // The constant pool tags, see
+  // https://docs.oracle.com/javase/specs/jvms/se11/html/jvms-4.html#jvms-4.4-140.
+
+  private static final int CONSTANT_UTF8_TAG = 1;
+  private static final int CONSTANT_INTEGER_TAG = 3;
+  private static final int CONSTANT_FLOAT_TAG = 4;
+  private static final int CONSTANT_LONG_TAG = 5;
+  private static final int CONSTANT_DOUBLE_TAG = 6;
+  private static final int CONSTANT_CLASS_TAG = 7;
+  private static final int CONSTANT_STRING_TAG = 8;
+  private static final int CONSTANT_FIELDREF_TAG = 9;
+  private static final int CONSTANT_METHODREF_TAG = 10;
+  private static final int CONSTANT_INTERFACE_METHODREF_TAG = 11;
+  private static final int CONSTANT_NAME_AND_TYPE_TAG = 12;
+  private static final int CONSTANT_METHOD_HANDLE_TAG = 15;
+  private static final int CONSTANT_METHOD_TYPE_TAG = 16;
+  private static final int CONSTANT_DYNAMIC_TAG = 17;
+  private static final int CONSTANT_INVOKE_DYNAMIC_TAG = 18;
+  private static final int CONSTANT_MODULE_TAG = 19;
+  private static final int CONSTANT_PACKAGE_TAG = 20;
+
+  /** The strings to look for, encoded in UTF-8. */
+  private final byte[][] patterns;
+
+  /**
+   * Constructs a new {@link ConstantPoolFilter}.
+   *
+   * @param strings the strings to look for in the CONSTANT_Utf8 constant pool entries (e.g. class
+   *     internal names, method names or descriptors). They must not contain null or supplementary
+   *     characters, whose encoding in class files differs from their UTF-8 encoding.
+   */
+  public ConstantPoolFilter(final String... strings) {
+    patterns = new byte[strings.length][];
+    for (int i = 0; i < strings.length; ++i) {
+      try {
+        patterns[i] = strings[i].getBytes("UTF-8");
+      } catch (UnsupportedEncodingException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+  }
+
+  /**
+   * Returns whether the given class file might be affected by a transformation.
+   *
+   * @param classFile a JVMS ClassFile structure.
+   * @return {@literal true} if a CONSTANT_Utf8 entry of the given class contains one of the strings
+   *     of this filter, or if the constant pool of the given class can't be scanned (e.g. because
+   *     it is invalid, or contains unknown constant types). Returns {@literal false} otherwise.
+   */
+  public boolean matches(final byte[] classFile) {
+    if (classFile.length < 10 || readInt(classFile, 0) != 0xCAFEBABE) {
+      return true;
+    }
+    int constantPoolCount = readUnsignedShort(classFile, 8);
+    int currentOffset = 10;
+    for (int i = 1; i < constantPoolCount; ++i) {
+      if (currentOffset + 3 > classFile.length) {
+        return true;
+      }
+      switch (classFile[currentOffset]) {
+        case CONSTANT_UTF8_TAG:
+          int length = readUnsignedShort(classFile, currentOffset + 1);
+          int start = currentOffset + 3;
+          if (start + length > classFile.length || containsPattern(classFile, start, length)) {
+            return true;
+          }
+          currentOffset = start + length;
+          break;
+        case CONSTANT_INTEGER_TAG:
+        case CONSTANT_FLOAT_TAG:
+        case CONSTANT_FIELDREF_TAG:
+        case CONSTANT_METHODREF_TAG:
+        case CONSTANT_INTERFACE_METHODREF_TAG:
+        case CONSTANT_NAME_AND_TYPE_TAG:
+        case CONSTANT_DYNAMIC_TAG:
+        case CONSTANT_INVOKE_DYNAMIC_TAG:
+          currentOffset += 5;
+          break;
+        case CONSTANT_LONG_TAG:
+        case CONSTANT_DOUBLE_TAG:
+          currentOffset += 9;
+          i++;
+          break;
+        case CONSTANT_CLASS_TAG:
+        case CONSTANT_STRING_TAG:
+        case CONSTANT_METHOD_TYPE_TAG:
+        case CONSTANT_MODULE_TAG:
+        case CONSTANT_PACKAGE_TAG:
+          currentOffset += 3;
+          break;
+        case CONSTANT_METHOD_HANDLE_TAG:
+          currentOffset += 4;
+          break;
+        default:
+          return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Returns whether the given byte array range contains one of the strings of this filter.
+   *
+   * @param data a byte array.
+   * @param start the start offset of the range to search in data.
+   * @param length the length of the range to search in data.
+   * @return whether the given range contains one of the strings of this filter.
+   */
+  private boolean containsPattern(final byte[] data, final int start, final int length) {
+    for (byte[] pattern : patterns) {
+      int lastStart = start + length - pattern.length;
+      for (int i = start; i <= lastStart; ++i) {
+        int j = 0;
+        while (j < pattern.length && data[i + j] == pattern[j]) {
+          ++j;
+        }
+        if (j == pattern.length) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  private static int readUnsignedShort(final byte[] data, final int offset) {
+    return ((data[offset] & 0xFF) << 8) | (data[offset + 1] & 0xFF);
+  }
+
+  private static int readInt(final byte[] data, final int offset) {
+    return ((data[offset] & 0xFF) << 24)
+        | ((data[offset + 1] & 0xFF) << 16)
+        | ((data[offset + 2] & 0xFF) << 8)
+        | (data[offset + 3] & 0xFF);
+  }
+}
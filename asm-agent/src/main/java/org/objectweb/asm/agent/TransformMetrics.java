@@ -0,0 +1,174 @@
+// ASM: a very small and fast Java bytecode manipulation framework
+// Copyright (c) 2000-2011 INRIA, France Telecom
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+// 1. Redistributions of source code must retain the above copyright
+//    notice, this list of conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright
+//    notice, this list of conditions and the following disclaimer in the
+//    documentation and/or other materials provided with the distribution.
+// 3. Neither the name of the copyright holders nor the names of its
+//    contributors may be used to endorse or promote products derived from
+//    this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+// THE POSSIBILITY OF SUCH DAMAGE.
+package org.objectweb.asm.agent;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Metrics about the classes processed by an {@link AgentClassFileTransformer}. All the metrics are
+ * updated atomically, and can be read at any time from any thread.
+ */
+public final class TransformMetrics {
+
+  private final AtomicLong classesSeen = new AtomicLong();
+  private final AtomicLong classesFilteredByName = new AtomicLong();
+  private final AtomicLong classesFilteredByConstantPool = new AtomicLong();
+  private final AtomicLong classesSkipped = new AtomicLong();
+  private final AtomicLong classesTransformed = new AtomicLong();
+  private final AtomicLong classesFailed = new AtomicLong();
+  private final AtomicLong transformNanos = new AtomicLong();
+  private final AtomicLong maxTransformNanos = new AtomicLong();
+
+  TransformMetrics() {}
+
+  /**
+   * Returns the number of classes given to the transformer.
+   *
+   * @return the number of classes given to the transformer.
+   */
+  public long getClassesSeen() {
+    return classesSeen.get();
+  }
+
+  /**
+   * Returns the number of classes rejected by the class name filter.
+   *
+   * @return the number of classes rejected by the class name filter.
+   */
+  public long getClassesFilteredByName() {
+    return classesFilteredByName.get();
+  }
+
+  /**
+   * Returns the number of classes rejected by the constant pool filter.
+   *
+   * @return the number of classes rejected by the constant pool filter.
+   */
+  public long getClassesFilteredByConstantPool() {
+    return classesFilteredByConstantPool.get();
+  }
+
+  /**
+   * Returns the number of classes for which no class visitor was returned.
+   *
+   * @return the number of classes for which no class visitor was returned.
+   */
+  public long getClassesSkipped() {
+    return classesSkipped.get();
+  }
+
+  /**
+   * Returns the number of successfully transformed classes.
+   *
+   * @return the number of successfully transformed classes.
+   */
+  public long getClassesTransformed() {
+    return classesTransformed.get();
+  }
+
+  /**
+   * Returns the number of classes whose transformation failed with an exception.
+   *
+   * @return the number of classes whose transformation failed with an exception.
+   */
+  public long getClassesFailed() {
+    return classesFailed.get();
+  }
+
+  /**
+   * Returns the total time spent to transform the classes, excluding the filters.
+   *
+   * @return the total time spent to transform the classes, in nanoseconds.
+   */
+  public long getTransformNanos() {
+    return transformNanos.get();
+  }
+
+  /**
+   * Returns the longest time spent to transform a class, excluding the filters.
+   *
+   * @return the longest time spent to transform a class, in nanoseconds.
+   */
+  public long getMaxTransformNanos() {
+    return maxTransformNanos.get();
+  }
+
+  void addClassSeen() {
+    classesSeen.incrementAndGet();
+  }
+
+  void addClassFilteredByName() {
+    classesFilteredByName.incrementAndGet();
+  }
+
+  void addClassFilteredByConstantPool() {
+    classesFilteredByConstantPool.incrementAndGet();
+  }
+
+  void addClassSkipped() {
+    classesSkipped.incrementAndGet();
+  }
+
+  void addClassTransformed(final long nanos) {
+    classesTransformed.incrementAndGet();
+    addTransformNanos(nanos);
+  }
+
+  void addClassFailed(final long nanos) {
+    classesFailed.incrementAndGet();
+    addTransformNanos(nanos);
+  }
+
+  private void addTransformNanos(final long nanos) {
+    transformNanos.addAndGet(nanos);
+    long currentMax = maxTransformNanos.get();
+    while (nanos > currentMax && !maxTransformNanos.compareAndSet(currentMax, nanos)) {
+      currentMax = maxTransformNanos.get();
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "seen="
+        + getClassesSeen()
+        + " filteredByName="
+        + getClassesFilteredByName()
+        + " filteredByConstantPool="
+        + getClassesFilteredByConstantPool()
+        + " skipped="
+        + getClassesSkipped()
+        + " transformed="
+        + getClassesTransformed()
+        + " failed="
+        + getClassesFailed()
+        + " transformNanos="
+        + getTransformNanos()
+        + " maxTransformNanos="
+        + getMaxTransformNanos();
+  }
+}
@@ -0,0 +1,255 @@
+// ASM: a very small and fast Java bytecode manipulation framework
+// Copyright (c) 2000-2011 INRIA, France Telecom
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+// 1. Redistributions of source code must retain the above copyright
+//    notice, this list of conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright
+//    notice, this list of conditions and the following disclaimer in the
+//    documentation and/or other materials provided with the distribution.
+// 3. Neither the name of the copyright holders nor the names of its
+//    contributors may be used to endorse or promote products derived from
+//    this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+// THE POSSIBILITY OF SUCH DAMAGE.
+package org.objectweb.asm.agent;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Test;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+/** Unit tests for {@link AgentClassFileTransformer}. */
+class AgentClassFileTransformerTest {
+
+  private static final String FIELD_NAME = "addedByAgent";
+
+  @Test
+  void testTransform_filteredByName() throws IOException {
+    AddFieldTransformer transformer =
+        new AddFieldTransformer(
+            new ClassNameFilter(new String[] {"org/objectweb/"}, new String[0]), null);
+
+    byte[] result = transformer.transform(null, "java/lang/String", null, null, readClass(""));
+
+    assertNull(result);
+    assertEquals(1, transformer.getMetrics().getClassesSeen());
+    assertEquals(1, transformer.getMetrics().getClassesFilteredByName());
+    assertEquals(0, transformer.getMetrics().getClassesTransformed());
+  }
+
+  @Test
+  void testTransform_filteredByConstantPool() throws IOException {
+    AddFieldTransformer transformer =
+        new AddFieldTransformer(
+            new ClassNameFilter(new String[0], new String[0]),
+            new ConstantPoolFilter("java/util/concurrent/locks/"));
+    String className = Type.getInternalName(ClassNameFilter.class);
+
+    byte[] result = transformer.transform(null, className, null, null, readClass(className));
+
+    assertNull(result);
+    assertEquals(1, transformer.getMetrics().getClassesFilteredByConstantPool());
+  }
+
+  @Test
+  void testTransform_skipped() throws IOException {
+    AddFieldTransformer transformer =
+        new AddFieldTransformer(new ClassNameFilter(new String[0], new String[0]), null);
+    transformer.skip = true;
+    String className = Type.getInternalName(ClassNameFilter.class);
+
+    byte[] result = transformer.transform(null, className, null, null, readClass(className));
+
+    assertNull(result);
+    assertEquals(1, transformer.getMetrics().getClassesSkipped());
+  }
+
+  @Test
+  void testTransform_skippedBeforeParsing() {
+    AddFieldTransformer transformer =
+        new AddFieldTransformer(new ClassNameFilter(new String[0], new String[0]), null);
+    transformer.skip = true;
+
+    byte[] result = transformer.transform(null, "pkg/Invalid", null, null, new byte[] {1, 2, 3});
+
+    assertNull(result);
+    assertEquals(1, transformer.getMetrics().getClassesSkipped());
+    assertEquals(0, transformer.getMetrics().getClassesFailed());
+    assertNull(transformer.lastError);
+  }
+
+  @Test
+  void testTransform_failed() throws IOException {
+    AddFieldTransformer transformer =
+        new AddFieldTransformer(new ClassNameFilter(new String[0], new String[0]), null);
+    String className = Type.getInternalName(ClassNameFilter.class);
+    byte[] classFile = readClass(className);
+    classFile[8] = (byte) 0xFF;
+
+    byte[] result = transformer.transform(null, className, null, null, classFile);
+
+    assertNull(result);
+    assertEquals(1, transformer.getMetrics().getClassesFailed());
+    assertNotNull(transformer.lastError);
+  }
+
+  @Test
+  void testTransform_computeFrames() throws IOException {
+    AddFieldTransformer transformer =
+        new AddFieldTransformer(
+            new ClassNameFilter(new String[0], new String[0]),
+            new ConstantPoolFilter("java/util/concurrent/"),
+            0,
+            ClassWriter.COMPUTE_FRAMES);
+    String className = Type.getInternalName(ClassHierarchy.class);
+
+    byte[] result =
+        transformer.transform(
+            getClass().getClassLoader(), className, null, null, readClass(className));
+
+    assertNotNull(result);
+    assertNull(transformer.lastError);
+    assertEquals(1, transformer.getMetrics().getClassesTransformed());
+    final List<String> fieldNames = new ArrayList<>();
+    new ClassReader(result)
+        .accept(
+            new ClassVisitor(Opcodes.ASM9) {
+              @Override
+              public FieldVisitor visitField(
+                  final int access,
+                  final String name,
+                  final String descriptor,
+                  final String signature,
+                  final Object value) {
+                fieldNames.add(name);
+                return null;
+              }
+            },
+            0);
+    assertEquals(FIELD_NAME, fieldNames.get(fieldNames.size() - 1));
+  }
+
+  @Test
+  void testTransform_concurrentCalls() throws Exception {
+    final AddFieldTransformer transformer =
+        new AddFieldTransformer(
+            new ClassNameFilter(new String[0], new String[0]), null, 0, ClassWriter.COMPUTE_FRAMES);
+    final String className = Type.getInternalName(ClassHierarchy.class);
+    final byte[] classFile = readClass(className);
+    final ClassLoader classLoader = getClass().getClassLoader();
+    byte[] expectedResult = transformer.transform(classLoader, className, null, null, classFile);
+
+    int numThreads = 8;
+    ExecutorService executorService = Executors.newFixedThreadPool(numThreads);
+    List<Future<byte[]>> results = new ArrayList<>();
+    try {
+      for (int i = 0; i < numThreads * 4; ++i) {
+        results.add(
+            executorService.submit(
+                new Callable<byte[]>() {
+                  @Override
+                  public byte[] call() {
+                    return transformer.transform(classLoader, className, null, null, classFile);
+                  }
+                }));
+      }
+      for (Future<byte[]> result : results) {
+        assertArrayEquals(expectedResult, result.get());
+      }
+    } finally {
+      executorService.shutdown();
+    }
+    assertEquals(numThreads * 4 + 1, transformer.getMetrics().getClassesTransformed());
+    assertSame(null, transformer.lastError);
+  }
+
+  private static byte[] readClass(final String className) throws IOException {
+    String resourceName = className.isEmpty() ? "java/lang/String.class" : className + ".class";
+    try (InputStream inputStream = ClassLoader.getSystemResourceAsStream(resourceName)) {
+      ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+      byte[] buffer = new byte[4096];
+      int length;
+      while ((length = inputStream.read(buffer)) != -1) {
+        outputStream.write(buffer, 0, length);
+      }
+      return outputStream.toByteArray();
+    }
+  }
+
+  /** A transformer which adds a field to the classes it transforms. */
+  private static final class AddFieldTransformer extends AgentClassFileTransformer {
+
+    boolean skip;
+
+    volatile RuntimeException lastError;
+
+    AddFieldTransformer(
+        final ClassNameFilter classNameFilter, final ConstantPoolFilter constantPoolFilter) {
+      this(classNameFilter, constantPoolFilter, 0, 0);
+    }
+
+    AddFieldTransformer(
+        final ClassNameFilter classNameFilter,
+        final ConstantPoolFilter constantPoolFilter,
+        final int parsingOptions,
+        final int writerFlags) {
+      super(classNameFilter, constantPoolFilter, parsingOptions, writerFlags);
+    }
+
+    @Override
+    protected ClassVisitor createClassVisitor(
+        final ClassLoader loader,
+        final String className,
+        final Class<?> classBeingRedefined,
+        final ClassVisitor classVisitor) {
+      if (skip) {
+        return null;
+      }
+      return new ClassVisitor(Opcodes.ASM9, classVisitor) {
+        @Override
+        public void visitEnd() {
+          visitField(Opcodes.ACC_PRIVATE, FIELD_NAME, "I", null, null).visitEnd();
+          super.visitEnd();
+        }
+      };
+    }
+
+    @Override
+    protected void onError(
+        final ClassLoader loader, final String className, final RuntimeException exception) {
+      lastError = exception;
+    }
+  }
+}
@@ -0,0 +1,193 @@
+// ASM: a very small and fast Java bytecode manipulation framework
+// Copyright (c) 2000-2011 INRIA, France Telecom
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+// 1. Redistributions of source code must retain the above copyright
+//    notice, this list of conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright
+//    notice, this list of conditions and the following disclaimer in the
+//    documentation and/or other materials provided with the distribution.
+// 3. Neither the name of the copyright holders nor the names of its
+//    contributors may be used to endorse or promote products derived from
+//    this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+// THE POSSIBILITY OF SUCH DAMAGE.
+package org.objectweb.asm.agent;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.lang.ref.ReferenceQueue;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
+
+/** Unit tests for {@link ClassHierarchy}. */
+class ClassHierarchyTest {
+
+  @Test
+  void testGetCommonSuperClass_bootstrapClasses() {
+    ClassHierarchy classHierarchy = new ClassHierarchy();
+
+    assertEquals(
+        "java/lang/Number",
+        classHierarchy.getCommonSuperClass(null, "java/lang/Integer", "java/lang/Long"));
+    assertEquals(
+        "java/lang/Number",
+        classHierarchy.getCommonSuperClass(null, "java/lang/Number", "java/lang/Long"));
+    assertEquals(
+        "java/lang/Number",
+        classHierarchy.getCommonSuperClass(null, "java/lang/Integer", "java/lang/Number"));
+    assertEquals(
+        "java/lang/Object",
+        classHierarchy.getCommonSuperClass(null, "java/lang/Integer", "java/lang/String"));
+    assertEquals(
+        "java/lang/Object",
+        classHierarchy.getCommonSuperClass(null, "java/lang/Runnable", "java/lang/String"));
+    assertEquals(
+        "java/lang/CharSequence",
+        classHierarchy.getCommonSuperClass(null, "java/lang/CharSequence", "java/lang/String"));
+  }
+
+  @Test
+  void testGetSuperClassAndIsInterface() {
+    ClassHierarchy classHierarchy = new ClassHierarchy();
+
+    assertEquals("java/lang/Number", classHierarchy.getSuperClass(null, "java/lang/Integer"));
+    assertNull(classHierarchy.getSuperClass(null, "java/lang/Object"));
+    assertTrue(classHierarchy.isInterface(null, "java/lang/Runnable"));
+    assertFalse(classHierarchy.isInterface(null, "java/lang/Thread"));
+    assertTrue(classHierarchy.isAssignableFrom(null, "java/lang/Runnable", "java/lang/Thread"));
+    assertFalse(classHierarchy.isAssignableFrom(null, "java/lang/Thread", "java/lang/Runnable"));
+  }
+
+  @Test
+  void testGetCommonSuperClass_classesNotLoaded() {
+    ClassHierarchy classHierarchy = new ClassHierarchy();
+    ResourceClassLoader classLoader = new ResourceClassLoader();
+    classLoader.addClass("pkg/I", "java/lang/Object", Opcodes.ACC_INTERFACE | Opcodes.ACC_ABSTRACT);
+    classLoader.addClass("pkg/A", "java/lang/Object", 0);
+    classLoader.addClass("pkg/B", "pkg/A", 0, "pkg/I");
+    classLoader.addClass("pkg/C", "pkg/A", 0);
+    classLoader.addClass("pkg/D", "pkg/C", 0);
+
+    assertEquals("pkg/A", classHierarchy.getCommonSuperClass(classLoader, "pkg/B", "pkg/D"));
+    assertEquals("pkg/C", classHierarchy.getCommonSuperClass(classLoader, "pkg/C", "pkg/D"));
+    assertEquals("pkg/I", classHierarchy.getCommonSuperClass(classLoader, "pkg/I", "pkg/B"));
+    assertEquals(
+        "java/lang/Object", classHierarchy.getCommonSuperClass(classLoader, "pkg/I", "pkg/D"));
+    assertEquals(
+        "java/lang/Object",
+        classHierarchy.getCommonSuperClass(classLoader, "pkg/A", "java/lang/String"));
+  }
+
+  @Test
+  void testGetCommonSuperClass_unknownClass() {
+    ClassHierarchy classHierarchy = new ClassHierarchy();
+    ResourceClassLoader classLoader = new ResourceClassLoader();
+    classLoader.addClass("pkg/A", "pkg/Unknown", 0);
+
+    Executable getCommonSuperClass =
+        () -> classHierarchy.getCommonSuperClass(classLoader, "pkg/A", "java/lang/String");
+
+    Exception exception = assertThrows(TypeNotPresentException.class, getCommonSuperClass);
+    assertEquals("pkg/Unknown", ((TypeNotPresentException) exception).typeName());
+  }
+
+  @Test
+  void testGetCommonSuperClass_severalClassLoaders() {
+    ClassHierarchy classHierarchy = new ClassHierarchy();
+    ResourceClassLoader classLoader1 = new ResourceClassLoader();
+    classLoader1.addClass("pkg/A", "java/lang/Object", 0);
+    classLoader1.addClass("pkg/B", "pkg/A", 0);
+    classLoader1.addClass("pkg/C", "pkg/A", 0);
+    ResourceClassLoader classLoader2 = new ResourceClassLoader();
+    classLoader2.addClass("pkg/A", "java/lang/Object", 0);
+    classLoader2.addClass("pkg/B", "pkg/A", 0);
+    classLoader2.addClass("pkg/C", "java/lang/Object", 0);
+
+    assertEquals("pkg/A", classHierarchy.getCommonSuperClass(classLoader1, "pkg/B", "pkg/C"));
+    assertEquals(
+        "java/lang/Object", classHierarchy.getCommonSuperClass(classLoader2, "pkg/B", "pkg/C"));
+    assertEquals("pkg/A", classHierarchy.getSuperClass(classLoader1, "pkg/C"));
+    assertEquals("java/lang/Object", classHierarchy.getSuperClass(classLoader2, "pkg/C"));
+  }
+
+  @Test
+  void testClassLoaderKey_equals() {
+    ClassLoader classLoader = new ResourceClassLoader();
+    ReferenceQueue<ClassLoader> queue = new ReferenceQueue<>();
+    ClassHierarchy.ClassLoaderKey key1 = new ClassHierarchy.ClassLoaderKey(classLoader, queue);
+    ClassHierarchy.ClassLoaderKey key2 = new ClassHierarchy.ClassLoaderKey(classLoader, queue);
+    ClassHierarchy.ClassLoaderKey otherKey =
+        new ClassHierarchy.ClassLoaderKey(new ResourceClassLoader(), queue);
+    ClassHierarchy.ClassLoaderLookupKey lookupKey =
+        new ClassHierarchy.ClassLoaderLookupKey(classLoader);
+
+    assertEquals(key1, key2);
+    assertEquals(key1, lookupKey);
+    assertEquals(lookupKey, key1);
+    assertEquals(key1.hashCode(), lookupKey.hashCode());
+    assertNotEquals(key1, otherKey);
+    assertNotEquals(lookupKey, otherKey);
+    key1.clear();
+    assertEquals(key1, key1);
+    assertNotEquals(key1, key2);
+    assertNotEquals(key1, lookupKey);
+    assertNotEquals(lookupKey, key1);
+  }
+
+  /** A class loader which can only provide class files as resources, and can't load them. */
+  static final class ResourceClassLoader extends ClassLoader {
+
+    private final Map<String, byte[]> classFiles = new HashMap<>();
+
+    ResourceClassLoader() {
+      super(null);
+    }
+
+    void addClass(
+        final String name, final String superName, final int access, final String... interfaces) {
+      ClassWriter classWriter = new ClassWriter(0);
+      classWriter.visit(
+          Opcodes.V1_8, Opcodes.ACC_PUBLIC | access, name, null, superName, interfaces);
+      classWriter.visitEnd();
+      classFiles.put(name + ".class", classWriter.toByteArray());
+    }
+
+    @Override
+    public InputStream getResourceAsStream(final String name) {
+      byte[] classFile = classFiles.get(name);
+      return classFile == null
+          ? super.getResourceAsStream(name)
+          : new ByteArrayInputStream(classFile);
+    }
+
+    @Override
+    protected Class<?> loadClass(final String name, final boolean resolve) {
+      throw new AssertionError("Unexpected class loading: " + name);
+    }
+  }
+}
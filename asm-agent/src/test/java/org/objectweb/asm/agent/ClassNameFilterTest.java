@@ -0,0 +1,89 @@
+// ASM: a very small and fast Java bytecode manipulation framework
+// Copyright (c) 2000-2011 INRIA, France Telecom
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+// 1. Redistributions of source code must retain the above copyright
+//    notice, this list of conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright
+//    notice, this list of conditions and the following disclaimer in the
+//    documentation and/or other materials provided with the distribution.
+// 3. Neither the name of the copyright holders nor the names of its
+//    contributors may be used to endorse or promote products derived from
+//    this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+// THE POSSIBILITY OF SUCH DAMAGE.
+package org.objectweb.asm.agent;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/** Unit tests for {@link ClassNameFilter}. */
+class ClassNameFilterTest {
+
+  @Test
+  void testAccepts_noPrefixes() {
+    ClassNameFilter classNameFilter = new ClassNameFilter(new String[0], new String[0]);
+
+    assertTrue(classNameFilter.accepts("com/example/A"));
+    assertTrue(classNameFilter.accepts(""));
+  }
+
+  @Test
+  void testAccepts_includedPrefixes() {
+    ClassNameFilter classNameFilter =
+        new ClassNameFilter(new String[] {"com/example/", "org/example/A"}, new String[0]);
+
+    assertTrue(classNameFilter.accepts("com/example/A"));
+    assertTrue(classNameFilter.accepts("org/example/A"));
+    assertTrue(classNameFilter.accepts("org/example/AB"));
+    assertFalse(classNameFilter.accepts("org/example/B"));
+    assertFalse(classNameFilter.accepts("com/exampl"));
+    assertFalse(classNameFilter.accepts("java/lang/Object"));
+  }
+
+  @Test
+  void testAccepts_excludedPrefixes() {
+    ClassNameFilter classNameFilter =
+        new ClassNameFilter(new String[0], new String[] {"java/", "sun/"});
+
+    assertTrue(classNameFilter.accepts("com/example/A"));
+    assertTrue(classNameFilter.accepts("javax/A"));
+    assertFalse(classNameFilter.accepts("java/lang/Object"));
+    assertFalse(classNameFilter.accepts("sun/misc/Unsafe"));
+  }
+
+  @Test
+  void testAccepts_longestPrefixWins() {
+    ClassNameFilter classNameFilter =
+        new ClassNameFilter(
+            new String[] {"com/example/", "com/example/internal/api/"},
+            new String[] {"com/example/internal/"});
+
+    assertTrue(classNameFilter.accepts("com/example/A"));
+    assertFalse(classNameFilter.accepts("com/example/internal/A"));
+    assertTrue(classNameFilter.accepts("com/example/internal/api/A"));
+  }
+
+  @Test
+  void testAccepts_includedAndExcludedPrefix() {
+    ClassNameFilter classNameFilter =
+        new ClassNameFilter(new String[] {"com/example/"}, new String[] {"com/example/"});
+
+    assertFalse(classNameFilter.accepts("com/example/A"));
+  }
+}
@@ -0,0 +1,79 @@
+// ASM: a very small and fast Java bytecode manipulation framework
+// Copyright (c) 2000-2011 INRIA, France Telecom
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+// 1. Redistributions of source code must retain the above copyright
+//    notice, this list of conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright
+//    notice, this list of conditions and the following disclaimer in the
+//    documentation and/or other materials provided with the distribution.
+// 3. Neither the name of the copyright holders nor the names of its
+//    contributors may be used to endorse or promote products derived from
+//    this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+// THE POSSIBILITY OF SUCH DAMAGE.
+package org.objectweb.asm.agent;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.test.AsmTest;
+
+/** Unit tests for {@link ConstantPoolFilter}. */
+class ConstantPoolFilterTest extends AsmTest {
+
+  @ParameterizedTest
+  @MethodSource(ALL_CLASSES_AND_LATEST_API)
+  void testMatches_precompiledClass(final PrecompiledClass classParameter, final Api apiParameter) {
+    byte[] classFile = classParameter.getBytes();
+    String className = new ClassReader(classFile).getClassName();
+    String simpleName = className.substring(className.lastIndexOf('/') + 1);
+
+    boolean matchesClassName = new ConstantPoolFilter(simpleName).matches(classFile);
+    boolean matchesUnknownName = new ConstantPoolFilter("not/a/Name").matches(classFile);
+    boolean matchesNoName = new ConstantPoolFilter().matches(classFile);
+
+    assertTrue(matchesClassName);
+    assertFalse(matchesUnknownName);
+    assertFalse(matchesNoName);
+  }
+
+  @Test
+  void testMatches_severalStrings() {
+    byte[] classFile = PrecompiledClass.JDK8_ALL_STRUCTURES.getBytes();
+
+    boolean matches = new ConstantPoolFilter("not/a/Name", "java/lang/Object").matches(classFile);
+
+    assertTrue(matches);
+  }
+
+  @Test
+  void testMatches_invalidClass() {
+    byte[] classFile = PrecompiledClass.JDK8_ALL_STRUCTURES.getBytes();
+    byte[] truncatedClassFile = new byte[20];
+    System.arraycopy(classFile, 0, truncatedClassFile, 0, truncatedClassFile.length);
+    byte[] invalidClassFile = new byte[] {1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12};
+    ConstantPoolFilter constantPoolFilter = new ConstantPoolFilter("not/a/Name");
+
+    assertTrue(constantPoolFilter.matches(truncatedClassFile));
+    assertTrue(constantPoolFilter.matches(invalidClassFile));
+    assertTrue(constantPoolFilter.matches(new byte[0]));
+  }
+}
@@ -53,6 +53,12 @@ import org.objectweb.asm.tree.VarInsnNode;
  */
 public class Analyzer<V extends Value> implements Opcodes {
 
+  /**
+   * The number of processed instructions, or of merges, between two checks of the {@link #budget}.
+   * Checking the budget less often makes it almost free, at the cost of slightly exceeding it.
+   */
+  public static final int BUDGET_CHECK_INTERVAL = 64;
+
   /** The interpreter to use to symbolically interpret the bytecode instructions. */
   public final Interpreter<V> interpreter;
 
@@ -62,7 +68,10 @@ public class Analyzer<V extends Value> implements Opcodes {
   /** The size of {@link #insnList}. */
   public int insnListSize;
 
-  /** The exception handlers of the currently analyzed method (one list per instruction index). */
+  /**
+   * The exception handlers of the currently analyzed method (one list per instruction index). The
+   * instructions covered by the same handlers share the same list, which must not be modified.
+   */
   public List<TryCatchBlockNode>[] handlers;
 
   /** The execution stack frames of the currently analyzed method (one per instruction index). */
@@ -80,6 +89,21 @@ public class Analyzer<V extends Value> implements Opcodes {
   /** The number of instructions that remain to process in the currently analyzed method. */
   public int numInstructionsToProcess;
 
+  /** The resources that the analysis of a method can use, or {@literal null} if unlimited. */
+  public AnalyzerBudget budget;
+
+  /** The number of instructions processed during the analysis of the current method. */
+  public long numProcessedInstructions;
+
+  /** The number of frame merges done during the analysis of the current method. */
+  public long numMerges;
+
+  /** The number of frame slots allocated during the analysis of the current method. */
+  public long numFrameSlots;
+
+  /** The value of {@link System#nanoTime()} when the analysis of the current method started. */
+  public long startTime;
+
   /**
    * Constructs a new {@link Analyzer}.
    *
@@ -89,6 +113,17 @@ public class Analyzer<V extends Value> implements Opcodes {
     this.interpreter = interpreter;
   }
 
+  /**
+   * Sets the resources that the analysis of a method can use. When one of these limits is exceeded,
+   * {@link #analyze} throws an {@link AnalyzerBudgetException}.
+   *
+   * @param budget the resources that the analysis of a method can use, or {@literal null} if they
+   *     are unlimited (the default).
+   */
+  public void setBudget(final AnalyzerBudget budget) {
+    this.budget = budget;
+  }
+
   /**
    * Analyzes the given method.
    *
@@ -100,7 +135,8 @@ public class Analyzer<V extends Value> implements Opcodes {
    *     method. The size of the returned array is equal to the number of instructions (and labels)
    *     of the method. A given frame is {@literal null} if and only if the corresponding
    *     instruction cannot be reached (dead code).
-   * @throws AnalyzerException if a problem occurs during the analysis.
+   * @throws AnalyzerException if a problem occurs during the analysis, or if the analysis exceeds
+   *     its {@link AnalyzerBudget} (in which case an {@link AnalyzerBudgetException} is thrown).
    */
   @SuppressWarnings("unchecked")
   public Frame<V>[] analyze(final String owner, final MethodNode method) throws AnalyzerException {
@@ -116,22 +152,14 @@ public class Analyzer<V extends Value> implements Opcodes {
     inInstructionsToProcess = new boolean[insnListSize];
     instructionsToProcess = new int[insnListSize];
     numInstructionsToProcess = 0;
+    numProcessedInstructions = 0;
+    numMerges = 0;
+    numFrameSlots = 0;
+    startTime = System.nanoTime();
 
     // For each exception handler, and each instruction within its range, record in 'handlers' the
     // fact that execution can flow from this instruction to the exception handler.
-    for (int i = 0; i < method.tryCatchBlocks.size(); ++i) {
-      TryCatchBlockNode tryCatchBlock = method.tryCatchBlocks.get(i);
-      int startIndex = insnList.indexOf(tryCatchBlock.start);
-      int endIndex = insnList.indexOf(tryCatchBlock.end);
-      for (int j = startIndex; j < endIndex; ++j) {
-        List<TryCatchBlockNode> insnHandlers = handlers[j];
-        if (insnHandlers == null) {
-          insnHandlers = new ArrayList<>();
-          handlers[j] = insnHandlers;
-        }
-        insnHandlers.add(tryCatchBlock);
-      }
-    }
+    computeHandlers(method.tryCatchBlocks);
 
     // Finds the method's subroutines.
     findSubroutines(method.maxLocals);
@@ -154,6 +182,9 @@ public class Analyzer<V extends Value> implements Opcodes {
       Frame<V> oldFrame = frames[insnIndex];
       Subroutine subroutine = subroutines[insnIndex];
       inInstructionsToProcess[insnIndex] = false;
+      if (++numProcessedInstructions % BUDGET_CHECK_INTERVAL == 0 && budget != null) {
+        checkBudget(insnList.get(insnIndex));
+      }
 
       // Simulate the execution of this instruction.
       AbstractInsnNode insnNode = null;
@@ -268,6 +299,7 @@ public class Analyzer<V extends Value> implements Opcodes {
               // Merge the frame *before* this instruction, with its stack cleared and an exception
               // pushed, with the handler's frame.
               Frame<V> handler = newFrame(oldFrame);
+              numFrameSlots += handler.getLocals() + handler.getMaxStackSize();
               handler.clearStack();
               V exceptionValue = interpreter.newExceptionValue(tryCatchBlock, handler, catchType);
               handler.push(exceptionValue);
@@ -275,12 +307,15 @@ public class Analyzer<V extends Value> implements Opcodes {
               // Merge the frame *after* this instruction, with its stack cleared and an exception
               // pushed, with the handler's frame.
               handler = newFrame(currentFrame);
+              numFrameSlots += handler.getLocals() + handler.getMaxStackSize();
               handler.clearStack();
               handler.push(exceptionValue);
               merge(insnList.indexOf(tryCatchBlock.handler), handler, subroutine);
             }
           }
         }
+      } catch (AnalyzerBudgetException e) {
+        throw e;
       } catch (AnalyzerException e) {
         throw new AnalyzerException(
             e.node, "Error at instruction " + insnIndex + ": " + e.getMessage(), e);
@@ -366,6 +401,51 @@ public class Analyzer<V extends Value> implements Opcodes {
     return maxStack;
   }
 
+  /**
+   * Computes the exception handlers of each instruction of the currently analyzed method, and
+   * stores them in {@link #handlers}. The start and end indices of the try catch blocks partition
+   * the instructions into segments, whose instructions are all covered by the same handlers. These
+   * segments are found with a sweep over the instructions, and the instructions of a segment share
+   * the same list. This takes a time proportional to the number of instructions plus the number of
+   * segments times the number of try catch blocks, instead of the total size of the try catch block
+   * ranges (which is quadratic with deeply nested handlers).
+   *
+   * @param tryCatchBlocks the try catch blocks of the currently analyzed method.
+   */
+  public void computeHandlers(final List<TryCatchBlockNode> tryCatchBlocks) {
+    int numTryCatchBlocks = tryCatchBlocks.size();
+    if (numTryCatchBlocks == 0) {
+      return;
+    }
+    int[] startIndices = new int[numTryCatchBlocks];
+    int[] endIndices = new int[numTryCatchBlocks];
+    boolean[] isSegmentStart = new boolean[insnListSize + 1];
+    for (int i = 0; i < numTryCatchBlocks; ++i) {
+      TryCatchBlockNode tryCatchBlock = tryCatchBlocks.get(i);
+      startIndices[i] = insnList.indexOf(tryCatchBlock.start);
+      endIndices[i] = insnList.indexOf(tryCatchBlock.end);
+      if (startIndices[i] < endIndices[i]) {
+        isSegmentStart[startIndices[i]] = true;
+        isSegmentStart[endIndices[i]] = true;
+      }
+    }
+    List<TryCatchBlockNode> segmentHandlers = null;
+    for (int insnIndex = 0; insnIndex < insnListSize; ++insnIndex) {
+      if (isSegmentStart[insnIndex]) {
+        segmentHandlers = null;
+        for (int i = 0; i < numTryCatchBlocks; ++i) {
+          if (startIndices[i] <= insnIndex && insnIndex < endIndices[i]) {
+            if (segmentHandlers == null) {
+              segmentHandlers = new ArrayList<>();
+            }
+            segmentHandlers.add(tryCatchBlocks.get(i));
+          }
+        }
+      }
+      handlers[insnIndex] = segmentHandlers;
+    }
+  }
+
   /**
    * Finds the subroutines of the currently analyzed method and stores them in {@link #subroutines}.
    *
@@ -429,6 +509,9 @@ public class Analyzer<V extends Value> implements Opcodes {
       }
       subroutines[currentInsnIndex] = new Subroutine(subroutine);
       AbstractInsnNode currentInsn = insnList.get(currentInsnIndex);
+      if (++numProcessedInstructions % BUDGET_CHECK_INTERVAL == 0 && budget != null) {
+        checkBudget(currentInsn);
+      }
 
       // Push the normal successors of currentInsn onto instructionIndicesToProcess.
       if (currentInsn instanceof JumpInsnNode) {
@@ -537,12 +620,38 @@ public class Analyzer<V extends Value> implements Opcodes {
    * Returns the exception handlers for the given instruction.
    *
    * @param insnIndex the index of an instruction of the last analyzed method.
-   * @return a list of {@link TryCatchBlockNode} objects.
+   * @return a list of {@link TryCatchBlockNode} objects, or {@literal null} if the instruction is
+   *     not covered by any handler. This list is shared with other instructions, and must not be
+   *     modified.
    */
   public List<TryCatchBlockNode> getHandlers(final int insnIndex) {
     return handlers[insnIndex];
   }
 
+  /**
+   * Checks that the analysis of the current method has not exceeded its {@link #budget}.
+   *
+   * @param insn the instruction currently being processed.
+   * @throws AnalyzerBudgetException if the analysis exceeded its budget.
+   */
+  public void checkBudget(final AbstractInsnNode insn) throws AnalyzerBudgetException {
+    String limit = null;
+    long elapsedTime = System.nanoTime() - startTime;
+    if (numProcessedInstructions > budget.maxInstructions) {
+      limit = "instructions";
+    } else if (numMerges > budget.maxMerges) {
+      limit = "merges";
+    } else if (numFrameSlots > budget.maxFrameSlots) {
+      limit = "frameSlots";
+    } else if (elapsedTime > budget.maxTimeNanos) {
+      limit = "time";
+    }
+    if (limit != null) {
+      throw new AnalyzerBudgetException(
+          insn, limit, numProcessedInstructions, numMerges, numFrameSlots, elapsedTime);
+    }
+  }
+
   /**
    * Initializes this analyzer. This method is called just before the execution of control flow
    * analysis loop in {@link #analyze}. The default implementation of this method does nothing.
@@ -637,10 +746,14 @@ public class Analyzer<V extends Value> implements Opcodes {
    */
   public void merge(final int insnIndex, final Frame<V> frame, final Subroutine subroutine)
       throws AnalyzerException {
+    if (++numMerges % BUDGET_CHECK_INTERVAL == 0 && budget != null) {
+      checkBudget(insnList.get(insnIndex));
+    }
     boolean changed;
     Frame<V> oldFrame = frames[insnIndex];
     if (oldFrame == null) {
       frames[insnIndex] = newFrame(frame);
+      numFrameSlots += frame.getLocals() + frame.getMaxStackSize();
       changed = true;
     } else {
       changed = oldFrame.merge(frame, interpreter);
@@ -688,10 +801,14 @@ public class Analyzer<V extends Value> implements Opcodes {
       throws AnalyzerException {
     frameAfterRet.merge(frameBeforeJsr, localsUsed);
 
+    if (++numMerges % BUDGET_CHECK_INTERVAL == 0 && budget != null) {
+      checkBudget(insnList.get(insnIndex));
+    }
     boolean changed;
     Frame<V> oldFrame = frames[insnIndex];
     if (oldFrame == null) {
       frames[insnIndex] = newFrame(frameAfterRet);
+      numFrameSlots += frameAfterRet.getLocals() + frameAfterRet.getMaxStackSize();
       changed = true;
     } else {
       changed = oldFrame.merge(frameAfterRet, interpreter);
@@ -0,0 +1,81 @@
+// ASM: a very small and fast Java bytecode manipulation framework
+// Copyright (c) 2000-2011 INRIA, France Telecom
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+// 1. Redistributions of source code must retain the above copyright
+//    notice, this list of conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright
+//    notice, this list of conditions and the following disclaimer in the
+//    documentation and/or other materials provided with the distribution.
+// 3. Neither the name of the copyright holders nor the names of its
+//    contributors may be used to endorse or promote products derived from
+//    this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+// THE POSSIBILITY OF SUCH DAMAGE.
+package org.objectweb.asm.tree.analysis;
+
+/**
+ * The maximum resources that an {@link Analyzer} can use to analyze a single method. When one of
+ * these limits is exceeded, {@link Analyzer#analyze} throws an {@link AnalyzerBudgetException}.
+ * This makes it possible to bound the analysis time of pathological methods (e.g. obfuscated code
+ * with many JSR subroutines or exception handlers), and to skip or degrade their processing. A
+ * budget is immutable and can be shared between several analyzers.
+ */
+public final class AnalyzerBudget {
+
+  /** The value to use for a limit which must not be enforced. */
+  public static final long UNLIMITED = Long.MAX_VALUE;
+
+  /**
+   * The maximum number of instructions which can be processed, i.e. symbolically executed or
+   * visited to find subroutines. An instruction is usually processed several times.
+   */
+  public final long maxInstructions;
+
+  /** The maximum number of frame merges. */
+  public final long maxMerges;
+
+  /**
+   * The maximum number of local variable and stack slots in the frames allocated by the analysis.
+   * This is an estimate of the memory used by the analysis.
+   */
+  public final long maxFrameSlots;
+
+  /** The maximum wall clock time of the analysis, in nanoseconds. */
+  public final long maxTimeNanos;
+
+  /**
+   * Constructs a new {@link AnalyzerBudget}.
+   *
+   * @param maxInstructions the maximum number of instructions which can be processed, or {@link
+   *     #UNLIMITED}.
+   * @param maxMerges the maximum number of frame merges, or {@link #UNLIMITED}.
+   * @param maxFrameSlots the maximum number of local variable and stack slots in the frames
+   *     allocated by the analysis, or {@link #UNLIMITED}.
+   * @param maxTimeNanos the maximum wall clock time of the analysis in nanoseconds, or {@link
+   *     #UNLIMITED}.
+   */
+  public AnalyzerBudget(
+      final long maxInstructions,
+      final long maxMerges,
+      final long maxFrameSlots,
+      final long maxTimeNanos) {
+    this.maxInstructions = maxInstructions;
+    this.maxMerges = maxMerges;
+    this.maxFrameSlots = maxFrameSlots;
+    this.maxTimeNanos = maxTimeNanos;
+  }
+}
@@ -0,0 +1,93 @@
+// ASM: a very small and fast Java bytecode manipulation framework
+// Copyright (c) 2000-2011 INRIA, France Telecom
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+// 1. Redistributions of source code must retain the above copyright
+//    notice, this list of conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright
+//    notice, this list of conditions and the following disclaimer in the
+//    documentation and/or other materials provided with the distribution.
+// 3. Neither the name of the copyright holders nor the names of its
+//    contributors may be used to endorse or promote products derived from
+//    this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+// THE POSSIBILITY OF SUCH DAMAGE.
+package org.objectweb.asm.tree.analysis;
+
+import org.objectweb.asm.tree.AbstractInsnNode;
+
+/**
+ * An exception thrown when an {@link Analyzer} exceeds its {@link AnalyzerBudget}. The frames
+ * computed before the analysis was aborted remain available with {@link Analyzer#getFrames()}, but
+ * they are partial results: some reachable instructions may have a {@literal null} frame, and the
+ * other frames may not be a fixpoint yet.
+ */
+public class AnalyzerBudgetException extends AnalyzerException {
+
+  public static final long serialVersionUID = -2738470227436178329L;
+
+  /** The name of the limit which was exceeded (e.g. "instructions" or "time"). */
+  public final String limit;
+
+  /** The number of instructions processed before the analysis was aborted. */
+  public final long numProcessedInstructions;
+
+  /** The number of frame merges done before the analysis was aborted. */
+  public final long numMerges;
+
+  /** The number of frame slots allocated before the analysis was aborted. */
+  public final long numFrameSlots;
+
+  /** The time elapsed before the analysis was aborted, in nanoseconds. */
+  public final long elapsedTimeNanos;
+
+  /**
+   * Constructs a new {@link AnalyzerBudgetException}.
+   *
+   * @param insn the bytecode instruction where the analysis was aborted.
+   * @param limit the name of the limit which was exceeded.
+   * @param numProcessedInstructions the number of instructions processed so far.
+   * @param numMerges the number of frame merges done so far.
+   * @param numFrameSlots the number of frame slots allocated so far.
+   * @param elapsedTimeNanos the time elapsed so far, in nanoseconds.
+   */
+  public AnalyzerBudgetException(
+      final AbstractInsnNode insn,
+      final String limit,
+      final long numProcessedInstructions,
+      final long numMerges,
+      final long numFrameSlots,
+      final long elapsedTimeNanos) {
+    super(
+        insn,
+        "Analysis budget exceeded: "
+            + limit
+            + " (instructions="
+            + numProcessedInstructions
+            + ", merges="
+            + numMerges
+            + ", frameSlots="
+            + numFrameSlots
+            + ", time="
+            + elapsedTimeNanos
+            + "ns)");
+    this.limit = limit;
+    this.numProcessedInstructions = numProcessedInstructions;
+    this.numMerges = numMerges;
+    this.numFrameSlots = numFrameSlots;
+    this.elapsedTimeNanos = elapsedTimeNanos;
+  }
+}
@@ -0,0 +1,110 @@
+// ASM: a very small and fast Java bytecode manipulation framework
+// Copyright (c) 2000-2011 INRIA, France Telecom
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+// 1. Redistributions of source code must retain the above copyright
+//    notice, this list of conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright
+//    notice, this list of conditions and the following disclaimer in the
+//    documentation and/or other materials provided with the distribution.
+// 3. Neither the name of the copyright holders nor the names of its
+//    contributors may be used to endorse or promote products derived from
+//    this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+// THE POSSIBILITY OF SUCH DAMAGE.
+package org.objectweb.asm.tree.analysis;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A basic block of a {@link ControlFlowGraph}, i.e. a maximal sequence of consecutive instructions
+ * which can only be entered at its first instruction, and only exited after its last instruction
+ * (or via an exception).
+ */
+public final class BasicBlock {
+
+  /** The index of this block in {@link ControlFlowGraph#blocks}. */
+  public final int index;
+
+  /** The index of the first instruction of this block (inclusive). */
+  public final int startInsnIndex;
+
+  /** The index of the instruction following the last instruction of this block (exclusive). */
+  public final int endInsnIndex;
+
+  /** The blocks to which the control flow can go after this block, excluding exception handlers. */
+  public final List<BasicBlock> successors;
+
+  /** The blocks from which the control flow can go to this block, excluding exception handlers. */
+  public final List<BasicBlock> predecessors;
+
+  /** The exception handler blocks to which the control flow can go from this block. */
+  public final List<BasicBlock> exceptionSuccessors;
+
+  /**
+   * The blocks from which the control flow can go to this block, if this block starts an exception
+   * handler.
+   */
+  public final List<BasicBlock> exceptionPredecessors;
+
+  /**
+   * The index of this block in {@link ControlFlowGraph#reversePostorder}, or -1 if this block is
+   * not reachable from the entry block.
+   */
+  public int reversePostorderIndex;
+
+  /**
+   * Constructs a new {@link BasicBlock}.
+   *
+   * @param index the index of this block in {@link ControlFlowGraph#blocks}.
+   * @param startInsnIndex the index of the first instruction of this block.
+   * @param endInsnIndex the index of the instruction following the last instruction of this block.
+   */
+  BasicBlock(final int index, final int startInsnIndex, final int endInsnIndex) {
+    this.index = index;
+    this.startInsnIndex = startInsnIndex;
+    this.endInsnIndex = endInsnIndex;
+    this.successors = new ArrayList<>(2);
+    this.predecessors = new ArrayList<>(2);
+    this.exceptionSuccessors = new ArrayList<>(0);
+    this.exceptionPredecessors = new ArrayList<>(0);
+    this.reversePostorderIndex = -1;
+  }
+
+  /**
+   * Returns the number of instructions (including labels, line numbers and frames) of this block.
+   *
+   * @return the number of instructions of this block.
+   */
+  public int size() {
+    return endInsnIndex - startInsnIndex;
+  }
+
+  /**
+   * Returns whether the control flow can reach this block from the entry block.
+   *
+   * @return whether this block is reachable from the entry block.
+   */
+  public boolean isReachable() {
+    return reversePostorderIndex >= 0;
+  }
+
+  @Override
+  public String toString() {
+    return "B" + index + "[" + startInsnIndex + ".." + endInsnIndex + ")";
+  }
+}
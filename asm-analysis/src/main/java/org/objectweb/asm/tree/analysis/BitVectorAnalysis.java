@@ -0,0 +1,549 @@
+// ASM: a very small and fast Java bytecode manipulation framework
+// Copyright (c) 2000-2011 INRIA, France Telecom
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+// 1. Redistributions of source code must retain the above copyright
+//    notice, this list of conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright
+//    notice, this list of conditions and the following disclaimer in the
+//    documentation and/or other materials provided with the distribution.
+// 3. Neither the name of the copyright holders nor the names of its
+//    contributors may be used to endorse or promote products derived from
+//    this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+// THE POSSIBILITY OF SUCH DAMAGE.
+package org.objectweb.asm.tree.analysis;
+
+import java.util.BitSet;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.InsnList;
+
+/**
+ * A gen/kill data flow analysis over the {@link BasicBlock}s of a {@link ControlFlowGraph}, with
+ * values represented as bit vectors stored in {@code long[]} arrays. This is much cheaper than an
+ * {@link Analyzer} for classic problems such as liveness or reaching definitions, since each block
+ * is summarized with a gen and a kill bit vector, and since the fixpoint iteration only combines
+ * bit vectors.
+ *
+ * <p>Subclasses define the meaning of the bits and the gen/kill sets of each instruction. The
+ * analysis can be forward or backward, and the values at control flow merge points can be combined
+ * with a union (for "may" problems) or an intersection (for "must" problems). The fixpoint is
+ * computed with a worklist, processed in reverse postorder for forward analyses, and in postorder
+ * for backward analyses. Blocks which are not reachable from the entry block are not analyzed, and
+ * their values are empty.
+ *
+ * <p>Since any instruction of a block can throw an exception, the value propagated along an
+ * exceptional edge of a forward analysis is the block's entry value plus all the bits generated in
+ * the block (for a union), or minus all the bits killed in the block (for an intersection). In a
+ * backward analysis, the entry values of the exception handlers of a block are merged into the
+ * value before each of its instructions.
+ */
+public abstract class BitVectorAnalysis {
+
+  /** The control flow graph of the analyzed method. */
+  public final ControlFlowGraph graph;
+
+  /** Whether this analysis propagates values forward (in execution order), or backward. */
+  public final boolean isForward;
+
+  /** Whether values are merged with a union ("may" problems), or an intersection ("must"). */
+  public final boolean isUnion;
+
+  /** The number of bits of the values of this analysis. */
+  public int numBits;
+
+  /** The number of longs of the values of this analysis. */
+  public int numWords;
+
+  /**
+   * The value at the beginning of each block, in execution order (one per block index). Only valid
+   * after {@link #analyze} has been called.
+   */
+  public long[][] in;
+
+  /**
+   * The value at the end of each block, in execution order (one per block index). Only valid after
+   * {@link #analyze} has been called.
+   */
+  public long[][] out;
+
+  /** The bits generated by each block, in the analysis direction (one per block index). */
+  public long[][] gen;
+
+  /** The bits killed by each block, in the analysis direction (one per block index). */
+  public long[][] kill;
+
+  /** The bits generated by at least one instruction of each block (one per block index). */
+  public long[][] genAll;
+
+  /** The bits killed by at least one instruction of each block (one per block index). */
+  public long[][] killAll;
+
+  /** A scratch array used to get the gen set of an instruction. */
+  public long[] insnGen;
+
+  /** A scratch array used to get the kill set of an instruction. */
+  public long[] insnKill;
+
+  /**
+   * Constructs a new {@link BitVectorAnalysis}.
+   *
+   * @param graph the control flow graph of the method to analyze.
+   * @param isForward whether the analysis propagates values forward, or backward.
+   * @param isUnion whether values are merged with a union, or with an intersection.
+   */
+  public BitVectorAnalysis(
+      final ControlFlowGraph graph, final boolean isForward, final boolean isUnion) {
+    this.graph = graph;
+    this.isForward = isForward;
+    this.isUnion = isUnion;
+  }
+
+  /**
+   * Returns the number of bits of the values of this analysis.
+   *
+   * @return the number of bits of the values of this analysis.
+   */
+  public abstract int getNumBits();
+
+  /**
+   * Computes the bits generated and killed by an instruction. The transfer function of the
+   * instruction is then {@code value -> gen | (value & ~kill)}, in the analysis direction. This
+   * method is not called for labels, line numbers and frames.
+   *
+   * @param insnIndex the index of an instruction of the analyzed method.
+   * @param insnNode the instruction.
+   * @param insnGen where the bits generated by this instruction must be set (initially all zero).
+   * @param insnKill where the bits killed by this instruction must be set (initially all zero).
+   */
+  public abstract void computeGenKill(
+      int insnIndex, AbstractInsnNode insnNode, long[] insnGen, long[] insnKill);
+
+  /**
+   * Sets the boundary value of this analysis, i.e. the value at the beginning of the entry block
+   * for a forward analysis, or the value at the end of the blocks without successors for a backward
+   * analysis. The default implementation of this method returns an empty value.
+   *
+   * @param value where the boundary value must be set (initially all zero).
+   */
+  public void initBoundaryValue(final long[] value) {
+    // Nothing to do.
+  }
+
+  /**
+   * Computes the value at the beginning and at the end of each block of the analyzed method.
+   *
+   * @return this analysis.
+   */
+  public BitVectorAnalysis analyze() {
+    int numBlocks = graph.blocks.length;
+    numBits = getNumBits();
+    numWords = (numBits + 63) >>> 6;
+    in = new long[numBlocks][numWords];
+    out = new long[numBlocks][numWords];
+    gen = new long[numBlocks][numWords];
+    kill = new long[numBlocks][numWords];
+    genAll = new long[numBlocks][numWords];
+    killAll = new long[numBlocks][numWords];
+    insnGen = new long[numWords];
+    insnKill = new long[numWords];
+    BasicBlock[] order = graph.reversePostorder;
+    int numReachableBlocks = order.length;
+    if (numReachableBlocks == 0) {
+      return this;
+    }
+
+    // Summarize each block with a gen and a kill set, and initialize the block values.
+    long[] boundaryValue = new long[numWords];
+    initBoundaryValue(boundaryValue);
+    for (BasicBlock block : order) {
+      computeBlockGenKill(block);
+      if (!isUnion) {
+        fill(in[block.index], -1L);
+        fill(out[block.index], -1L);
+      }
+    }
+
+    // Iterate until a fixpoint is reached. The blocks to process are stored in a bit set, indexed
+    // by position in the iteration order (reverse postorder or postorder).
+    BitSet worklist = new BitSet(numReachableBlocks);
+    worklist.set(0, numReachableBlocks);
+    long[] value = new long[numWords];
+    int position = 0;
+    while (true) {
+      position = worklist.nextSetBit(position);
+      if (position < 0) {
+        position = worklist.nextSetBit(0);
+        if (position < 0) {
+          break;
+        }
+      }
+      worklist.clear(position);
+      BasicBlock block = order[isForward ? position : numReachableBlocks - 1 - position];
+      if (isForward ? updateForward(block, boundaryValue, value) : updateBackward(block, value)) {
+        int[] dependents =
+            isForward ? graph.successorIndices[block.index] : graph.predecessorIndices[block.index];
+        for (int dependent : dependents) {
+          int dependentIndex = graph.blocks[dependent].reversePostorderIndex;
+          if (dependentIndex >= 0) {
+            worklist.set(isForward ? dependentIndex : numReachableBlocks - 1 - dependentIndex);
+          }
+        }
+      }
+      position++;
+    }
+    return this;
+  }
+
+  /**
+   * Computes the gen, kill, genAll and killAll sets of the given block.
+   *
+   * @param block a block of {@link #graph}.
+   */
+  public void computeBlockGenKill(final BasicBlock block) {
+    InsnList insnList = graph.method.instructions;
+    long[] blockGen = gen[block.index];
+    long[] blockKill = kill[block.index];
+    long[] blockGenAll = genAll[block.index];
+    long[] blockKillAll = killAll[block.index];
+    int step = isForward ? 1 : -1;
+    int insnIndex = isForward ? block.startInsnIndex : block.endInsnIndex - 1;
+    for (int i = 0; i < block.size(); ++i, insnIndex += step) {
+      if (computeInsnGenKill(insnList, insnIndex)) {
+        for (int j = 0; j < numWords; ++j) {
+          blockGen[j] = insnGen[j] | (blockGen[j] & ~insnKill[j]);
+          blockKill[j] |= insnKill[j];
+          blockGenAll[j] |= insnGen[j];
+          blockKillAll[j] |= insnKill[j];
+        }
+      }
+    }
+  }
+
+  /**
+   * Computes the gen and kill sets of an instruction in {@link #insnGen} and {@link #insnKill}.
+   *
+   * @param insnList the instructions of the analyzed method.
+   * @param insnIndex the index of an instruction.
+   * @return whether the instruction is a real instruction, i.e. not a label, line number or frame
+   *     (in which case {@link #insnGen} and {@link #insnKill} are left unchanged).
+   */
+  public boolean computeInsnGenKill(final InsnList insnList, final int insnIndex) {
+    AbstractInsnNode insnNode = insnList.get(insnIndex);
+    if (insnNode.getOpcode() == -1) {
+      return false;
+    }
+    fill(insnGen, 0);
+    fill(insnKill, 0);
+    computeGenKill(insnIndex, insnNode, insnGen, insnKill);
+    return true;
+  }
+
+  /**
+   * Recomputes the values of a block, in a forward analysis.
+   *
+   * @param block a reachable block.
+   * @param boundaryValue the value at the beginning of the entry block.
+   * @param value a scratch array.
+   * @return whether the value at the end of the block, or the value propagated along its
+   *     exceptional edges, may have changed.
+   */
+  public boolean updateForward(
+      final BasicBlock block, final long[] boundaryValue, final long[] value) {
+    // Merge the values of the predecessors.
+    boolean first = true;
+    if (block.index == 0) {
+      System.arraycopy(boundaryValue, 0, value, 0, numWords);
+      first = false;
+    }
+    for (BasicBlock predecessor : block.predecessors) {
+      if (predecessor.isReachable()) {
+        merge(value, out[predecessor.index], first);
+        first = false;
+      }
+    }
+    for (BasicBlock predecessor : block.exceptionPredecessors) {
+      if (predecessor.isReachable()) {
+        long[] predecessorIn = in[predecessor.index];
+        long[] predecessorSet = isUnion ? genAll[predecessor.index] : killAll[predecessor.index];
+        for (int i = 0; i < numWords; ++i) {
+          long exceptionValue =
+              isUnion
+                  ? predecessorIn[i] | predecessorSet[i]
+                  : predecessorIn[i] & ~predecessorSet[i];
+          value[i] = first ? exceptionValue : meet(value[i], exceptionValue);
+        }
+        first = false;
+      }
+    }
+    long[] blockIn = in[block.index];
+    boolean changed = !equals(blockIn, value);
+    if (changed) {
+      System.arraycopy(value, 0, blockIn, 0, numWords);
+    }
+    // Apply the transfer function of the block.
+    long[] blockOut = out[block.index];
+    long[] blockGen = gen[block.index];
+    long[] blockKill = kill[block.index];
+    for (int i = 0; i < numWords; ++i) {
+      long newValue = blockGen[i] | (blockIn[i] & ~blockKill[i]);
+      if (newValue != blockOut[i]) {
+        blockOut[i] = newValue;
+        changed = true;
+      }
+    }
+    return changed;
+  }
+
+  /**
+   * Recomputes the values of a block, in a backward analysis.
+   *
+   * @param block a reachable block.
+   * @param value a scratch array.
+   * @return whether the value at the beginning of the block may have changed.
+   */
+  public boolean updateBackward(final BasicBlock block, final long[] value) {
+    // Merge the values of the successors.
+    long[] blockOut = out[block.index];
+    if (block.successors.isEmpty()) {
+      fill(value, 0);
+      initBoundaryValue(value);
+    } else {
+      boolean first = true;
+      for (BasicBlock successor : block.successors) {
+        merge(value, in[successor.index], first);
+        first = false;
+      }
+    }
+    System.arraycopy(value, 0, blockOut, 0, numWords);
+    // Apply the transfer function of the block, and merge the values of the exception handlers.
+    long[] blockIn = in[block.index];
+    long[] blockGen = gen[block.index];
+    long[] blockKill = kill[block.index];
+    for (int i = 0; i < numWords; ++i) {
+      value[i] = blockGen[i] | (blockOut[i] & ~blockKill[i]);
+    }
+    for (BasicBlock handler : block.exceptionSuccessors) {
+      merge(value, in[handler.index], false);
+    }
+    boolean changed = !equals(blockIn, value);
+    if (changed) {
+      System.arraycopy(value, 0, blockIn, 0, numWords);
+    }
+    return changed;
+  }
+
+  // -----------------------------------------------------------------------------------------------
+  // Instruction level values
+  // -----------------------------------------------------------------------------------------------
+
+  /**
+   * Returns the value just before the given instruction, in execution order.
+   *
+   * @param insnIndex the index of an instruction of the analyzed method.
+   * @return the value just before the given instruction, in execution order.
+   */
+  public long[] getValueBefore(final int insnIndex) {
+    return getInsnValue(insnIndex, /* before= */ true);
+  }
+
+  /**
+   * Returns the value just after the given instruction, in execution order.
+   *
+   * @param insnIndex the index of an instruction of the analyzed method.
+   * @return the value just after the given instruction, in execution order.
+   */
+  public long[] getValueAfter(final int insnIndex) {
+    return getInsnValue(insnIndex, /* before= */ false);
+  }
+
+  /**
+   * Returns the value just before each instruction of the analyzed method, in execution order. This
+   * is more efficient than calling {@link #getValueBefore} for each instruction.
+   *
+   * @return the value just before each instruction (one per instruction index). The values of the
+   *     instructions of unreachable blocks are empty.
+   */
+  public long[][] getValuesBefore() {
+    InsnList insnList = graph.method.instructions;
+    long[][] values = new long[insnList.size()][];
+    long[] value = new long[numWords];
+    for (BasicBlock block : graph.blocks) {
+      if (!block.isReachable()) {
+        for (int i = block.startInsnIndex; i < block.endInsnIndex; ++i) {
+          values[i] = new long[numWords];
+        }
+      } else if (isForward) {
+        System.arraycopy(in[block.index], 0, value, 0, numWords);
+        for (int i = block.startInsnIndex; i < block.endInsnIndex; ++i) {
+          values[i] = value.clone();
+          if (computeInsnGenKill(insnList, i)) {
+            apply(value);
+          }
+        }
+      } else {
+        System.arraycopy(out[block.index], 0, value, 0, numWords);
+        for (int i = block.endInsnIndex - 1; i >= block.startInsnIndex; --i) {
+          if (computeInsnGenKill(insnList, i)) {
+            apply(value);
+          }
+          mergeExceptionHandlers(block, value);
+          values[i] = value.clone();
+        }
+      }
+    }
+    return values;
+  }
+
+  /**
+   * Returns the value just before or just after the given instruction, in execution order.
+   *
+   * @param insnIndex the index of an instruction of the analyzed method.
+   * @param before whether to return the value before or after the instruction.
+   * @return the value just before or just after the given instruction.
+   */
+  public long[] getInsnValue(final int insnIndex, final boolean before) {
+    InsnList insnList = graph.method.instructions;
+    BasicBlock block = graph.getBlock(insnIndex);
+    if (!block.isReachable()) {
+      return new long[numWords];
+    }
+    if (isForward) {
+      long[] value = in[block.index].clone();
+      int endInsnIndex = before ? insnIndex : insnIndex + 1;
+      for (int i = block.startInsnIndex; i < endInsnIndex; ++i) {
+        if (computeInsnGenKill(insnList, i)) {
+          apply(value);
+        }
+      }
+      return value;
+    } else {
+      long[] value = out[block.index].clone();
+      int startInsnIndex = before ? insnIndex : insnIndex + 1;
+      for (int i = block.endInsnIndex - 1; i >= startInsnIndex; --i) {
+        if (computeInsnGenKill(insnList, i)) {
+          apply(value);
+        }
+        mergeExceptionHandlers(block, value);
+      }
+      return value;
+    }
+  }
+
+  /**
+   * Applies the transfer function defined by {@link #insnGen} and {@link #insnKill} to a value.
+   *
+   * @param value a value, updated in place.
+   */
+  public void apply(final long[] value) {
+    for (int i = 0; i < numWords; ++i) {
+      value[i] = insnGen[i] | (value[i] & ~insnKill[i]);
+    }
+  }
+
+  /**
+   * Merges the entry values of the exception handlers of a block into a value.
+   *
+   * @param block a block of {@link #graph}.
+   * @param value a value, updated in place.
+   */
+  public void mergeExceptionHandlers(final BasicBlock block, final long[] value) {
+    for (BasicBlock handler : block.exceptionSuccessors) {
+      merge(value, in[handler.index], false);
+    }
+  }
+
+  // -----------------------------------------------------------------------------------------------
+  // Bit vector utilities
+  // -----------------------------------------------------------------------------------------------
+
+  /**
+   * Merges a value into another one, with a union or an intersection depending on {@link #isUnion}.
+   *
+   * @param value a value, updated in place.
+   * @param otherValue the value to merge into 'value'.
+   * @param replace whether 'value' must be replaced with 'otherValue', instead of being merged.
+   */
+  public void merge(final long[] value, final long[] otherValue, final boolean replace) {
+    if (replace) {
+      System.arraycopy(otherValue, 0, value, 0, numWords);
+    } else {
+      for (int i = 0; i < numWords; ++i) {
+        value[i] = meet(value[i], otherValue[i]);
+      }
+    }
+  }
+
+  /**
+   * Merges two words, with a union or an intersection depending on {@link #isUnion}.
+   *
+   * @param word1 a word.
+   * @param word2 another word.
+   * @return the union or the intersection of the two words.
+   */
+  public long meet(final long word1, final long word2) {
+    return isUnion ? word1 | word2 : word1 & word2;
+  }
+
+  /**
+   * Returns whether a bit is set in a bit vector.
+   *
+   * @param value a bit vector.
+   * @param bit a bit index.
+   * @return whether the given bit is set.
+   */
+  public static boolean get(final long[] value, final int bit) {
+    return (value[bit >>> 6] & (1L << bit)) != 0;
+  }
+
+  /**
+   * Sets a bit in a bit vector.
+   *
+   * @param value a bit vector, updated in place.
+   * @param bit a bit index.
+   */
+  public static void set(final long[] value, final int bit) {
+    value[bit >>> 6] |= 1L << bit;
+  }
+
+  /**
+   * Sets all the words of a bit vector to the given value.
+   *
+   * @param value a bit vector, updated in place.
+   * @param word the new value of each word.
+   */
+  public static void fill(final long[] value, final long word) {
+    for (int i = 0; i < value.length; ++i) {
+      value[i] = word;
+    }
+  }
+
+  /**
+   * Returns whether two bit vectors are equal.
+   *
+   * @param value1 a bit vector.
+   * @param value2 a bit vector of the same length.
+   * @return whether the two bit vectors are equal.
+   */
+  public static boolean equals(final long[] value1, final long[] value2) {
+    for (int i = 0; i < value1.length; ++i) {
+      if (value1[i] != value2[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
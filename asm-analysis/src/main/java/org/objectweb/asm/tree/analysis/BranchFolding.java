@@ -0,0 +1,187 @@
+// ASM: a very small and fast Java bytecode manipulation framework
+// Copyright (c) 2000-2011 INRIA, France Telecom
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+// 1. Redistributions of source code must retain the above copyright
+//    notice, this list of conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright
+//    notice, this list of conditions and the following disclaimer in the
+//    documentation and/or other materials provided with the distribution.
+// 3. Neither the name of the copyright holders nor the names of its
+//    contributors may be used to endorse or promote products derived from
+//    this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+// THE POSSIBILITY OF SUCH DAMAGE.
+package org.objectweb.asm.tree.analysis;
+
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.InsnList;
+import org.objectweb.asm.tree.JumpInsnNode;
+import org.objectweb.asm.tree.LabelNode;
+import org.objectweb.asm.tree.LookupSwitchInsnNode;
+import org.objectweb.asm.tree.MethodNode;
+import org.objectweb.asm.tree.TableSwitchInsnNode;
+
+/**
+ * An {@link OptimizationPass} which folds the conditional jump and switch instructions whose
+ * arguments are known constants (as computed by a {@link ConstantInterpreter}). Such instructions
+ * are replaced with instructions popping their arguments, followed by a GOTO to the actual target
+ * (if the branch is taken). The code which becomes unreachable is removed by {@link
+ * UnreachableCodeElimination}.
+ */
+public class BranchFolding extends OptimizationPass {
+
+  @Override
+  public boolean run(final String owner, final MethodNode method) throws AnalyzerException {
+    Frame<ConstantValue>[] frames =
+        new Analyzer<ConstantValue>(new ConstantInterpreter()).analyze(owner, method);
+    InsnList insnList = method.instructions;
+    AbstractInsnNode[] insns = insnList.toArray();
+    boolean changed = false;
+    for (int i = 0; i < insns.length; ++i) {
+      Frame<ConstantValue> frame = frames[i];
+      if (frame == null) {
+        continue;
+      }
+      AbstractInsnNode insn = insns[i];
+      int topIndex = frame.getStackSize() - 1;
+      switch (insn.getType()) {
+        case AbstractInsnNode.JUMP_INSN:
+          int opcode = insn.getOpcode();
+          if (opcode == GOTO || opcode == JSR) {
+            break;
+          }
+          boolean isBinary = opcode >= IF_ICMPEQ && opcode <= IF_ACMPNE;
+          Boolean isTaken =
+              isBinary
+                  ? evaluateCondition(
+                      opcode, frame.getStack(topIndex - 1), frame.getStack(topIndex))
+                  : evaluateCondition(opcode, frame.getStack(topIndex), null);
+          if (isTaken != null) {
+            // Use one POP per argument, so that RedundantLoadStoreElimination can remove them.
+            insnList.insertBefore(insn, newPopInsn(1));
+            if (isBinary) {
+              insnList.insertBefore(insn, newPopInsn(1));
+            }
+            if (isTaken.booleanValue()) {
+              insnList.set(insn, new JumpInsnNode(GOTO, ((JumpInsnNode) insn).label));
+            } else {
+              insnList.remove(insn);
+            }
+            changed = true;
+          }
+          break;
+        case AbstractInsnNode.TABLESWITCH_INSN:
+          ConstantValue tableSwitchKey = frame.getStack(topIndex);
+          if (tableSwitchKey.isConstant()) {
+            TableSwitchInsnNode tableSwitchInsn = (TableSwitchInsnNode) insn;
+            int key = ((Integer) tableSwitchKey.value).intValue();
+            LabelNode target =
+                key >= tableSwitchInsn.min && key <= tableSwitchInsn.max
+                    ? tableSwitchInsn.labels.get(key - tableSwitchInsn.min)
+                    : tableSwitchInsn.dflt;
+            replaceWithGoto(insnList, insn, target);
+            changed = true;
+          }
+          break;
+        case AbstractInsnNode.LOOKUPSWITCH_INSN:
+          ConstantValue lookupSwitchKey = frame.getStack(topIndex);
+          if (lookupSwitchKey.isConstant()) {
+            LookupSwitchInsnNode lookupSwitchInsn = (LookupSwitchInsnNode) insn;
+            int keyIndex = lookupSwitchInsn.keys.indexOf(lookupSwitchKey.value);
+            LabelNode target =
+                keyIndex >= 0 ? lookupSwitchInsn.labels.get(keyIndex) : lookupSwitchInsn.dflt;
+            replaceWithGoto(insnList, insn, target);
+            changed = true;
+          }
+          break;
+        default:
+          break;
+      }
+    }
+    return changed;
+  }
+
+  /**
+   * Replaces a switch instruction with a POP followed by a GOTO instruction.
+   *
+   * @param insnList the instructions of the method to be transformed.
+   * @param switchInsn a switch instruction of insnList.
+   * @param target the label to which the GOTO instruction must jump.
+   */
+  public static void replaceWithGoto(
+      final InsnList insnList, final AbstractInsnNode switchInsn, final LabelNode target) {
+    insnList.insertBefore(switchInsn, newPopInsn(1));
+    insnList.set(switchInsn, new JumpInsnNode(GOTO, target));
+  }
+
+  /**
+   * Evaluates the condition of a conditional jump instruction.
+   *
+   * @param opcode the opcode of a conditional jump instruction.
+   * @param value1 the first argument of the instruction.
+   * @param value2 the second argument of the instruction, or {@literal null} if the instruction has
+   *     only one argument.
+   * @return whether the jump is taken, or {@literal null} if this can't be determined at analysis
+   *     time.
+   */
+  public static Boolean evaluateCondition(
+      final int opcode, final ConstantValue value1, final ConstantValue value2) {
+    switch (opcode) {
+      case IFNULL:
+      case IFNONNULL:
+        return value1.isNull() ? Boolean.valueOf(opcode == IFNULL) : null;
+      case IF_ACMPEQ:
+      case IF_ACMPNE:
+        return value1.isNull() && value2.isNull() ? Boolean.valueOf(opcode == IF_ACMPEQ) : null;
+      default:
+        break;
+    }
+    if (!(value1.value instanceof Integer)) {
+      return null;
+    }
+    int intValue1 = ((Integer) value1.value).intValue();
+    int intValue2 = 0;
+    if (value2 != null) {
+      if (!(value2.value instanceof Integer)) {
+        return null;
+      }
+      intValue2 = ((Integer) value2.value).intValue();
+    }
+    switch (opcode) {
+      case IFEQ:
+      case IF_ICMPEQ:
+        return Boolean.valueOf(intValue1 == intValue2);
+      case IFNE:
+      case IF_ICMPNE:
+        return Boolean.valueOf(intValue1 != intValue2);
+      case IFLT:
+      case IF_ICMPLT:
+        return Boolean.valueOf(intValue1 < intValue2);
+      case IFGE:
+      case IF_ICMPGE:
+        return Boolean.valueOf(intValue1 >= intValue2);
+      case IFGT:
+      case IF_ICMPGT:
+        return Boolean.valueOf(intValue1 > intValue2);
+      case IFLE:
+      case IF_ICMPLE:
+        return Boolean.valueOf(intValue1 <= intValue2);
+      default:
+        throw new IllegalArgumentException();
+    }
+  }
+}
@@ -0,0 +1,513 @@
+// ASM: a very small and fast Java bytecode manipulation framework
+// Copyright (c) 2000-2011 INRIA, France Telecom
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+// 1. Redistributions of source code must retain the above copyright
+//    notice, this list of conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright
+//    notice, this list of conditions and the following disclaimer in the
+//    documentation and/or other materials provided with the distribution.
+// 3. Neither the name of the copyright holders nor the names of its
+//    contributors may be used to endorse or promote products derived from
+//    this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+// THE POSSIBILITY OF SUCH DAMAGE.
+package org.objectweb.asm.tree.analysis;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.IincInsnNode;
+import org.objectweb.asm.tree.InsnNode;
+import org.objectweb.asm.tree.IntInsnNode;
+import org.objectweb.asm.tree.LdcInsnNode;
+
+/**
+ * An {@link Interpreter} for {@link ConstantValue} values. This interpreter propagates the int,
+ * long, float and double constants, as well as the {@literal null} reference, through local
+ * variables, stack operations and arithmetic instructions. Instructions which would throw an
+ * exception at runtime (such as an integer division by zero) are not folded. The types of the
+ * values are computed with a {@link BasicInterpreter} (all the object and array references are
+ * represented with {@link ConstantValue#REFERENCE_VALUE}).
+ */
+public class ConstantInterpreter extends Interpreter<ConstantValue> implements Opcodes {
+
+  /** The interpreter used to compute the types of the values. */
+  public final BasicInterpreter basicInterpreter;
+
+  /**
+   * Constructs a new {@link ConstantInterpreter} for the latest ASM API version. <i>Subclasses must
+   * not use this constructor</i>. Instead, they must use the {@link #ConstantInterpreter(int)}
+   * version.
+   */
+  public ConstantInterpreter() {
+    this(/* latest api = */ ASM9);
+    if (getClass() != ConstantInterpreter.class) {
+      throw new IllegalStateException();
+    }
+  }
+
+  /**
+   * Constructs a new {@link ConstantInterpreter}.
+   *
+   * @param api the ASM API version supported by this interpreter. Must be one of the {@code
+   *     ASM}<i>x</i> values in {@link Opcodes}.
+   */
+  public ConstantInterpreter(final int api) {
+    super(api);
+    basicInterpreter = new BasicInterpreter(api);
+  }
+
+  @Override
+  public ConstantValue newValue(final Type type) {
+    return toConstantValue(basicInterpreter.newValue(type));
+  }
+
+  @Override
+  public ConstantValue newOperation(final AbstractInsnNode insn) throws AnalyzerException {
+    Object constant = getConstant(insn);
+    if (constant != null) {
+      return newConstantValue(constant);
+    }
+    return toConstantValue(basicInterpreter.newOperation(insn));
+  }
+
+  @Override
+  public ConstantValue copyOperation(final AbstractInsnNode insn, final ConstantValue value)
+      throws AnalyzerException {
+    return value;
+  }
+
+  @Override
+  public ConstantValue unaryOperation(final AbstractInsnNode insn, final ConstantValue value)
+      throws AnalyzerException {
+    if (value.isConstant()) {
+      if (insn.getOpcode() == CHECKCAST && value.isNull()) {
+        return value;
+      }
+      Object result = foldUnaryOperation(insn, value.value);
+      if (result != null) {
+        return newConstantValue(result);
+      }
+    }
+    return toConstantValue(basicInterpreter.unaryOperation(insn, value.basicValue));
+  }
+
+  @Override
+  public ConstantValue binaryOperation(
+      final AbstractInsnNode insn, final ConstantValue value1, final ConstantValue value2)
+      throws AnalyzerException {
+    if (value1.isConstant() && value2.isConstant()) {
+      Object result = foldBinaryOperation(insn.getOpcode(), value1.value, value2.value);
+      if (result != null) {
+        return newConstantValue(result);
+      }
+    }
+    return toConstantValue(
+        basicInterpreter.binaryOperation(insn, value1.basicValue, value2.basicValue));
+  }
+
+  @Override
+  public ConstantValue ternaryOperation(
+      final AbstractInsnNode insn,
+      final ConstantValue value1,
+      final ConstantValue value2,
+      final ConstantValue value3)
+      throws AnalyzerException {
+    return toConstantValue(
+        basicInterpreter.ternaryOperation(
+            insn, value1.basicValue, value2.basicValue, value3.basicValue));
+  }
+
+  @Override
+  public ConstantValue naryOperation(
+      final AbstractInsnNode insn, final List<? extends ConstantValue> values)
+      throws AnalyzerException {
+    List<BasicValue> basicValues = new ArrayList<BasicValue>(values.size());
+    for (ConstantValue value : values) {
+      basicValues.add(value.basicValue);
+    }
+    return toConstantValue(basicInterpreter.naryOperation(insn, basicValues));
+  }
+
+  @Override
+  public void returnOperation(
+      final AbstractInsnNode insn, final ConstantValue value, final ConstantValue expected)
+      throws AnalyzerException {
+    basicInterpreter.returnOperation(insn, value.basicValue, expected.basicValue);
+  }
+
+  @Override
+  public ConstantValue merge(final ConstantValue value1, final ConstantValue value2) {
+    if (value1.equals(value2)) {
+      return value1;
+    }
+    return toConstantValue(basicInterpreter.merge(value1.basicValue, value2.basicValue));
+  }
+
+  /**
+   * Returns the non constant {@link ConstantValue} corresponding to the given basic value.
+   *
+   * @param basicValue a basic value, or {@literal null}.
+   * @return the non constant {@link ConstantValue} corresponding to the given basic value, or
+   *     {@literal null} if basicValue is {@literal null}.
+   */
+  public ConstantValue toConstantValue(final BasicValue basicValue) {
+    if (basicValue == null) {
+      return null;
+    } else if (basicValue.isReference()) {
+      return ConstantValue.REFERENCE_VALUE;
+    } else if (basicValue.equals(BasicValue.INT_VALUE)) {
+      return ConstantValue.INT_VALUE;
+    } else if (basicValue.equals(BasicValue.FLOAT_VALUE)) {
+      return ConstantValue.FLOAT_VALUE;
+    } else if (basicValue.equals(BasicValue.LONG_VALUE)) {
+      return ConstantValue.LONG_VALUE;
+    } else if (basicValue.equals(BasicValue.DOUBLE_VALUE)) {
+      return ConstantValue.DOUBLE_VALUE;
+    } else if (basicValue.equals(BasicValue.RETURNADDRESS_VALUE)) {
+      return ConstantValue.RETURNADDRESS_VALUE;
+    } else if (basicValue.equals(BasicValue.UNINITIALIZED_VALUE)) {
+      return ConstantValue.UNINITIALIZED_VALUE;
+    }
+    return new ConstantValue(basicValue, null);
+  }
+
+  /**
+   * Returns the {@link ConstantValue} corresponding to the given constant.
+   *
+   * @param constant an {@link Integer}, {@link Long}, {@link Float} or {@link Double} constant, or
+   *     {@link ConstantValue#NULL}.
+   * @return the {@link ConstantValue} corresponding to the given constant.
+   */
+  public static ConstantValue newConstantValue(final Object constant) {
+    if (constant instanceof Integer) {
+      return new ConstantValue(BasicValue.INT_VALUE, constant);
+    } else if (constant instanceof Long) {
+      return new ConstantValue(BasicValue.LONG_VALUE, constant);
+    } else if (constant instanceof Float) {
+      return new ConstantValue(BasicValue.FLOAT_VALUE, constant);
+    } else if (constant instanceof Double) {
+      return new ConstantValue(BasicValue.DOUBLE_VALUE, constant);
+    } else if (constant == ConstantValue.NULL) {
+      return new ConstantValue(BasicValue.REFERENCE_VALUE, constant);
+    }
+    throw new IllegalArgumentException("Unsupported constant " + constant);
+  }
+
+  /**
+   * Returns the constant pushed on the stack by the given instruction, if it pushes a constant
+   * tracked by this interpreter.
+   *
+   * @param insn an instruction.
+   * @return the {@link Integer}, {@link Long}, {@link Float} or {@link Double} constant pushed by
+   *     the given instruction, {@link ConstantValue#NULL} if it is an ACONST_NULL instruction, or
+   *     {@literal null} otherwise.
+   */
+  public static Object getConstant(final AbstractInsnNode insn) {
+    int opcode = insn.getOpcode();
+    switch (opcode) {
+      case ACONST_NULL:
+        return ConstantValue.NULL;
+      case ICONST_M1:
+      case ICONST_0:
+      case ICONST_1:
+      case ICONST_2:
+      case ICONST_3:
+      case ICONST_4:
+      case ICONST_5:
+        return Integer.valueOf(opcode - ICONST_0);
+      case LCONST_0:
+      case LCONST_1:
+        return Long.valueOf(opcode - LCONST_0);
+      case FCONST_0:
+      case FCONST_1:
+      case FCONST_2:
+        return Float.valueOf(opcode - FCONST_0);
+      case DCONST_0:
+      case DCONST_1:
+        return Double.valueOf(opcode - DCONST_0);
+      case BIPUSH:
+      case SIPUSH:
+        return Integer.valueOf(((IntInsnNode) insn).operand);
+      case LDC:
+        Object value = ((LdcInsnNode) insn).cst;
+        if (value instanceof Integer
+            || value instanceof Long
+            || value instanceof Float
+            || value instanceof Double) {
+          return value;
+        }
+        return null;
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * Returns the shortest instruction pushing the given constant on the stack.
+   *
+   * @param constant an {@link Integer}, {@link Long}, {@link Float} or {@link Double} constant, or
+   *     {@link ConstantValue#NULL}.
+   * @return an instruction pushing the given constant on the stack.
+   */
+  public static AbstractInsnNode newConstantInsn(final Object constant) {
+    if (constant == ConstantValue.NULL) {
+      return new InsnNode(ACONST_NULL);
+    } else if (constant instanceof Integer) {
+      int value = ((Integer) constant).intValue();
+      if (value >= -1 && value <= 5) {
+        return new InsnNode(ICONST_0 + value);
+      } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+        return new IntInsnNode(BIPUSH, value);
+      } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+        return new IntInsnNode(SIPUSH, value);
+      }
+    } else if (constant instanceof Long) {
+      long value = ((Long) constant).longValue();
+      if (value == 0L || value == 1L) {
+        return new InsnNode(LCONST_0 + (int) value);
+      }
+    } else if (constant instanceof Float) {
+      float value = ((Float) constant).floatValue();
+      // Use the bits of the value, to exclude -0.0f.
+      int bits = Float.floatToIntBits(value);
+      if (bits == Float.floatToIntBits(0f)
+          || bits == Float.floatToIntBits(1f)
+          || bits == Float.floatToIntBits(2f)) {
+        return new InsnNode(FCONST_0 + (int) value);
+      }
+    } else if (constant instanceof Double) {
+      double value = ((Double) constant).doubleValue();
+      long bits = Double.doubleToLongBits(value);
+      if (bits == Double.doubleToLongBits(0d) || bits == Double.doubleToLongBits(1d)) {
+        return new InsnNode(DCONST_0 + (int) value);
+      }
+    } else {
+      throw new IllegalArgumentException("Unsupported constant " + constant);
+    }
+    return new LdcInsnNode(constant);
+  }
+
+  /**
+   * Computes the result of a unary instruction with a constant argument.
+   *
+   * @param insn an instruction with one argument.
+   * @param value the constant value of the argument (see {@link ConstantValue#value}).
+   * @return the constant result of the instruction, or {@literal null} if it can't be computed at
+   *     analysis time.
+   */
+  public static Object foldUnaryOperation(final AbstractInsnNode insn, final Object value) {
+    if (value instanceof Integer) {
+      int intValue = ((Integer) value).intValue();
+      switch (insn.getOpcode()) {
+        case INEG:
+          return Integer.valueOf(-intValue);
+        case IINC:
+          return Integer.valueOf(intValue + ((IincInsnNode) insn).incr);
+        case I2L:
+          return Long.valueOf(intValue);
+        case I2F:
+          return Float.valueOf(intValue);
+        case I2D:
+          return Double.valueOf(intValue);
+        case I2B:
+          return Integer.valueOf((byte) intValue);
+        case I2C:
+          return Integer.valueOf((char) intValue);
+        case I2S:
+          return Integer.valueOf((short) intValue);
+        default:
+          return null;
+      }
+    } else if (value instanceof Long) {
+      long longValue = ((Long) value).longValue();
+      switch (insn.getOpcode()) {
+        case LNEG:
+          return Long.valueOf(-longValue);
+        case L2I:
+          return Integer.valueOf((int) longValue);
+        case L2F:
+          return Float.valueOf(longValue);
+        case L2D:
+          return Double.valueOf(longValue);
+        default:
+          return null;
+      }
+    } else if (value instanceof Float) {
+      float floatValue = ((Float) value).floatValue();
+      switch (insn.getOpcode()) {
+        case FNEG:
+          return Float.valueOf(-floatValue);
+        case F2I:
+          return Integer.valueOf((int) floatValue);
+        case F2L:
+          return Long.valueOf((long) floatValue);
+        case F2D:
+          return Double.valueOf(floatValue);
+        default:
+          return null;
+      }
+    } else if (value instanceof Double) {
+      double doubleValue = ((Double) value).doubleValue();
+      switch (insn.getOpcode()) {
+        case DNEG:
+          return Double.valueOf(-doubleValue);
+        case D2I:
+          return Integer.valueOf((int) doubleValue);
+        case D2L:
+          return Long.valueOf((long) doubleValue);
+        case D2F:
+          return Float.valueOf((float) doubleValue);
+        default:
+          return null;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Computes the result of a binary instruction with constant arguments.
+   *
+   * @param opcode the opcode of an instruction with two arguments.
+   * @param value1 the constant value of the first argument (see {@link ConstantValue#value}).
+   * @param value2 the constant value of the second argument (see {@link ConstantValue#value}).
+   * @return the constant result of the instruction, or {@literal null} if it can't be computed at
+   *     analysis time.
+   */
+  public static Object foldBinaryOperation(
+      final int opcode, final Object value1, final Object value2) {
+    if (value1 instanceof Integer && value2 instanceof Integer) {
+      int intValue1 = ((Integer) value1).intValue();
+      int intValue2 = ((Integer) value2).intValue();
+      switch (opcode) {
+        case IADD:
+          return Integer.valueOf(intValue1 + intValue2);
+        case ISUB:
+          return Integer.valueOf(intValue1 - intValue2);
+        case IMUL:
+          return Integer.valueOf(intValue1 * intValue2);
+        case IDIV:
+          return intValue2 == 0 ? null : Integer.valueOf(intValue1 / intValue2);
+        case IREM:
+          return intValue2 == 0 ? null : Integer.valueOf(intValue1 % intValue2);
+        case ISHL:
+          return Integer.valueOf(intValue1 << intValue2);
+        case ISHR:
+          return Integer.valueOf(intValue1 >> intValue2);
+        case IUSHR:
+          return Integer.valueOf(intValue1 >>> intValue2);
+        case IAND:
+          return Integer.valueOf(intValue1 & intValue2);
+        case IOR:
+          return Integer.valueOf(intValue1 | intValue2);
+        case IXOR:
+          return Integer.valueOf(intValue1 ^ intValue2);
+        default:
+          return null;
+      }
+    } else if (value1 instanceof Long && value2 instanceof Integer) {
+      long longValue1 = ((Long) value1).longValue();
+      int intValue2 = ((Integer) value2).intValue();
+      switch (opcode) {
+        case LSHL:
+          return Long.valueOf(longValue1 << intValue2);
+        case LSHR:
+          return Long.valueOf(longValue1 >> intValue2);
+        case LUSHR:
+          return Long.valueOf(longValue1 >>> intValue2);
+        default:
+          return null;
+      }
+    } else if (value1 instanceof Long && value2 instanceof Long) {
+      long longValue1 = ((Long) value1).longValue();
+      long longValue2 = ((Long) value2).longValue();
+      switch (opcode) {
+        case LADD:
+          return Long.valueOf(longValue1 + longValue2);
+        case LSUB:
+          return Long.valueOf(longValue1 - longValue2);
+        case LMUL:
+          return Long.valueOf(longValue1 * longValue2);
+        case LDIV:
+          return longValue2 == 0 ? null : Long.valueOf(longValue1 / longValue2);
+        case LREM:
+          return longValue2 == 0 ? null : Long.valueOf(longValue1 % longValue2);
+        case LAND:
+          return Long.valueOf(longValue1 & longValue2);
+        case LOR:
+          return Long.valueOf(longValue1 | longValue2);
+        case LXOR:
+          return Long.valueOf(longValue1 ^ longValue2);
+        case LCMP:
+          return Integer.valueOf(longValue1 < longValue2 ? -1 : longValue1 == longValue2 ? 0 : 1);
+        default:
+          return null;
+      }
+    } else if (value1 instanceof Float && value2 instanceof Float) {
+      float floatValue1 = ((Float) value1).floatValue();
+      float floatValue2 = ((Float) value2).floatValue();
+      switch (opcode) {
+        case FADD:
+          return Float.valueOf(floatValue1 + floatValue2);
+        case FSUB:
+          return Float.valueOf(floatValue1 - floatValue2);
+        case FMUL:
+          return Float.valueOf(floatValue1 * floatValue2);
+        case FDIV:
+          return Float.valueOf(floatValue1 / floatValue2);
+        case FREM:
+          return Float.valueOf(floatValue1 % floatValue2);
+        case FCMPL:
+        case FCMPG:
+          if (Float.isNaN(floatValue1) || Float.isNaN(floatValue2)) {
+            return Integer.valueOf(opcode == FCMPL ? -1 : 1);
+          }
+          return Integer.valueOf(
+              floatValue1 < floatValue2 ? -1 : floatValue1 == floatValue2 ? 0 : 1);
+        default:
+          return null;
+      }
+    } else if (value1 instanceof Double && value2 instanceof Double) {
+      double doubleValue1 = ((Double) value1).doubleValue();
+      double doubleValue2 = ((Double) value2).doubleValue();
+      switch (opcode) {
+        case DADD:
+          return Double.valueOf(doubleValue1 + doubleValue2);
+        case DSUB:
+          return Double.valueOf(doubleValue1 - doubleValue2);
+        case DMUL:
+          return Double.valueOf(doubleValue1 * doubleValue2);
+        case DDIV:
+          return Double.valueOf(doubleValue1 / doubleValue2);
+        case DREM:
+          return Double.valueOf(doubleValue1 % doubleValue2);
+        case DCMPL:
+        case DCMPG:
+          if (Double.isNaN(doubleValue1) || Double.isNaN(doubleValue2)) {
+            return Integer.valueOf(opcode == DCMPL ? -1 : 1);
+          }
+          return Integer.valueOf(
+              doubleValue1 < doubleValue2 ? -1 : doubleValue1 == doubleValue2 ? 0 : 1);
+        default:
+          return null;
+      }
+    }
+    return null;
+  }
+}
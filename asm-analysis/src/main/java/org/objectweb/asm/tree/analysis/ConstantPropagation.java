@@ -0,0 +1,152 @@
+// ASM: a very small and fast Java bytecode manipulation framework
+// Copyright (c) 2000-2011 INRIA, France Telecom
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+// 1. Redistributions of source code must retain the above copyright
+//    notice, this list of conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright
+//    notice, this list of conditions and the following disclaimer in the
+//    documentation and/or other materials provided with the distribution.
+// 3. Neither the name of the copyright holders nor the names of its
+//    contributors may be used to endorse or promote products derived from
+//    this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+// THE POSSIBILITY OF SUCH DAMAGE.
+package org.objectweb.asm.tree.analysis;
+
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.InsnList;
+import org.objectweb.asm.tree.MethodNode;
+import org.objectweb.asm.tree.VarInsnNode;
+
+/**
+ * An {@link OptimizationPass} which propagates and folds constants. The load instructions of local
+ * variables whose value is a known constant (as computed by a {@link ConstantInterpreter}) are
+ * replaced with constant instructions, and the unary and binary arithmetic instructions whose
+ * arguments are pushed by the immediately preceding constant instructions are replaced with a
+ * single constant instruction. The stores which become useless are removed by {@link
+ * RedundantLoadStoreElimination}.
+ */
+public class ConstantPropagation extends OptimizationPass {
+
+  @Override
+  public boolean run(final String owner, final MethodNode method) throws AnalyzerException {
+    boolean changed = replaceConstantLoads(owner, method);
+    return foldConstantExpressions(method.instructions) || changed;
+  }
+
+  /**
+   * Replaces the load instructions of local variables whose value is a known constant with constant
+   * instructions.
+   *
+   * @param owner the internal name of the class to which 'method' belongs.
+   * @param method the method to be transformed.
+   * @return whether the method has been changed.
+   * @throws AnalyzerException if a problem occurs during the analysis of the method.
+   */
+  public boolean replaceConstantLoads(final String owner, final MethodNode method)
+      throws AnalyzerException {
+    Frame<ConstantValue>[] frames =
+        new Analyzer<ConstantValue>(new ConstantInterpreter()).analyze(owner, method);
+    InsnList insnList = method.instructions;
+    AbstractInsnNode[] insns = insnList.toArray();
+    boolean changed = false;
+    for (int i = 0; i < insns.length; ++i) {
+      AbstractInsnNode insn = insns[i];
+      int opcode = insn.getOpcode();
+      if (opcode >= ILOAD && opcode <= ALOAD && frames[i] != null) {
+        ConstantValue value = frames[i].getLocal(((VarInsnNode) insn).var);
+        if (value.isConstant()) {
+          insnList.set(insn, ConstantInterpreter.newConstantInsn(value.value));
+          changed = true;
+        }
+      }
+    }
+    return changed;
+  }
+
+  /**
+   * Replaces the arithmetic instructions whose arguments are pushed by the immediately preceding
+   * constant instructions with a single constant instruction. Nested expressions are folded
+   * completely, since the result of a folded instruction can itself be used as an argument of the
+   * next one.
+   *
+   * @param insnList the instructions of the method to be transformed.
+   * @return whether the instructions have been changed.
+   */
+  public boolean foldConstantExpressions(final InsnList insnList) {
+    boolean changed = false;
+    AbstractInsnNode insn = insnList.getFirst();
+    while (insn != null) {
+      AbstractInsnNode foldedInsn = foldConstantExpression(insnList, insn);
+      if (foldedInsn != null) {
+        changed = true;
+        insn = foldedInsn;
+      }
+      insn = insn.getNext();
+    }
+    return changed;
+  }
+
+  /**
+   * Replaces the given arithmetic instruction and the constant instructions pushing its arguments
+   * with a single constant instruction, if possible.
+   *
+   * @param insnList the instructions of the method to be transformed.
+   * @param insn an instruction of insnList.
+   * @return the instruction which replaced the folded instructions, or {@literal null} if the given
+   *     instruction can't be folded.
+   */
+  public static AbstractInsnNode foldConstantExpression(
+      final InsnList insnList, final AbstractInsnNode insn) {
+    int opcode = insn.getOpcode();
+    boolean isUnary = (opcode >= INEG && opcode <= DNEG) || (opcode >= I2L && opcode <= I2S);
+    boolean isBinary =
+        (opcode >= IADD && opcode <= DREM)
+            || (opcode >= ISHL && opcode <= LXOR)
+            || (opcode >= LCMP && opcode <= DCMPG);
+    if (!isUnary && !isBinary) {
+      return null;
+    }
+    AbstractInsnNode argument2 = insn.getPrevious();
+    Object value2 = argument2 == null ? null : ConstantInterpreter.getConstant(argument2);
+    if (value2 == null) {
+      return null;
+    }
+    Object result;
+    AbstractInsnNode argument1 = null;
+    if (isUnary) {
+      result = ConstantInterpreter.foldUnaryOperation(insn, value2);
+    } else {
+      argument1 = argument2.getPrevious();
+      Object value1 = argument1 == null ? null : ConstantInterpreter.getConstant(argument1);
+      if (value1 == null) {
+        return null;
+      }
+      result = ConstantInterpreter.foldBinaryOperation(opcode, value1, value2);
+    }
+    if (result == null) {
+      return null;
+    }
+    AbstractInsnNode constantInsn = ConstantInterpreter.newConstantInsn(result);
+    insnList.set(insn, constantInsn);
+    insnList.remove(argument2);
+    if (argument1 != null) {
+      insnList.remove(argument1);
+    }
+    return constantInsn;
+  }
+}
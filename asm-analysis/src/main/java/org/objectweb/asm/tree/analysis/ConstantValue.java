@@ -0,0 +1,149 @@
+// ASM: a very small and fast Java bytecode manipulation framework
+// Copyright (c) 2000-2011 INRIA, France Telecom
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+// 1. Redistributions of source code must retain the above copyright
+//    notice, this list of conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright
+//    notice, this list of conditions and the following disclaimer in the
+//    documentation and/or other materials provided with the distribution.
+// 3. Neither the name of the copyright holders nor the names of its
+//    contributors may be used to endorse or promote products derived from
+//    this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+// THE POSSIBILITY OF SUCH DAMAGE.
+package org.objectweb.asm.tree.analysis;
+
+import org.objectweb.asm.Type;
+
+/**
+ * A {@link Value} made of a {@link BasicValue} and, if it is known at analysis time, of its
+ * constant value. Constant values are only tracked for primitive int, long, float and double values
+ * and for the {@literal null} reference.
+ */
+public class ConstantValue implements Value {
+
+  /** The value which represents the {@literal null} reference in {@link #value}. */
+  public static final Object NULL = BasicInterpreter.NULL_TYPE;
+
+  /** An uninitialized value. */
+  public static final ConstantValue UNINITIALIZED_VALUE =
+      new ConstantValue(BasicValue.UNINITIALIZED_VALUE, null);
+
+  /** A non constant primitive int value. */
+  public static final ConstantValue INT_VALUE = new ConstantValue(BasicValue.INT_VALUE, null);
+
+  /** A non constant primitive float value. */
+  public static final ConstantValue FLOAT_VALUE = new ConstantValue(BasicValue.FLOAT_VALUE, null);
+
+  /** A non constant primitive long value. */
+  public static final ConstantValue LONG_VALUE = new ConstantValue(BasicValue.LONG_VALUE, null);
+
+  /** A non constant primitive double value. */
+  public static final ConstantValue DOUBLE_VALUE = new ConstantValue(BasicValue.DOUBLE_VALUE, null);
+
+  /** A non constant object or array reference value. */
+  public static final ConstantValue REFERENCE_VALUE =
+      new ConstantValue(BasicValue.REFERENCE_VALUE, null);
+
+  /** A return address value (produced by a jsr instruction). */
+  public static final ConstantValue RETURNADDRESS_VALUE =
+      new ConstantValue(BasicValue.RETURNADDRESS_VALUE, null);
+
+  /** The basic value corresponding to this value. */
+  public final BasicValue basicValue;
+
+  /**
+   * The constant value of this value. This is an {@link Integer}, a {@link Long}, a {@link Float},
+   * a {@link Double}, {@link #NULL}, or {@literal null} if this value is not a known constant.
+   */
+  public final Object value;
+
+  /**
+   * Constructs a new {@link ConstantValue}.
+   *
+   * @param basicValue the basic value corresponding to this value.
+   * @param value the constant value of this value, or {@literal null} if it is not known (see
+   *     {@link #value}).
+   */
+  public ConstantValue(final BasicValue basicValue, final Object value) {
+    this.basicValue = basicValue;
+    this.value = value;
+  }
+
+  /**
+   * Returns the type of this value.
+   *
+   * @return the type of this value, or {@literal null} if this value is uninitialized.
+   */
+  public Type getType() {
+    return basicValue.getType();
+  }
+
+  @Override
+  public int getSize() {
+    return basicValue.getSize();
+  }
+
+  /**
+   * Returns whether the value of this value is known at analysis time.
+   *
+   * @return whether {@link #value} is not {@literal null}.
+   */
+  public boolean isConstant() {
+    return value != null;
+  }
+
+  /**
+   * Returns whether this value is the {@literal null} reference.
+   *
+   * @return whether {@link #value} is {@link #NULL}.
+   */
+  public boolean isNull() {
+    return value == NULL;
+  }
+
+  @Override
+  public boolean equals(final Object value) {
+    if (value == this) {
+      return true;
+    } else if (value instanceof ConstantValue) {
+      ConstantValue constantValue = (ConstantValue) value;
+      return basicValue.equals(constantValue.basicValue)
+          && (this.value == null
+              ? constantValue.value == null
+              : this.value.equals(constantValue.value));
+    } else {
+      return false;
+    }
+  }
+
+  @Override
+  public int hashCode() {
+    return basicValue.hashCode() ^ (value == null ? 0 : value.hashCode());
+  }
+
+  @Override
+  public String toString() {
+    if (value == null) {
+      return basicValue.toString();
+    } else if (value == NULL) {
+      return "null";
+    } else {
+      return basicValue.toString() + '=' + value;
+    }
+  }
+}
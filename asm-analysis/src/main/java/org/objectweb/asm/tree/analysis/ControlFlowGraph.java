@@ -0,0 +1,600 @@
+// ASM: a very small and fast Java bytecode manipulation framework
+// Copyright (c) 2000-2011 INRIA, France Telecom
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+// 1. Redistributions of source code must retain the above copyright
+//    notice, this list of conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright
+//    notice, this list of conditions and the following disclaimer in the
+//    documentation and/or other materials provided with the distribution.
+// 3. Neither the name of the copyright holders nor the names of its
+//    contributors may be used to endorse or promote products derived from
+//    this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+// THE POSSIBILITY OF SUCH DAMAGE.
+package org.objectweb.asm.tree.analysis;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.InsnList;
+import org.objectweb.asm.tree.JumpInsnNode;
+import org.objectweb.asm.tree.LabelNode;
+import org.objectweb.asm.tree.LookupSwitchInsnNode;
+import org.objectweb.asm.tree.MethodNode;
+import org.objectweb.asm.tree.TableSwitchInsnNode;
+import org.objectweb.asm.tree.TryCatchBlockNode;
+
+/**
+ * The control flow graph of a method, made of {@link BasicBlock}s connected by normal and
+ * exceptional edges. The blocks, edges and reverse postorder are computed in the constructor, in
+ * time linear in the size of the method. The dominators, post-dominators and loops are computed on
+ * first use, and then cached. A graph can therefore be shared between several analyses of the same
+ * method, as long as its instructions and try catch blocks are not modified (a new graph must be
+ * constructed otherwise).
+ *
+ * <p>Blocks start at instruction 0, at jump and switch targets, at the start, end and handler of
+ * each try catch block, and after each jump, switch, return, ATHROW and RET instruction. <i>JSR and
+ * RET instructions are handled conservatively: a block ending with a JSR instruction has the
+ * subroutine as only successor, and a block ending with a RET instruction has all the blocks
+ * following a JSR instruction as successors.</i>
+ */
+public final class ControlFlowGraph implements Opcodes {
+
+  /** The method whose control flow graph this is. */
+  public final MethodNode method;
+
+  /** The basic blocks of {@link #method}, sorted by increasing instruction index. */
+  public final BasicBlock[] blocks;
+
+  /** The index in {@link #blocks} of the block containing each instruction of {@link #method}. */
+  public final int[] insnBlockIndices;
+
+  /**
+   * The indices of the normal and exceptional successors of each block (one array per block index).
+   * The normal successors come first.
+   */
+  public final int[][] successorIndices;
+
+  /**
+   * The indices of the normal and exceptional predecessors of each block (one array per block
+   * index). The normal predecessors come first.
+   */
+  public final int[][] predecessorIndices;
+
+  /** The blocks reachable from the entry block, in reverse postorder (the entry block first). */
+  public final BasicBlock[] reversePostorder;
+
+  /** The dominator tree of this graph, or {@literal null} if it has not been computed yet. */
+  public DominatorTree dominatorTree;
+
+  /**
+   * The post-dominator tree of this graph, or {@literal null} if it has not been computed yet. The
+   * nodes of this tree are the block indices, plus a virtual exit node of index {@code
+   * blocks.length}, which is the root of the tree and the successor of all the blocks without
+   * successors.
+   */
+  public DominatorTree postDominatorTree;
+
+  /** The natural loops of this graph, or {@literal null} if they have not been computed yet. */
+  public List<Loop> loops;
+
+  /** The innermost loop containing each block, or {@literal null} if not computed yet. */
+  public Loop[] innermostLoops;
+
+  /**
+   * Constructs the control flow graph of the given method.
+   *
+   * @param method the method whose control flow graph must be constructed.
+   */
+  public ControlFlowGraph(final MethodNode method) {
+    this.method = method;
+    InsnList insnList = method.instructions;
+    int insnListSize = insnList.size();
+    List<TryCatchBlockNode> tryCatchBlocks = method.tryCatchBlocks;
+
+    // Find the instructions which start a basic block.
+    boolean[] isBlockStart = new boolean[insnListSize + 1];
+    isBlockStart[0] = true;
+    if (tryCatchBlocks != null) {
+      for (TryCatchBlockNode tryCatchBlock : tryCatchBlocks) {
+        isBlockStart[insnList.indexOf(tryCatchBlock.start)] = true;
+        isBlockStart[insnList.indexOf(tryCatchBlock.end)] = true;
+        isBlockStart[insnList.indexOf(tryCatchBlock.handler)] = true;
+      }
+    }
+    int insnIndex = 0;
+    for (AbstractInsnNode insnNode = insnList.getFirst();
+        insnNode != null;
+        insnNode = insnNode.getNext(), ++insnIndex) {
+      switch (insnNode.getType()) {
+        case AbstractInsnNode.JUMP_INSN:
+          isBlockStart[insnList.indexOf(((JumpInsnNode) insnNode).label)] = true;
+          isBlockStart[insnIndex + 1] = true;
+          break;
+        case AbstractInsnNode.TABLESWITCH_INSN:
+          TableSwitchInsnNode tableSwitchInsn = (TableSwitchInsnNode) insnNode;
+          markBlockStarts(insnList, tableSwitchInsn.dflt, tableSwitchInsn.labels, isBlockStart);
+          isBlockStart[insnIndex + 1] = true;
+          break;
+        case AbstractInsnNode.LOOKUPSWITCH_INSN:
+          LookupSwitchInsnNode lookupSwitchInsn = (LookupSwitchInsnNode) insnNode;
+          markBlockStarts(insnList, lookupSwitchInsn.dflt, lookupSwitchInsn.labels, isBlockStart);
+          isBlockStart[insnIndex + 1] = true;
+          break;
+        default:
+          int opcode = insnNode.getOpcode();
+          if ((opcode >= IRETURN && opcode <= RETURN) || opcode == ATHROW || opcode == RET) {
+            isBlockStart[insnIndex + 1] = true;
+          }
+          break;
+      }
+    }
+
+    // Create the basic blocks.
+    int numBlocks = 0;
+    for (int i = 0; i < insnListSize; ++i) {
+      if (isBlockStart[i]) {
+        numBlocks++;
+      }
+    }
+    blocks = new BasicBlock[numBlocks];
+    insnBlockIndices = new int[insnListSize];
+    int blockIndex = -1;
+    int blockStart = 0;
+    for (int i = 0; i < insnListSize; ++i) {
+      if (isBlockStart[i] && i > 0) {
+        blocks[++blockIndex] = new BasicBlock(blockIndex, blockStart, i);
+        blockStart = i;
+      }
+      insnBlockIndices[i] = blockIndex + 1;
+    }
+    if (insnListSize > 0) {
+      blocks[++blockIndex] = new BasicBlock(blockIndex, blockStart, insnListSize);
+    }
+
+    // Create the normal edges. Duplicate edges (e.g. from switch instructions with identical
+    // targets) are removed with 'edgeMarks', which contains the index + 1 of the last source block
+    // of an edge to each block.
+    int[] edgeMarks = new int[numBlocks];
+    List<BasicBlock> retBlocks = null;
+    List<BasicBlock> jsrReturnBlocks = null;
+    for (BasicBlock block : blocks) {
+      AbstractInsnNode lastInsn = insnList.get(block.endInsnIndex - 1);
+      int opcode = lastInsn.getOpcode();
+      BasicBlock nextBlock = block.index + 1 < numBlocks ? blocks[block.index + 1] : null;
+      if (lastInsn instanceof JumpInsnNode) {
+        if (opcode == JSR) {
+          if (nextBlock != null) {
+            if (jsrReturnBlocks == null) {
+              jsrReturnBlocks = new ArrayList<>();
+            }
+            jsrReturnBlocks.add(nextBlock);
+          }
+        } else if (opcode != GOTO) {
+          addEdge(block, nextBlock, edgeMarks);
+        }
+        addEdge(block, getBlock(((JumpInsnNode) lastInsn).label), edgeMarks);
+      } else if (lastInsn instanceof TableSwitchInsnNode) {
+        TableSwitchInsnNode tableSwitchInsn = (TableSwitchInsnNode) lastInsn;
+        addEdges(block, tableSwitchInsn.dflt, tableSwitchInsn.labels, edgeMarks);
+      } else if (lastInsn instanceof LookupSwitchInsnNode) {
+        LookupSwitchInsnNode lookupSwitchInsn = (LookupSwitchInsnNode) lastInsn;
+        addEdges(block, lookupSwitchInsn.dflt, lookupSwitchInsn.labels, edgeMarks);
+      } else if (opcode == RET) {
+        if (retBlocks == null) {
+          retBlocks = new ArrayList<>();
+        }
+        retBlocks.add(block);
+      } else if ((opcode < IRETURN || opcode > RETURN) && opcode != ATHROW) {
+        addEdge(block, nextBlock, edgeMarks);
+      }
+    }
+    if (retBlocks != null && jsrReturnBlocks != null) {
+      for (BasicBlock retBlock : retBlocks) {
+        for (BasicBlock jsrReturnBlock : jsrReturnBlocks) {
+          addEdge(retBlock, jsrReturnBlock, edgeMarks);
+        }
+      }
+    }
+
+    // Create the exceptional edges. The try catch blocks are first sorted by handler block (with a
+    // counting sort), so that duplicate edges can be removed with 'edgeMarks', which then contains
+    // the index + 1 of the last handler block of an edge from each block.
+    if (tryCatchBlocks != null && !tryCatchBlocks.isEmpty()) {
+      int numTryCatchBlocks = tryCatchBlocks.size();
+      int[] handlerCounts = new int[numBlocks + 1];
+      for (TryCatchBlockNode tryCatchBlock : tryCatchBlocks) {
+        handlerCounts[getBlock(tryCatchBlock.handler).index + 1]++;
+      }
+      for (int i = 0; i < numBlocks; ++i) {
+        handlerCounts[i + 1] += handlerCounts[i];
+      }
+      TryCatchBlockNode[] sortedTryCatchBlocks = new TryCatchBlockNode[numTryCatchBlocks];
+      for (TryCatchBlockNode tryCatchBlock : tryCatchBlocks) {
+        sortedTryCatchBlocks[handlerCounts[getBlock(tryCatchBlock.handler).index]++] =
+            tryCatchBlock;
+      }
+      Arrays.fill(edgeMarks, 0);
+      for (TryCatchBlockNode tryCatchBlock : sortedTryCatchBlocks) {
+        BasicBlock handlerBlock = getBlock(tryCatchBlock.handler);
+        int endInsnIndex = insnList.indexOf(tryCatchBlock.end);
+        for (int i = getBlock(tryCatchBlock.start).index;
+            i < numBlocks && blocks[i].startInsnIndex < endInsnIndex;
+            ++i) {
+          if (edgeMarks[i] != handlerBlock.index + 1) {
+            edgeMarks[i] = handlerBlock.index + 1;
+            blocks[i].exceptionSuccessors.add(handlerBlock);
+            handlerBlock.exceptionPredecessors.add(blocks[i]);
+          }
+        }
+      }
+    }
+
+    // Compute the successor and predecessor indices, and the reverse postorder.
+    successorIndices = new int[numBlocks][];
+    predecessorIndices = new int[numBlocks][];
+    for (BasicBlock block : blocks) {
+      successorIndices[block.index] = toIndices(block.successors, block.exceptionSuccessors);
+      predecessorIndices[block.index] = toIndices(block.predecessors, block.exceptionPredecessors);
+    }
+    if (numBlocks == 0) {
+      reversePostorder = new BasicBlock[0];
+    } else {
+      int[] order = new int[numBlocks];
+      int[] orderIndices = new int[numBlocks];
+      int numReachableBlocks =
+          DominatorTree.computeReversePostorder(0, successorIndices, order, orderIndices);
+      reversePostorder = new BasicBlock[numReachableBlocks];
+      for (int i = 0; i < numReachableBlocks; ++i) {
+        reversePostorder[i] = blocks[order[i]];
+        reversePostorder[i].reversePostorderIndex = i;
+      }
+    }
+  }
+
+  /**
+   * Marks the given switch targets as block starts.
+   *
+   * @param insnList the instructions of the method.
+   * @param dflt the default target of a switch instruction.
+   * @param labels the other targets of a switch instruction.
+   * @param isBlockStart the block starts, indexed by instruction index.
+   */
+  public static void markBlockStarts(
+      final InsnList insnList,
+      final LabelNode dflt,
+      final List<LabelNode> labels,
+      final boolean[] isBlockStart) {
+    isBlockStart[insnList.indexOf(dflt)] = true;
+    for (LabelNode label : labels) {
+      isBlockStart[insnList.indexOf(label)] = true;
+    }
+  }
+
+  /**
+   * Adds the edges from the given block to the given switch targets.
+   *
+   * @param block a block ending with a switch instruction.
+   * @param dflt the default target of the switch instruction.
+   * @param labels the other targets of the switch instruction.
+   * @param edgeMarks the index + 1 of the last source block of an edge to each block.
+   */
+  public void addEdges(
+      final BasicBlock block,
+      final LabelNode dflt,
+      final List<LabelNode> labels,
+      final int[] edgeMarks) {
+    addEdge(block, getBlock(dflt), edgeMarks);
+    for (LabelNode label : labels) {
+      addEdge(block, getBlock(label), edgeMarks);
+    }
+  }
+
+  /**
+   * Adds a normal edge between two blocks, unless it already exists.
+   *
+   * @param source the source block.
+   * @param target the target block, or {@literal null} if the control flow falls off the end of the
+   *     code (in which case this method does nothing).
+   * @param edgeMarks the index + 1 of the last source block of an edge to each block.
+   */
+  public static void addEdge(
+      final BasicBlock source, final BasicBlock target, final int[] edgeMarks) {
+    if (target != null && edgeMarks[target.index] != source.index + 1) {
+      edgeMarks[target.index] = source.index + 1;
+      source.successors.add(target);
+      target.predecessors.add(source);
+    }
+  }
+
+  /**
+   * Returns the indices of the given blocks.
+   *
+   * @param normalBlocks some blocks.
+   * @param exceptionBlocks some other blocks.
+   * @return the indices of the blocks in 'normalBlocks' followed by those in 'exceptionBlocks'.
+   */
+  public static int[] toIndices(
+      final List<BasicBlock> normalBlocks, final List<BasicBlock> exceptionBlocks) {
+    int numNormalBlocks = normalBlocks.size();
+    int[] indices = new int[numNormalBlocks + exceptionBlocks.size()];
+    for (int i = 0; i < numNormalBlocks; ++i) {
+      indices[i] = normalBlocks.get(i).index;
+    }
+    for (int i = numNormalBlocks; i < indices.length; ++i) {
+      indices[i] = exceptionBlocks.get(i - numNormalBlocks).index;
+    }
+    return indices;
+  }
+
+  // -----------------------------------------------------------------------------------------------
+  // Accessors
+  // -----------------------------------------------------------------------------------------------
+
+  /**
+   * Returns the entry block of this graph.
+   *
+   * @return the block containing the first instruction of the method, or {@literal null} if the
+   *     method has no instructions.
+   */
+  public BasicBlock getEntry() {
+    return blocks.length == 0 ? null : blocks[0];
+  }
+
+  /**
+   * Returns the block containing the given instruction.
+   *
+   * @param insnIndex the index of an instruction of the method.
+   * @return the block containing the given instruction.
+   */
+  public BasicBlock getBlock(final int insnIndex) {
+    return blocks[insnBlockIndices[insnIndex]];
+  }
+
+  /**
+   * Returns the block containing the given instruction.
+   *
+   * @param insnNode an instruction of the method.
+   * @return the block containing the given instruction.
+   */
+  public BasicBlock getBlock(final AbstractInsnNode insnNode) {
+    return blocks[insnBlockIndices[method.instructions.indexOf(insnNode)]];
+  }
+
+  // -----------------------------------------------------------------------------------------------
+  // Dominators and post-dominators
+  // -----------------------------------------------------------------------------------------------
+
+  /**
+   * Returns the dominator tree of this graph, whose nodes are the block indices.
+   *
+   * @return the dominator tree of this graph (computed on the first call, and then cached).
+   */
+  public DominatorTree getDominatorTree() {
+    if (dominatorTree == null) {
+      dominatorTree = new DominatorTree(0, successorIndices, predecessorIndices);
+    }
+    return dominatorTree;
+  }
+
+  /**
+   * Returns the post-dominator tree of this graph. See {@link #postDominatorTree}.
+   *
+   * @return the post-dominator tree of this graph (computed on the first call, and then cached).
+   */
+  public DominatorTree getPostDominatorTree() {
+    if (postDominatorTree == null) {
+      // Build the reverse graph, with a virtual exit node connected to the blocks without
+      // successors, i.e. those ending with a return or an uncaught ATHROW instruction.
+      int numBlocks = blocks.length;
+      int exit = numBlocks;
+      int[][] reverseSuccessors = new int[numBlocks + 1][];
+      int[][] reversePredecessors = new int[numBlocks + 1][];
+      int numExitBlocks = 0;
+      for (int i = 0; i < numBlocks; ++i) {
+        reverseSuccessors[i] = predecessorIndices[i];
+        if (successorIndices[i].length == 0) {
+          reversePredecessors[i] = new int[] {exit};
+          numExitBlocks++;
+        } else {
+          reversePredecessors[i] = successorIndices[i];
+        }
+      }
+      int[] exitBlocks = new int[numExitBlocks];
+      numExitBlocks = 0;
+      for (int i = 0; i < numBlocks; ++i) {
+        if (successorIndices[i].length == 0) {
+          exitBlocks[numExitBlocks++] = i;
+        }
+      }
+      reverseSuccessors[exit] = exitBlocks;
+      reversePredecessors[exit] = new int[0];
+      postDominatorTree = new DominatorTree(exit, reverseSuccessors, reversePredecessors);
+    }
+    return postDominatorTree;
+  }
+
+  /**
+   * Returns the immediate dominator of the given block.
+   *
+   * @param block a block of this graph.
+   * @return the immediate dominator of the given block, or {@literal null} if this block is the
+   *     entry block or is not reachable.
+   */
+  public BasicBlock getImmediateDominator(final BasicBlock block) {
+    int dominator = getDominatorTree().getImmediateDominator(block.index);
+    return dominator == -1 ? null : blocks[dominator];
+  }
+
+  /**
+   * Returns whether a block dominates another one, i.e. whether every path from the entry block to
+   * the second block goes through the first one. Each reachable block dominates itself.
+   *
+   * @param dominator a block of this graph.
+   * @param block a block of this graph.
+   * @return whether 'dominator' dominates 'block'.
+   */
+  public boolean dominates(final BasicBlock dominator, final BasicBlock block) {
+    return getDominatorTree().dominates(dominator.index, block.index);
+  }
+
+  /**
+   * Returns the immediate post-dominator of the given block.
+   *
+   * @param block a block of this graph.
+   * @return the immediate post-dominator of the given block, or {@literal null} if this block has
+   *     no successor, or if no exit block can be reached from it (e.g. in an infinite loop), or if
+   *     its only post-dominator is the virtual exit node.
+   */
+  public BasicBlock getImmediatePostDominator(final BasicBlock block) {
+    int postDominator = getPostDominatorTree().getImmediateDominator(block.index);
+    return postDominator == -1 || postDominator == blocks.length ? null : blocks[postDominator];
+  }
+
+  /**
+   * Returns whether a block post-dominates another one, i.e. whether every path from the second
+   * block to an exit block goes through the first one. Each block from which an exit block can be
+   * reached post-dominates itself.
+   *
+   * @param postDominator a block of this graph.
+   * @param block a block of this graph.
+   * @return whether 'postDominator' post-dominates 'block'.
+   */
+  public boolean postDominates(final BasicBlock postDominator, final BasicBlock block) {
+    return getPostDominatorTree().dominates(postDominator.index, block.index);
+  }
+
+  // -----------------------------------------------------------------------------------------------
+  // Loops
+  // -----------------------------------------------------------------------------------------------
+
+  /**
+   * Returns the natural loops of this graph, i.e. the loops whose header dominates a block ending
+   * with an edge to this header (irreducible loops are not detected). Loops with the same header
+   * are merged into a single loop.
+   *
+   * @return the natural loops of this graph, sorted in reverse postorder of their header (so that
+   *     outer loops come before their nested loops). Computed on the first call, and then cached.
+   */
+  public List<Loop> getLoops() {
+    if (loops == null) {
+      computeLoops();
+    }
+    return loops;
+  }
+
+  /**
+   * Returns the innermost loop containing the given block.
+   *
+   * @param block a block of this graph.
+   * @return the innermost loop containing the given block, or {@literal null} if it does not belong
+   *     to any loop.
+   */
+  public Loop getInnermostLoop(final BasicBlock block) {
+    if (loops == null) {
+      computeLoops();
+    }
+    return innermostLoops[block.index];
+  }
+
+  /**
+   * Returns the loop nesting depth of the given block.
+   *
+   * @param block a block of this graph.
+   * @return the number of loops containing the given block.
+   */
+  public int getLoopDepth(final BasicBlock block) {
+    Loop loop = getInnermostLoop(block);
+    return loop == null ? 0 : loop.depth;
+  }
+
+  /** Computes {@link #loops} and {@link #innermostLoops}. */
+  public void computeLoops() {
+    DominatorTree dominators = getDominatorTree();
+    int numBlocks = blocks.length;
+
+    // Find the back edges, i.e. the edges whose target dominates their source, and group them by
+    // loop header.
+    Loop[] headerLoops = new Loop[numBlocks];
+    boolean hasLoops = false;
+    for (BasicBlock block : reversePostorder) {
+      for (int successor : successorIndices[block.index]) {
+        if (dominators.dominates(successor, block.index)) {
+          Loop loop = headerLoops[successor];
+          if (loop == null) {
+            loop = new Loop(blocks[successor]);
+            headerLoops[successor] = loop;
+            hasLoops = true;
+          }
+          loop.backEdgeSources.add(block);
+        }
+      }
+    }
+    innermostLoops = new Loop[numBlocks];
+    if (!hasLoops) {
+      loops = Collections.emptyList();
+      return;
+    }
+
+    // Compute the body of each loop, by following the predecessors of the back edge sources up to
+    // the loop header. Loops are processed in reverse postorder of their header, so that an outer
+    // loop is always processed before its nested loops. This ensures that the innermost loop
+    // containing a block is the last one which is found to contain it.
+    List<Loop> loopList = new ArrayList<>();
+    int[] worklist = new int[numBlocks];
+    for (BasicBlock header : reversePostorder) {
+      Loop loop = headerLoops[header.index];
+      if (loop == null) {
+        continue;
+      }
+      loopList.add(loop);
+      loop.blockIndices.set(header.index);
+      int worklistSize = 0;
+      for (BasicBlock backEdgeSource : loop.backEdgeSources) {
+        if (!loop.blockIndices.get(backEdgeSource.index)) {
+          loop.blockIndices.set(backEdgeSource.index);
+          worklist[worklistSize++] = backEdgeSource.index;
+        }
+      }
+      while (worklistSize > 0) {
+        int block = worklist[--worklistSize];
+        for (int predecessor : predecessorIndices[block]) {
+          if (blocks[predecessor].isReachable() && !loop.blockIndices.get(predecessor)) {
+            loop.blockIndices.set(predecessor);
+            worklist[worklistSize++] = predecessor;
+          }
+        }
+      }
+      Loop parent = innermostLoops[header.index];
+      loop.parent = parent;
+      loop.depth = parent == null ? 1 : parent.depth + 1;
+      if (parent != null) {
+        parent.children.add(loop);
+      }
+      for (int i = loop.blockIndices.nextSetBit(0);
+          i >= 0;
+          i = loop.blockIndices.nextSetBit(i + 1)) {
+        loop.blocks.add(blocks[i]);
+        innermostLoops[i] = loop;
+      }
+    }
+    loops = Collections.unmodifiableList(loopList);
+  }
+}
@@ -0,0 +1,244 @@
+// ASM: a very small and fast Java bytecode manipulation framework
+// Copyright (c) 2000-2011 INRIA, France Telecom
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+// 1. Redistributions of source code must retain the above copyright
+//    notice, this list of conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright
+//    notice, this list of conditions and the following disclaimer in the
+//    documentation and/or other materials provided with the distribution.
+// 3. Neither the name of the copyright holders nor the names of its
+//    contributors may be used to endorse or promote products derived from
+//    this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+// THE POSSIBILITY OF SUCH DAMAGE.
+package org.objectweb.asm.tree.analysis;
+
+import java.util.Arrays;
+
+/**
+ * The dominator tree of a directed graph whose nodes are numbered from 0 to n-1. A node d dominates
+ * a node n if every path from the root to n goes through d. The tree is computed with the iterative
+ * algorithm of Cooper, Harvey and Kennedy, which is linear in practice on the control flow graphs
+ * of real methods, and {@link #dominates} is answered in constant time from a preorder numbering of
+ * the tree.
+ */
+public final class DominatorTree {
+
+  /** The root of the graph. */
+  public final int root;
+
+  /**
+   * The immediate dominator of each node, or -1 for the root and for the nodes which are not
+   * reachable from the root.
+   */
+  public final int[] immediateDominators;
+
+  /**
+   * The index of each node in a preorder traversal of the tree, or -1 for the nodes which are not
+   * reachable from the root.
+   */
+  public final int[] preorderIndices;
+
+  /** The number of nodes of the subtree rooted at each node (0 for unreachable nodes). */
+  public final int[] subtreeSizes;
+
+  /**
+   * Constructs the dominator tree of the given graph.
+   *
+   * @param root the root of the graph.
+   * @param successors the successors of each node of the graph.
+   * @param predecessors the predecessors of each node of the graph.
+   */
+  public DominatorTree(final int root, final int[][] successors, final int[][] predecessors) {
+    int numNodes = successors.length;
+    this.root = root;
+    this.immediateDominators = new int[numNodes];
+    this.preorderIndices = new int[numNodes];
+    this.subtreeSizes = new int[numNodes];
+    Arrays.fill(immediateDominators, -1);
+    Arrays.fill(preorderIndices, -1);
+    if (numNodes == 0) {
+      return;
+    }
+
+    // Compute the immediate dominators, by iterating over the nodes in reverse postorder until a
+    // fixpoint is reached (two iterations suffice for reducible graphs).
+    int[] order = new int[numNodes];
+    int[] orderIndices = new int[numNodes];
+    int numReachableNodes = computeReversePostorder(root, successors, order, orderIndices);
+    int[] idom = immediateDominators;
+    idom[root] = root;
+    boolean changed = true;
+    while (changed) {
+      changed = false;
+      for (int i = 1; i < numReachableNodes; ++i) {
+        int node = order[i];
+        int newIdom = -1;
+        for (int predecessor : predecessors[node]) {
+          if (idom[predecessor] != -1) {
+            newIdom =
+                newIdom == -1 ? predecessor : intersect(predecessor, newIdom, idom, orderIndices);
+          }
+        }
+        if (idom[node] != newIdom) {
+          idom[node] = newIdom;
+          changed = true;
+        }
+      }
+    }
+    idom[root] = -1;
+
+    // Compute the children of each node, as linked lists stored in two arrays.
+    int[] firstChild = new int[numNodes];
+    int[] nextSibling = new int[numNodes];
+    Arrays.fill(firstChild, -1);
+    for (int i = numReachableNodes - 1; i > 0; --i) {
+      int node = order[i];
+      nextSibling[node] = firstChild[idom[node]];
+      firstChild[idom[node]] = node;
+    }
+
+    // Number the nodes in preorder, and compute the subtree sizes, with an iterative depth first
+    // traversal of the tree.
+    int[] stack = new int[numNodes];
+    int stackSize = 0;
+    int preorderIndex = 0;
+    stack[stackSize++] = root;
+    preorderIndices[root] = preorderIndex++;
+    int[] nextChild = firstChild.clone();
+    while (stackSize > 0) {
+      int node = stack[stackSize - 1];
+      int child = nextChild[node];
+      if (child != -1) {
+        nextChild[node] = nextSibling[child];
+        preorderIndices[child] = preorderIndex++;
+        stack[stackSize++] = child;
+      } else {
+        stackSize--;
+        subtreeSizes[node] = preorderIndex - preorderIndices[node];
+      }
+    }
+  }
+
+  /**
+   * Returns the immediate dominator of the given node.
+   *
+   * @param node a node of the graph.
+   * @return the immediate dominator of the given node, or -1 if it is the root or if it is not
+   *     reachable from the root.
+   */
+  public int getImmediateDominator(final int node) {
+    return immediateDominators[node];
+  }
+
+  /**
+   * Returns whether a node dominates another one. Each node dominates itself.
+   *
+   * @param dominator a node of the graph.
+   * @param node a node of the graph.
+   * @return whether 'dominator' dominates 'node'. Always false if one of the nodes is not reachable
+   *     from the root.
+   */
+  public boolean dominates(final int dominator, final int node) {
+    int dominatorIndex = preorderIndices[dominator];
+    int nodeIndex = preorderIndices[node];
+    return dominatorIndex != -1
+        && nodeIndex >= dominatorIndex
+        && nodeIndex < dominatorIndex + subtreeSizes[dominator];
+  }
+
+  /**
+   * Returns whether the given node is reachable from the root.
+   *
+   * @param node a node of the graph.
+   * @return whether the given node is reachable from the root.
+   */
+  public boolean isReachable(final int node) {
+    return preorderIndices[node] != -1;
+  }
+
+  /**
+   * Returns the nearest common dominator of two nodes, given partially computed immediate
+   * dominators.
+   *
+   * @param node1 a node whose immediate dominator is known.
+   * @param node2 a node whose immediate dominator is known.
+   * @param idom the immediate dominators computed so far.
+   * @param orderIndices the index of each node in reverse postorder.
+   * @return the nearest common dominator of node1 and node2.
+   */
+  public static int intersect(
+      final int node1, final int node2, final int[] idom, final int[] orderIndices) {
+    int finger1 = node1;
+    int finger2 = node2;
+    while (finger1 != finger2) {
+      while (orderIndices[finger1] > orderIndices[finger2]) {
+        finger1 = idom[finger1];
+      }
+      while (orderIndices[finger2] > orderIndices[finger1]) {
+        finger2 = idom[finger2];
+      }
+    }
+    return finger1;
+  }
+
+  /**
+   * Computes the nodes reachable from the given root, in reverse postorder.
+   *
+   * @param root the root of the graph.
+   * @param successors the successors of each node of the graph.
+   * @param order where the reachable nodes must be stored, in reverse postorder.
+   * @param orderIndices where the index of each node in 'order' must be stored (-1 for the nodes
+   *     which are not reachable).
+   * @return the number of nodes reachable from the root.
+   */
+  public static int computeReversePostorder(
+      final int root, final int[][] successors, final int[] order, final int[] orderIndices) {
+    int numNodes = successors.length;
+    Arrays.fill(orderIndices, -1);
+    int[] stack = new int[numNodes];
+    int[] nextSuccessor = new int[numNodes];
+    boolean[] visited = new boolean[numNodes];
+    int stackSize = 0;
+    int postorderIndex = 0;
+    stack[stackSize++] = root;
+    visited[root] = true;
+    while (stackSize > 0) {
+      int node = stack[stackSize - 1];
+      int[] nodeSuccessors = successors[node];
+      if (nextSuccessor[node] < nodeSuccessors.length) {
+        int successor = nodeSuccessors[nextSuccessor[node]++];
+        if (!visited[successor]) {
+          visited[successor] = true;
+          stack[stackSize++] = successor;
+        }
+      } else {
+        stackSize--;
+        // Temporarily store the postorder index, converted to a reverse postorder index below.
+        orderIndices[node] = postorderIndex++;
+      }
+    }
+    for (int node = 0; node < numNodes; ++node) {
+      if (orderIndices[node] != -1) {
+        int orderIndex = postorderIndex - 1 - orderIndices[node];
+        orderIndices[node] = orderIndex;
+        order[orderIndex] = node;
+      }
+    }
+    return postorderIndex;
+  }
+}
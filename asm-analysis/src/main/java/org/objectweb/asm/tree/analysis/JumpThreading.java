@@ -0,0 +1,212 @@
+// ASM: a very small and fast Java bytecode manipulation framework
+// Copyright (c) 2000-2011 INRIA, France Telecom
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+// 1. Redistributions of source code must retain the above copyright
+//    notice, this list of conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright
+//    notice, this list of conditions and the following disclaimer in the
+//    documentation and/or other materials provided with the distribution.
+// 3. Neither the name of the copyright holders nor the names of its
+//    contributors may be used to endorse or promote products derived from
+//    this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+// THE POSSIBILITY OF SUCH DAMAGE.
+package org.objectweb.asm.tree.analysis;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.InsnList;
+import org.objectweb.asm.tree.InsnNode;
+import org.objectweb.asm.tree.JumpInsnNode;
+import org.objectweb.asm.tree.LabelNode;
+import org.objectweb.asm.tree.LookupSwitchInsnNode;
+import org.objectweb.asm.tree.MethodNode;
+import org.objectweb.asm.tree.TableSwitchInsnNode;
+
+/**
+ * An {@link OptimizationPass} which simplifies jumps. This pass:
+ *
+ * <ul>
+ *   <li>retargets the jump and switch instructions whose target is a GOTO instruction to the final
+ *       target of this GOTO chain,
+ *   <li>replaces the GOTO instructions whose target is a return or ATHROW instruction with a copy
+ *       of this instruction (only in methods without try catch blocks, since the copy could be
+ *       covered by different exception handlers),
+ *   <li>removes the jumps to the instruction which immediately follows them (conditional jumps are
+ *       replaced with instructions popping their arguments),
+ *   <li>replaces a conditional jump over a GOTO with the opposite conditional jump to the target of
+ *       this GOTO.
+ * </ul>
+ */
+public class JumpThreading extends OptimizationPass {
+
+  @Override
+  public boolean run(final String owner, final MethodNode method) {
+    InsnList insnList = method.instructions;
+    boolean hasTryCatchBlocks = method.tryCatchBlocks != null && !method.tryCatchBlocks.isEmpty();
+    boolean changed = false;
+    AbstractInsnNode insn = insnList.getFirst();
+    while (insn != null) {
+      AbstractInsnNode nextInsn = insn.getNext();
+      switch (insn.getType()) {
+        case AbstractInsnNode.JUMP_INSN:
+          if (insn.getOpcode() != JSR) {
+            changed |= simplifyJump(insnList, (JumpInsnNode) insn, hasTryCatchBlocks);
+            // The jump and the following instruction might have been removed or replaced.
+            nextInsn = insn.getNext() != null ? insn.getNext() : nextInsn;
+          }
+          break;
+        case AbstractInsnNode.TABLESWITCH_INSN:
+          TableSwitchInsnNode tableSwitchInsn = (TableSwitchInsnNode) insn;
+          changed |= retarget(tableSwitchInsn.labels);
+          LabelNode tableSwitchDefault = resolveTarget(tableSwitchInsn.dflt);
+          changed |= tableSwitchDefault != tableSwitchInsn.dflt;
+          tableSwitchInsn.dflt = tableSwitchDefault;
+          break;
+        case AbstractInsnNode.LOOKUPSWITCH_INSN:
+          LookupSwitchInsnNode lookupSwitchInsn = (LookupSwitchInsnNode) insn;
+          changed |= retarget(lookupSwitchInsn.labels);
+          LabelNode lookupSwitchDefault = resolveTarget(lookupSwitchInsn.dflt);
+          changed |= lookupSwitchDefault != lookupSwitchInsn.dflt;
+          lookupSwitchInsn.dflt = lookupSwitchDefault;
+          break;
+        default:
+          break;
+      }
+      insn = nextInsn;
+    }
+    return changed;
+  }
+
+  /**
+   * Simplifies a jump instruction.
+   *
+   * @param insnList the instructions of the method to be transformed.
+   * @param jumpInsn a jump instruction of insnList, other than JSR.
+   * @param hasTryCatchBlocks whether the method to be transformed has try catch blocks.
+   * @return whether the instructions have been changed.
+   */
+  public static boolean simplifyJump(
+      final InsnList insnList, final JumpInsnNode jumpInsn, final boolean hasTryCatchBlocks) {
+    int opcode = jumpInsn.getOpcode();
+    boolean changed = false;
+    LabelNode target = jumpInsn.label;
+    // Don't retarget a jump to the next instruction, which can be removed instead.
+    if (!fallsThrough(jumpInsn, target)) {
+      target = resolveTarget(target);
+      if (target != jumpInsn.label) {
+        jumpInsn.label = target;
+        changed = true;
+      }
+    }
+    if (fallsThrough(jumpInsn, target)) {
+      if (opcode == GOTO) {
+        insnList.remove(jumpInsn);
+      } else {
+        if (opcode >= IF_ICMPEQ && opcode <= IF_ACMPNE) {
+          insnList.insertBefore(jumpInsn, newPopInsn(1));
+        }
+        insnList.set(jumpInsn, newPopInsn(1));
+      }
+      return true;
+    }
+    if (opcode == GOTO) {
+      AbstractInsnNode targetInsn = getRealInsn(target);
+      if (!hasTryCatchBlocks && targetInsn != null && isReturnOrAthrow(targetInsn.getOpcode())) {
+        insnList.set(jumpInsn, new InsnNode(targetInsn.getOpcode()));
+        return true;
+      }
+      return changed;
+    }
+    AbstractInsnNode nextInsn = jumpInsn.getNext();
+    if (nextInsn != null && nextInsn.getOpcode() == GOTO && fallsThrough(nextInsn, target)) {
+      jumpInsn.setOpcode(getOppositeOpcode(opcode));
+      jumpInsn.label = resolveTarget(((JumpInsnNode) nextInsn).label);
+      insnList.remove(nextInsn);
+      return true;
+    }
+    return changed;
+  }
+
+  /**
+   * Retargets the given labels to the final target of the GOTO chains they start, if any.
+   *
+   * @param labels some jump or switch targets, updated in place.
+   * @return whether at least one label has been changed.
+   */
+  public static boolean retarget(final List<LabelNode> labels) {
+    boolean changed = false;
+    for (int i = 0; i < labels.size(); ++i) {
+      LabelNode label = labels.get(i);
+      LabelNode target = resolveTarget(label);
+      if (target != label) {
+        labels.set(i, target);
+        changed = true;
+      }
+    }
+    return changed;
+  }
+
+  /**
+   * Returns the final target of the GOTO chain starting at the given label.
+   *
+   * @param label a jump target.
+   * @return the label of the first instruction, reachable from label by following GOTO
+   *     instructions, which is not a GOTO (or the last label of the chain if it is a cycle).
+   */
+  public static LabelNode resolveTarget(final LabelNode label) {
+    LabelNode target = label;
+    Set<LabelNode> visitedTargets = null;
+    while (true) {
+      AbstractInsnNode targetInsn = getRealInsn(target);
+      if (targetInsn == null || targetInsn.getOpcode() != GOTO) {
+        return target;
+      }
+      LabelNode nextTarget = ((JumpInsnNode) targetInsn).label;
+      if (nextTarget == target) {
+        return target;
+      }
+      if (visitedTargets == null) {
+        visitedTargets = new HashSet<LabelNode>();
+        visitedTargets.add(label);
+      }
+      if (!visitedTargets.add(nextTarget)) {
+        return target;
+      }
+      target = nextTarget;
+    }
+  }
+
+  /**
+   * Returns the opcode of the conditional jump instruction with the opposite condition.
+   *
+   * @param opcode the opcode of a conditional jump instruction.
+   * @return the opcode of the conditional jump instruction with the opposite condition.
+   */
+  public static int getOppositeOpcode(final int opcode) {
+    if (opcode == IFNULL) {
+      return IFNONNULL;
+    } else if (opcode == IFNONNULL) {
+      return IFNULL;
+    }
+    // IFEQ, IFLT, IFGT, IF_ICMPEQ, IF_ICMPLT, IF_ICMPGT and IF_ACMPEQ have odd opcodes, followed by
+    // the opcode with the opposite condition.
+    return (opcode & 1) == 1 ? opcode + 1 : opcode - 1;
+  }
+}
@@ -0,0 +1,125 @@
+// ASM: a very small and fast Java bytecode manipulation framework
+// Copyright (c) 2000-2011 INRIA, France Telecom
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+// 1. Redistributions of source code must retain the above copyright
+//    notice, this list of conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright
+//    notice, this list of conditions and the following disclaimer in the
+//    documentation and/or other materials provided with the distribution.
+// 3. Neither the name of the copyright holders nor the names of its
+//    contributors may be used to endorse or promote products derived from
+//    this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+// THE POSSIBILITY OF SUCH DAMAGE.
+package org.objectweb.asm.tree.analysis;
+
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.IincInsnNode;
+import org.objectweb.asm.tree.VarInsnNode;
+
+/**
+ * A {@link BitVectorAnalysis} computing the live local variables at each point of a method. A local
+ * variable is live at some point if its current value may be read later on. Bit i is set if local
+ * variable i is live (long and double values use two bits, like they use two local variable slots).
+ */
+public class LivenessAnalysis extends BitVectorAnalysis implements Opcodes {
+
+  /** The number of local variables of the analyzed method. */
+  public final int maxLocals;
+
+  /**
+   * Constructs a new {@link LivenessAnalysis}. The {@link #analyze} method must be called before
+   * querying the analysis results.
+   *
+   * @param graph the control flow graph of the method to analyze.
+   */
+  public LivenessAnalysis(final ControlFlowGraph graph) {
+    super(graph, /* isForward= */ false, /* isUnion= */ true);
+    this.maxLocals = Math.max(graph.method.maxLocals, Analyzer.computeMaxLocals(graph.method));
+  }
+
+  @Override
+  public int getNumBits() {
+    return maxLocals;
+  }
+
+  @Override
+  public void computeGenKill(
+      final int insnIndex,
+      final AbstractInsnNode insnNode,
+      final long[] insnGen,
+      final long[] insnKill) {
+    int opcode = insnNode.getOpcode();
+    if (insnNode instanceof VarInsnNode) {
+      int varIndex = ((VarInsnNode) insnNode).var;
+      boolean isWide = opcode == LLOAD || opcode == DLOAD || opcode == LSTORE || opcode == DSTORE;
+      long[] bits = (opcode >= ISTORE && opcode <= ASTORE) ? insnKill : insnGen;
+      set(bits, varIndex);
+      if (isWide) {
+        set(bits, varIndex + 1);
+      }
+    } else if (insnNode instanceof IincInsnNode) {
+      set(insnGen, ((IincInsnNode) insnNode).var);
+    }
+  }
+
+  /**
+   * Returns whether a local variable is live at the beginning of the given block.
+   *
+   * @param block a block of {@link #graph}.
+   * @param varIndex a local variable index.
+   * @return whether the given local variable is live at the beginning of the given block.
+   */
+  public boolean isLiveIn(final BasicBlock block, final int varIndex) {
+    return get(in[block.index], varIndex);
+  }
+
+  /**
+   * Returns whether a local variable is live at the end of the given block.
+   *
+   * @param block a block of {@link #graph}.
+   * @param varIndex a local variable index.
+   * @return whether the given local variable is live at the end of the given block.
+   */
+  public boolean isLiveOut(final BasicBlock block, final int varIndex) {
+    return get(out[block.index], varIndex);
+  }
+
+  /**
+   * Returns whether a local variable is live just before the given instruction.
+   *
+   * @param insnIndex the index of an instruction of the analyzed method.
+   * @param varIndex a local variable index.
+   * @return whether the given local variable is live just before the given instruction.
+   */
+  public boolean isLiveBefore(final int insnIndex, final int varIndex) {
+    return get(getValueBefore(insnIndex), varIndex);
+  }
+
+  /**
+   * Returns whether a local variable is live just after the given instruction. In particular, a
+   * store instruction is dead if the variable it stores is not live after it.
+   *
+   * @param insnIndex the index of an instruction of the analyzed method.
+   * @param varIndex a local variable index.
+   * @return whether the given local variable is live just after the given instruction.
+   */
+  public boolean isLiveAfter(final int insnIndex, final int varIndex) {
+    return get(getValueAfter(insnIndex), varIndex);
+  }
+}
@@ -0,0 +1,89 @@
+// ASM: a very small and fast Java bytecode manipulation framework
+// Copyright (c) 2000-2011 INRIA, France Telecom
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+// 1. Redistributions of source code must retain the above copyright
+//    notice, this list of conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright
+//    notice, this list of conditions and the following disclaimer in the
+//    documentation and/or other materials provided with the distribution.
+// 3. Neither the name of the copyright holders nor the names of its
+//    contributors may be used to endorse or promote products derived from
+//    this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+// THE POSSIBILITY OF SUCH DAMAGE.
+package org.objectweb.asm.tree.analysis;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * A natural loop of a {@link ControlFlowGraph}, i.e. a header block which dominates all the blocks
+ * of the loop, and the blocks from which a back edge to the header can be reached without going
+ * through the header.
+ */
+public final class Loop {
+
+  /** The header of this loop, i.e. the unique entry block of the loop. */
+  public final BasicBlock header;
+
+  /** The blocks of this loop, including the header and the blocks of nested loops. */
+  public final List<BasicBlock> blocks;
+
+  /** The indices (in {@link ControlFlowGraph#blocks}) of the blocks of this loop. */
+  public final BitSet blockIndices;
+
+  /** The blocks ending with a back edge to {@link #header}. */
+  public final List<BasicBlock> backEdgeSources;
+
+  /** The loops directly nested in this loop. */
+  public final List<Loop> children;
+
+  /** The innermost loop containing this loop, or {@literal null} for an outermost loop. */
+  public Loop parent;
+
+  /** The nesting depth of this loop (1 for an outermost loop). */
+  public int depth;
+
+  /**
+   * Constructs a new {@link Loop}.
+   *
+   * @param header the header of this loop.
+   */
+  Loop(final BasicBlock header) {
+    this.header = header;
+    this.blocks = new ArrayList<>();
+    this.blockIndices = new BitSet();
+    this.backEdgeSources = new ArrayList<>(1);
+    this.children = new ArrayList<>(0);
+  }
+
+  /**
+   * Returns whether the given block belongs to this loop (or to one of its nested loops).
+   *
+   * @param block a block of the same control flow graph.
+   * @return whether the given block belongs to this loop.
+   */
+  public boolean contains(final BasicBlock block) {
+    return blockIndices.get(block.index);
+  }
+
+  @Override
+  public String toString() {
+    return "Loop" + blocks;
+  }
+}
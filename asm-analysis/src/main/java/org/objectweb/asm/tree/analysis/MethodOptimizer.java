@@ -0,0 +1,117 @@
+// ASM: a very small and fast Java bytecode manipulation framework
+// Copyright (c) 2000-2011 INRIA, France Telecom
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+// 1. Redistributions of source code must retain the above copyright
+//    notice, this list of conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright
+//    notice, this list of conditions and the following disclaimer in the
+//    documentation and/or other materials provided with the distribution.
+// 3. Neither the name of the copyright holders nor the names of its
+//    contributors may be used to endorse or promote products derived from
+//    this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+// THE POSSIBILITY OF SUCH DAMAGE.
+package org.objectweb.asm.tree.analysis;
+
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.MethodNode;
+
+/**
+ * An optimizer which applies a sequence of {@link OptimizationPass} to methods, until none of them
+ * changes the method (or until {@link #MAX_ITERATIONS} iterations have been done). By default, the
+ * constant propagation, branch folding, unreachable code elimination, jump threading and redundant
+ * load and store elimination passes are used, in this order, since each pass creates optimization
+ * opportunities for the next ones. The maximum stack size and maximum number of local variables of
+ * the optimized methods are recomputed, but not their stack map frames (see {@link
+ * OptimizationPass}).
+ */
+public class MethodOptimizer {
+
+  /** The maximum number of times the passes are applied to a method. */
+  public static final int MAX_ITERATIONS = 16;
+
+  /** The passes applied to the methods, in order. */
+  public final OptimizationPass[] passes;
+
+  /** Constructs a new {@link MethodOptimizer} with the default passes. */
+  public MethodOptimizer() {
+    this(
+        new ConstantPropagation(),
+        new BranchFolding(),
+        new UnreachableCodeElimination(),
+        new JumpThreading(),
+        new RedundantLoadStoreElimination());
+  }
+
+  /**
+   * Constructs a new {@link MethodOptimizer}.
+   *
+   * @param passes the passes to apply to the methods, in order.
+   */
+  public MethodOptimizer(final OptimizationPass... passes) {
+    this.passes = passes;
+  }
+
+  /**
+   * Optimizes all the methods of the given class.
+   *
+   * @param classNode a class.
+   * @return whether at least one method has been changed.
+   * @throws AnalyzerException if a problem occurs during the analysis of a method.
+   */
+  public boolean optimize(final ClassNode classNode) throws AnalyzerException {
+    boolean changed = false;
+    for (MethodNode method : classNode.methods) {
+      changed |= optimize(classNode.name, method);
+    }
+    return changed;
+  }
+
+  /**
+   * Optimizes the given method and, if it changed, removes its empty try catch blocks and recomputes
+   * its maximum stack size and maximum number of local variables.
+   *
+   * @param owner the internal name of the class to which 'method' belongs.
+   * @param method the method to be optimized.
+   * @return whether the method has been changed.
+   * @throws AnalyzerException if a problem occurs during the analysis of the method.
+   */
+  public boolean optimize(final String owner, final MethodNode method) throws AnalyzerException {
+    if (method.instructions.size() == 0) {
+      return false;
+    }
+    boolean changed = false;
+    for (int i = 0; i < MAX_ITERATIONS; ++i) {
+      boolean iterationChanged = false;
+      for (OptimizationPass pass : passes) {
+        if (pass.run(owner, method)) {
+          // The passes can leave empty try catch blocks, which are rejected by the JVM.
+          OptimizationPass.removeEmptyTryCatchBlocks(method);
+          iterationChanged = true;
+        }
+      }
+      if (!iterationChanged) {
+        break;
+      }
+      changed = true;
+    }
+    if (changed) {
+      OptimizationPass.computeMaxs(owner, method);
+    }
+    return changed;
+  }
+}
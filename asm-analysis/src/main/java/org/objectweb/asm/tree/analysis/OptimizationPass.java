@@ -0,0 +1,182 @@
+// ASM: a very small and fast Java bytecode manipulation framework
+// Copyright (c) 2000-2011 INRIA, France Telecom
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+// 1. Redistributions of source code must retain the above copyright
+//    notice, this list of conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright
+//    notice, this list of conditions and the following disclaimer in the
+//    documentation and/or other materials provided with the distribution.
+// 3. Neither the name of the copyright holders nor the names of its
+//    contributors may be used to endorse or promote products derived from
+//    this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+// THE POSSIBILITY OF SUCH DAMAGE.
+package org.objectweb.asm.tree.analysis;
+
+import java.util.Iterator;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.InsnList;
+import org.objectweb.asm.tree.InsnNode;
+import org.objectweb.asm.tree.LabelNode;
+import org.objectweb.asm.tree.LocalVariableNode;
+import org.objectweb.asm.tree.MethodNode;
+import org.objectweb.asm.tree.TryCatchBlockNode;
+
+/**
+ * A transformation of a {@link MethodNode} which preserves its semantics, while making it smaller
+ * or simpler. The passes do not update the stack map frames of the methods they transform, which
+ * must therefore be written with {@link org.objectweb.asm.ClassWriter#COMPUTE_FRAMES} when stack
+ * map frames are required.
+ *
+ * @see MethodOptimizer
+ */
+public abstract class OptimizationPass implements Opcodes {
+
+  /**
+   * Applies this pass to the given method and, if it changed, removes its empty try catch blocks and
+   * recomputes its maximum stack size and maximum number of local variables.
+   *
+   * @param owner the internal name of the class to which 'method' belongs.
+   * @param method the method to be transformed.
+   * @return whether the method has been changed.
+   * @throws AnalyzerException if a problem occurs during the analysis of the method.
+   */
+  public boolean transform(final String owner, final MethodNode method) throws AnalyzerException {
+    if (method.instructions.size() == 0 || !run(owner, method)) {
+      return false;
+    }
+    removeEmptyTryCatchBlocks(method);
+    computeMaxs(owner, method);
+    return true;
+  }
+
+  /**
+   * Applies this pass to the given method, without updating its maximum stack size and maximum
+   * number of local variables. A pass must never increase them. A pass can leave try catch blocks
+   * whose range no longer contains any instruction (see {@link #removeEmptyTryCatchBlocks}).
+   *
+   * @param owner the internal name of the class to which 'method' belongs.
+   * @param method the method to be transformed. Must have at least one instruction.
+   * @return whether the method has been changed.
+   * @throws AnalyzerException if a problem occurs during the analysis of the method.
+   */
+  public abstract boolean run(String owner, MethodNode method) throws AnalyzerException;
+
+  /**
+   * Computes and sets the maximum stack size and maximum number of local variables of a method. The
+   * maximum number of local variables also takes the local variable table into account, since local
+   * variables which are no longer used by any instruction can still be declared in it.
+   *
+   * @param owner the internal name of the class to which 'method' belongs.
+   * @param method a method.
+   * @throws AnalyzerException if a problem occurs during the analysis of the method.
+   */
+  public static void computeMaxs(final String owner, final MethodNode method)
+      throws AnalyzerException {
+    new Analyzer<BasicValue>(new BasicInterpreter()).analyzeAndComputeMaxs(owner, method);
+    if (method.localVariables != null) {
+      for (LocalVariableNode localVariable : method.localVariables) {
+        method.maxLocals =
+            Math.max(
+                method.maxLocals, localVariable.index + Type.getType(localVariable.desc).getSize());
+      }
+    }
+  }
+
+  /**
+   * Removes the try catch blocks whose range does not contain any real instruction. Such blocks are
+   * rejected by the JVM (with a ClassFormatError).
+   *
+   * @param method a method.
+   * @return whether at least one try catch block has been removed.
+   */
+  public static boolean removeEmptyTryCatchBlocks(final MethodNode method) {
+    if (method.tryCatchBlocks == null) {
+      return false;
+    }
+    boolean changed = false;
+    InsnList insnList = method.instructions;
+    Iterator<TryCatchBlockNode> iterator = method.tryCatchBlocks.iterator();
+    while (iterator.hasNext()) {
+      TryCatchBlockNode tryCatchBlock = iterator.next();
+      AbstractInsnNode firstInsn = getRealInsn(tryCatchBlock.start);
+      if (firstInsn == null || insnList.indexOf(firstInsn) >= insnList.indexOf(tryCatchBlock.end)) {
+        iterator.remove();
+        changed = true;
+      }
+    }
+    return changed;
+  }
+
+  /**
+   * Returns the first real instruction at or after the given node, i.e. the first one which is not
+   * a label, a line number or a frame.
+   *
+   * @param insn an instruction node, or {@literal null}.
+   * @return the first real instruction at or after the given node, or {@literal null} if there is
+   *     none.
+   */
+  public static AbstractInsnNode getRealInsn(final AbstractInsnNode insn) {
+    AbstractInsnNode currentInsn = insn;
+    while (currentInsn != null && currentInsn.getOpcode() == -1) {
+      currentInsn = currentInsn.getNext();
+    }
+    return currentInsn;
+  }
+
+  /**
+   * Returns whether the execution falls through from the given instruction to the given label, i.e.
+   * whether there are only labels, line numbers or frames between them.
+   *
+   * @param insn an instruction node.
+   * @param label a label.
+   * @return whether the given label follows the given instruction, with only labels, line numbers
+   *     or frames between them.
+   */
+  public static boolean fallsThrough(final AbstractInsnNode insn, final LabelNode label) {
+    AbstractInsnNode currentInsn = insn.getNext();
+    while (currentInsn != null && currentInsn.getOpcode() == -1) {
+      if (currentInsn == label) {
+        return true;
+      }
+      currentInsn = currentInsn.getNext();
+    }
+    return false;
+  }
+
+  /**
+   * Returns a new instruction popping a value of the given size from the stack.
+   *
+   * @param size the size of the value to pop, in 32 bits words.
+   * @return a new POP instruction if size is 1, or a new POP2 instruction otherwise.
+   */
+  public static AbstractInsnNode newPopInsn(final int size) {
+    return new InsnNode(size == 1 ? POP : POP2);
+  }
+
+  /**
+   * Returns whether the given opcode is the opcode of a return or athrow instruction.
+   *
+   * @param opcode an opcode.
+   * @return whether opcode is one of IRETURN, LRETURN, FRETURN, DRETURN, ARETURN, RETURN or ATHROW.
+   */
+  public static boolean isReturnOrAthrow(final int opcode) {
+    return (opcode >= IRETURN && opcode <= RETURN) || opcode == ATHROW;
+  }
+}
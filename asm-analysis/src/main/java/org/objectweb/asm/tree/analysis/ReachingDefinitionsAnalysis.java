@@ -0,0 +1,208 @@
+// ASM: a very small and fast Java bytecode manipulation framework
+// Copyright (c) 2000-2011 INRIA, France Telecom
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+// 1. Redistributions of source code must retain the above copyright
+//    notice, this list of conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright
+//    notice, this list of conditions and the following disclaimer in the
+//    documentation and/or other materials provided with the distribution.
+// 3. Neither the name of the copyright holders nor the names of its
+//    contributors may be used to endorse or promote products derived from
+//    this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+// THE POSSIBILITY OF SUCH DAMAGE.
+package org.objectweb.asm.tree.analysis;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.IincInsnNode;
+import org.objectweb.asm.tree.InsnList;
+import org.objectweb.asm.tree.VarInsnNode;
+
+/**
+ * A {@link BitVectorAnalysis} computing the definitions of local variables which can reach each
+ * point of a method. A definition is either the initial value of a local variable at the method
+ * entry (i.e. a parameter value, or an uninitialized value), or a store or IINC instruction. A
+ * definition reaches some point if there is a path from the definition to this point along which
+ * the local variable is not redefined. Bit i is set, for i less than {@link #maxLocals}, if the
+ * initial value of local variable i reaches this point. Bit {@code maxLocals + j} is set if the
+ * j-th element of {@link #definitions} reaches this point.
+ */
+public class ReachingDefinitionsAnalysis extends BitVectorAnalysis implements Opcodes {
+
+  /** The number of local variables of the analyzed method. */
+  public final int maxLocals;
+
+  /** The store and IINC instructions of the analyzed method, in instruction order. */
+  public final List<AbstractInsnNode> definitions;
+
+  /**
+   * The local variable defined by each definition (one per bit). The initial value of local i is
+   * the definition i.
+   */
+  public final int[] definitionVarIndices;
+
+  /**
+   * The bit of the definition made by each instruction (one per instruction index), or -1 for the
+   * instructions which are not store or IINC instructions.
+   */
+  public final int[] insnDefinitions;
+
+  /**
+   * The definitions which are killed by a store to each local variable (one bit vector per local
+   * variable). This includes the definitions of this variable, and the long or double definitions
+   * of the previous variable (whose second slot is overwritten).
+   */
+  public long[][] localKillSets;
+
+  /**
+   * Constructs a new {@link ReachingDefinitionsAnalysis}. The {@link #analyze} method must be
+   * called before querying the analysis results.
+   *
+   * @param graph the control flow graph of the method to analyze.
+   */
+  public ReachingDefinitionsAnalysis(final ControlFlowGraph graph) {
+    super(graph, /* isForward= */ true, /* isUnion= */ true);
+    this.maxLocals = Math.max(graph.method.maxLocals, Analyzer.computeMaxLocals(graph.method));
+    InsnList insnList = graph.method.instructions;
+    this.definitions = new ArrayList<>();
+    this.insnDefinitions = new int[insnList.size()];
+    Arrays.fill(insnDefinitions, -1);
+    List<Integer> varIndices = new ArrayList<>();
+    int insnIndex = 0;
+    for (AbstractInsnNode insnNode = insnList.getFirst();
+        insnNode != null;
+        insnNode = insnNode.getNext(), ++insnIndex) {
+      int opcode = insnNode.getOpcode();
+      int varIndex = -1;
+      if (opcode >= ISTORE && opcode <= ASTORE) {
+        varIndex = ((VarInsnNode) insnNode).var;
+      } else if (opcode == IINC) {
+        varIndex = ((IincInsnNode) insnNode).var;
+      }
+      if (varIndex != -1) {
+        insnDefinitions[insnIndex] = maxLocals + definitions.size();
+        definitions.add(insnNode);
+        varIndices.add(varIndex);
+      }
+    }
+    this.definitionVarIndices = new int[maxLocals + definitions.size()];
+    for (int i = 0; i < maxLocals; ++i) {
+      definitionVarIndices[i] = i;
+    }
+    for (int i = 0; i < varIndices.size(); ++i) {
+      definitionVarIndices[maxLocals + i] = varIndices.get(i);
+    }
+  }
+
+  @Override
+  public int getNumBits() {
+    return maxLocals + definitions.size();
+  }
+
+  @Override
+  public BitVectorAnalysis analyze() {
+    // Compute the kill set of each local variable, used in computeGenKill.
+    int numWords = (getNumBits() + 63) >>> 6;
+    localKillSets = new long[maxLocals + 1][numWords];
+    for (int i = 0; i < definitionVarIndices.length; ++i) {
+      int varIndex = definitionVarIndices[i];
+      set(localKillSets[varIndex], i);
+      if (i >= maxLocals && isWide(definitions.get(i - maxLocals))) {
+        set(localKillSets[varIndex + 1], i);
+      }
+    }
+    return super.analyze();
+  }
+
+  @Override
+  public void initBoundaryValue(final long[] value) {
+    for (int i = 0; i < maxLocals; ++i) {
+      set(value, i);
+    }
+  }
+
+  @Override
+  public void computeGenKill(
+      final int insnIndex,
+      final AbstractInsnNode insnNode,
+      final long[] insnGen,
+      final long[] insnKill) {
+    int definition = insnDefinitions[insnIndex];
+    if (definition != -1) {
+      int varIndex = definitionVarIndices[definition];
+      set(insnGen, definition);
+      long[] killSet = localKillSets[varIndex];
+      for (int i = 0; i < numWords; ++i) {
+        insnKill[i] |= killSet[i];
+      }
+      if (isWide(insnNode)) {
+        killSet = localKillSets[varIndex + 1];
+        for (int i = 0; i < numWords; ++i) {
+          insnKill[i] |= killSet[i];
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns the store and IINC instructions defining the given local variable which can reach the
+   * given instruction.
+   *
+   * @param insnIndex the index of an instruction of the analyzed method.
+   * @param varIndex a local variable index.
+   * @return the store and IINC instructions defining 'varIndex' which can reach the given
+   *     instruction, in instruction order. The initial value of the local variable is not included
+   *     in this list, see {@link #isInitialValueReaching}.
+   */
+  public List<AbstractInsnNode> getReachingDefinitions(final int insnIndex, final int varIndex) {
+    long[] value = getValueBefore(insnIndex);
+    List<AbstractInsnNode> reachingDefinitions = new ArrayList<>();
+    for (int i = maxLocals; i < definitionVarIndices.length; ++i) {
+      if (definitionVarIndices[i] == varIndex && get(value, i)) {
+        reachingDefinitions.add(definitions.get(i - maxLocals));
+      }
+    }
+    return reachingDefinitions;
+  }
+
+  /**
+   * Returns whether the initial value of a local variable (i.e. its parameter value, or its
+   * uninitialized value) can reach the given instruction.
+   *
+   * @param insnIndex the index of an instruction of the analyzed method.
+   * @param varIndex a local variable index.
+   * @return whether the initial value of 'varIndex' can reach the given instruction.
+   */
+  public boolean isInitialValueReaching(final int insnIndex, final int varIndex) {
+    return get(getValueBefore(insnIndex), varIndex);
+  }
+
+  /**
+   * Returns whether the given definition stores a long or double value.
+   *
+   * @param insnNode a store or IINC instruction.
+   * @return whether the given definition stores a long or double value.
+   */
+  public static boolean isWide(final AbstractInsnNode insnNode) {
+    int opcode = insnNode.getOpcode();
+    return opcode == LSTORE || opcode == DSTORE;
+  }
+}
@@ -0,0 +1,249 @@
+// ASM: a very small and fast Java bytecode manipulation framework
+// Copyright (c) 2000-2011 INRIA, France Telecom
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+// 1. Redistributions of source code must retain the above copyright
+//    notice, this list of conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright
+//    notice, this list of conditions and the following disclaimer in the
+//    documentation and/or other materials provided with the distribution.
+// 3. Neither the name of the copyright holders nor the names of its
+//    contributors may be used to endorse or promote products derived from
+//    this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+// THE POSSIBILITY OF SUCH DAMAGE.
+package org.objectweb.asm.tree.analysis;
+
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.IincInsnNode;
+import org.objectweb.asm.tree.InsnList;
+import org.objectweb.asm.tree.LdcInsnNode;
+import org.objectweb.asm.tree.MethodNode;
+import org.objectweb.asm.tree.VarInsnNode;
+
+/**
+ * An {@link OptimizationPass} which removes redundant load and store instructions. This pass
+ * removes:
+ *
+ * <ul>
+ *   <li>the stores and IINC instructions of local variables which are not live after them (see
+ *       {@link LivenessAnalysis}), stores being replaced with POP or POP2 instructions,
+ *   <li>a store immediately followed by a load of the same local variable, if this variable is not
+ *       live after the load (the value then simply stays on the stack),
+ *   <li>a load immediately followed by a store of the same local variable,
+ *   <li>a constant, load or DUP instruction immediately followed by a POP or POP2 instruction
+ *       popping the value it pushed.
+ * </ul>
+ */
+public class RedundantLoadStoreElimination extends OptimizationPass {
+
+  @Override
+  public boolean run(final String owner, final MethodNode method) throws AnalyzerException {
+    boolean changed = removeDeadStores(method);
+    return removeRedundantPairs(method.instructions) || changed;
+  }
+
+  /**
+   * Removes the stores and IINC instructions of local variables which are not live after them.
+   *
+   * @param method the method to be transformed.
+   * @return whether the method has been changed.
+   */
+  public boolean removeDeadStores(final MethodNode method) {
+    InsnList insnList = method.instructions;
+    AbstractInsnNode[] insns = insnList.toArray();
+    boolean hasStores = false;
+    for (AbstractInsnNode insn : insns) {
+      int opcode = insn.getOpcode();
+      if ((opcode >= ISTORE && opcode <= ASTORE) || opcode == IINC) {
+        hasStores = true;
+        break;
+      }
+    }
+    if (!hasStores) {
+      return false;
+    }
+    ControlFlowGraph graph = new ControlFlowGraph(method);
+    LivenessAnalysis livenessAnalysis = new LivenessAnalysis(graph);
+    livenessAnalysis.analyze();
+    long[][] valuesBefore = livenessAnalysis.getValuesBefore();
+    boolean changed = false;
+    for (int i = 0; i < insns.length; ++i) {
+      AbstractInsnNode insn = insns[i];
+      int opcode = insn.getOpcode();
+      if ((opcode < ISTORE || opcode > ASTORE) && opcode != IINC) {
+        continue;
+      }
+      BasicBlock block = graph.getBlock(i);
+      if (!block.isReachable()) {
+        continue;
+      }
+      if (opcode == IINC) {
+        long[] liveAfter = getValueAfter(livenessAnalysis, valuesBefore, block, i);
+        if (!BitVectorAnalysis.get(liveAfter, ((IincInsnNode) insn).var)) {
+          insnList.remove(insn);
+          changed = true;
+        }
+        continue;
+      }
+      int varIndex = ((VarInsnNode) insn).var;
+      boolean isWide = ReachingDefinitionsAnalysis.isWide(insn);
+      AbstractInsnNode nextInsn = insn.getNext();
+      if (nextInsn != null
+          && nextInsn.getOpcode() == opcode - ISTORE + ILOAD
+          && ((VarInsnNode) nextInsn).var == varIndex
+          && i + 1 < block.endInsnIndex
+          && !isLive(
+              getValueAfter(livenessAnalysis, valuesBefore, block, i + 1), varIndex, isWide)) {
+        insnList.remove(insn);
+        insnList.remove(nextInsn);
+        changed = true;
+        ++i;
+      } else if (!isLive(
+          getValueAfter(livenessAnalysis, valuesBefore, block, i), varIndex, isWide)) {
+        insnList.set(insn, newPopInsn(isWide ? 2 : 1));
+        changed = true;
+      }
+    }
+    return changed;
+  }
+
+  /**
+   * Returns the live local variables just after an instruction.
+   *
+   * @param livenessAnalysis a liveness analysis.
+   * @param valuesBefore the live local variables just before each instruction.
+   * @param block the block containing the instruction.
+   * @param insnIndex the index of the instruction.
+   * @return the live local variables just after the given instruction.
+   */
+  public static long[] getValueAfter(
+      final LivenessAnalysis livenessAnalysis,
+      final long[][] valuesBefore,
+      final BasicBlock block,
+      final int insnIndex) {
+    return insnIndex + 1 < block.endInsnIndex
+        ? valuesBefore[insnIndex + 1]
+        : livenessAnalysis.out[block.index];
+  }
+
+  /**
+   * Returns whether a local variable is live.
+   *
+   * @param value a set of live local variables.
+   * @param varIndex a local variable index.
+   * @param isWide whether the variable is a long or double variable.
+   * @return whether the given variable is live.
+   */
+  public static boolean isLive(final long[] value, final int varIndex, final boolean isWide) {
+    return BitVectorAnalysis.get(value, varIndex)
+        || (isWide && BitVectorAnalysis.get(value, varIndex + 1));
+  }
+
+  /**
+   * Removes the adjacent instruction pairs which have no effect.
+   *
+   * @param insnList the instructions of the method to be transformed.
+   * @return whether the instructions have been changed.
+   */
+  public boolean removeRedundantPairs(final InsnList insnList) {
+    boolean changed = false;
+    AbstractInsnNode insn = insnList.getFirst();
+    while (insn != null) {
+      AbstractInsnNode nextInsn = insn.getNext();
+      if (nextInsn != null && isRedundantPair(insn, nextInsn)) {
+        AbstractInsnNode previousInsn = insn.getPrevious();
+        insnList.remove(insn);
+        insnList.remove(nextInsn);
+        changed = true;
+        // Removing a pair can make the previous instruction part of a new redundant pair.
+        insn = previousInsn == null ? insnList.getFirst() : previousInsn;
+      } else {
+        insn = nextInsn;
+      }
+    }
+    return changed;
+  }
+
+  /**
+   * Returns whether two adjacent instructions have no effect.
+   *
+   * @param insn an instruction.
+   * @param nextInsn the instruction which immediately follows insn.
+   * @return whether the two instructions can be removed without changing the method semantics.
+   */
+  public static boolean isRedundantPair(
+      final AbstractInsnNode insn, final AbstractInsnNode nextInsn) {
+    int opcode = insn.getOpcode();
+    int nextOpcode = nextInsn.getOpcode();
+    if (opcode >= ILOAD && opcode <= ALOAD && nextOpcode == opcode - ILOAD + ISTORE) {
+      return ((VarInsnNode) insn).var == ((VarInsnNode) nextInsn).var;
+    }
+    if (nextOpcode == POP || nextOpcode == POP2) {
+      int pushedSize = getPushedSize(insn);
+      return pushedSize != 0 && pushedSize == (nextOpcode == POP ? 1 : 2);
+    }
+    return false;
+  }
+
+  /**
+   * Returns the size of the value pushed by an instruction without side effects.
+   *
+   * @param insn an instruction.
+   * @return the size of the value pushed by the given instruction, or 0 if it does not simply push
+   *     a value without side effects.
+   */
+  public static int getPushedSize(final AbstractInsnNode insn) {
+    switch (insn.getOpcode()) {
+      case ACONST_NULL:
+      case ICONST_M1:
+      case ICONST_0:
+      case ICONST_1:
+      case ICONST_2:
+      case ICONST_3:
+      case ICONST_4:
+      case ICONST_5:
+      case FCONST_0:
+      case FCONST_1:
+      case FCONST_2:
+      case BIPUSH:
+      case SIPUSH:
+      case ILOAD:
+      case FLOAD:
+      case ALOAD:
+      case DUP:
+        return 1;
+      case LCONST_0:
+      case LCONST_1:
+      case DCONST_0:
+      case DCONST_1:
+      case LLOAD:
+      case DLOAD:
+      case DUP2:
+        return 2;
+      case LDC:
+        Object value = ((LdcInsnNode) insn).cst;
+        if (value instanceof Integer || value instanceof Float || value instanceof String) {
+          return 1;
+        } else if (value instanceof Long || value instanceof Double) {
+          return 2;
+        }
+        return 0;
+      default:
+        return 0;
+    }
+  }
+}
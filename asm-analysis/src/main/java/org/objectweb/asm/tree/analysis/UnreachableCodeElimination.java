@@ -0,0 +1,76 @@
+// ASM: a very small and fast Java bytecode manipulation framework
+// Copyright (c) 2000-2011 INRIA, France Telecom
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+// 1. Redistributions of source code must retain the above copyright
+//    notice, this list of conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright
+//    notice, this list of conditions and the following disclaimer in the
+//    documentation and/or other materials provided with the distribution.
+// 3. Neither the name of the copyright holders nor the names of its
+//    contributors may be used to endorse or promote products derived from
+//    this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+// THE POSSIBILITY OF SUCH DAMAGE.
+package org.objectweb.asm.tree.analysis;
+
+import java.util.Iterator;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.InsnList;
+import org.objectweb.asm.tree.LabelNode;
+import org.objectweb.asm.tree.MethodNode;
+import org.objectweb.asm.tree.TryCatchBlockNode;
+
+/**
+ * An {@link OptimizationPass} which removes the instructions of the basic blocks which are not
+ * reachable from the entry of the method (see {@link ControlFlowGraph}). The labels of these blocks
+ * are kept, since they can still be used by local variables or try catch blocks. The try catch
+ * blocks whose handler is not reachable, or whose range no longer contains any instruction, are
+ * removed.
+ */
+public class UnreachableCodeElimination extends OptimizationPass {
+
+  @Override
+  public boolean run(final String owner, final MethodNode method) throws AnalyzerException {
+    ControlFlowGraph graph = new ControlFlowGraph(method);
+    InsnList insnList = method.instructions;
+    boolean changed = false;
+    if (method.tryCatchBlocks != null) {
+      Iterator<TryCatchBlockNode> iterator = method.tryCatchBlocks.iterator();
+      while (iterator.hasNext()) {
+        if (!graph.getBlock(iterator.next().handler).isReachable()) {
+          iterator.remove();
+          changed = true;
+        }
+      }
+    }
+    AbstractInsnNode[] insns = insnList.toArray();
+    for (BasicBlock block : graph.blocks) {
+      if (!block.isReachable()) {
+        for (int i = block.startInsnIndex; i < block.endInsnIndex; ++i) {
+          if (!(insns[i] instanceof LabelNode)) {
+            insnList.remove(insns[i]);
+            changed = true;
+          }
+        }
+      }
+    }
+    if (changed) {
+      removeEmptyTryCatchBlocks(method);
+    }
+    return changed;
+  }
+}
@@ -29,9 +29,11 @@ package org.objectweb.asm.tree.analysis;
 
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.util.Arrays;
 import java.util.List;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
@@ -42,6 +44,7 @@ import org.objectweb.asm.Type;
 import org.objectweb.asm.test.AsmTest;
 import org.objectweb.asm.tree.AbstractInsnNode;
 import org.objectweb.asm.tree.MethodNode;
+import org.objectweb.asm.tree.TryCatchBlockNode;
 
 /**
  * Unit tests for {@link Analyzer}.
@@ -1148,6 +1151,98 @@ class AnalyzerTest extends AsmTest {
     assertDoesNotThrow(() -> MethodNodeBuilder.buildClassWithMethod(methodNode).newInstance());
   }
 
+  @Test
+  void testGetHandlers_overlappingTryCatchBlocks() throws AnalyzerException {
+    MethodNode methodNode =
+        new MethodNodeBuilder()
+            .trycatch(label0, label2, label4)
+            .trycatch(label1, label3, label4)
+            .trycatch(label1, label2, label4)
+            .label(label0)
+            .nop()
+            .label(label1)
+            .nop()
+            .label(label2)
+            .nop()
+            .label(label3)
+            .vreturn()
+            .label(label4)
+            .athrow()
+            .build();
+    TryCatchBlockNode tryCatchBlock0 = methodNode.tryCatchBlocks.get(0);
+    TryCatchBlockNode tryCatchBlock1 = methodNode.tryCatchBlocks.get(1);
+    TryCatchBlockNode tryCatchBlock2 = methodNode.tryCatchBlocks.get(2);
+    Analyzer<MockValue> analyzer = newAnalyzer();
+
+    analyzer.analyze(CLASS_NAME, methodNode);
+
+    assertEquals(Arrays.asList(tryCatchBlock0), analyzer.getHandlers(0));
+    assertSame(analyzer.getHandlers(0), analyzer.getHandlers(1));
+    assertEquals(
+        Arrays.asList(tryCatchBlock0, tryCatchBlock1, tryCatchBlock2), analyzer.getHandlers(2));
+    assertSame(analyzer.getHandlers(2), analyzer.getHandlers(3));
+    assertEquals(Arrays.asList(tryCatchBlock1), analyzer.getHandlers(4));
+    assertEquals(null, analyzer.getHandlers(6));
+  }
+
+  @Test
+  void testAnalyze_instructionsBudgetExceeded() {
+    MethodNodeBuilder methodNodeBuilder = new MethodNodeBuilder(1, 1);
+    for (int i = 0; i < 1000; i++) {
+      methodNodeBuilder.nop();
+    }
+    MethodNode methodNode = methodNodeBuilder.vreturn().build();
+    Analyzer<MockValue> analyzer = newAnalyzer();
+    analyzer.setBudget(
+        new AnalyzerBudget(
+            1500, AnalyzerBudget.UNLIMITED, AnalyzerBudget.UNLIMITED, AnalyzerBudget.UNLIMITED));
+
+    Executable analyze = () -> analyzer.analyze(CLASS_NAME, methodNode);
+
+    AnalyzerBudgetException exception = assertThrows(AnalyzerBudgetException.class, analyze);
+    assertEquals("instructions", exception.limit);
+    assertTrue(exception.numProcessedInstructions > 1500);
+    assertTrue(exception.numProcessedInstructions < 2002);
+    assertTrue(exception.getMessage().startsWith("Analysis budget exceeded: instructions"));
+    assertTrue(analyzer.getFrames()[0] != null);
+    assertEquals(null, analyzer.getFrames()[999]);
+  }
+
+  @Test
+  void testAnalyze_timeBudgetExceeded() {
+    MethodNodeBuilder methodNodeBuilder = new MethodNodeBuilder(1, 1);
+    for (int i = 0; i < 1000; i++) {
+      methodNodeBuilder.nop();
+    }
+    MethodNode methodNode = methodNodeBuilder.vreturn().build();
+    Analyzer<MockValue> analyzer = newAnalyzer();
+    analyzer.setBudget(
+        new AnalyzerBudget(
+            AnalyzerBudget.UNLIMITED, AnalyzerBudget.UNLIMITED, AnalyzerBudget.UNLIMITED, -1));
+
+    Executable analyze = () -> analyzer.analyze(CLASS_NAME, methodNode);
+
+    assertEquals("time", assertThrows(AnalyzerBudgetException.class, analyze).limit);
+  }
+
+  @Test
+  void testAnalyze_budgetNotExceeded() throws AnalyzerException {
+    MethodNodeBuilder methodNodeBuilder = new MethodNodeBuilder(1, 1);
+    for (int i = 0; i < 1000; i++) {
+      methodNodeBuilder.nop();
+    }
+    MethodNode methodNode = methodNodeBuilder.vreturn().build();
+    Analyzer<MockValue> analyzer = newAnalyzer();
+    analyzer.setBudget(new AnalyzerBudget(3000, 3000, 100000, AnalyzerBudget.UNLIMITED));
+
+    analyzer.analyze(CLASS_NAME, methodNode);
+
+    // Each instruction is visited once to find subroutines, and once to simulate its execution.
+    assertEquals(2002, analyzer.numProcessedInstructions);
+    assertEquals(1001, analyzer.numMerges);
+    assertTrue(analyzer.numFrameSlots > 0);
+  }
+
   public static Analyzer<MockValue> newAnalyzer() {
     return new Analyzer<>(new MockInterpreter());
   }
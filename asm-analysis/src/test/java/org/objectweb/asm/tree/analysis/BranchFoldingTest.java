@@ -0,0 +1,163 @@
+// ASM: a very small and fast Java bytecode manipulation framework
+// Copyright (c) 2000-2011 INRIA, France Telecom
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+// 1. Redistributions of source code must retain the above copyright
+//    notice, this list of conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright
+//    notice, this list of conditions and the following disclaimer in the
+//    documentation and/or other materials provided with the distribution.
+// 3. Neither the name of the copyright holders nor the names of its
+//    contributors may be used to endorse or promote products derived from
+//    this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+// THE POSSIBILITY OF SUCH DAMAGE.
+package org.objectweb.asm.tree.analysis;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.MethodNode;
+
+/** Unit tests for {@link BranchFolding}. */
+class BranchFoldingTest {
+
+  private final Label label0 = new Label();
+  private final Label label1 = new Label();
+  private final Label label2 = new Label();
+
+  @Test
+  void testTransform_takenBranch() throws Exception {
+    MethodNode methodNode =
+        new MethodNodeBuilder("()I", 10, 10)
+            .insn(Opcodes.ICONST_1)
+            .ifne(label0)
+            .iconst_0()
+            .insn(Opcodes.IRETURN)
+            .label(label0)
+            .insn(Opcodes.ICONST_1)
+            .insn(Opcodes.IRETURN)
+            .build();
+
+    boolean changed = new BranchFolding().transform("C", methodNode);
+
+    assertTrue(changed);
+    assertArrayEquals(
+        new int[] {
+          Opcodes.ICONST_1,
+          Opcodes.POP,
+          Opcodes.GOTO,
+          Opcodes.ICONST_0,
+          Opcodes.IRETURN,
+          Opcodes.ICONST_1,
+          Opcodes.IRETURN
+        },
+        MethodNodeBuilder.getOpcodes(methodNode));
+    Object instance = MethodNodeBuilder.buildClassWithMethod(methodNode).newInstance();
+    assertEquals(1, instance.getClass().getMethod("m").invoke(instance));
+  }
+
+  @Test
+  void testTransform_notTakenBranches() throws Exception {
+    MethodNode methodNode =
+        new MethodNodeBuilder("()I", 10, 10)
+            .insn(Opcodes.ICONST_1)
+            .insn(Opcodes.ICONST_2)
+            .jumpInsn(Opcodes.IF_ICMPGE, label0)
+            .aconst_null()
+            .ifnonnull(label0)
+            .insn(Opcodes.ICONST_3)
+            .insn(Opcodes.IRETURN)
+            .label(label0)
+            .iconst_0()
+            .insn(Opcodes.IRETURN)
+            .build();
+
+    boolean changed = new BranchFolding().transform("C", methodNode);
+
+    assertTrue(changed);
+    assertArrayEquals(
+        new int[] {
+          Opcodes.ICONST_1,
+          Opcodes.ICONST_2,
+          Opcodes.POP,
+          Opcodes.POP,
+          Opcodes.ACONST_NULL,
+          Opcodes.POP,
+          Opcodes.ICONST_3,
+          Opcodes.IRETURN,
+          Opcodes.ICONST_0,
+          Opcodes.IRETURN
+        },
+        MethodNodeBuilder.getOpcodes(methodNode));
+    Object instance = MethodNodeBuilder.buildClassWithMethod(methodNode).newInstance();
+    assertEquals(3, instance.getClass().getMethod("m").invoke(instance));
+  }
+
+  @Test
+  void testTransform_switches() throws Exception {
+    MethodNodeBuilder methodNodeBuilder =
+        new MethodNodeBuilder("()I", 10, 10).insn(Opcodes.ICONST_2);
+    methodNodeBuilder.methodNode.visitTableSwitchInsn(1, 2, label0, label1, label2);
+    methodNodeBuilder.label(label0).insn(Opcodes.ICONST_M1).insn(Opcodes.IRETURN);
+    methodNodeBuilder.label(label1).insn(Opcodes.ICONST_1).insn(Opcodes.IRETURN);
+    methodNodeBuilder.label(label2).intInsn(Opcodes.BIPUSH, 10);
+    methodNodeBuilder.methodNode.visitLookupSwitchInsn(
+        label0, new int[] {5, 10}, new Label[] {label1, label0});
+    MethodNode methodNode = methodNodeBuilder.build();
+
+    boolean changed = new BranchFolding().transform("C", methodNode);
+
+    assertTrue(changed);
+    assertArrayEquals(
+        new int[] {
+          Opcodes.ICONST_2,
+          Opcodes.POP,
+          Opcodes.GOTO,
+          Opcodes.ICONST_M1,
+          Opcodes.IRETURN,
+          Opcodes.ICONST_1,
+          Opcodes.IRETURN,
+          Opcodes.BIPUSH,
+          Opcodes.POP,
+          Opcodes.GOTO
+        },
+        MethodNodeBuilder.getOpcodes(methodNode));
+    Object instance = MethodNodeBuilder.buildClassWithMethod(methodNode).newInstance();
+    assertEquals(-1, instance.getClass().getMethod("m").invoke(instance));
+  }
+
+  @Test
+  void testTransform_unknownCondition() throws AnalyzerException {
+    MethodNode methodNode =
+        new MethodNodeBuilder("(I)I", 10, 10)
+            .iload(1)
+            .ifne(label0)
+            .iconst_0()
+            .insn(Opcodes.IRETURN)
+            .label(label0)
+            .insn(Opcodes.ICONST_1)
+            .insn(Opcodes.IRETURN)
+            .build();
+
+    assertFalse(new BranchFolding().transform("C", methodNode));
+  }
+}
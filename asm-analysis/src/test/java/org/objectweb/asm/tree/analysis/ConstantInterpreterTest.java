@@ -0,0 +1,181 @@
+// ASM: a very small and fast Java bytecode manipulation framework
+// Copyright (c) 2000-2011 INRIA, France Telecom
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+// 1. Redistributions of source code must retain the above copyright
+//    notice, this list of conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright
+//    notice, this list of conditions and the following disclaimer in the
+//    documentation and/or other materials provided with the distribution.
+// 3. Neither the name of the copyright holders nor the names of its
+//    contributors may be used to endorse or promote products derived from
+//    this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+// THE POSSIBILITY OF SUCH DAMAGE.
+package org.objectweb.asm.tree.analysis;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.IincInsnNode;
+import org.objectweb.asm.tree.InsnNode;
+import org.objectweb.asm.tree.LdcInsnNode;
+import org.objectweb.asm.tree.MethodNode;
+
+/** Unit tests for {@link ConstantInterpreter} and {@link ConstantValue}. */
+class ConstantInterpreterTest {
+
+  private final Label label0 = new Label();
+  private final Label label1 = new Label();
+
+  @Test
+  void testConstructor() {
+    assertDoesNotThrow(() -> new ConstantInterpreter());
+    assertThrows(IllegalStateException.class, () -> new ConstantInterpreter() {});
+  }
+
+  @Test
+  void testGetConstant() {
+    assertEquals(
+        ConstantValue.NULL, ConstantInterpreter.getConstant(new InsnNode(Opcodes.ACONST_NULL)));
+    assertEquals(-1, ConstantInterpreter.getConstant(new InsnNode(Opcodes.ICONST_M1)));
+    assertEquals(1L, ConstantInterpreter.getConstant(new InsnNode(Opcodes.LCONST_1)));
+    assertEquals(2f, ConstantInterpreter.getConstant(new InsnNode(Opcodes.FCONST_2)));
+    assertEquals(1d, ConstantInterpreter.getConstant(new InsnNode(Opcodes.DCONST_1)));
+    assertEquals(123L, ConstantInterpreter.getConstant(new LdcInsnNode(123L)));
+    assertNull(ConstantInterpreter.getConstant(new LdcInsnNode("abc")));
+    assertNull(ConstantInterpreter.getConstant(new InsnNode(Opcodes.NOP)));
+  }
+
+  @Test
+  void testNewConstantInsn() {
+    assertEquals(
+        Opcodes.ACONST_NULL, ConstantInterpreter.newConstantInsn(ConstantValue.NULL).getOpcode());
+    assertEquals(Opcodes.ICONST_M1, ConstantInterpreter.newConstantInsn(-1).getOpcode());
+    assertEquals(Opcodes.BIPUSH, ConstantInterpreter.newConstantInsn(-128).getOpcode());
+    assertEquals(Opcodes.SIPUSH, ConstantInterpreter.newConstantInsn(1000).getOpcode());
+    assertEquals(Opcodes.LDC, ConstantInterpreter.newConstantInsn(100000).getOpcode());
+    assertEquals(Opcodes.LCONST_1, ConstantInterpreter.newConstantInsn(1L).getOpcode());
+    assertEquals(Opcodes.LDC, ConstantInterpreter.newConstantInsn(2L).getOpcode());
+    assertEquals(Opcodes.FCONST_2, ConstantInterpreter.newConstantInsn(2f).getOpcode());
+    assertEquals(Opcodes.LDC, ConstantInterpreter.newConstantInsn(-0f).getOpcode());
+    assertEquals(Opcodes.DCONST_0, ConstantInterpreter.newConstantInsn(0d).getOpcode());
+    assertEquals(Opcodes.LDC, ConstantInterpreter.newConstantInsn(-0d).getOpcode());
+    assertThrows(IllegalArgumentException.class, () -> ConstantInterpreter.newConstantInsn("abc"));
+  }
+
+  @Test
+  void testFoldUnaryOperation() {
+    assertEquals(-3, ConstantInterpreter.foldUnaryOperation(new InsnNode(Opcodes.INEG), 3));
+    assertEquals(8, ConstantInterpreter.foldUnaryOperation(new IincInsnNode(1, 5), 3));
+    assertEquals(-1, ConstantInterpreter.foldUnaryOperation(new InsnNode(Opcodes.I2B), 255));
+    assertEquals(3L, ConstantInterpreter.foldUnaryOperation(new InsnNode(Opcodes.D2L), 3.7d));
+    assertEquals(
+        Integer.MAX_VALUE,
+        ConstantInterpreter.foldUnaryOperation(new InsnNode(Opcodes.F2I), 1e20f));
+    assertNull(ConstantInterpreter.foldUnaryOperation(new InsnNode(Opcodes.ARRAYLENGTH), 3));
+  }
+
+  @Test
+  void testFoldBinaryOperation() {
+    assertEquals(5, ConstantInterpreter.foldBinaryOperation(Opcodes.IADD, 2, 3));
+    assertEquals(-2, ConstantInterpreter.foldBinaryOperation(Opcodes.IDIV, -7, 3));
+    assertNull(ConstantInterpreter.foldBinaryOperation(Opcodes.IDIV, 1, 0));
+    assertNull(ConstantInterpreter.foldBinaryOperation(Opcodes.LREM, 1L, 0L));
+    assertEquals(4L, ConstantInterpreter.foldBinaryOperation(Opcodes.LSHL, 1L, 66));
+    assertEquals(-1, ConstantInterpreter.foldBinaryOperation(Opcodes.LCMP, 1L, 2L));
+    assertEquals(-1, ConstantInterpreter.foldBinaryOperation(Opcodes.FCMPL, Float.NaN, 1f));
+    assertEquals(1, ConstantInterpreter.foldBinaryOperation(Opcodes.FCMPG, Float.NaN, 1f));
+    assertEquals(0, ConstantInterpreter.foldBinaryOperation(Opcodes.DCMPL, 0d, -0d));
+    assertEquals(
+        Double.POSITIVE_INFINITY, ConstantInterpreter.foldBinaryOperation(Opcodes.DDIV, 1d, 0d));
+    assertNull(ConstantInterpreter.foldBinaryOperation(Opcodes.IADD, 1, 1L));
+  }
+
+  @Test
+  void testAnalyze_constantsThroughLocalsAndArithmetic() throws AnalyzerException {
+    MethodNode methodNode =
+        new MethodNodeBuilder()
+            .intInsn(Opcodes.BIPUSH, 20)
+            .istore(1)
+            .iload(1)
+            .iconst_0()
+            .insn(Opcodes.ISUB)
+            .istore(2)
+            .iinc(2, 2)
+            .iload(2)
+            .insn(Opcodes.POP)
+            .vreturn()
+            .build();
+
+    Frame<ConstantValue>[] frames =
+        new Analyzer<ConstantValue>(new ConstantInterpreter()).analyze("C", methodNode);
+
+    assertEquals(20, frames[2].getLocal(1).value);
+    assertEquals(20, frames[5].getStack(0).value);
+    assertEquals(22, frames[7].getLocal(2).value);
+    assertEquals("I=22", frames[8].getStack(0).toString());
+  }
+
+  @Test
+  void testAnalyze_mergeOfDifferentConstants() throws AnalyzerException {
+    MethodNode methodNode =
+        new MethodNodeBuilder("(I)V", 2, 3)
+            .iconst_0()
+            .istore(2)
+            .iload(1)
+            .ifne(label0)
+            .insn(Opcodes.ICONST_1)
+            .istore(2)
+            .label(label0)
+            .aconst_null()
+            .astore(1)
+            .label(label1)
+            .aload(1)
+            .ifnonnull(label1)
+            .vreturn()
+            .build();
+
+    Frame<ConstantValue>[] frames =
+        new Analyzer<ConstantValue>(new ConstantInterpreter()).analyze("C", methodNode);
+
+    ConstantValue value = frames[7].getLocal(2);
+    assertFalse(value.isConstant());
+    assertEquals(ConstantValue.INT_VALUE, value);
+    assertTrue(frames[10].getLocal(1).isNull());
+    assertEquals("null", frames[11].getStack(0).toString());
+  }
+
+  @Test
+  void testEquals() {
+    ConstantValue value1 = ConstantInterpreter.newConstantValue(1);
+
+    assertEquals(value1, ConstantInterpreter.newConstantValue(1));
+    assertEquals(value1.hashCode(), ConstantInterpreter.newConstantValue(1).hashCode());
+    assertFalse(value1.equals(ConstantInterpreter.newConstantValue(2)));
+    assertFalse(value1.equals(ConstantValue.INT_VALUE));
+    assertFalse(ConstantValue.INT_VALUE.equals(value1));
+    assertFalse(value1.equals(ConstantInterpreter.newConstantValue(1L)));
+    assertFalse(value1.equals(BasicValue.INT_VALUE));
+  }
+}
@@ -0,0 +1,106 @@
+// ASM: a very small and fast Java bytecode manipulation framework
+// Copyright (c) 2000-2011 INRIA, France Telecom
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+// 1. Redistributions of source code must retain the above copyright
+//    notice, this list of conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright
+//    notice, this list of conditions and the following disclaimer in the
+//    documentation and/or other materials provided with the distribution.
+// 3. Neither the name of the copyright holders nor the names of its
+//    contributors may be used to endorse or promote products derived from
+//    this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+// THE POSSIBILITY OF SUCH DAMAGE.
+package org.objectweb.asm.tree.analysis;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.MethodNode;
+
+/** Unit tests for {@link ConstantPropagation}. */
+class ConstantPropagationTest {
+
+  @Test
+  void testTransform_replaceLoadsAndFoldExpressions() throws Exception {
+    MethodNode methodNode =
+        new MethodNodeBuilder("()I", 10, 10)
+            .insn(Opcodes.ICONST_2)
+            .istore(1)
+            .iload(1)
+            .iload(1)
+            .insn(Opcodes.IMUL)
+            .intInsn(Opcodes.BIPUSH, 100)
+            .insn(Opcodes.IMUL)
+            .insn(Opcodes.IRETURN)
+            .build();
+
+    boolean changed = new ConstantPropagation().transform("C", methodNode);
+
+    assertTrue(changed);
+    assertArrayEquals(
+        new int[] {Opcodes.ICONST_2, Opcodes.ISTORE, Opcodes.SIPUSH, Opcodes.IRETURN},
+        MethodNodeBuilder.getOpcodes(methodNode));
+    assertEquals(1, methodNode.maxStack);
+    assertEquals(2, methodNode.maxLocals);
+    Object instance = MethodNodeBuilder.buildClassWithMethod(methodNode).newInstance();
+    assertEquals(400, instance.getClass().getMethod("m").invoke(instance));
+  }
+
+  @Test
+  void testTransform_longAndDoubleConstants() throws Exception {
+    MethodNode methodNode =
+        new MethodNodeBuilder("()J", 10, 10)
+            .ldc(3.5d)
+            .varInsn(Opcodes.DSTORE, 1)
+            .varInsn(Opcodes.DLOAD, 1)
+            .insn(Opcodes.D2L)
+            .insn(Opcodes.LCONST_1)
+            .insn(Opcodes.LSUB)
+            .insn(Opcodes.LRETURN)
+            .build();
+
+    boolean changed = new ConstantPropagation().transform("C", methodNode);
+
+    assertTrue(changed);
+    assertArrayEquals(
+        new int[] {Opcodes.LDC, Opcodes.DSTORE, Opcodes.LDC, Opcodes.LRETURN},
+        MethodNodeBuilder.getOpcodes(methodNode));
+    Object instance = MethodNodeBuilder.buildClassWithMethod(methodNode).newInstance();
+    assertEquals(2L, instance.getClass().getMethod("m").invoke(instance));
+  }
+
+  @Test
+  void testTransform_divisionByZeroNotFolded() throws AnalyzerException {
+    MethodNode methodNode =
+        new MethodNodeBuilder("()I", 10, 10)
+            .insn(Opcodes.ICONST_1)
+            .iconst_0()
+            .insn(Opcodes.IDIV)
+            .insn(Opcodes.IRETURN)
+            .build();
+
+    boolean changed = new ConstantPropagation().transform("C", methodNode);
+
+    assertFalse(changed);
+    assertEquals(10, methodNode.maxStack);
+  }
+}
@@ -0,0 +1,246 @@
+// ASM: a very small and fast Java bytecode manipulation framework
+// Copyright (c) 2000-2011 INRIA, France Telecom
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+// 1. Redistributions of source code must retain the above copyright
+//    notice, this list of conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright
+//    notice, this list of conditions and the following disclaimer in the
+//    documentation and/or other materials provided with the distribution.
+// 3. Neither the name of the copyright holders nor the names of its
+//    contributors may be used to endorse or promote products derived from
+//    this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+// THE POSSIBILITY OF SUCH DAMAGE.
+package org.objectweb.asm.tree.analysis;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.test.AsmTest;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.MethodNode;
+
+/** Unit tests for {@link ControlFlowGraph}. */
+class ControlFlowGraphTest extends AsmTest {
+
+  public final Label label0 = new Label();
+  public final Label label1 = new Label();
+  public final Label label2 = new Label();
+  public final Label label3 = new Label();
+
+  @Test
+  void testConstructor_straightLineCode() {
+    MethodNode methodNode = new MethodNodeBuilder().nop().nop().vreturn().build();
+
+    ControlFlowGraph graph = new ControlFlowGraph(methodNode);
+
+    assertEquals(1, graph.blocks.length);
+    assertSame(graph.getEntry(), graph.getBlock(2));
+    assertEquals(0, graph.getEntry().successors.size());
+    assertEquals(Arrays.asList(graph.blocks), Arrays.asList(graph.reversePostorder));
+    assertNull(graph.getImmediateDominator(graph.getEntry()));
+    assertTrue(graph.getLoops().isEmpty());
+  }
+
+  @Test
+  void testConstructor_emptyMethod() {
+    MethodNode methodNode = new MethodNode();
+
+    ControlFlowGraph graph = new ControlFlowGraph(methodNode);
+
+    assertEquals(0, graph.blocks.length);
+    assertNull(graph.getEntry());
+    assertTrue(graph.getLoops().isEmpty());
+  }
+
+  @Test
+  void testDominators_diamond() {
+    MethodNode methodNode =
+        new MethodNodeBuilder()
+            .iload(1)
+            .ifne(label0)
+            .nop()
+            .go(label1)
+            .label(label0)
+            .nop()
+            .label(label1)
+            .vreturn()
+            .build();
+
+    ControlFlowGraph graph = new ControlFlowGraph(methodNode);
+
+    assertEquals(4, graph.blocks.length);
+    BasicBlock entry = graph.blocks[0];
+    BasicBlock thenBlock = graph.blocks[1];
+    BasicBlock elseBlock = graph.blocks[2];
+    BasicBlock exit = graph.blocks[3];
+    assertEquals(Arrays.asList(thenBlock, elseBlock), entry.successors);
+    assertEquals(Arrays.asList(thenBlock, elseBlock), exit.predecessors);
+    assertSame(entry, graph.getImmediateDominator(exit));
+    assertSame(entry, graph.getImmediateDominator(elseBlock));
+    assertTrue(graph.dominates(entry, exit));
+    assertFalse(graph.dominates(thenBlock, exit));
+    assertSame(exit, graph.getImmediatePostDominator(entry));
+    assertSame(exit, graph.getImmediatePostDominator(thenBlock));
+    assertNull(graph.getImmediatePostDominator(exit));
+    assertTrue(graph.postDominates(exit, entry));
+    assertFalse(graph.postDominates(elseBlock, entry));
+    assertSame(entry, graph.reversePostorder[0]);
+    assertSame(exit, graph.reversePostorder[3]);
+  }
+
+  @Test
+  void testLoops_nestedLoops() {
+    MethodNode methodNode =
+        new MethodNodeBuilder()
+            .nop()
+            .label(label0)
+            .iinc(1, 1)
+            .label(label1)
+            .iinc(2, 1)
+            .iload(2)
+            .ifne(label1)
+            .iload(1)
+            .ifne(label0)
+            .vreturn()
+            .build();
+
+    ControlFlowGraph graph = new ControlFlowGraph(methodNode);
+
+    List<Loop> loops = graph.getLoops();
+    assertEquals(2, loops.size());
+    Loop outerLoop = loops.get(0);
+    Loop innerLoop = loops.get(1);
+    assertSame(graph.getBlock(1), outerLoop.header);
+    assertSame(graph.getBlock(3), innerLoop.header);
+    assertNull(outerLoop.parent);
+    assertSame(outerLoop, innerLoop.parent);
+    assertEquals(Arrays.asList(innerLoop), outerLoop.children);
+    assertEquals(3, outerLoop.blocks.size());
+    assertEquals(1, innerLoop.blocks.size());
+    assertEquals(0, graph.getLoopDepth(graph.getEntry()));
+    assertEquals(1, graph.getLoopDepth(graph.getBlock(1)));
+    assertEquals(2, graph.getLoopDepth(graph.getBlock(3)));
+    assertSame(innerLoop, graph.getInnermostLoop(graph.getBlock(3)));
+    assertTrue(outerLoop.contains(innerLoop.header));
+  }
+
+  @Test
+  void testConstructor_exceptionEdges() {
+    MethodNode methodNode =
+        new MethodNodeBuilder()
+            .trycatch(label0, label1, label2)
+            .trycatch(label0, label1, label2, "java/lang/Exception")
+            .label(label0)
+            .iload(1)
+            .ifne(label1)
+            .nop()
+            .label(label1)
+            .vreturn()
+            .label(label2)
+            .athrow()
+            .build();
+
+    ControlFlowGraph graph = new ControlFlowGraph(methodNode);
+
+    BasicBlock handler = graph.getBlock(methodNode.tryCatchBlocks.get(0).handler);
+    assertEquals(4, graph.blocks.length);
+    assertEquals(Arrays.asList(handler), graph.blocks[0].exceptionSuccessors);
+    assertEquals(Arrays.asList(handler), graph.blocks[1].exceptionSuccessors);
+    assertTrue(graph.blocks[2].exceptionSuccessors.isEmpty());
+    assertEquals(Arrays.asList(graph.blocks[0], graph.blocks[1]), handler.exceptionPredecessors);
+    assertTrue(handler.isReachable());
+    assertSame(graph.blocks[0], graph.getImmediateDominator(handler));
+    assertNull(graph.getImmediatePostDominator(handler));
+  }
+
+  @Test
+  void testConstructor_jsrAndRet() {
+    MethodNode methodNode =
+        new MethodNodeBuilder().jsr(label0).vreturn().label(label0).astore(1).ret(1).build();
+
+    ControlFlowGraph graph = new ControlFlowGraph(methodNode);
+
+    assertEquals(3, graph.blocks.length);
+    assertEquals(Arrays.asList(graph.blocks[2]), graph.blocks[0].successors);
+    assertEquals(Arrays.asList(graph.blocks[1]), graph.blocks[2].successors);
+    assertEquals(3, graph.reversePostorder.length);
+  }
+
+  @Test
+  void testConstructor_unreachableCode() {
+    MethodNode methodNode =
+        new MethodNodeBuilder().go(label0).nop().label(label0).vreturn().build();
+
+    ControlFlowGraph graph = new ControlFlowGraph(methodNode);
+
+    assertEquals(3, graph.blocks.length);
+    assertFalse(graph.blocks[1].isReachable());
+    assertEquals(2, graph.reversePostorder.length);
+    assertNull(graph.getImmediateDominator(graph.blocks[1]));
+    assertFalse(graph.dominates(graph.blocks[0], graph.blocks[1]));
+  }
+
+  /**
+   * Checks the consistency of the control flow graphs of all the methods of the precompiled
+   * classes.
+   */
+  @ParameterizedTest
+  @MethodSource(ALL_CLASSES_AND_LATEST_API)
+  void testConstructor_precompiledClass(
+      final PrecompiledClass classParameter, final Api apiParameter) {
+    ClassNode classNode = new ClassNode();
+    new ClassReader(classParameter.getBytes()).accept(classNode, 0);
+
+    for (MethodNode methodNode : classNode.methods) {
+      ControlFlowGraph graph = new ControlFlowGraph(methodNode);
+
+      int insnIndex = 0;
+      for (BasicBlock block : graph.blocks) {
+        assertEquals(insnIndex, block.startInsnIndex);
+        for (; insnIndex < block.endInsnIndex; ++insnIndex) {
+          assertSame(block, graph.getBlock(insnIndex));
+        }
+        for (BasicBlock successor : block.successors) {
+          assertTrue(successor.predecessors.contains(block));
+        }
+        for (BasicBlock successor : block.exceptionSuccessors) {
+          assertTrue(successor.exceptionPredecessors.contains(block));
+        }
+        if (block.isReachable()) {
+          assertTrue(graph.dominates(graph.getEntry(), block));
+        }
+      }
+      assertEquals(methodNode.instructions.size(), insnIndex);
+      for (Loop loop : graph.getLoops()) {
+        for (BasicBlock block : loop.blocks) {
+          assertTrue(graph.dominates(loop.header, block));
+        }
+      }
+    }
+  }
+}
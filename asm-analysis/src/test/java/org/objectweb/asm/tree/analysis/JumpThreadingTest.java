@@ -0,0 +1,185 @@
+// ASM: a very small and fast Java bytecode manipulation framework
+// Copyright (c) 2000-2011 INRIA, France Telecom
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+// 1. Redistributions of source code must retain the above copyright
+//    notice, this list of conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright
+//    notice, this list of conditions and the following disclaimer in the
+//    documentation and/or other materials provided with the distribution.
+// 3. Neither the name of the copyright holders nor the names of its
+//    contributors may be used to endorse or promote products derived from
+//    this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+// THE POSSIBILITY OF SUCH DAMAGE.
+package org.objectweb.asm.tree.analysis;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.JumpInsnNode;
+import org.objectweb.asm.tree.LabelNode;
+import org.objectweb.asm.tree.MethodNode;
+
+/** Unit tests for {@link JumpThreading}. */
+class JumpThreadingTest {
+
+  private final Label label0 = new Label();
+  private final Label label1 = new Label();
+  private final Label label2 = new Label();
+  private final Label label3 = new Label();
+
+  @Test
+  void testTransform_gotoChains() throws Exception {
+    MethodNode methodNode =
+        new MethodNodeBuilder()
+            .trycatch(label2, label3, label3)
+            .go(label1)
+            .label(label0)
+            .vreturn()
+            .label(label1)
+            .go(label2)
+            .label(label2)
+            .vreturn()
+            .label(label3)
+            .athrow()
+            .build();
+    JumpInsnNode gotoInsn = (JumpInsnNode) methodNode.instructions.get(0);
+    LabelNode labelNode2 = (LabelNode) methodNode.instructions.get(5);
+
+    boolean changed = new JumpThreading().transform("C", methodNode);
+
+    assertTrue(changed);
+    assertSame(labelNode2, gotoInsn.label);
+    assertArrayEquals(
+        new int[] {Opcodes.GOTO, Opcodes.RETURN, Opcodes.RETURN, Opcodes.ATHROW},
+        MethodNodeBuilder.getOpcodes(methodNode));
+    MethodNodeBuilder.buildClassWithMethod(methodNode).newInstance();
+  }
+
+  @Test
+  void testTransform_gotoReturn() throws Exception {
+    MethodNode methodNode =
+        new MethodNodeBuilder("(I)I", 10, 10)
+            .iload(1)
+            .ifne(label0)
+            .iconst_0()
+            .go(label1)
+            .label(label0)
+            .insn(Opcodes.ICONST_1)
+            .label(label1)
+            .insn(Opcodes.IRETURN)
+            .build();
+
+    boolean changed = new JumpThreading().transform("C", methodNode);
+
+    assertTrue(changed);
+    assertArrayEquals(
+        new int[] {
+          Opcodes.ILOAD,
+          Opcodes.IFNE,
+          Opcodes.ICONST_0,
+          Opcodes.IRETURN,
+          Opcodes.ICONST_1,
+          Opcodes.IRETURN
+        },
+        MethodNodeBuilder.getOpcodes(methodNode));
+    Object instance = MethodNodeBuilder.buildClassWithMethod(methodNode).newInstance();
+    assertEquals(0, instance.getClass().getMethod("m", int.class).invoke(instance, 0));
+    assertEquals(1, instance.getClass().getMethod("m", int.class).invoke(instance, 5));
+  }
+
+  @Test
+  void testTransform_jumpsToNextInstruction() throws Exception {
+    MethodNode methodNode =
+        new MethodNodeBuilder("(II)V", 10, 10)
+            .iload(1)
+            .iload(2)
+            .jumpInsn(Opcodes.IF_ICMPEQ, label0)
+            .label(label0)
+            .go(label1)
+            .label(label1)
+            .vreturn()
+            .build();
+
+    boolean changed = new JumpThreading().transform("C", methodNode);
+
+    assertTrue(changed);
+    assertArrayEquals(
+        new int[] {Opcodes.ILOAD, Opcodes.ILOAD, Opcodes.POP, Opcodes.POP, Opcodes.RETURN},
+        MethodNodeBuilder.getOpcodes(methodNode));
+  }
+
+  @Test
+  void testTransform_conditionalJumpOverGoto() throws Exception {
+    MethodNode methodNode =
+        new MethodNodeBuilder("(I)I", 10, 10)
+            .iload(1)
+            .jumpInsn(Opcodes.IFLT, label1)
+            .go(label2)
+            .label(label1)
+            .insn(Opcodes.ICONST_1)
+            .insn(Opcodes.IRETURN)
+            .label(label2)
+            .insn(Opcodes.ICONST_2)
+            .insn(Opcodes.IRETURN)
+            .build();
+
+    boolean changed = new JumpThreading().transform("C", methodNode);
+
+    assertTrue(changed);
+    assertArrayEquals(
+        new int[] {
+          Opcodes.ILOAD,
+          Opcodes.IFGE,
+          Opcodes.ICONST_1,
+          Opcodes.IRETURN,
+          Opcodes.ICONST_2,
+          Opcodes.IRETURN
+        },
+        MethodNodeBuilder.getOpcodes(methodNode));
+    Object instance = MethodNodeBuilder.buildClassWithMethod(methodNode).newInstance();
+    assertEquals(1, instance.getClass().getMethod("m", int.class).invoke(instance, -1));
+    assertEquals(2, instance.getClass().getMethod("m", int.class).invoke(instance, 1));
+    assertFalse(new JumpThreading().transform("C", methodNode));
+  }
+
+  @Test
+  void testGetOppositeOpcode() {
+    assertEquals(Opcodes.IFNE, JumpThreading.getOppositeOpcode(Opcodes.IFEQ));
+    assertEquals(Opcodes.IFLT, JumpThreading.getOppositeOpcode(Opcodes.IFGE));
+    assertEquals(Opcodes.IF_ICMPLE, JumpThreading.getOppositeOpcode(Opcodes.IF_ICMPGT));
+    assertEquals(Opcodes.IF_ACMPEQ, JumpThreading.getOppositeOpcode(Opcodes.IF_ACMPNE));
+    assertEquals(Opcodes.IFNONNULL, JumpThreading.getOppositeOpcode(Opcodes.IFNULL));
+    assertEquals(Opcodes.IFNULL, JumpThreading.getOppositeOpcode(Opcodes.IFNONNULL));
+  }
+
+  @Test
+  void testResolveTarget_cycle() {
+    MethodNode methodNode =
+        new MethodNodeBuilder().label(label0).go(label1).label(label1).go(label0).build();
+
+    LabelNode target = JumpThreading.resolveTarget((LabelNode) methodNode.instructions.get(0));
+
+    assertSame(methodNode.instructions.get(2), target);
+  }
+}
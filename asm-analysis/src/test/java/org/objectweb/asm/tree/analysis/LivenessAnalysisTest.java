@@ -0,0 +1,154 @@
+// ASM: a very small and fast Java bytecode manipulation framework
+// Copyright (c) 2000-2011 INRIA, France Telecom
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+// 1. Redistributions of source code must retain the above copyright
+//    notice, this list of conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright
+//    notice, this list of conditions and the following disclaimer in the
+//    documentation and/or other materials provided with the distribution.
+// 3. Neither the name of the copyright holders nor the names of its
+//    contributors may be used to endorse or promote products derived from
+//    this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+// THE POSSIBILITY OF SUCH DAMAGE.
+package org.objectweb.asm.tree.analysis;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.test.AsmTest;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.IincInsnNode;
+import org.objectweb.asm.tree.MethodNode;
+import org.objectweb.asm.tree.VarInsnNode;
+
+/** Unit tests for {@link LivenessAnalysis} and {@link BitVectorAnalysis}. */
+class LivenessAnalysisTest extends AsmTest {
+
+  public final Label label0 = new Label();
+  public final Label label1 = new Label();
+  public final Label label2 = new Label();
+
+  @Test
+  void testAnalyze_straightLineCode() {
+    MethodNode methodNode =
+        new MethodNodeBuilder().iconst_0().istore(1).iload(1).istore(2).vreturn().build();
+
+    LivenessAnalysis analysis = new LivenessAnalysis(new ControlFlowGraph(methodNode));
+    analysis.analyze();
+
+    assertFalse(analysis.isLiveBefore(1, 1));
+    assertTrue(analysis.isLiveAfter(1, 1));
+    assertTrue(analysis.isLiveBefore(2, 1));
+    assertFalse(analysis.isLiveAfter(2, 1));
+    assertFalse(analysis.isLiveAfter(3, 2));
+  }
+
+  @Test
+  void testAnalyze_loop() {
+    MethodNode methodNode =
+        new MethodNodeBuilder()
+            .iconst_0()
+            .istore(2)
+            .label(label0)
+            .iinc(2, 1)
+            .iload(1)
+            .ifne(label0)
+            .iload(2)
+            .istore(3)
+            .vreturn()
+            .build();
+    ControlFlowGraph graph = new ControlFlowGraph(methodNode);
+
+    LivenessAnalysis analysis = new LivenessAnalysis(graph);
+    analysis.analyze();
+
+    BasicBlock loopHeader = graph.getBlock(2);
+    assertTrue(analysis.isLiveIn(graph.getEntry(), 1));
+    assertFalse(analysis.isLiveIn(graph.getEntry(), 2));
+    assertTrue(analysis.isLiveIn(loopHeader, 1));
+    assertTrue(analysis.isLiveIn(loopHeader, 2));
+    assertTrue(analysis.isLiveOut(loopHeader, 1));
+    assertFalse(analysis.isLiveOut(graph.getBlock(6), 2));
+  }
+
+  @Test
+  void testAnalyze_exceptionHandler() {
+    MethodNode methodNode =
+        new MethodNodeBuilder()
+            .trycatch(label0, label1, label2)
+            .iconst_0()
+            .istore(1)
+            .label(label0)
+            .iconst_0()
+            .istore(2)
+            .iload(2)
+            .istore(3)
+            .label(label1)
+            .vreturn()
+            .label(label2)
+            .iload(1)
+            .pop()
+            .vreturn()
+            .build();
+
+    LivenessAnalysis analysis = new LivenessAnalysis(new ControlFlowGraph(methodNode));
+    analysis.analyze();
+    long[][] values = analysis.getValuesBefore();
+
+    for (int insnIndex = 2; insnIndex < 7; ++insnIndex) {
+      assertTrue(analysis.isLiveBefore(insnIndex, 1));
+      assertTrue(BitVectorAnalysis.get(values[insnIndex], 1));
+    }
+    assertFalse(analysis.isLiveBefore(7, 1));
+  }
+
+  /** Checks that the local variable read by each reachable instruction is live before it. */
+  @ParameterizedTest
+  @MethodSource(ALL_CLASSES_AND_LATEST_API)
+  void testAnalyze_precompiledClass(final PrecompiledClass classParameter, final Api apiParameter) {
+    ClassNode classNode = new ClassNode();
+    new ClassReader(classParameter.getBytes()).accept(classNode, 0);
+
+    for (MethodNode methodNode : classNode.methods) {
+      ControlFlowGraph graph = new ControlFlowGraph(methodNode);
+      LivenessAnalysis analysis = new LivenessAnalysis(graph);
+      analysis.analyze();
+      long[][] values = analysis.getValuesBefore();
+
+      for (int i = 0; i < methodNode.instructions.size(); ++i) {
+        AbstractInsnNode insnNode = methodNode.instructions.get(i);
+        if (!graph.getBlock(i).isReachable()) {
+          continue;
+        }
+        int opcode = insnNode.getOpcode();
+        if (opcode >= Opcodes.ILOAD && opcode <= Opcodes.ALOAD) {
+          assertTrue(BitVectorAnalysis.get(values[i], ((VarInsnNode) insnNode).var));
+        } else if (insnNode instanceof IincInsnNode) {
+          assertTrue(BitVectorAnalysis.get(values[i], ((IincInsnNode) insnNode).var));
+        }
+      }
+    }
+  }
+}
@@ -32,6 +32,7 @@ import org.objectweb.asm.Label;
 import org.objectweb.asm.MethodVisitor;
 import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.test.ClassFile;
+import org.objectweb.asm.tree.AbstractInsnNode;
 import org.objectweb.asm.tree.MethodNode;
 
 /**
@@ -88,6 +89,21 @@ final class MethodNodeBuilder {
     return this;
   }
 
+  MethodNodeBuilder varInsn(final int opcode, final int varIndex) {
+    methodNode.visitVarInsn(opcode, varIndex);
+    return this;
+  }
+
+  MethodNodeBuilder jumpInsn(final int opcode, final Label label) {
+    methodNode.visitJumpInsn(opcode, label);
+    return this;
+  }
+
+  MethodNodeBuilder ldc(final Object value) {
+    methodNode.visitLdcInsn(value);
+    return this;
+  }
+
   MethodNodeBuilder nop() {
     methodNode.visitInsn(Opcodes.NOP);
     return this;
@@ -208,6 +224,23 @@ final class MethodNodeBuilder {
     return methodNode;
   }
 
+  static int[] getOpcodes(final MethodNode methodNode) {
+    int numInsns = 0;
+    for (AbstractInsnNode insnNode : methodNode.instructions) {
+      if (insnNode.getOpcode() != -1) {
+        numInsns++;
+      }
+    }
+    int[] opcodes = new int[numInsns];
+    int index = 0;
+    for (AbstractInsnNode insnNode : methodNode.instructions) {
+      if (insnNode.getOpcode() != -1) {
+        opcodes[index++] = insnNode.getOpcode();
+      }
+    }
+    return opcodes;
+  }
+
   static ClassFile buildClassWithMethod(final MethodNode methodNode) {
     ClassWriter classWriter = new ClassWriter(0);
     classWriter.visit(Opcodes.V1_5, Opcodes.ACC_PUBLIC, "C", null, "java/lang/Object", null);
@@ -0,0 +1,189 @@
+// ASM: a very small and fast Java bytecode manipulation framework
+// Copyright (c) 2000-2011 INRIA, France Telecom
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+// 1. Redistributions of source code must retain the above copyright
+//    notice, this list of conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright
+//    notice, this list of conditions and the following disclaimer in the
+//    documentation and/or other materials provided with the distribution.
+// 3. Neither the name of the copyright holders nor the names of its
+//    contributors may be used to endorse or promote products derived from
+//    this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+// THE POSSIBILITY OF SUCH DAMAGE.
+package org.objectweb.asm.tree.analysis;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.test.AsmTest;
+import org.objectweb.asm.test.ClassFile;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.MethodNode;
+
+/** Unit tests for {@link MethodOptimizer}. */
+class MethodOptimizerTest extends AsmTest {
+
+  private final Label label0 = new Label();
+  private final Label label1 = new Label();
+  private final Label label2 = new Label();
+  private final Label label3 = new Label();
+
+  @Test
+  void testOptimize() throws Exception {
+    MethodNode methodNode =
+        new MethodNodeBuilder("()I", 10, 10)
+            .insn(Opcodes.ICONST_3)
+            .istore(1)
+            .iload(1)
+            .insn(Opcodes.ICONST_3)
+            .jumpInsn(Opcodes.IF_ICMPNE, label0)
+            .iload(1)
+            .intInsn(Opcodes.BIPUSH, 7)
+            .insn(Opcodes.IMUL)
+            .istore(2)
+            .go(label1)
+            .label(label0)
+            .iconst_0()
+            .istore(2)
+            .label(label1)
+            .iload(2)
+            .insn(Opcodes.IRETURN)
+            .build();
+
+    boolean changed = new MethodOptimizer().optimize("C", methodNode);
+
+    assertTrue(changed);
+    assertArrayEquals(
+        new int[] {Opcodes.BIPUSH, Opcodes.IRETURN}, MethodNodeBuilder.getOpcodes(methodNode));
+    assertEquals(1, methodNode.maxStack);
+    assertEquals(1, methodNode.maxLocals);
+    Object instance = MethodNodeBuilder.buildClassWithMethod(methodNode).newInstance();
+    assertEquals(21, instance.getClass().getMethod("m").invoke(instance));
+    assertFalse(new MethodOptimizer().optimize("C", methodNode));
+  }
+
+  @Test
+  void testOptimize_loop() throws Exception {
+    MethodNode methodNode =
+        new MethodNodeBuilder("(I)I", 10, 10)
+            .iconst_0()
+            .istore(2)
+            .label(label0)
+            .iload(1)
+            .jumpInsn(Opcodes.IFLE, label1)
+            .iinc(2, 2)
+            .iinc(1, -1)
+            .go(label0)
+            .label(label1)
+            .iload(2)
+            .insn(Opcodes.IRETURN)
+            .build();
+
+    boolean changed = new MethodOptimizer().optimize("C", methodNode);
+
+    assertFalse(changed);
+    Object instance = MethodNodeBuilder.buildClassWithMethod(methodNode).newInstance();
+    assertEquals(10, instance.getClass().getMethod("m", int.class).invoke(instance, 5));
+  }
+
+  @Test
+  void testOptimize_emptyTryCatchBlock() throws Exception {
+    // try { int x = 1; } catch (RuntimeException e) { return 1; } return 0;
+    MethodNode methodNode =
+        new MethodNodeBuilder("()I", 10, 10)
+            .label(label0)
+            .insn(Opcodes.ICONST_1)
+            .istore(1)
+            .label(label1)
+            .go(label3)
+            .label(label2)
+            .astore(2)
+            .insn(Opcodes.ICONST_1)
+            .insn(Opcodes.IRETURN)
+            .label(label3)
+            .iconst_0()
+            .insn(Opcodes.IRETURN)
+            .trycatch(label0, label1, label2, "java/lang/RuntimeException")
+            .build();
+
+    boolean changed = new MethodOptimizer().optimize("C", methodNode);
+
+    assertTrue(changed);
+    assertTrue(methodNode.tryCatchBlocks.isEmpty());
+    Object instance = MethodNodeBuilder.buildClassWithMethod(methodNode).newInstance();
+    assertEquals(0, instance.getClass().getMethod("m").invoke(instance));
+  }
+
+  /**
+   * Tests that the precompiled classes can be optimized, that their optimized methods can still be
+   * analyzed, with consistent maximum stack sizes and numbers of local variables, and that the
+   * optimized classes are accepted by the JVM verifier.
+   *
+   * @throws AnalyzerException if a test class can't be optimized or analyzed.
+   */
+  @ParameterizedTest
+  @MethodSource(ALL_CLASSES_AND_LATEST_API)
+  void testOptimize_precompiledClass(final PrecompiledClass classParameter, final Api apiParameter)
+      throws AnalyzerException {
+    ClassNode classNode = new ClassNode();
+    new ClassReader(classParameter.getBytes()).accept(classNode, 0);
+
+    new MethodOptimizer().optimize(classNode);
+
+    // The optimized methods don't have valid stack map frames, except those using JSR or RET
+    // instructions, which don't need them.
+    boolean hasJsrOrRetInstructions =
+        classParameter == PrecompiledClass.JDK3_ALL_INSTRUCTIONS
+            || classParameter == PrecompiledClass.JDK3_LARGE_METHOD;
+    ClassWriter classWriter =
+        new ClassWriter(hasJsrOrRetInstructions ? 0 : ClassWriter.COMPUTE_FRAMES);
+    classNode.accept(classWriter);
+    byte[] optimizedClassFile = classWriter.toByteArray();
+
+    for (MethodNode methodNode : classNode.methods) {
+      if (methodNode.instructions.size() > 0) {
+        int maxStack = methodNode.maxStack;
+        int maxLocals = methodNode.maxLocals;
+        assertDoesNotThrow(
+            () ->
+                new Analyzer<BasicValue>(new BasicInterpreter())
+                    .analyzeAndComputeMaxs(classNode.name, methodNode));
+        assertTrue(maxStack >= methodNode.maxStack);
+        assertTrue(maxLocals >= methodNode.maxLocals);
+      }
+    }
+    Executable newInstance = () -> new ClassFile(optimizedClassFile).newInstance();
+    if (classParameter.isNotCompatibleWithCurrentJdk()) {
+      assertThrows(UnsupportedClassVersionError.class, newInstance);
+    } else {
+      assertDoesNotThrow(newInstance);
+    }
+  }
+}
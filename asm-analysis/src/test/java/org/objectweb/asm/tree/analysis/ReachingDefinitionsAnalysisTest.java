@@ -0,0 +1,161 @@
+// ASM: a very small and fast Java bytecode manipulation framework
+// Copyright (c) 2000-2011 INRIA, France Telecom
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+// 1. Redistributions of source code must retain the above copyright
+//    notice, this list of conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright
+//    notice, this list of conditions and the following disclaimer in the
+//    documentation and/or other materials provided with the distribution.
+// 3. Neither the name of the copyright holders nor the names of its
+//    contributors may be used to endorse or promote products derived from
+//    this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+// THE POSSIBILITY OF SUCH DAMAGE.
+package org.objectweb.asm.tree.analysis;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.test.AsmTest;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.InsnList;
+import org.objectweb.asm.tree.MethodNode;
+import org.objectweb.asm.tree.VarInsnNode;
+
+/** Unit tests for {@link ReachingDefinitionsAnalysis} and {@link BitVectorAnalysis}. */
+class ReachingDefinitionsAnalysisTest extends AsmTest {
+
+  public final Label label0 = new Label();
+  public final Label label1 = new Label();
+  public final Label label2 = new Label();
+
+  @Test
+  void testAnalyze_diamond() {
+    MethodNode methodNode =
+        new MethodNodeBuilder("(I)V", 1, 3)
+            .iload(1)
+            .ifne(label0)
+            .iconst_0()
+            .istore(1)
+            .go(label1)
+            .label(label0)
+            .iconst_0()
+            .istore(2)
+            .label(label1)
+            .iload(1)
+            .pop()
+            .vreturn()
+            .build();
+    InsnList insns = methodNode.instructions;
+
+    ReachingDefinitionsAnalysis analysis =
+        new ReachingDefinitionsAnalysis(new ControlFlowGraph(methodNode));
+    analysis.analyze();
+
+    assertEquals(2, analysis.definitions.size());
+    assertTrue(analysis.isInitialValueReaching(0, 1));
+    assertEquals(Collections.emptyList(), analysis.getReachingDefinitions(0, 1));
+    assertEquals(Arrays.asList(insns.get(3)), analysis.getReachingDefinitions(9, 1));
+    assertTrue(analysis.isInitialValueReaching(9, 1));
+    assertEquals(Arrays.asList(insns.get(7)), analysis.getReachingDefinitions(9, 2));
+    assertFalse(analysis.isInitialValueReaching(4, 1));
+  }
+
+  @Test
+  void testAnalyze_loop() {
+    MethodNode methodNode =
+        new MethodNodeBuilder()
+            .iconst_0()
+            .istore(1)
+            .label(label0)
+            .iinc(1, 1)
+            .iload(1)
+            .ifne(label0)
+            .vreturn()
+            .build();
+    InsnList insns = methodNode.instructions;
+
+    ReachingDefinitionsAnalysis analysis =
+        new ReachingDefinitionsAnalysis(new ControlFlowGraph(methodNode));
+    analysis.analyze();
+
+    assertEquals(Arrays.asList(insns.get(1), insns.get(3)), analysis.getReachingDefinitions(3, 1));
+    assertEquals(Arrays.asList(insns.get(3)), analysis.getReachingDefinitions(4, 1));
+    assertFalse(analysis.isInitialValueReaching(3, 1));
+  }
+
+  @Test
+  void testAnalyze_exceptionHandler() {
+    MethodNode methodNode =
+        new MethodNodeBuilder()
+            .trycatch(label0, label1, label2)
+            .label(label0)
+            .iconst_0()
+            .istore(1)
+            .aconst_null()
+            .athrow()
+            .label(label1)
+            .label(label2)
+            .iload(1)
+            .pop()
+            .vreturn()
+            .build();
+    InsnList insns = methodNode.instructions;
+
+    ReachingDefinitionsAnalysis analysis =
+        new ReachingDefinitionsAnalysis(new ControlFlowGraph(methodNode));
+    analysis.analyze();
+
+    assertEquals(Arrays.asList(insns.get(2)), analysis.getReachingDefinitions(7, 1));
+    assertTrue(analysis.isInitialValueReaching(7, 1));
+  }
+
+  /** Checks that at least one definition reaches each reachable load instruction. */
+  @ParameterizedTest
+  @MethodSource(ALL_CLASSES_AND_LATEST_API)
+  void testAnalyze_precompiledClass(final PrecompiledClass classParameter, final Api apiParameter) {
+    ClassNode classNode = new ClassNode();
+    new ClassReader(classParameter.getBytes()).accept(classNode, 0);
+
+    for (MethodNode methodNode : classNode.methods) {
+      ControlFlowGraph graph = new ControlFlowGraph(methodNode);
+      ReachingDefinitionsAnalysis analysis = new ReachingDefinitionsAnalysis(graph);
+      analysis.analyze();
+
+      for (int i = 0; i < methodNode.instructions.size(); ++i) {
+        AbstractInsnNode insnNode = methodNode.instructions.get(i);
+        int opcode = insnNode.getOpcode();
+        if (graph.getBlock(i).isReachable() && opcode >= Opcodes.ILOAD && opcode <= Opcodes.ALOAD) {
+          int varIndex = ((VarInsnNode) insnNode).var;
+          assertTrue(
+              analysis.isInitialValueReaching(i, varIndex)
+                  || !analysis.getReachingDefinitions(i, varIndex).isEmpty());
+        }
+      }
+    }
+  }
+}
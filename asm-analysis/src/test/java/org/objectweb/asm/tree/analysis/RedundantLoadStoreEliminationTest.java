@@ -0,0 +1,134 @@
+// ASM: a very small and fast Java bytecode manipulation framework
+// Copyright (c) 2000-2011 INRIA, France Telecom
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+// 1. Redistributions of source code must retain the above copyright
+//    notice, this list of conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright
+//    notice, this list of conditions and the following disclaimer in the
+//    documentation and/or other materials provided with the distribution.
+// 3. Neither the name of the copyright holders nor the names of its
+//    contributors may be used to endorse or promote products derived from
+//    this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+// THE POSSIBILITY OF SUCH DAMAGE.
+package org.objectweb.asm.tree.analysis;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.MethodNode;
+
+/** Unit tests for {@link RedundantLoadStoreElimination}. */
+class RedundantLoadStoreEliminationTest {
+
+  private final Label label0 = new Label();
+
+  @Test
+  void testTransform_deadStores() throws Exception {
+    MethodNode methodNode =
+        new MethodNodeBuilder("(J)V", 10, 10)
+            .insn(Opcodes.ICONST_5)
+            .istore(3)
+            .iinc(3, 1)
+            .varInsn(Opcodes.LLOAD, 1)
+            .varInsn(Opcodes.LSTORE, 4)
+            .vreturn()
+            .build();
+
+    boolean changed = new RedundantLoadStoreElimination().transform("C", methodNode);
+
+    assertTrue(changed);
+    assertArrayEquals(
+        new int[] {Opcodes.ICONST_5, Opcodes.ISTORE, Opcodes.RETURN},
+        MethodNodeBuilder.getOpcodes(methodNode));
+    assertEquals(4, methodNode.maxLocals);
+
+    changed = new RedundantLoadStoreElimination().transform("C", methodNode);
+
+    assertTrue(changed);
+    assertArrayEquals(new int[] {Opcodes.RETURN}, MethodNodeBuilder.getOpcodes(methodNode));
+    assertEquals(0, methodNode.maxStack);
+    assertEquals(3, methodNode.maxLocals);
+  }
+
+  @Test
+  void testTransform_storeLoadPairs() throws Exception {
+    MethodNode methodNode =
+        new MethodNodeBuilder("(I)I", 10, 10)
+            .iload(1)
+            .istore(1)
+            .iload(1)
+            .insn(Opcodes.ICONST_1)
+            .insn(Opcodes.IADD)
+            .istore(2)
+            .iload(2)
+            .insn(Opcodes.IRETURN)
+            .build();
+
+    boolean changed = new RedundantLoadStoreElimination().transform("C", methodNode);
+
+    assertTrue(changed);
+    assertArrayEquals(
+        new int[] {Opcodes.ILOAD, Opcodes.ICONST_1, Opcodes.IADD, Opcodes.IRETURN},
+        MethodNodeBuilder.getOpcodes(methodNode));
+    assertEquals(2, methodNode.maxLocals);
+  }
+
+  @Test
+  void testTransform_liveStores() throws AnalyzerException {
+    MethodNode methodNode =
+        new MethodNodeBuilder("(I)I", 10, 10)
+            .iconst_0()
+            .istore(2)
+            .label(label0)
+            .iinc(2, 1)
+            .iload(1)
+            .ifne(label0)
+            .iload(2)
+            .insn(Opcodes.IRETURN)
+            .build();
+
+    assertFalse(new RedundantLoadStoreElimination().transform("C", methodNode));
+  }
+
+  @Test
+  void testTransform_storeReadByExceptionHandler() throws AnalyzerException {
+    Label label1 = new Label();
+    Label label2 = new Label();
+    MethodNode methodNode =
+        new MethodNodeBuilder("()I", 10, 10)
+            .trycatch(label0, label1, label2)
+            .label(label0)
+            .iconst_0()
+            .istore(1)
+            .aconst_null()
+            .athrow()
+            .label(label1)
+            .label(label2)
+            .pop()
+            .iload(1)
+            .insn(Opcodes.IRETURN)
+            .build();
+
+    assertFalse(new RedundantLoadStoreElimination().transform("C", methodNode));
+  }
+}
@@ -132,4 +132,30 @@ class SimpleVerifierTest {
     assertTrue(simpleVerifier.isAssignableFrom(interfaceType, Type.getObjectType("[I")));
     assertFalse(simpleVerifier.isAssignableFrom(interfaceType, Type.INT_TYPE));
   }
+
+  @Test
+  void testIsSubTypeOf_interfaceWithoutClassLoading() {
+    Type classType = Type.getObjectType("C");
+    Type interfaceType = Type.getObjectType("I");
+    SimpleVerifier simpleVerifier =
+        new SimpleVerifier(/* latest */ Opcodes.ASM10_EXPERIMENTAL, classType, null, null, false) {
+
+          @Override
+          public boolean isInterface(final Type type) {
+            return type.equals(interfaceType);
+          }
+
+          @Override
+          public boolean isAssignableFrom(final Type type1, final Type type2) {
+            return type1.equals(type2);
+          }
+        };
+
+    assertTrue(
+        simpleVerifier.isSubTypeOf(
+            simpleVerifier.newValue(classType), simpleVerifier.newValue(interfaceType)));
+    assertFalse(
+        simpleVerifier.isSubTypeOf(
+            simpleVerifier.newValue(interfaceType), simpleVerifier.newValue(classType)));
+  }
 }
@@ -0,0 +1,1308 @@
+// ASM: a very small and fast Java bytecode manipulation framework
+// Copyright (c) 2000-2011 INRIA, France Telecom
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+// 1. Redistributions of source code must retain the above copyright
+//    notice, this list of conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright
+//    notice, this list of conditions and the following disclaimer in the
+//    documentation and/or other materials provided with the distribution.
+// 3. Neither the name of the copyright holders nor the names of its
+//    contributors may be used to endorse or promote products derived from
+//    this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+// THE POSSIBILITY OF SUCH DAMAGE.
+package org.objectweb.asm.commons;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.objectweb.asm.ConstantDynamic;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+/**
+ * A {@link MethodVisitor} that keeps track of stack map frame changes between {@link
+ * #visitFrame(int, int, Object[], int, Object[])} calls, like {@link AnalyzerAdapter}, but with a
+ * representation designed to avoid allocations on each instruction. The local variable and operand
+ * stack slots are stored in int arrays, which are reused for the whole method, and contain type
+ * tokens instead of objects. The tokens of primitive types are the values of {@link Opcodes#TOP},
+ * {@link Opcodes#INTEGER}, {@link Opcodes#FLOAT}, {@link Opcodes#DOUBLE}, {@link Opcodes#LONG},
+ * {@link Opcodes#NULL} and {@link Opcodes#UNINITIALIZED_THIS}. The other tokens, starting at {@link
+ * #FIRST_REFERENCE_TOKEN}, designate interned reference types (String objects) or uninitialized
+ * types (Label objects), which can be retrieved with {@link #getTokenValue}.
+ *
+ * <p>The state of the frame <i>before</i> each instruction can be read by the next visitor in the
+ * chain with {@link #getLocal}, {@link #getStack} and the corresponding counts, or with the read
+ * only {@link List} views returned by {@link #getLocals} and {@link #getStack()}, which contain the
+ * same values as {@link AnalyzerAdapter#locals} and {@link AnalyzerAdapter#stack}. This adapter
+ * must be used with the {@link org.objectweb.asm.ClassReader#EXPAND_FRAMES} option.
+ */
+public class ArrayAnalyzerAdapter extends MethodVisitor {
+
+  /** The first token used for reference and uninitialized types. */
+  public static final int FIRST_REFERENCE_TOKEN = 7;
+
+  /** The frame types corresponding to the tokens smaller than {@link #FIRST_REFERENCE_TOKEN}. */
+  static final Integer[] PRIMITIVE_TOKEN_VALUES = {
+    Opcodes.TOP,
+    Opcodes.INTEGER,
+    Opcodes.FLOAT,
+    Opcodes.DOUBLE,
+    Opcodes.LONG,
+    Opcodes.NULL,
+    Opcodes.UNINITIALIZED_THIS
+  };
+
+  /** The token of the java/lang/Object type. */
+  static final int OBJECT_TOKEN = FIRST_REFERENCE_TOKEN;
+
+  /**
+   * The uninitialized types in the current execution frame. This map associates the Label objects
+   * designating the NEW instructions to the corresponding NEW operands (see {@link
+   * AnalyzerAdapter#uninitializedTypes}).
+   */
+  public final Map<Object, Object> uninitializedTypes;
+
+  /** The maximum stack size of this method. */
+  public int maxStack;
+
+  /** The maximum number of local variables of this method. */
+  public int maxLocals;
+
+  /** The owner's class name. */
+  public String owner;
+
+  /** The tokens of the local variable slots. Only the first {@link #numLocals} ones are used. */
+  int[] locals;
+
+  /** The number of local variable slots in the current execution frame. */
+  int numLocals;
+
+  /** The tokens of the operand stack slots. Only the first {@link #numStack} ones are used. */
+  int[] stack;
+
+  /** The number of operand stack slots in the current execution frame. */
+  int numStack;
+
+  /** Whether the next instruction is reachable, i.e. whether the current frame is known. */
+  boolean reachable;
+
+  /** The labels designating the next instruction. Only the first {@link #numLabels} are used. */
+  Label[] labels;
+
+  /** The number of labels designating the next instruction. */
+  int numLabels;
+
+  /** The interned reference and uninitialized types, indexed by token - FIRST_REFERENCE_TOKEN. */
+  final ArrayList<Object> tokenValues;
+
+  /** The tokens of the interned reference and uninitialized types. */
+  final HashMap<Object, Integer> tokens;
+
+  /**
+   * The tokens of the types corresponding to field descriptors, and of the return types of method
+   * descriptors (or -1 for void).
+   */
+  final HashMap<String, Integer> descriptorTokens;
+
+  /**
+   * The tokens of the array types whose element type is a given reference type, indexed by token -
+   * FIRST_REFERENCE_TOKEN (0 if not computed yet).
+   */
+  int[] arrayTokens;
+
+  /**
+   * The tokens of the element types of the array types, indexed by token - FIRST_REFERENCE_TOKEN (0
+   * if not computed yet).
+   */
+  int[] elementTokens;
+
+  /** A read only view of the local variable slots, or {@literal null}. */
+  List<Object> localsView;
+
+  /** A read only view of the operand stack slots, or {@literal null}. */
+  List<Object> stackView;
+
+  /** A read only view of the labels designating the next instruction, or {@literal null}. */
+  List<Label> labelsView;
+
+  /**
+   * Constructs a new {@link ArrayAnalyzerAdapter}. <i>Subclasses must not use this constructor</i>.
+   * Instead, they must use the {@link #ArrayAnalyzerAdapter(int, String, int, String, String,
+   * MethodVisitor)} version.
+   *
+   * @param owner the owner's class name.
+   * @param access the method's access flags (see {@link Opcodes}).
+   * @param name the method's name.
+   * @param descriptor the method's descriptor (see {@link Type}).
+   * @param methodVisitor the method visitor to which this adapter delegates calls. May be {@literal
+   *     null}.
+   * @throws IllegalStateException If a subclass calls this constructor.
+   */
+  public ArrayAnalyzerAdapter(
+      final String owner,
+      final int access,
+      final String name,
+      final String descriptor,
+      final MethodVisitor methodVisitor) {
+    this(/* latest api = */ Opcodes.ASM9, owner, access, name, descriptor, methodVisitor);
+    if (getClass() != ArrayAnalyzerAdapter.class) {
+      throw new IllegalStateException();
+    }
+  }
+
+  /**
+   * Constructs a new {@link ArrayAnalyzerAdapter}.
+   *
+   * @param api the ASM API version implemented by this visitor. Must be one of the {@code
+   *     ASM}<i>x</i> values in {@link Opcodes}.
+   * @param owner the owner's class name.
+   * @param access the method's access flags (see {@link Opcodes}).
+   * @param name the method's name.
+   * @param descriptor the method's descriptor (see {@link Type}).
+   * @param methodVisitor the method visitor to which this adapter delegates calls. May be {@literal
+   *     null}.
+   */
+  public ArrayAnalyzerAdapter(
+      final int api,
+      final String owner,
+      final int access,
+      final String name,
+      final String descriptor,
+      final MethodVisitor methodVisitor) {
+    super(api, methodVisitor);
+    this.owner = owner;
+    uninitializedTypes = new HashMap<Object, Object>();
+    locals = new int[16];
+    stack = new int[16];
+    labels = new Label[4];
+    tokenValues = new ArrayList<Object>();
+    tokens = new HashMap<Object, Integer>();
+    descriptorTokens = new HashMap<String, Integer>();
+    arrayTokens = new int[16];
+    elementTokens = new int[16];
+    reachable = true;
+    getToken("java/lang/Object");
+
+    if ((access & Opcodes.ACC_STATIC) == 0) {
+      if ("<init>".equals(name)) {
+        addLocal(Opcodes.UNINITIALIZED_THIS.intValue());
+      } else {
+        addLocal(getToken(owner));
+      }
+    }
+    for (Type argumentType : Type.getArgumentTypes(descriptor)) {
+      switch (argumentType.getSort()) {
+        case Type.BOOLEAN:
+        case Type.CHAR:
+        case Type.BYTE:
+        case Type.SHORT:
+        case Type.INT:
+          addLocal(Opcodes.INTEGER.intValue());
+          break;
+        case Type.FLOAT:
+          addLocal(Opcodes.FLOAT.intValue());
+          break;
+        case Type.LONG:
+          addLocal(Opcodes.LONG.intValue());
+          addLocal(Opcodes.TOP.intValue());
+          break;
+        case Type.DOUBLE:
+          addLocal(Opcodes.DOUBLE.intValue());
+          addLocal(Opcodes.TOP.intValue());
+          break;
+        case Type.ARRAY:
+          addLocal(getToken(argumentType.getDescriptor()));
+          break;
+        case Type.OBJECT:
+          addLocal(getToken(argumentType.getInternalName()));
+          break;
+        default:
+          throw new AssertionError();
+      }
+    }
+    maxLocals = numLocals;
+  }
+
+  // -----------------------------------------------------------------------------------------------
+  // Read only accessors
+  // -----------------------------------------------------------------------------------------------
+
+  /**
+   * Returns whether the current execution frame is known. This is not the case for unreachable
+   * instructions, nor for the instructions following an unconditional jump, a return or a throw
+   * instruction without a stack map frame.
+   *
+   * @return whether the current execution frame is known.
+   */
+  public boolean isReachable() {
+    return reachable;
+  }
+
+  /**
+   * Returns the number of local variable slots in the current execution frame.
+   *
+   * @return the number of local variable slots in the current execution frame (long and double
+   *     values use two slots, the second one being {@link Opcodes#TOP}).
+   */
+  public int getNumLocals() {
+    return numLocals;
+  }
+
+  /**
+   * Returns the token of a local variable slot in the current execution frame.
+   *
+   * @param index a local variable slot index, smaller than {@link #getNumLocals}.
+   * @return the token of this slot.
+   */
+  public int getLocal(final int index) {
+    return locals[index];
+  }
+
+  /**
+   * Returns the number of operand stack slots in the current execution frame.
+   *
+   * @return the number of operand stack slots in the current execution frame (long and double
+   *     values use two slots, the second one being {@link Opcodes#TOP}).
+   */
+  public int getNumStack() {
+    return numStack;
+  }
+
+  /**
+   * Returns the token of an operand stack slot in the current execution frame.
+   *
+   * @param index an operand stack slot index, smaller than {@link #getNumStack}, 0 being the bottom
+   *     of the stack.
+   * @return the token of this slot.
+   */
+  public int getStack(final int index) {
+    return stack[index];
+  }
+
+  /**
+   * Returns the frame type corresponding to the given token.
+   *
+   * @param token a token returned by {@link #getLocal} or {@link #getStack}.
+   * @return the corresponding {@link Opcodes#TOP}, {@link Opcodes#INTEGER}, {@link Opcodes#FLOAT},
+   *     {@link Opcodes#LONG}, {@link Opcodes#DOUBLE}, {@link Opcodes#NULL} or {@link
+   *     Opcodes#UNINITIALIZED_THIS} value, String (for reference types, see {@link
+   *     Type#getInternalName()}) or Label object (for uninitialized types).
+   */
+  public Object getTokenValue(final int token) {
+    if (token < FIRST_REFERENCE_TOKEN) {
+      return PRIMITIVE_TOKEN_VALUES[token];
+    }
+    return tokenValues.get(token - FIRST_REFERENCE_TOKEN);
+  }
+
+  /**
+   * Returns a read only view of the local variable slots of the current execution frame. The
+   * returned list reflects the subsequent changes of this frame, and contains the same values as
+   * {@link AnalyzerAdapter#locals}.
+   *
+   * @return a read only view of the local variable slots, or {@literal null} if the current
+   *     execution frame is not known.
+   */
+  public List<Object> getLocals() {
+    if (!reachable) {
+      return null;
+    }
+    if (localsView == null) {
+      localsView =
+          new AbstractList<Object>() {
+            @Override
+            public Object get(final int index) {
+              checkIndex(index, numLocals);
+              return getTokenValue(locals[index]);
+            }
+
+            @Override
+            public int size() {
+              return numLocals;
+            }
+          };
+    }
+    return localsView;
+  }
+
+  /**
+   * Returns a read only view of the operand stack slots of the current execution frame. The
+   * returned list reflects the subsequent changes of this frame, and contains the same values as
+   * {@link AnalyzerAdapter#stack}.
+   *
+   * @return a read only view of the operand stack slots, or {@literal null} if the current
+   *     execution frame is not known.
+   */
+  public List<Object> getStack() {
+    if (!reachable) {
+      return null;
+    }
+    if (stackView == null) {
+      stackView =
+          new AbstractList<Object>() {
+            @Override
+            public Object get(final int index) {
+              checkIndex(index, numStack);
+              return getTokenValue(stack[index]);
+            }
+
+            @Override
+            public int size() {
+              return numStack;
+            }
+          };
+    }
+    return stackView;
+  }
+
+  /**
+   * Returns a read only view of the labels that designate the next instruction to be visited.
+   *
+   * @return a read only view of the labels that designate the next instruction to be visited, or
+   *     {@literal null} if there is none.
+   */
+  public List<Label> getLabels() {
+    if (numLabels == 0) {
+      return null;
+    }
+    if (labelsView == null) {
+      labelsView =
+          new AbstractList<Label>() {
+            @Override
+            public Label get(final int index) {
+              checkIndex(index, numLabels);
+              return labels[index];
+            }
+
+            @Override
+            public int size() {
+              return numLabels;
+            }
+          };
+    }
+    return labelsView;
+  }
+
+  /**
+   * Checks that the given index is valid.
+   *
+   * @param index an index.
+   * @param size the size of a list.
+   * @throws IndexOutOfBoundsException if index is not between 0 (inclusive) and size (exclusive).
+   */
+  static void checkIndex(final int index, final int size) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+    }
+  }
+
+  // -----------------------------------------------------------------------------------------------
+  // Implementation of the MethodVisitor abstract class
+  // -----------------------------------------------------------------------------------------------
+
+  @Override
+  public void visitFrame(
+      final int type,
+      final int numLocal,
+      final Object[] local,
+      final int numStack,
+      final Object[] stack) {
+    if (type != Opcodes.F_NEW) { // Uncompressed frame.
+      throw new IllegalArgumentException(
+          "ArrayAnalyzerAdapter only accepts expanded frames (see ClassReader.EXPAND_FRAMES)");
+    }
+
+    super.visitFrame(type, numLocal, local, numStack, stack);
+
+    this.reachable = true;
+    this.numLocals = 0;
+    this.numStack = 0;
+    for (int i = 0; i < numLocal; ++i) {
+      Object frameType = local[i];
+      addLocal(getFrameTypeToken(frameType));
+      if (frameType == Opcodes.LONG || frameType == Opcodes.DOUBLE) {
+        addLocal(Opcodes.TOP.intValue());
+      }
+    }
+    for (int i = 0; i < numStack; ++i) {
+      Object frameType = stack[i];
+      push(getFrameTypeToken(frameType));
+      if (frameType == Opcodes.LONG || frameType == Opcodes.DOUBLE) {
+        push(Opcodes.TOP.intValue());
+      }
+    }
+    maxLocals = Math.max(maxLocals, this.numLocals);
+    maxStack = Math.max(maxStack, this.numStack);
+  }
+
+  @Override
+  public void visitInsn(final int opcode) {
+    super.visitInsn(opcode);
+    execute(opcode, 0, null);
+    if ((opcode >= Opcodes.IRETURN && opcode <= Opcodes.RETURN) || opcode == Opcodes.ATHROW) {
+      reachable = false;
+    }
+  }
+
+  @Override
+  public void visitIntInsn(final int opcode, final int operand) {
+    super.visitIntInsn(opcode, operand);
+    execute(opcode, operand, null);
+  }
+
+  @Override
+  public void visitVarInsn(final int opcode, final int varIndex) {
+    super.visitVarInsn(opcode, varIndex);
+    boolean isLongOrDouble =
+        opcode == Opcodes.LLOAD
+            || opcode == Opcodes.DLOAD
+            || opcode == Opcodes.LSTORE
+            || opcode == Opcodes.DSTORE;
+    maxLocals = Math.max(maxLocals, varIndex + (isLongOrDouble ? 2 : 1));
+    execute(opcode, varIndex, null);
+  }
+
+  @Override
+  public void visitTypeInsn(final int opcode, final String type) {
+    if (opcode == Opcodes.NEW) {
+      if (numLabels == 0) {
+        Label label = new Label();
+        addLabel(label);
+        if (mv != null) {
+          mv.visitLabel(label);
+        }
+      }
+      for (int i = 0; i < numLabels; ++i) {
+        uninitializedTypes.put(labels[i], type);
+      }
+    }
+    super.visitTypeInsn(opcode, type);
+    execute(opcode, 0, type);
+  }
+
+  @Override
+  public void visitFieldInsn(
+      final int opcode, final String owner, final String name, final String descriptor) {
+    super.visitFieldInsn(opcode, owner, name, descriptor);
+    execute(opcode, 0, descriptor);
+  }
+
+  @Override
+  public void visitMethodInsn(
+      final int opcodeAndSource,
+      final String owner,
+      final String name,
+      final String descriptor,
+      final boolean isInterface) {
+    if (api < Opcodes.ASM5 && (opcodeAndSource & Opcodes.SOURCE_DEPRECATED) == 0) {
+      // Redirect the call to the deprecated version of this method.
+      super.visitMethodInsn(opcodeAndSource, owner, name, descriptor, isInterface);
+      return;
+    }
+    super.visitMethodInsn(opcodeAndSource, owner, name, descriptor, isInterface);
+    int opcode = opcodeAndSource & ~Opcodes.SOURCE_MASK;
+
+    if (!reachable) {
+      numLabels = 0;
+      return;
+    }
+    popArguments(descriptor);
+    if (opcode != Opcodes.INVOKESTATIC) {
+      int value = pop();
+      if (opcode == Opcodes.INVOKESPECIAL && name.equals("<init>")) {
+        int initializedValue;
+        if (value == Opcodes.UNINITIALIZED_THIS.intValue()) {
+          initializedValue = getToken(this.owner);
+        } else {
+          initializedValue = getToken(owner);
+        }
+        for (int i = 0; i < numLocals; ++i) {
+          if (locals[i] == value) {
+            locals[i] = initializedValue;
+          }
+        }
+        for (int i = 0; i < numStack; ++i) {
+          if (stack[i] == value) {
+            stack[i] = initializedValue;
+          }
+        }
+      }
+    }
+    pushDescriptor(descriptor);
+    numLabels = 0;
+  }
+
+  @Override
+  public void visitInvokeDynamicInsn(
+      final String name,
+      final String descriptor,
+      final Handle bootstrapMethodHandle,
+      final Object... bootstrapMethodArguments) {
+    super.visitInvokeDynamicInsn(name, descriptor, bootstrapMethodHandle, bootstrapMethodArguments);
+    if (!reachable) {
+      numLabels = 0;
+      return;
+    }
+    popArguments(descriptor);
+    pushDescriptor(descriptor);
+    numLabels = 0;
+  }
+
+  @Override
+  public void visitJumpInsn(final int opcode, final Label label) {
+    super.visitJumpInsn(opcode, label);
+    execute(opcode, 0, null);
+    if (opcode == Opcodes.GOTO) {
+      reachable = false;
+    }
+  }
+
+  @Override
+  public void visitLabel(final Label label) {
+    super.visitLabel(label);
+    addLabel(label);
+  }
+
+  @Override
+  public void visitLdcInsn(final Object value) {
+    super.visitLdcInsn(value);
+    if (!reachable) {
+      numLabels = 0;
+      return;
+    }
+    if (value instanceof Integer) {
+      push(Opcodes.INTEGER.intValue());
+    } else if (value instanceof Long) {
+      push(Opcodes.LONG.intValue());
+      push(Opcodes.TOP.intValue());
+    } else if (value instanceof Float) {
+      push(Opcodes.FLOAT.intValue());
+    } else if (value instanceof Double) {
+      push(Opcodes.DOUBLE.intValue());
+      push(Opcodes.TOP.intValue());
+    } else if (value instanceof String) {
+      push(getToken("java/lang/String"));
+    } else if (value instanceof Type) {
+      int sort = ((Type) value).getSort();
+      if (sort == Type.OBJECT || sort == Type.ARRAY) {
+        push(getToken("java/lang/Class"));
+      } else if (sort == Type.METHOD) {
+        push(getToken("java/lang/invoke/MethodType"));
+      } else {
+        throw new IllegalArgumentException();
+      }
+    } else if (value instanceof Handle) {
+      push(getToken("java/lang/invoke/MethodHandle"));
+    } else if (value instanceof ConstantDynamic) {
+      pushDescriptor(((ConstantDynamic) value).getDescriptor());
+    } else {
+      throw new IllegalArgumentException();
+    }
+    numLabels = 0;
+  }
+
+  @Override
+  public void visitIincInsn(final int varIndex, final int increment) {
+    super.visitIincInsn(varIndex, increment);
+    maxLocals = Math.max(maxLocals, varIndex + 1);
+    execute(Opcodes.IINC, varIndex, null);
+  }
+
+  @Override
+  public void visitTableSwitchInsn(
+      final int min, final int max, final Label dflt, final Label... labels) {
+    super.visitTableSwitchInsn(min, max, dflt, labels);
+    execute(Opcodes.TABLESWITCH, 0, null);
+    reachable = false;
+  }
+
+  @Override
+  public void visitLookupSwitchInsn(final Label dflt, final int[] keys, final Label[] labels) {
+    super.visitLookupSwitchInsn(dflt, keys, labels);
+    execute(Opcodes.LOOKUPSWITCH, 0, null);
+    reachable = false;
+  }
+
+  @Override
+  public void visitMultiANewArrayInsn(final String descriptor, final int numDimensions) {
+    super.visitMultiANewArrayInsn(descriptor, numDimensions);
+    execute(Opcodes.MULTIANEWARRAY, numDimensions, descriptor);
+  }
+
+  @Override
+  public void visitLocalVariable(
+      final String name,
+      final String descriptor,
+      final String signature,
+      final Label start,
+      final Label end,
+      final int index) {
+    char firstDescriptorChar = descriptor.charAt(0);
+    maxLocals =
+        Math.max(
+            maxLocals, index + (firstDescriptorChar == 'J' || firstDescriptorChar == 'D' ? 2 : 1));
+    super.visitLocalVariable(name, descriptor, signature, start, end, index);
+  }
+
+  @Override
+  public void visitMaxs(final int maxStack, final int maxLocals) {
+    if (mv != null) {
+      this.maxStack = Math.max(this.maxStack, maxStack);
+      this.maxLocals = Math.max(this.maxLocals, maxLocals);
+      mv.visitMaxs(this.maxStack, this.maxLocals);
+    }
+  }
+
+  // -----------------------------------------------------------------------------------------------
+  // Frame simulation
+  // -----------------------------------------------------------------------------------------------
+
+  /**
+   * Returns the token of the given reference or uninitialized type, interning it if necessary.
+   *
+   * @param value a String (for reference types, see {@link Type#getInternalName()}) or a Label
+   *     object (for uninitialized types).
+   * @return the token of this type.
+   */
+  final int getToken(final Object value) {
+    Integer token = tokens.get(value);
+    if (token == null) {
+      int index = tokenValues.size();
+      token = FIRST_REFERENCE_TOKEN + index;
+      tokenValues.add(value);
+      tokens.put(value, token);
+      if (index == arrayTokens.length) {
+        int[] newArrayTokens = new int[2 * index];
+        int[] newElementTokens = new int[2 * index];
+        System.arraycopy(arrayTokens, 0, newArrayTokens, 0, index);
+        System.arraycopy(elementTokens, 0, newElementTokens, 0, index);
+        arrayTokens = newArrayTokens;
+        elementTokens = newElementTokens;
+      }
+    }
+    return token;
+  }
+
+  /**
+   * Returns the token of the array type whose element type is the given reference type.
+   *
+   * @param elementToken the token of a reference type (not an uninitialized type).
+   * @return the token of the array type whose elements are of this type.
+   */
+  final int getArrayToken(final int elementToken) {
+    int index = elementToken - FIRST_REFERENCE_TOKEN;
+    int arrayToken = arrayTokens[index];
+    if (arrayToken == 0) {
+      String elementType = (String) tokenValues.get(index);
+      arrayToken =
+          getToken(elementType.charAt(0) == '[' ? '[' + elementType : "[L" + elementType + ';');
+      arrayTokens[index] = arrayToken;
+    }
+    return arrayToken;
+  }
+
+  /**
+   * Returns the token of the element type of the given array type.
+   *
+   * @param arrayToken the token of an array type.
+   * @return the token of the element type of this array type.
+   */
+  final int getElementToken(final int arrayToken) {
+    int index = arrayToken - FIRST_REFERENCE_TOKEN;
+    int elementToken = elementTokens[index];
+    if (elementToken == 0) {
+      elementToken = getDescriptorToken(((String) tokenValues.get(index)).substring(1));
+      elementTokens[index] = elementToken;
+    }
+    return elementToken;
+  }
+
+  /**
+   * Returns the token of the given frame type.
+   *
+   * @param frameType a frame type, as used in {@link #visitFrame}.
+   * @return the token of this frame type.
+   */
+  final int getFrameTypeToken(final Object frameType) {
+    if (frameType instanceof Integer) {
+      return ((Integer) frameType).intValue();
+    }
+    return getToken(frameType);
+  }
+
+  /**
+   * Returns the token of the type corresponding to the given descriptor.
+   *
+   * @param fieldOrMethodDescriptor a field or method descriptor.
+   * @return the token of the given field type or of the return type of the given method, or -1 if
+   *     this return type is void.
+   */
+  final int getDescriptorToken(final String fieldOrMethodDescriptor) {
+    Integer token = descriptorTokens.get(fieldOrMethodDescriptor);
+    if (token != null) {
+      return token;
+    }
+    String descriptor =
+        fieldOrMethodDescriptor.charAt(0) == '('
+            ? Type.getReturnType(fieldOrMethodDescriptor).getDescriptor()
+            : fieldOrMethodDescriptor;
+    int result;
+    switch (descriptor.charAt(0)) {
+      case 'V':
+        result = -1;
+        break;
+      case 'Z':
+      case 'C':
+      case 'B':
+      case 'S':
+      case 'I':
+        result = Opcodes.INTEGER.intValue();
+        break;
+      case 'F':
+        result = Opcodes.FLOAT.intValue();
+        break;
+      case 'J':
+        result = Opcodes.LONG.intValue();
+        break;
+      case 'D':
+        result = Opcodes.DOUBLE.intValue();
+        break;
+      case '[':
+        result = getToken(descriptor);
+        break;
+      case 'L':
+        result = getToken(descriptor.substring(1, descriptor.length() - 1));
+        break;
+      default:
+        throw new AssertionError();
+    }
+    descriptorTokens.put(fieldOrMethodDescriptor, result);
+    return result;
+  }
+
+  /**
+   * Appends a local variable slot to the current execution frame.
+   *
+   * @param token the token of the new slot.
+   */
+  final void addLocal(final int token) {
+    if (numLocals == locals.length) {
+      int[] newLocals = new int[2 * numLocals];
+      System.arraycopy(locals, 0, newLocals, 0, numLocals);
+      locals = newLocals;
+    }
+    locals[numLocals++] = token;
+  }
+
+  /**
+   * Adds a label designating the next instruction.
+   *
+   * @param label a label.
+   */
+  final void addLabel(final Label label) {
+    if (numLabels == labels.length) {
+      Label[] newLabels = new Label[2 * numLabels];
+      System.arraycopy(labels, 0, newLabels, 0, numLabels);
+      labels = newLabels;
+    }
+    labels[numLabels++] = label;
+  }
+
+  /**
+   * Returns the token of a local variable slot, and updates {@link #maxLocals}.
+   *
+   * @param local a local variable slot index.
+   * @return the token of this slot, or {@link Opcodes#TOP} if it is beyond the current frame.
+   */
+  final int get(final int local) {
+    maxLocals = Math.max(maxLocals, local + 1);
+    return local < numLocals ? locals[local] : Opcodes.TOP.intValue();
+  }
+
+  /**
+   * Sets the token of a local variable slot, and updates {@link #maxLocals}.
+   *
+   * @param local a local variable slot index.
+   * @param token the new token of this slot.
+   */
+  final void set(final int local, final int token) {
+    maxLocals = Math.max(maxLocals, local + 1);
+    while (local >= numLocals) {
+      addLocal(Opcodes.TOP.intValue());
+    }
+    locals[local] = token;
+  }
+
+  /**
+   * Pushes a token on the operand stack, and updates {@link #maxStack}.
+   *
+   * @param token a token.
+   */
+  final void push(final int token) {
+    if (numStack == stack.length) {
+      int[] newStack = new int[2 * numStack];
+      System.arraycopy(stack, 0, newStack, 0, numStack);
+      stack = newStack;
+    }
+    stack[numStack++] = token;
+    maxStack = Math.max(maxStack, numStack);
+  }
+
+  /**
+   * Pushes the type corresponding to the given descriptor on the operand stack.
+   *
+   * @param fieldOrMethodDescriptor a field or method descriptor.
+   */
+  final void pushDescriptor(final String fieldOrMethodDescriptor) {
+    int token = getDescriptorToken(fieldOrMethodDescriptor);
+    if (token != -1) {
+      push(token);
+      if (token == Opcodes.LONG.intValue() || token == Opcodes.DOUBLE.intValue()) {
+        push(Opcodes.TOP.intValue());
+      }
+    }
+  }
+
+  /**
+   * Pops a token from the operand stack.
+   *
+   * @return the popped token.
+   */
+  final int pop() {
+    return stack[--numStack];
+  }
+
+  /**
+   * Pops the given number of slots from the operand stack.
+   *
+   * @param numSlots a number of slots.
+   */
+  final void pop(final int numSlots) {
+    numStack -= numSlots;
+  }
+
+  /**
+   * Pops the slots corresponding to the given descriptor from the operand stack.
+   *
+   * @param descriptor a field descriptor.
+   */
+  final void popDescriptor(final String descriptor) {
+    char firstDescriptorChar = descriptor.charAt(0);
+    pop(firstDescriptorChar == 'J' || firstDescriptorChar == 'D' ? 2 : 1);
+  }
+
+  /**
+   * Pops the slots corresponding to the arguments of the given method from the operand stack.
+   *
+   * @param methodDescriptor a method descriptor.
+   */
+  final void popArguments(final String methodDescriptor) {
+    pop((Type.getArgumentsAndReturnSizes(methodDescriptor) >> 2) - 1);
+  }
+
+  /**
+   * Simulates the execution of the given instruction on the current execution frame.
+   *
+   * @param opcode the opcode of an instruction.
+   * @param intArg the int operand of the instruction, if any.
+   * @param stringArg the String operand of the instruction, if any.
+   */
+  final void execute(final int opcode, final int intArg, final String stringArg) {
+    if (opcode == Opcodes.JSR || opcode == Opcodes.RET) {
+      throw new IllegalArgumentException("JSR/RET are not supported");
+    }
+    if (!reachable) {
+      numLabels = 0;
+      return;
+    }
+    final int top = Opcodes.TOP.intValue();
+    final int integer = Opcodes.INTEGER.intValue();
+    final int floatToken = Opcodes.FLOAT.intValue();
+    final int longToken = Opcodes.LONG.intValue();
+    final int doubleToken = Opcodes.DOUBLE.intValue();
+    int value1;
+    int value2;
+    int value3;
+    int value4;
+    switch (opcode) {
+      case Opcodes.NOP:
+      case Opcodes.INEG:
+      case Opcodes.LNEG:
+      case Opcodes.FNEG:
+      case Opcodes.DNEG:
+      case Opcodes.I2B:
+      case Opcodes.I2C:
+      case Opcodes.I2S:
+      case Opcodes.GOTO:
+      case Opcodes.RETURN:
+        break;
+      case Opcodes.ACONST_NULL:
+        push(Opcodes.NULL.intValue());
+        break;
+      case Opcodes.ICONST_M1:
+      case Opcodes.ICONST_0:
+      case Opcodes.ICONST_1:
+      case Opcodes.ICONST_2:
+      case Opcodes.ICONST_3:
+      case Opcodes.ICONST_4:
+      case Opcodes.ICONST_5:
+      case Opcodes.BIPUSH:
+      case Opcodes.SIPUSH:
+        push(integer);
+        break;
+      case Opcodes.LCONST_0:
+      case Opcodes.LCONST_1:
+        push(longToken);
+        push(top);
+        break;
+      case Opcodes.FCONST_0:
+      case Opcodes.FCONST_1:
+      case Opcodes.FCONST_2:
+        push(floatToken);
+        break;
+      case Opcodes.DCONST_0:
+      case Opcodes.DCONST_1:
+        push(doubleToken);
+        push(top);
+        break;
+      case Opcodes.ILOAD:
+      case Opcodes.FLOAD:
+      case Opcodes.ALOAD:
+        push(get(intArg));
+        break;
+      case Opcodes.LLOAD:
+      case Opcodes.DLOAD:
+        push(get(intArg));
+        push(top);
+        break;
+      case Opcodes.LALOAD:
+      case Opcodes.D2L:
+        pop(2);
+        push(longToken);
+        push(top);
+        break;
+      case Opcodes.DALOAD:
+      case Opcodes.L2D:
+        pop(2);
+        push(doubleToken);
+        push(top);
+        break;
+      case Opcodes.AALOAD:
+        pop(1);
+        value1 = pop();
+        if (value1 >= FIRST_REFERENCE_TOKEN && getTokenValue(value1) instanceof String) {
+          value2 = getElementToken(value1);
+          push(value2);
+          if (value2 == longToken || value2 == doubleToken) {
+            push(top);
+          }
+        } else if (value1 == Opcodes.NULL.intValue()) {
+          push(value1);
+        } else {
+          push(OBJECT_TOKEN);
+        }
+        break;
+      case Opcodes.ISTORE:
+      case Opcodes.FSTORE:
+      case Opcodes.ASTORE:
+        value1 = pop();
+        set(intArg, value1);
+        if (intArg > 0) {
+          value2 = get(intArg - 1);
+          if (value2 == longToken || value2 == doubleToken) {
+            set(intArg - 1, top);
+          }
+        }
+        break;
+      case Opcodes.LSTORE:
+      case Opcodes.DSTORE:
+        pop(1);
+        value1 = pop();
+        set(intArg, value1);
+        set(intArg + 1, top);
+        if (intArg > 0) {
+          value2 = get(intArg - 1);
+          if (value2 == longToken || value2 == doubleToken) {
+            set(intArg - 1, top);
+          }
+        }
+        break;
+      case Opcodes.IASTORE:
+      case Opcodes.BASTORE:
+      case Opcodes.CASTORE:
+      case Opcodes.SASTORE:
+      case Opcodes.FASTORE:
+      case Opcodes.AASTORE:
+        pop(3);
+        break;
+      case Opcodes.LASTORE:
+      case Opcodes.DASTORE:
+        pop(4);
+        break;
+      case Opcodes.POP:
+      case Opcodes.IFEQ:
+      case Opcodes.IFNE:
+      case Opcodes.IFLT:
+      case Opcodes.IFGE:
+      case Opcodes.IFGT:
+      case Opcodes.IFLE:
+      case Opcodes.IRETURN:
+      case Opcodes.FRETURN:
+      case Opcodes.ARETURN:
+      case Opcodes.TABLESWITCH:
+      case Opcodes.LOOKUPSWITCH:
+      case Opcodes.ATHROW:
+      case Opcodes.MONITORENTER:
+      case Opcodes.MONITOREXIT:
+      case Opcodes.IFNULL:
+      case Opcodes.IFNONNULL:
+        pop(1);
+        break;
+      case Opcodes.POP2:
+      case Opcodes.IF_ICMPEQ:
+      case Opcodes.IF_ICMPNE:
+      case Opcodes.IF_ICMPLT:
+      case Opcodes.IF_ICMPGE:
+      case Opcodes.IF_ICMPGT:
+      case Opcodes.IF_ICMPLE:
+      case Opcodes.IF_ACMPEQ:
+      case Opcodes.IF_ACMPNE:
+      case Opcodes.LRETURN:
+      case Opcodes.DRETURN:
+        pop(2);
+        break;
+      case Opcodes.DUP:
+        value1 = pop();
+        push(value1);
+        push(value1);
+        break;
+      case Opcodes.DUP_X1:
+        value1 = pop();
+        value2 = pop();
+        push(value1);
+        push(value2);
+        push(value1);
+        break;
+      case Opcodes.DUP_X2:
+        value1 = pop();
+        value2 = pop();
+        value3 = pop();
+        push(value1);
+        push(value3);
+        push(value2);
+        push(value1);
+        break;
+      case Opcodes.DUP2:
+        value1 = pop();
+        value2 = pop();
+        push(value2);
+        push(value1);
+        push(value2);
+        push(value1);
+        break;
+      case Opcodes.DUP2_X1:
+        value1 = pop();
+        value2 = pop();
+        value3 = pop();
+        push(value2);
+        push(value1);
+        push(value3);
+        push(value2);
+        push(value1);
+        break;
+      case Opcodes.DUP2_X2:
+        value1 = pop();
+        value2 = pop();
+        value3 = pop();
+        value4 = pop();
+        push(value2);
+        push(value1);
+        push(value4);
+        push(value3);
+        push(value2);
+        push(value1);
+        break;
+      case Opcodes.SWAP:
+        value1 = pop();
+        value2 = pop();
+        push(value1);
+        push(value2);
+        break;
+      case Opcodes.IALOAD:
+      case Opcodes.BALOAD:
+      case Opcodes.CALOAD:
+      case Opcodes.SALOAD:
+      case Opcodes.IADD:
+      case Opcodes.ISUB:
+      case Opcodes.IMUL:
+      case Opcodes.IDIV:
+      case Opcodes.IREM:
+      case Opcodes.IAND:
+      case Opcodes.IOR:
+      case Opcodes.IXOR:
+      case Opcodes.ISHL:
+      case Opcodes.ISHR:
+      case Opcodes.IUSHR:
+      case Opcodes.L2I:
+      case Opcodes.D2I:
+      case Opcodes.FCMPL:
+      case Opcodes.FCMPG:
+        pop(2);
+        push(integer);
+        break;
+      case Opcodes.LADD:
+      case Opcodes.LSUB:
+      case Opcodes.LMUL:
+      case Opcodes.LDIV:
+      case Opcodes.LREM:
+      case Opcodes.LAND:
+      case Opcodes.LOR:
+      case Opcodes.LXOR:
+        pop(4);
+        push(longToken);
+        push(top);
+        break;
+      case Opcodes.FALOAD:
+      case Opcodes.FADD:
+      case Opcodes.FSUB:
+      case Opcodes.FMUL:
+      case Opcodes.FDIV:
+      case Opcodes.FREM:
+      case Opcodes.L2F:
+      case Opcodes.D2F:
+        pop(2);
+        push(floatToken);
+        break;
+      case Opcodes.DADD:
+      case Opcodes.DSUB:
+      case Opcodes.DMUL:
+      case Opcodes.DDIV:
+      case Opcodes.DREM:
+        pop(4);
+        push(doubleToken);
+        push(top);
+        break;
+      case Opcodes.LSHL:
+      case Opcodes.LSHR:
+      case Opcodes.LUSHR:
+        pop(3);
+        push(longToken);
+        push(top);
+        break;
+      case Opcodes.IINC:
+        set(intArg, integer);
+        break;
+      case Opcodes.I2L:
+      case Opcodes.F2L:
+        pop(1);
+        push(longToken);
+        push(top);
+        break;
+      case Opcodes.I2F:
+        pop(1);
+        push(floatToken);
+        break;
+      case Opcodes.I2D:
+      case Opcodes.F2D:
+        pop(1);
+        push(doubleToken);
+        push(top);
+        break;
+      case Opcodes.F2I:
+      case Opcodes.ARRAYLENGTH:
+      case Opcodes.INSTANCEOF:
+        pop(1);
+        push(integer);
+        break;
+      case Opcodes.LCMP:
+      case Opcodes.DCMPL:
+      case Opcodes.DCMPG:
+        pop(4);
+        push(integer);
+        break;
+      case Opcodes.GETSTATIC:
+        pushDescriptor(stringArg);
+        break;
+      case Opcodes.PUTSTATIC:
+        popDescriptor(stringArg);
+        break;
+      case Opcodes.GETFIELD:
+        pop(1);
+        pushDescriptor(stringArg);
+        break;
+      case Opcodes.PUTFIELD:
+        popDescriptor(stringArg);
+        pop(1);
+        break;
+      case Opcodes.NEW:
+        push(getToken(labels[0]));
+        break;
+      case Opcodes.NEWARRAY:
+        pop(1);
+        switch (intArg) {
+          case Opcodes.T_BOOLEAN:
+            pushDescriptor("[Z");
+            break;
+          case Opcodes.T_CHAR:
+            pushDescriptor("[C");
+            break;
+          case Opcodes.T_BYTE:
+            pushDescriptor("[B");
+            break;
+          case Opcodes.T_SHORT:
+            pushDescriptor("[S");
+            break;
+          case Opcodes.T_INT:
+            pushDescriptor("[I");
+            break;
+          case Opcodes.T_FLOAT:
+            pushDescriptor("[F");
+            break;
+          case Opcodes.T_DOUBLE:
+            pushDescriptor("[D");
+            break;
+          case Opcodes.T_LONG:
+            pushDescriptor("[J");
+            break;
+          default:
+            throw new IllegalArgumentException("Invalid array type " + intArg);
+        }
+        break;
+      case Opcodes.ANEWARRAY:
+        pop(1);
+        push(getArrayToken(getToken(stringArg)));
+        break;
+      case Opcodes.CHECKCAST:
+        pop(1);
+        push(getToken(stringArg));
+        break;
+      case Opcodes.MULTIANEWARRAY:
+        pop(intArg);
+        pushDescriptor(stringArg);
+        break;
+      default:
+        throw new IllegalArgumentException("Invalid opcode " + opcode);
+    }
+    numLabels = 0;
+  }
+}
@@ -0,0 +1,364 @@
+// ASM: a very small and fast Java bytecode manipulation framework
+// Copyright (c) 2000-2011 INRIA, France Telecom
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+// 1. Redistributions of source code must retain the above copyright
+//    notice, this list of conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright
+//    notice, this list of conditions and the following disclaimer in the
+//    documentation and/or other materials provided with the distribution.
+// 3. Neither the name of the copyright holders nor the names of its
+//    contributors may be used to endorse or promote products derived from
+//    this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+// THE POSSIBILITY OF SUCH DAMAGE.
+package org.objectweb.asm.commons;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.signature.SignatureVisitor;
+
+/**
+ * A {@link Remapper} which memoizes the results of another remapper for internal names, type
+ * descriptors, method descriptors and signatures. The other methods are simply delegated.
+ * When a descriptor or a signature is not changed by the delegate remapper, the given {@link
+ * String} instance is returned as is, so that callers can detect unchanged values with a cheap
+ * identity check. Descriptors and signatures which do not contain any class type are returned
+ * directly, without querying the cache nor the delegate remapper.
+ *
+ * <p>The caches are bounded and thread safe, so a {@link CachingRemapper} can be shared between
+ * several threads if the delegate remapper can. The delegate remapper must be a pure function of
+ * its arguments: if its mapping changes, {@link #clear} must be called.
+ */
+public class CachingRemapper extends Remapper {
+
+  /** The default maximum number of entries of each cache. */
+  public static final int DEFAULT_MAXIMUM_SIZE = 4096;
+
+  /** The remapper whose results are memoized. */
+  public final Remapper remapper;
+
+  /** The cached results of {@link #map}. */
+  final Cache internalNames;
+
+  /** The cached results of {@link #mapType(String)}. */
+  final Cache types;
+
+  /** The cached results of {@link #mapDesc}. */
+  final Cache descriptors;
+
+  /** The cached results of {@link #mapMethodDesc}. */
+  final Cache methodDescriptors;
+
+  /** The cached results of {@link #mapSignature} for <i>JavaTypeSignature</i>s. */
+  final Cache typeSignatures;
+
+  /** The cached results of {@link #mapSignature} for class and method signatures. */
+  final Cache signatures;
+
+  /**
+   * Constructs a new {@link CachingRemapper} with caches of {@link #DEFAULT_MAXIMUM_SIZE} entries.
+   *
+   * @param remapper the remapper whose results must be memoized.
+   */
+  public CachingRemapper(final Remapper remapper) {
+    this(remapper, DEFAULT_MAXIMUM_SIZE);
+  }
+
+  /**
+   * Constructs a new {@link CachingRemapper}.
+   *
+   * @param remapper the remapper whose results must be memoized.
+   * @param maximumSize the maximum number of entries of each cache. When a cache is full, it is
+   *     cleared before a new entry is added.
+   * @throws IllegalArgumentException if maximumSize is not strictly positive.
+   */
+  public CachingRemapper(final Remapper remapper, final int maximumSize) {
+    if (maximumSize <= 0) {
+      throw new IllegalArgumentException("Invalid maximum cache size: " + maximumSize);
+    }
+    this.remapper = remapper;
+    this.internalNames = new Cache(maximumSize);
+    this.types = new Cache(maximumSize);
+    this.descriptors = new Cache(maximumSize);
+    this.methodDescriptors = new Cache(maximumSize);
+    this.typeSignatures = new Cache(maximumSize);
+    this.signatures = new Cache(maximumSize);
+  }
+
+  /**
+   * Removes all the cached results. This must be called when the mapping of the delegate remapper
+   * changes.
+   */
+  public void clear() {
+    internalNames.clear();
+    types.clear();
+    descriptors.clear();
+    methodDescriptors.clear();
+    typeSignatures.clear();
+    signatures.clear();
+  }
+
+  // -----------------------------------------------------------------------------------------------
+  // Memoized methods
+  // -----------------------------------------------------------------------------------------------
+
+  @Override
+  public String mapDesc(final String descriptor) {
+    if (descriptor.indexOf('L') == -1) {
+      return descriptor;
+    }
+    Object cachedValue = descriptors.get(descriptor);
+    if (cachedValue == null) {
+      cachedValue = descriptors.put(descriptor, remapper.mapDesc(descriptor));
+    }
+    return Cache.decode(descriptor, cachedValue);
+  }
+
+  @Override
+  public Type mapType(final Type type) {
+    switch (type.getSort()) {
+      case Type.ARRAY:
+      case Type.OBJECT:
+        String descriptor = type.getDescriptor();
+        String remappedDescriptor = mapDesc(descriptor);
+        return remappedDescriptor == descriptor ? type : Type.getType(remappedDescriptor);
+      case Type.METHOD:
+        String methodDescriptor = type.getDescriptor();
+        String remappedMethodDescriptor = mapMethodDesc(methodDescriptor);
+        return remappedMethodDescriptor == methodDescriptor
+            ? type
+            : Type.getMethodType(remappedMethodDescriptor);
+      default:
+        return type;
+    }
+  }
+
+  @Override
+  public String mapType(final String internalName) {
+    if (internalName == null) {
+      return null;
+    }
+    Object cachedValue = types.get(internalName);
+    if (cachedValue == null) {
+      cachedValue = types.put(internalName, remapper.mapType(internalName));
+    }
+    return Cache.decode(internalName, cachedValue);
+  }
+
+  @Override
+  public String mapMethodDesc(final String methodDescriptor) {
+    if (methodDescriptor.indexOf('L') == -1) {
+      return methodDescriptor;
+    }
+    Object cachedValue = methodDescriptors.get(methodDescriptor);
+    if (cachedValue == null) {
+      cachedValue =
+          methodDescriptors.put(methodDescriptor, remapper.mapMethodDesc(methodDescriptor));
+    }
+    return Cache.decode(methodDescriptor, cachedValue);
+  }
+
+  @Override
+  public String mapSignature(final String signature, final boolean typeSignature) {
+    if (signature == null || signature.indexOf('L') == -1) {
+      return signature;
+    }
+    Cache cache = typeSignature ? typeSignatures : signatures;
+    Object cachedValue = cache.get(signature);
+    if (cachedValue == null) {
+      cachedValue = cache.put(signature, remapper.mapSignature(signature, typeSignature));
+    }
+    return Cache.decode(signature, cachedValue);
+  }
+
+  @Override
+  public String map(final String internalName) {
+    Object cachedValue = internalNames.get(internalName);
+    if (cachedValue == null) {
+      cachedValue = internalNames.put(internalName, remapper.map(internalName));
+    }
+    return Cache.decode(internalName, cachedValue);
+  }
+
+  // -----------------------------------------------------------------------------------------------
+  // Delegated methods
+  // -----------------------------------------------------------------------------------------------
+
+  @Override
+  public String[] mapTypes(final String[] internalNames) {
+    return remapper.mapTypes(internalNames);
+  }
+
+  @Override
+  public Object mapValue(final Object value) {
+    return remapper.mapValue(value);
+  }
+
+  /**
+   * Constructs a new remapper for signatures, with the delegate remapper.
+   *
+   * @param signatureVisitor the SignatureVisitor the remapper must delegate to.
+   * @return the newly created remapper.
+   * @deprecated use {@link #createSignatureRemapper} instead.
+   */
+  @Deprecated
+  @Override
+  public SignatureVisitor createRemappingSignatureAdapter(
+      final SignatureVisitor signatureVisitor) {
+    return remapper.createRemappingSignatureAdapter(signatureVisitor);
+  }
+
+  @Override
+  public SignatureVisitor createSignatureRemapper(final SignatureVisitor signatureVisitor) {
+    return remapper.createSignatureRemapper(signatureVisitor);
+  }
+
+  @Override
+  public String mapAnnotationAttributeName(final String descriptor, final String name) {
+    return remapper.mapAnnotationAttributeName(descriptor, name);
+  }
+
+  @Override
+  public String mapInnerClassName(
+      final String name, final String ownerName, final String innerName) {
+    return remapper.mapInnerClassName(name, ownerName, innerName);
+  }
+
+  @Override
+  public String mapMethodName(final String owner, final String name, final String descriptor) {
+    return remapper.mapMethodName(owner, name, descriptor);
+  }
+
+  @Override
+  public String mapInvokeDynamicMethodName(final String name, final String descriptor) {
+    return remapper.mapInvokeDynamicMethodName(name, descriptor);
+  }
+
+  @Override
+  public String mapRecordComponentName(
+      final String owner, final String name, final String descriptor) {
+    return remapper.mapRecordComponentName(owner, name, descriptor);
+  }
+
+  @Override
+  public String mapFieldName(final String owner, final String name, final String descriptor) {
+    return remapper.mapFieldName(owner, name, descriptor);
+  }
+
+  @Override
+  public String mapPackageName(final String name) {
+    return remapper.mapPackageName(name);
+  }
+
+  @Override
+  public String mapModuleName(final String name) {
+    return remapper.mapModuleName(name);
+  }
+
+  /**
+   * A bounded concurrent cache of remapped strings. Unchanged and {@literal null} results are
+   * stored with sentinel values, so that the key instance given by the caller can be returned for
+   * unchanged results. When the cache is full it is simply cleared, which is cheaper than any
+   * eviction policy and good enough since the working set of a remapping pass is usually small.
+   */
+  static final class Cache {
+
+    /** The value stored for results equal to their key. */
+    static final Object UNCHANGED = new Object();
+
+    /** The value stored for {@literal null} results. */
+    static final Object NULL = new Object();
+
+    /** The maximum number of entries of this cache. */
+    final int maximumSize;
+
+    /** The cached values, indexed by key. */
+    final ConcurrentHashMap<String, Object> map;
+
+    /** The approximate number of entries of {@link #map}. */
+    final AtomicInteger size;
+
+    /**
+     * Constructs a new {@link Cache}.
+     *
+     * @param maximumSize the maximum number of entries of this cache.
+     */
+    Cache(final int maximumSize) {
+      this.maximumSize = maximumSize;
+      this.map = new ConcurrentHashMap<String, Object>();
+      this.size = new AtomicInteger();
+    }
+
+    /**
+     * Returns the cached value for the given key.
+     *
+     * @param key a key.
+     * @return the cached value for this key, or {@literal null} if there is none.
+     */
+    Object get(final String key) {
+      return map.get(key);
+    }
+
+    /**
+     * Stores the given result in this cache.
+     *
+     * @param key a key.
+     * @param result the result corresponding to this key (possibly {@literal null}).
+     * @return the value stored for this result, to be decoded with {@link #decode}.
+     */
+    Object put(final String key, final String result) {
+      Object value;
+      if (result == null) {
+        value = NULL;
+      } else if (result.equals(key)) {
+        value = UNCHANGED;
+      } else {
+        value = result;
+      }
+      if (size.incrementAndGet() > maximumSize) {
+        clear();
+        size.incrementAndGet();
+      }
+      map.put(key, value);
+      return value;
+    }
+
+    /** Removes all the entries of this cache. */
+    void clear() {
+      map.clear();
+      size.set(0);
+    }
+
+    /**
+     * Returns the result corresponding to a value stored in a cache.
+     *
+     * @param key the key of the value.
+     * @param value a value returned by {@link #get} or {@link #put}.
+     * @return the result corresponding to this value.
+     */
+    static String decode(final String key, final Object value) {
+      if (value == UNCHANGED) {
+        return key;
+      }
+      if (value == NULL) {
+        return null;
+      }
+      return (String) value;
+    }
+  }
+}
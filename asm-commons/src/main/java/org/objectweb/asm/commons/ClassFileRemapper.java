@@ -0,0 +1,241 @@
+// ASM: a very small and fast Java bytecode manipulation framework
+// Copyright (c) 2000-2011 INRIA, France Telecom
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+// 1. Redistributions of source code must retain the above copyright
+//    notice, this list of conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright
+//    notice, this list of conditions and the following disclaimer in the
+//    documentation and/or other materials provided with the distribution.
+// 3. Neither the name of the copyright holders nor the names of its
+//    contributors may be used to endorse or promote products derived from
+//    this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+// THE POSSIBILITY OF SUCH DAMAGE.
+package org.objectweb.asm.commons;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+
+/**
+ * Remaps class files with a {@link ClassRemapper}, unless their constant pool does not contain any
+ * string that the remapper could change. In this case, which is the most common one when shading
+ * dependencies, the original class file is returned as is, without parsing it beyond its constant
+ * pool.
+ *
+ * <p>The strings which can be changed must be given explicitly (or derived from the mapping of a
+ * {@link SimpleRemapper} or {@link MappingRemapper}): the internal names of the mapped classes,
+ * which are searched in all the UTF8 constant pool entries (alone, or in descriptors and
+ * signatures), and the exact names of the mapped fields, methods, annotation attributes, packages
+ * and modules. This check is conservative: a class file is always remapped if one of its UTF8
+ * entries matches, even if this entry is not actually used for a remapped reference (for instance
+ * if it is only used as a string constant). Conversely, a class file which has no matching entry is
+ * never changed by the {@link ClassRemapper}.
+ *
+ * <p>Note that UTF8 constant pool entries can be shared between unrelated usages (a method name can
+ * be shared by methods of different classes, a class name by a string constant, etc), so the
+ * matching entries can not be safely rewritten in place. The class files containing matching
+ * entries are therefore fully remapped.
+ */
+public class ClassFileRemapper {
+
+  /** The tag of the CONSTANT_Utf8_info constant pool entries. */
+  static final int CONSTANT_UTF8_TAG = 1;
+
+  /** The remapper used to remap the class files. */
+  public final Remapper remapper;
+
+  /**
+   * The internal names of the classes which can be remapped, as well as the internal names of their
+   * enclosing classes (to take into account the inner class types in signatures, where the full
+   * internal name of the inner class does not appear).
+   */
+  public final Set<String> classNames;
+
+  /** The maximum length of the elements of {@link #classNames}. */
+  public int maxClassNameLength;
+
+  /**
+   * The names of the fields, methods, annotation attributes, packages (in internal form, i.e. using
+   * slashes) and modules which can be remapped.
+   */
+  public final Set<String> names;
+
+  /**
+   * Constructs a new {@link ClassFileRemapper}.
+   *
+   * @param remapper the remapper used to remap the class files.
+   * @param classNames the internal names of all the classes which can be remapped by remapper.
+   * @param names the names of all the fields, methods, annotation attributes, packages (in internal
+   *     form, i.e. using slashes) and modules which can be remapped by remapper.
+   */
+  public ClassFileRemapper(
+      final Remapper remapper,
+      final Collection<String> classNames,
+      final Collection<String> names) {
+    this.remapper = remapper;
+    this.classNames = new HashSet<String>();
+    this.names = new HashSet<String>(names);
+    for (String className : classNames) {
+      addClassName(className);
+    }
+  }
+
+  /**
+   * Constructs a new {@link ClassFileRemapper} using the keys of the mapping of the given remapper.
+   *
+   * @param remapper the remapper used to remap the class files.
+   */
+  public ClassFileRemapper(final SimpleRemapper remapper) {
+    this.remapper = remapper;
+    this.classNames = new HashSet<String>();
+    this.names = new HashSet<String>();
+    for (String key : remapper.mapping.keySet()) {
+      int dotIndex = key.indexOf('.');
+      if (dotIndex == -1) {
+        addClassName(key);
+      } else {
+        int endIndex = key.indexOf('(', dotIndex);
+        names.add(key.substring(dotIndex + 1, endIndex == -1 ? key.length() : endIndex));
+      }
+    }
+  }
+
+  /**
+   * Constructs a new {@link ClassFileRemapper} using the keys of the mappings of the given
+   * remapper.
+   *
+   * @param remapper the remapper used to remap the class files.
+   */
+  public ClassFileRemapper(final MappingRemapper remapper) {
+    this.remapper = remapper;
+    this.classNames = new HashSet<String>();
+    this.names = new HashSet<String>();
+    for (String className : remapper.classMapping.keySet()) {
+      addClassName(className);
+    }
+    for (Map.Entry<String, String> entry : remapper.packageMapping.entrySet()) {
+      names.add(entry.getKey().replace('.', '/'));
+    }
+    addNames(remapper.fieldMapping);
+    addNames(remapper.methodMapping);
+    addNames(remapper.annotationAttributeMapping);
+  }
+
+  /**
+   * Adds the given internal name, and the internal names of its enclosing classes, to {@link
+   * #classNames}.
+   *
+   * @param className the internal name of a class which can be remapped.
+   */
+  final void addClassName(final String className) {
+    classNames.add(className);
+    maxClassNameLength = Math.max(maxClassNameLength, className.length());
+    int dollarIndex = className.indexOf('$', className.lastIndexOf('/') + 1);
+    while (dollarIndex > 0) {
+      classNames.add(className.substring(0, dollarIndex));
+      dollarIndex = className.indexOf('$', dollarIndex + 1);
+    }
+  }
+
+  /**
+   * Adds the names of the entries of the given table to {@link #names}.
+   *
+   * @param memberNameTable a table of member mappings.
+   */
+  final void addNames(final MemberNameTable memberNameTable) {
+    for (int i = 0; i < memberNameTable.newNames.length; ++i) {
+      if (memberNameTable.newNames[i] != null) {
+        names.add(memberNameTable.names[i]);
+      }
+    }
+  }
+
+  /**
+   * Remaps the given class file.
+   *
+   * @param classFile the content of a class file.
+   * @return the given array if the class file does not contain any string which can be remapped, or
+   *     the content of the class file remapped with {@link #remapper} otherwise.
+   */
+  public byte[] remap(final byte[] classFile) {
+    ClassReader classReader = new ClassReader(classFile);
+    if (!isAffected(classReader)) {
+      return classFile;
+    }
+    ClassWriter classWriter = new ClassWriter(0);
+    classReader.accept(new ClassRemapper(classWriter, remapper), 0);
+    return classWriter.toByteArray();
+  }
+
+  /**
+   * Returns whether the given class contains a UTF8 constant pool entry which can be remapped.
+   *
+   * @param classReader a class reader.
+   * @return {@literal false} if the class does not contain any string which can be remapped (in
+   *     which case a {@link ClassRemapper} would not change it), {@literal true} otherwise.
+   */
+  public boolean isAffected(final ClassReader classReader) {
+    char[] charBuffer = new char[classReader.getMaxStringLength()];
+    int itemCount = classReader.getItemCount();
+    for (int i = 1; i < itemCount; ++i) {
+      int offset = classReader.getItem(i);
+      if (offset != 0 && classReader.readByte(offset - 1) == CONSTANT_UTF8_TAG) {
+        String value =
+            classReader.readUtf(offset + 2, classReader.readUnsignedShort(offset), charBuffer);
+        if (isAffected(value)) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Returns whether the given string can be remapped.
+   *
+   * @param value the value of a UTF8 constant pool entry.
+   * @return whether this value is the name of a class, field, method, annotation attribute, package
+   *     or module which can be remapped, or contains the descriptor of a class which can be
+   *     remapped (possibly followed by type arguments).
+   */
+  boolean isAffected(final String value) {
+    if (names.contains(value) || classNames.contains(value)) {
+      return true;
+    }
+    int startIndex = value.indexOf('L');
+    while (startIndex != -1) {
+      int endIndex = startIndex + 1;
+      int maxEndIndex = Math.min(value.length(), endIndex + maxClassNameLength + 1);
+      while (endIndex < maxEndIndex) {
+        char c = value.charAt(endIndex);
+        if (c == ';' || c == '<') {
+          if (classNames.contains(value.substring(startIndex + 1, endIndex))) {
+            return true;
+          }
+          break;
+        }
+        endIndex++;
+      }
+      startIndex = value.indexOf('L', startIndex + 1);
+    }
+    return false;
+  }
+}
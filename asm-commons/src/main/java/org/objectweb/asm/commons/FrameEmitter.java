@@ -0,0 +1,821 @@
+// ASM: a very small and fast Java bytecode manipulation framework
+// Copyright (c) 2000-2011 INRIA, France Telecom
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+// 1. Redistributions of source code must retain the above copyright
+//    notice, this list of conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright
+//    notice, this list of conditions and the following disclaimer in the
+//    documentation and/or other materials provided with the distribution.
+// 3. Neither the name of the copyright holders nor the names of its
+//    contributors may be used to endorse or promote products derived from
+//    this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+// THE POSSIBILITY OF SUCH DAMAGE.
+package org.objectweb.asm.commons;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+/**
+ * An {@link ArrayAnalyzerAdapter} that emits the stack map frames of the code it visits, in a
+ * single pass. This is an alternative to {@link org.objectweb.asm.ClassWriter#COMPUTE_FRAMES} for
+ * generated code: the frames are built from the types already known by the code generator, and no
+ * class hierarchy lookup nor fixpoint analysis is needed, so that a {@link
+ * org.objectweb.asm.ClassWriter} with the {@link org.objectweb.asm.ClassWriter#COMPUTE_MAXS} option
+ * is sufficient.
+ *
+ * <p>An expanded frame is emitted before the first instruction following each visited label, and
+ * before any instruction following an unconditional jump, a return or a throw instruction. The
+ * frame of a label is the merge of the execution frames of all the jump instructions and exception
+ * handler ranges targeting it which have been visited before the label, and of the previous
+ * instruction if it can fall through (a label which is not targeted by any of these gets the last
+ * known execution frame). The start of an exception handler range must therefore be visited before
+ * its handler, and jumps to a label visited earlier (i.e. backward jumps) must be compatible with
+ * its frame. Two different primitive types are merged to {@link Opcodes#TOP} in local variables,
+ * and two different reference types are merged to the type declared for this local variable in the
+ * {@link GeneratorAdapter} using this emitter, if any, or to {@code java/lang/Object} otherwise.
+ * Local variables of a reference type are also widened to their declared type, if it is more
+ * specific than {@code java/lang/Object}, in all the emitted frames, and local variables containing
+ * {@literal null} are widened to their declared type, if any, in the frames of the labels (so that
+ * a variable initialized to {@literal null} before a loop can be assigned in this loop). Two
+ * different reference types on the operand stack are merged with {@link #getCommonSuperClass},
+ * which must be overridden if the visited code contains such merges.
+ *
+ * <p>This emitter must not receive any other frame than the ones it emits itself, and does not
+ * support JSR and RET instructions.
+ */
+public class FrameEmitter extends ArrayAnalyzerAdapter {
+
+  /** The type names corresponding to the tokens smaller than {@link #FIRST_REFERENCE_TOKEN}. */
+  static final String[] PRIMITIVE_TYPE_NAMES = {
+    "top", "int", "float", "double", "long", "null", "uninitializedThis"
+  };
+
+  /** The generator adapter which declares the type of the local variables, or {@literal null}. */
+  public final GeneratorAdapter generatorAdapter;
+
+  /** The frame states of the labels targeted by a visited instruction, or visited themselves. */
+  final HashMap<Label, LabelState> labelStates;
+
+  /** The exception handler ranges whose handler frame has not been computed yet. */
+  final ArrayList<Label[]> pendingHandlerRanges;
+
+  /** The exception types of the {@link #pendingHandlerRanges}. */
+  final ArrayList<String> pendingHandlerTypes;
+
+  /** The states of the labels designating the next instruction, if a frame must be emitted. */
+  final ArrayList<LabelState> pendingLabelStates;
+
+  /** Whether a frame must be emitted before the next instruction. */
+  boolean framePending;
+
+  /** The local variable slots of the local variable changes logged so far. */
+  int[] loggedChangeLocals;
+
+  /** The new tokens of the local variable changes logged so far. */
+  int[] loggedChangeTokens;
+
+  /** The number of local variable changes logged so far. */
+  int numLoggedChanges;
+
+  /** The local variable slots of the execution frame, at the time of the last logged change. */
+  int[] loggedLocals;
+
+  /** The number of elements of {@link #loggedLocals}. */
+  int numLoggedLocals;
+
+  /**
+   * Constructs a new {@link FrameEmitter}. <i>Subclasses must not use this constructor</i>.
+   * Instead, they must use the {@link #FrameEmitter(int, String, int, String, String,
+   * MethodVisitor, GeneratorAdapter)} version.
+   *
+   * @param owner the owner's class name.
+   * @param access the method's access flags (see {@link Opcodes}).
+   * @param name the method's name.
+   * @param descriptor the method's descriptor (see {@link Type}).
+   * @param methodVisitor the method visitor to which this emitter delegates calls. May be {@literal
+   *     null}.
+   * @throws IllegalStateException If a subclass calls this constructor.
+   */
+  public FrameEmitter(
+      final String owner,
+      final int access,
+      final String name,
+      final String descriptor,
+      final MethodVisitor methodVisitor) {
+    this(/* latest api = */ Opcodes.ASM9, owner, access, name, descriptor, methodVisitor, null);
+    if (getClass() != FrameEmitter.class) {
+      throw new IllegalStateException();
+    }
+  }
+
+  /**
+   * Constructs a new {@link FrameEmitter}.
+   *
+   * @param api the ASM API version implemented by this visitor. Must be one of the {@code
+   *     ASM}<i>x</i> values in {@link Opcodes}.
+   * @param owner the owner's class name.
+   * @param access the method's access flags (see {@link Opcodes}).
+   * @param name the method's name.
+   * @param descriptor the method's descriptor (see {@link Type}).
+   * @param methodVisitor the method visitor to which this emitter delegates calls. May be {@literal
+   *     null}.
+   * @param generatorAdapter the generator adapter which declares the type of the local variables.
+   *     May be {@literal null}.
+   */
+  public FrameEmitter(
+      final int api,
+      final String owner,
+      final int access,
+      final String name,
+      final String descriptor,
+      final MethodVisitor methodVisitor,
+      final GeneratorAdapter generatorAdapter) {
+    super(api, owner, access, name, descriptor, methodVisitor);
+    this.generatorAdapter = generatorAdapter;
+    labelStates = new HashMap<Label, LabelState>();
+    pendingHandlerRanges = new ArrayList<Label[]>();
+    pendingHandlerTypes = new ArrayList<String>();
+    pendingLabelStates = new ArrayList<LabelState>();
+    loggedChangeLocals = new int[16];
+    loggedChangeTokens = new int[16];
+    loggedLocals = new int[Math.max(16, numLocals)];
+    logLocalChanges();
+  }
+
+  // -----------------------------------------------------------------------------------------------
+  // Implementation of the MethodVisitor abstract class
+  // -----------------------------------------------------------------------------------------------
+
+  @Override
+  public void visitFrame(
+      final int type,
+      final int numLocal,
+      final Object[] local,
+      final int numStack,
+      final Object[] stack) {
+    framePending = false;
+    super.visitFrame(type, numLocal, local, numStack, stack);
+    endFrame();
+  }
+
+  @Override
+  public void visitInsn(final int opcode) {
+    beginInstruction();
+    super.visitInsn(opcode);
+  }
+
+  @Override
+  public void visitIntInsn(final int opcode, final int operand) {
+    beginInstruction();
+    super.visitIntInsn(opcode, operand);
+  }
+
+  @Override
+  public void visitVarInsn(final int opcode, final int varIndex) {
+    beginInstruction();
+    super.visitVarInsn(opcode, varIndex);
+    if (opcode >= Opcodes.ISTORE) {
+      logLocalChanges();
+    }
+  }
+
+  @Override
+  public void visitTypeInsn(final int opcode, final String type) {
+    beginInstruction();
+    super.visitTypeInsn(opcode, type);
+  }
+
+  @Override
+  public void visitFieldInsn(
+      final int opcode, final String owner, final String name, final String descriptor) {
+    beginInstruction();
+    super.visitFieldInsn(opcode, owner, name, descriptor);
+  }
+
+  @Override
+  public void visitMethodInsn(
+      final int opcodeAndSource,
+      final String owner,
+      final String name,
+      final String descriptor,
+      final boolean isInterface) {
+    if (api < Opcodes.ASM5 && (opcodeAndSource & Opcodes.SOURCE_DEPRECATED) == 0) {
+      // Redirect the call to the deprecated version of this method.
+      super.visitMethodInsn(opcodeAndSource, owner, name, descriptor, isInterface);
+      return;
+    }
+    beginInstruction();
+    super.visitMethodInsn(opcodeAndSource, owner, name, descriptor, isInterface);
+    if ("<init>".equals(name)) {
+      logLocalChanges();
+    }
+  }
+
+  @Override
+  public void visitInvokeDynamicInsn(
+      final String name,
+      final String descriptor,
+      final Handle bootstrapMethodHandle,
+      final Object... bootstrapMethodArguments) {
+    beginInstruction();
+    super.visitInvokeDynamicInsn(name, descriptor, bootstrapMethodHandle, bootstrapMethodArguments);
+  }
+
+  @Override
+  public void visitJumpInsn(final int opcode, final Label label) {
+    beginInstruction();
+    super.visitJumpInsn(opcode, label);
+    // The execution frame is still the one after the jump instruction, even after a GOTO.
+    addJumpTarget(label);
+  }
+
+  @Override
+  public void visitLabel(final Label label) {
+    super.visitLabel(label);
+    LabelState labelState = getLabelState(label);
+    // Merge the ranges of the exception handlers designated by this label, whose end may not have
+    // been visited yet (if the handler is inside its own range). In this case the remaining part
+    // of the range is checked against the handler frame when its end is visited. Likewise, the
+    // ranges starting at this handler are only checked when their end is visited.
+    for (int i = 0; i < pendingHandlerRanges.size(); ++i) {
+      Label[] handlerRange = pendingHandlerRanges.get(i);
+      if (handlerRange[2] == label && getLabelState(handlerRange[0]).visited) {
+        addHandlerRange(handlerRange[0], handlerRange[1], label, pendingHandlerTypes.get(i));
+        if (getLabelState(handlerRange[1]).visited) {
+          pendingHandlerRanges.remove(i);
+          pendingHandlerTypes.remove(i--);
+        }
+      }
+    }
+    if (reachable || !labelState.hasFrame()) {
+      labelState.merge(this, locals, numLocals, stack, numStack);
+    }
+    numLocals = 0;
+    numStack = 0;
+    for (int i = 0; i < labelState.numLocals; ++i) {
+      addLocal(labelState.locals[i]);
+    }
+    for (int i = 0; i < labelState.numStack; ++i) {
+      push(labelState.stack[i]);
+    }
+    reachable = true;
+    labelState.visited = true;
+    labelState.logStart = numLoggedChanges;
+    logLocalChanges();
+    labelState.logEnd = numLoggedChanges;
+    pendingLabelStates.add(labelState);
+    framePending = true;
+    // Merge (or check) the ranges ending at this label.
+    for (int i = 0; i < pendingHandlerRanges.size(); ++i) {
+      Label[] handlerRange = pendingHandlerRanges.get(i);
+      if (handlerRange[1] == label) {
+        addHandlerRange(handlerRange[0], label, handlerRange[2], pendingHandlerTypes.get(i));
+        pendingHandlerRanges.remove(i);
+        pendingHandlerTypes.remove(i--);
+      }
+    }
+  }
+
+  @Override
+  public void visitLdcInsn(final Object value) {
+    beginInstruction();
+    super.visitLdcInsn(value);
+  }
+
+  @Override
+  public void visitIincInsn(final int varIndex, final int increment) {
+    beginInstruction();
+    super.visitIincInsn(varIndex, increment);
+  }
+
+  @Override
+  public void visitTableSwitchInsn(
+      final int min, final int max, final Label dflt, final Label... labels) {
+    beginInstruction();
+    super.visitTableSwitchInsn(min, max, dflt, labels);
+    addJumpTarget(dflt);
+    for (Label label : labels) {
+      addJumpTarget(label);
+    }
+  }
+
+  @Override
+  public void visitLookupSwitchInsn(final Label dflt, final int[] keys, final Label[] labels) {
+    beginInstruction();
+    super.visitLookupSwitchInsn(dflt, keys, labels);
+    addJumpTarget(dflt);
+    for (Label label : labels) {
+      addJumpTarget(label);
+    }
+  }
+
+  @Override
+  public void visitMultiANewArrayInsn(final String descriptor, final int numDimensions) {
+    beginInstruction();
+    super.visitMultiANewArrayInsn(descriptor, numDimensions);
+  }
+
+  @Override
+  public void visitTryCatchBlock(
+      final Label start, final Label end, final Label handler, final String type) {
+    super.visitTryCatchBlock(start, end, handler, type);
+    LabelState startState = labelStates.get(start);
+    LabelState endState = labelStates.get(end);
+    if (startState != null && startState.visited && endState != null && endState.visited) {
+      addHandlerRange(start, end, handler, type);
+    } else {
+      pendingHandlerRanges.add(new Label[] {start, end, handler});
+      pendingHandlerTypes.add(type);
+    }
+  }
+
+  // -----------------------------------------------------------------------------------------------
+  // Frame emission
+  // -----------------------------------------------------------------------------------------------
+
+  /**
+   * Emits the pending frame, if any, before an instruction. Unreachable instructions which are not
+   * designated by a label get the last known execution frame, since the JVM requires a frame for
+   * them.
+   */
+  private void beginInstruction() {
+    if (!reachable) {
+      reachable = true;
+      framePending = true;
+    }
+    if (!framePending) {
+      return;
+    }
+    framePending = false;
+    int numFrameLocals = numLocals;
+    while (numFrameLocals > 0 && locals[numFrameLocals - 1] == Opcodes.TOP.intValue()) {
+      --numFrameLocals;
+    }
+    Object[] frameLocals = new Object[numFrameLocals];
+    int numLocal = 0;
+    for (int i = 0; i < numFrameLocals; ++i) {
+      int token = locals[i];
+      if (isReference(token)) {
+        int declaredToken = getDeclaredToken(i);
+        if (declaredToken != -1
+            && (declaredToken != OBJECT_TOKEN || token == Opcodes.NULL.intValue())) {
+          token = declaredToken;
+        }
+      }
+      frameLocals[numLocal++] = getTokenValue(token);
+      if (token == Opcodes.LONG.intValue() || token == Opcodes.DOUBLE.intValue()) {
+        ++i;
+      }
+    }
+    Object[] frameStack = new Object[numStack];
+    int numStackElements = 0;
+    for (int i = 0; i < numStack; ++i) {
+      int token = stack[i];
+      frameStack[numStackElements++] = getTokenValue(token);
+      if (token == Opcodes.LONG.intValue() || token == Opcodes.DOUBLE.intValue()) {
+        ++i;
+      }
+    }
+    super.visitFrame(Opcodes.F_NEW, numLocal, frameLocals, numStackElements, frameStack);
+    endFrame();
+  }
+
+  /**
+   * Updates the states of the labels designating the current instruction with the execution frame
+   * set by a frame.
+   */
+  private void endFrame() {
+    for (int i = 0; i < pendingLabelStates.size(); ++i) {
+      pendingLabelStates.get(i).set(this, locals, numLocals, stack, numStack);
+    }
+    pendingLabelStates.clear();
+    logLocalChanges();
+  }
+
+  /**
+   * Returns the state of the given label, creating it if necessary.
+   *
+   * @param label a label.
+   * @return the state of this label.
+   */
+  final LabelState getLabelState(final Label label) {
+    LabelState labelState = labelStates.get(label);
+    if (labelState == null) {
+      labelState = new LabelState();
+      labelStates.put(label, labelState);
+    }
+    return labelState;
+  }
+
+  /**
+   * Merges the current execution frame into the frame of the given jump target.
+   *
+   * @param label a jump target.
+   * @throws IllegalStateException if the label has already been visited and the current execution
+   *     frame is not compatible with its frame.
+   */
+  private void addJumpTarget(final Label label) {
+    LabelState labelState = getLabelState(label);
+    if (labelState.visited) {
+      labelState.checkCompatible(this, locals, numLocals, stack, numStack);
+    } else {
+      labelState.merge(this, locals, numLocals, stack, numStack);
+    }
+  }
+
+  /**
+   * Merges the execution frames of an exception handler range into the frame of its handler. The
+   * local variables of the handler frame are the merge of the local variables at the start of the
+   * range and of all the local variables changes logged until the end of the range, or until now if
+   * the end of the range has not been visited yet.
+   *
+   * @param start the beginning of the exception handler's scope (inclusive).
+   * @param end the end of the exception handler's scope (exclusive).
+   * @param handler the beginning of the exception handler's code.
+   * @param type the internal name of the type of exceptions handled by the handler, or {@literal
+   *     null} to catch any exceptions.
+   * @throws IllegalStateException if the start of the range has not been visited yet, or if the
+   *     handler has already been visited and the handler range frame is not compatible with its
+   *     frame.
+   */
+  private void addHandlerRange(
+      final Label start, final Label end, final Label handler, final String type) {
+    LabelState startState = labelStates.get(start);
+    LabelState endState = labelStates.get(end);
+    if (startState == null || !startState.visited) {
+      throw new IllegalStateException(
+          "The start of an exception handler range must be visited before its end");
+    }
+    int logEnd = endState != null && endState.visited ? endState.logStart : numLoggedChanges;
+    int numHandlerLocals = startState.numLocals;
+    int[] handlerLocals = new int[numHandlerLocals];
+    System.arraycopy(startState.locals, 0, handlerLocals, 0, numHandlerLocals);
+    for (int i = startState.logEnd; i < logEnd; ++i) {
+      int local = loggedChangeLocals[i];
+      if (local < numHandlerLocals) {
+        handlerLocals[local] = mergeLocal(local, handlerLocals[local], loggedChangeTokens[i]);
+      }
+    }
+    int[] handlerStack = {getToken(type == null ? "java/lang/Throwable" : type)};
+    LabelState handlerState = getLabelState(handler);
+    if (handlerState.visited) {
+      handlerState.checkCompatible(this, handlerLocals, numHandlerLocals, handlerStack, 1);
+    } else {
+      handlerState.merge(this, handlerLocals, numHandlerLocals, handlerStack, 1);
+    }
+  }
+
+  /**
+   * Appends the local variable slots which changed since the last call to this method to the log of
+   * local variable changes.
+   */
+  final void logLocalChanges() {
+    int numChangedLocals = Math.max(numLocals, numLoggedLocals);
+    if (numChangedLocals > loggedLocals.length) {
+      int[] newLoggedLocals = new int[Math.max(2 * loggedLocals.length, numChangedLocals)];
+      System.arraycopy(loggedLocals, 0, newLoggedLocals, 0, numLoggedLocals);
+      loggedLocals = newLoggedLocals;
+    }
+    for (int i = 0; i < numChangedLocals; ++i) {
+      int token = i < numLocals ? locals[i] : Opcodes.TOP.intValue();
+      if (i >= numLoggedLocals || loggedLocals[i] != token) {
+        if (numLoggedChanges == loggedChangeLocals.length) {
+          int[] newLoggedChangeLocals = new int[2 * numLoggedChanges];
+          int[] newLoggedChangeTokens = new int[2 * numLoggedChanges];
+          System.arraycopy(loggedChangeLocals, 0, newLoggedChangeLocals, 0, numLoggedChanges);
+          System.arraycopy(loggedChangeTokens, 0, newLoggedChangeTokens, 0, numLoggedChanges);
+          loggedChangeLocals = newLoggedChangeLocals;
+          loggedChangeTokens = newLoggedChangeTokens;
+        }
+        loggedChangeLocals[numLoggedChanges] = i;
+        loggedChangeTokens[numLoggedChanges++] = token;
+        loggedLocals[i] = token;
+      }
+    }
+    numLoggedLocals = numChangedLocals;
+  }
+
+  // -----------------------------------------------------------------------------------------------
+  // Type merging
+  // -----------------------------------------------------------------------------------------------
+
+  /**
+   * Returns whether the given token designates a reference type or the null type.
+   *
+   * @param token a type token.
+   * @return whether this token designates a reference type or the null type.
+   */
+  final boolean isReference(final int token) {
+    return token == Opcodes.NULL.intValue()
+        || (token >= FIRST_REFERENCE_TOKEN && getTokenValue(token) instanceof String);
+  }
+
+  /**
+   * Returns a printable name for the given token, for error messages.
+   *
+   * @param token a type token.
+   * @return the name of the corresponding primitive type, the internal name of the corresponding
+   *     reference type, or "uninitialized" for uninitialized types.
+   */
+  final String getTypeName(final int token) {
+    if (token < FIRST_REFERENCE_TOKEN) {
+      return PRIMITIVE_TYPE_NAMES[token];
+    }
+    Object value = getTokenValue(token);
+    return value instanceof String ? (String) value : "uninitialized";
+  }
+
+  /**
+   * Returns the token of the reference type declared for the given local variable slot.
+   *
+   * @param local a local variable slot index.
+   * @return the token of the declared type of this slot, or -1 if there is none.
+   */
+  final int getDeclaredToken(final int local) {
+    if (generatorAdapter == null) {
+      return -1;
+    }
+    Type type = null;
+    if (local >= generatorAdapter.firstLocal) {
+      int index = local - generatorAdapter.firstLocal;
+      if (index < generatorAdapter.localTypes.size()) {
+        type = generatorAdapter.localTypes.get(index);
+      }
+    } else {
+      int index = (generatorAdapter.access & Opcodes.ACC_STATIC) == 0 ? 1 : 0;
+      for (Type argumentType : generatorAdapter.argumentTypes) {
+        if (index == local) {
+          type = argumentType;
+        }
+        index += argumentType.getSize();
+      }
+    }
+    if (type == null) {
+      return -1;
+    } else if (type.getSort() == Type.ARRAY) {
+      return getToken(type.getDescriptor());
+    } else if (type.getSort() == Type.OBJECT) {
+      return getToken(type.getInternalName());
+    }
+    return -1;
+  }
+
+  /**
+   * Returns the type of a local variable slot in a label frame, i.e. its declared type if it
+   * contains {@literal null}, or the given type otherwise.
+   *
+   * @param local a local variable slot index.
+   * @param token the token of the type of this slot in an execution frame.
+   * @return the token of the type of this slot in a label frame.
+   */
+  final int widenNullLocal(final int local, final int token) {
+    if (token == Opcodes.NULL.intValue()) {
+      int declaredToken = getDeclaredToken(local);
+      if (declaredToken != -1) {
+        return declaredToken;
+      }
+    }
+    return token;
+  }
+
+  /**
+   * Merges two types of a local variable slot.
+   *
+   * @param local a local variable slot index.
+   * @param token1 a type token.
+   * @param token2 another type token.
+   * @return the merged type token.
+   */
+  final int mergeLocal(final int local, final int token1, final int token2) {
+    if (token1 == token2) {
+      return token1;
+    }
+    if (isReference(token1) && isReference(token2)) {
+      if (token1 == Opcodes.NULL.intValue()) {
+        return token2;
+      } else if (token2 == Opcodes.NULL.intValue()) {
+        return token1;
+      }
+      int declaredToken = getDeclaredToken(local);
+      return declaredToken == -1 ? OBJECT_TOKEN : declaredToken;
+    }
+    return Opcodes.TOP.intValue();
+  }
+
+  /**
+   * Returns the common super type of the two given types, to merge two different reference types on
+   * the operand stack. The default implementation of this method throws an exception, since the
+   * class hierarchy is not known (merging them to {@code java/lang/Object} would produce frames
+   * rejected by the JVM verifier when the merged value is used with its actual type). Subclasses
+   * can override it, for instance to load the classes or to use types known by the code generator.
+   *
+   * @param type1 the internal name of a class, or the descriptor of an array type.
+   * @param type2 the internal name of another class, or the descriptor of another array type.
+   * @return the internal name of the common super class of the two given types, or the descriptor
+   *     of their common super array type.
+   * @throws IllegalStateException if the common super type is not known.
+   */
+  protected String getCommonSuperClass(final String type1, final String type2) {
+    throw new IllegalStateException(
+        "Unknown common super class of operand stack types: " + type1 + " and " + type2);
+  }
+
+  /**
+   * Merges two types of an operand stack slot.
+   *
+   * @param token1 a type token.
+   * @param token2 another type token.
+   * @return the merged type token.
+   * @throws IllegalStateException if the two types can't be merged.
+   */
+  final int mergeStack(final int token1, final int token2) {
+    if (token1 == token2) {
+      return token1;
+    }
+    if (isReference(token1) && isReference(token2)) {
+      if (token1 == Opcodes.NULL.intValue()) {
+        return token2;
+      } else if (token2 == Opcodes.NULL.intValue()) {
+        return token1;
+      } else if (token1 == OBJECT_TOKEN || token2 == OBJECT_TOKEN) {
+        return OBJECT_TOKEN;
+      }
+      return getToken(
+          getCommonSuperClass((String) getTokenValue(token1), (String) getTokenValue(token2)));
+    }
+    throw new IllegalStateException(
+        "Incompatible operand stack types: " + getTypeName(token1) + " and " + getTypeName(token2));
+  }
+
+  /**
+   * Returns whether a type is assignable to the type of a visited label frame. Reference types are
+   * assumed to be compatible with each other, except with the null type, since the class hierarchy
+   * is not known (the JVM verifier checks them when the class is loaded).
+   *
+   * @param frameToken the token of a frame slot.
+   * @param token the token of a type.
+   * @return whether the type is assignable to the frame slot.
+   */
+  final boolean isAssignable(final int frameToken, final int token) {
+    if (frameToken == token) {
+      return true;
+    }
+    return isReference(frameToken) && frameToken != Opcodes.NULL.intValue() && isReference(token);
+  }
+
+  /** The state of a label, i.e. the frame of the instruction it designates. */
+  static final class LabelState {
+
+    /** The tokens of the local variable slots of the frame, or {@literal null} if not known yet. */
+    int[] locals;
+
+    /** The number of local variable slots of the frame. */
+    int numLocals;
+
+    /** The tokens of the operand stack slots of the frame. */
+    int[] stack;
+
+    /** The number of operand stack slots of the frame. */
+    int numStack;
+
+    /** Whether the label has been visited. */
+    boolean visited;
+
+    /** The number of local variable changes logged before this label was visited. */
+    int logStart;
+
+    /** The number of local variable changes logged after this label was visited. */
+    int logEnd;
+
+    /**
+     * Returns whether the frame of this label is known.
+     *
+     * @return whether the frame of this label is known.
+     */
+    boolean hasFrame() {
+      return locals != null;
+    }
+
+    /**
+     * Sets the frame of this label.
+     *
+     * @param emitter the emitter to use to widen the local variable types.
+     * @param frameLocals the tokens of the local variable slots.
+     * @param numFrameLocals the number of local variable slots.
+     * @param frameStack the tokens of the operand stack slots.
+     * @param numFrameStack the number of operand stack slots.
+     */
+    void set(
+        final FrameEmitter emitter,
+        final int[] frameLocals,
+        final int numFrameLocals,
+        final int[] frameStack,
+        final int numFrameStack) {
+      locals = new int[numFrameLocals];
+      for (int i = 0; i < numFrameLocals; ++i) {
+        locals[i] = emitter.widenNullLocal(i, frameLocals[i]);
+      }
+      numLocals = numFrameLocals;
+      stack = new int[numFrameStack];
+      System.arraycopy(frameStack, 0, stack, 0, numFrameStack);
+      numStack = numFrameStack;
+    }
+
+    /**
+     * Merges an execution frame into the frame of this label.
+     *
+     * @param emitter the emitter to use to merge types.
+     * @param frameLocals the tokens of the local variable slots.
+     * @param numFrameLocals the number of local variable slots.
+     * @param frameStack the tokens of the operand stack slots.
+     * @param numFrameStack the number of operand stack slots.
+     * @throws IllegalStateException if the operand stacks can't be merged.
+     */
+    void merge(
+        final FrameEmitter emitter,
+        final int[] frameLocals,
+        final int numFrameLocals,
+        final int[] frameStack,
+        final int numFrameStack) {
+      if (locals == null) {
+        set(emitter, frameLocals, numFrameLocals, frameStack, numFrameStack);
+        return;
+      }
+      if (numStack != numFrameStack) {
+        throw new IllegalStateException(
+            "Incompatible operand stack sizes: " + numStack + " and " + numFrameStack);
+      }
+      numLocals = Math.min(numLocals, numFrameLocals);
+      for (int i = 0; i < numLocals; ++i) {
+        locals[i] = emitter.mergeLocal(i, locals[i], frameLocals[i]);
+      }
+      for (int i = 0; i < numStack; ++i) {
+        stack[i] = emitter.mergeStack(stack[i], frameStack[i]);
+      }
+    }
+
+    /**
+     * Checks that an execution frame is compatible with the frame of this visited label.
+     *
+     * @param emitter the emitter to use to compare types.
+     * @param frameLocals the tokens of the local variable slots.
+     * @param numFrameLocals the number of local variable slots.
+     * @param frameStack the tokens of the operand stack slots.
+     * @param numFrameStack the number of operand stack slots.
+     * @throws IllegalStateException if the execution frame is not compatible with this frame.
+     */
+    void checkCompatible(
+        final FrameEmitter emitter,
+        final int[] frameLocals,
+        final int numFrameLocals,
+        final int[] frameStack,
+        final int numFrameStack) {
+      if (numStack != numFrameStack) {
+        throw new IllegalStateException(
+            "Incompatible operand stack sizes: " + numStack + " and " + numFrameStack);
+      }
+      for (int i = 0; i < numLocals; ++i) {
+        int token = i < numFrameLocals ? frameLocals[i] : Opcodes.TOP.intValue();
+        int frameToken = emitter.widenNullLocal(i, locals[i]);
+        if (frameToken != Opcodes.TOP.intValue() && !emitter.isAssignable(frameToken, token)) {
+          throw new IllegalStateException(
+              "Incompatible type for local variable "
+                  + i
+                  + ": "
+                  + emitter.getTypeName(token)
+                  + " instead of "
+                  + emitter.getTypeName(frameToken));
+        }
+      }
+      for (int i = 0; i < numStack; ++i) {
+        if (!emitter.isAssignable(stack[i], frameStack[i])) {
+          throw new IllegalStateException(
+              "Incompatible operand stack types: "
+                  + emitter.getTypeName(frameStack[i])
+                  + " instead of "
+                  + emitter.getTypeName(stack[i]));
+        }
+      }
+    }
+  }
+}
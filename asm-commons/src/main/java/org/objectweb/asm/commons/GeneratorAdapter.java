@@ -104,6 +104,12 @@ public class GeneratorAdapter extends LocalVariablesSorter {
 
   public static final Type OBJECT_TYPE = Type.getObjectType("java/lang/Object");
 
+  private static final Type STRING_TYPE = Type.getObjectType("java/lang/String");
+
+  private static final Type CLASS_TYPE = Type.getObjectType("java/lang/Class");
+
+  private static final Type ENUM_TYPE = Type.getObjectType("java/lang/Enum");
+
   public static final Method BOOLEAN_VALUE = Method.getMethod("boolean booleanValue()");
 
   public static final Method CHAR_VALUE = Method.getMethod("char charValue()");
@@ -1106,6 +1112,163 @@ public class GeneratorAdapter extends LocalVariablesSorter {
     mark(endLabel);
   }
 
+  /**
+   * Generates the instructions for a switch statement on the string on top of the stack. The
+   * instructions compute the hash code of the string, map it to a dense TABLESWITCH with a hash
+   * function chosen to avoid collisions, and compare the string with the key(s) of its bucket with
+   * {@link String#equals}. A NullPointerException is thrown if the string is {@literal null}.
+   *
+   * @param keys the switch case keys, which must be distinct.
+   * @param generator a generator to generate the code for the switch cases. The key passed to its
+   *     {@link TableSwitchGenerator#generateCase} method is the index of the case key in keys. The
+   *     code generated for each case must not fall through to the next instructions.
+   */
+  public void stringSwitch(final String[] keys, final TableSwitchGenerator generator) {
+    int[] hashCodes = new int[keys.length];
+    for (int i = 0; i < keys.length; ++i) {
+      hashCodes[i] = keys[i].hashCode();
+    }
+    hashSwitch(keys, hashCodes, STRING_TYPE, generator);
+  }
+
+  /**
+   * Generates the instructions for a switch statement on the enum value on top of the stack. The
+   * switch is done on the {@link Enum#name} of the value, as in {@link #stringSwitch}, which does
+   * not depend on the order of the enum constants. A NullPointerException is thrown if the value is
+   * {@literal null}.
+   *
+   * @param names the names of the switch case enum constants, which must be distinct.
+   * @param generator a generator to generate the code for the switch cases. The key passed to its
+   *     {@link TableSwitchGenerator#generateCase} method is the index of the case constant in
+   *     names. The code generated for each case must not fall through to the next instructions.
+   */
+  public void enumSwitch(final String[] names, final TableSwitchGenerator generator) {
+    invokeVirtual(ENUM_TYPE, Method.getMethod("String name()"));
+    stringSwitch(names, generator);
+  }
+
+  /**
+   * Generates the instructions for a switch statement on the Class object on top of the stack. The
+   * instructions compute the hash code of the class name, map it to a dense TABLESWITCH with a hash
+   * function chosen to avoid collisions, and compare the Class object with the key(s) of its bucket
+   * by reference. A NullPointerException is thrown if the Class object is {@literal null}.
+   *
+   * @param keys the switch case keys, which must be distinct.
+   * @param generator a generator to generate the code for the switch cases. The key passed to its
+   *     {@link TableSwitchGenerator#generateCase} method is the index of the case key in keys. The
+   *     code generated for each case must not fall through to the next instructions.
+   */
+  public void classSwitch(final Type[] keys, final TableSwitchGenerator generator) {
+    int[] hashCodes = new int[keys.length];
+    for (int i = 0; i < keys.length; ++i) {
+      hashCodes[i] = getClassName(keys[i]).hashCode();
+    }
+    hashSwitch(keys, hashCodes, CLASS_TYPE, generator);
+  }
+
+  /**
+   * Returns the name of the Class object corresponding to the given type.
+   *
+   * @param type a type.
+   * @return the value returned by {@link Class#getName} for the class corresponding to type.
+   */
+  private static String getClassName(final Type type) {
+    if (type.getSort() == Type.ARRAY) {
+      return type.getDescriptor().replace('/', '.');
+    }
+    return type.getClassName();
+  }
+
+  /**
+   * Generates the instructions for a switch statement on the string or Class object on top of the
+   * stack.
+   *
+   * @param keys the switch case keys, String or Type objects.
+   * @param hashCodes the hash codes of the keys (or of their class name, for Type keys).
+   * @param valueType the type of the value on top of the stack.
+   * @param generator a generator to generate the code for the switch cases.
+   */
+  private void hashSwitch(
+      final Object[] keys,
+      final int[] hashCodes,
+      final Type valueType,
+      final TableSwitchGenerator generator) {
+    for (int i = 0; i < keys.length; ++i) {
+      for (int j = 0; j < i; ++j) {
+        if (keys[i].equals(keys[j])) {
+          throw new IllegalArgumentException("Duplicate switch key: " + keys[i]);
+        }
+      }
+    }
+    HashSwitchFunction hashFunction = HashSwitchFunction.create(hashCodes);
+    Label defaultLabel = newLabel();
+    Label endLabel = newLabel();
+    int value = newLocal(valueType);
+    storeLocal(value);
+    if (keys.length > 0) {
+      // Compute the bucket of the value, and jump to the corresponding case(s).
+      Label[] bucketLabels = new Label[hashFunction.numBuckets];
+      Arrays.fill(bucketLabels, defaultLabel);
+      for (int hashCode : hashCodes) {
+        int bucket = hashFunction.getBucket(hashCode);
+        if (bucketLabels[bucket] == defaultLabel) {
+          bucketLabels[bucket] = newLabel();
+        }
+      }
+      if (hashFunction.numBuckets > 1) {
+        loadLocal(value);
+        if (valueType == CLASS_TYPE) {
+          invokeVirtual(CLASS_TYPE, Method.getMethod("String getName()"));
+        }
+        invokeVirtual(STRING_TYPE, Method.getMethod("int hashCode()"));
+        if (hashFunction.multiplier != 1) {
+          push(hashFunction.multiplier);
+          math(MUL, Type.INT_TYPE);
+        }
+        if (hashFunction.shift != 0) {
+          push(hashFunction.shift);
+          math(USHR, Type.INT_TYPE);
+        }
+        push(hashFunction.numBuckets - 1);
+        math(AND, Type.INT_TYPE);
+        mv.visitTableSwitchInsn(0, hashFunction.numBuckets - 1, defaultLabel, bucketLabels);
+      } else if (valueType == CLASS_TYPE) {
+        // Throw a NullPointerException for null values, as when the hash code is computed.
+        loadLocal(value);
+        invokeVirtual(CLASS_TYPE, Method.getMethod("String getName()"));
+        pop();
+      }
+      // Compare the value with the key(s) of each bucket.
+      for (int bucket = 0; bucket < hashFunction.numBuckets; ++bucket) {
+        if (bucketLabels[bucket] == defaultLabel) {
+          continue;
+        }
+        mark(bucketLabels[bucket]);
+        for (int i = 0; i < keys.length; ++i) {
+          if (hashFunction.getBucket(hashCodes[i]) != bucket) {
+            continue;
+          }
+          Label nextKeyLabel = newLabel();
+          loadLocal(value);
+          if (valueType == CLASS_TYPE) {
+            push((Type) keys[i]);
+            ifCmp(CLASS_TYPE, NE, nextKeyLabel);
+          } else {
+            push((String) keys[i]);
+            invokeVirtual(STRING_TYPE, Method.getMethod("boolean equals(Object)"));
+            ifZCmp(EQ, nextKeyLabel);
+          }
+          generator.generateCase(i, endLabel);
+          mark(nextKeyLabel);
+        }
+        goTo(defaultLabel);
+      }
+    }
+    mark(defaultLabel);
+    generator.generateDefault();
+    mark(endLabel);
+  }
+
   /** Generates the instruction to return the top stack value to the caller. */
   public void returnValue() {
     mv.visitInsn(returnType.getOpcode(Opcodes.IRETURN));
@@ -1369,4 +1532,45 @@ public class GeneratorAdapter extends LocalVariablesSorter {
     }
     mark(catchLabel);
   }
+
+  /**
+   * Makes this adapter emit the stack map frames of the generated code, with a {@link FrameEmitter}
+   * inserted before the next visitor, so that the {@link
+   * org.objectweb.asm.ClassWriter#COMPUTE_MAXS} option is sufficient to write the method. This
+   * method must be called before any instruction is generated. The frames use the local variable
+   * types declared with {@link #newLocal}, and the exception handlers must be generated with {@link
+   * #catchException} after their range.
+   *
+   * @param owner the internal name of the class containing the visited method.
+   */
+  public void emitFrames(final String owner) {
+    mv =
+        new FrameEmitter(
+            api,
+            owner,
+            access,
+            name,
+            Type.getMethodDescriptor(returnType, argumentTypes),
+            mv,
+            this);
+  }
+
+  /**
+   * Makes this adapter emit the stack map frames of the generated code with the given {@link
+   * FrameEmitter}, inserted before the next visitor. This is the same as {@link
+   * #emitFrames(String)}, but with a custom emitter (for instance one overriding {@link
+   * FrameEmitter#getCommonSuperClass}).
+   *
+   * @param frameEmitter a frame emitter constructed with this adapter as generator adapter, and
+   *     with the current next visitor of this adapter (see {@link #getDelegate}) as method visitor.
+   * @throws IllegalArgumentException if the frame emitter was not constructed with this adapter
+   *     and its current next visitor.
+   */
+  public void emitFrames(final FrameEmitter frameEmitter) {
+    if (frameEmitter.generatorAdapter != this || frameEmitter.getDelegate() != mv) {
+      throw new IllegalArgumentException(
+          "The frame emitter must use this adapter and its current next visitor");
+    }
+    mv = frameEmitter;
+  }
 }
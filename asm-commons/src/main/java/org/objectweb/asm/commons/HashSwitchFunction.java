@@ -0,0 +1,138 @@
+// ASM: a very small and fast Java bytecode manipulation framework
+// Copyright (c) 2000-2011 INRIA, France Telecom
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+// 1. Redistributions of source code must retain the above copyright
+//    notice, this list of conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright
+//    notice, this list of conditions and the following disclaimer in the
+//    documentation and/or other materials provided with the distribution.
+// 3. Neither the name of the copyright holders nor the names of its
+//    contributors may be used to endorse or promote products derived from
+//    this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+// THE POSSIBILITY OF SUCH DAMAGE.
+package org.objectweb.asm.commons;
+
+import java.util.Arrays;
+
+/**
+ * A function mapping hash codes to the buckets of a dense switch table, used to generate switch
+ * statements on strings, enums and classes. The bucket of a hash code h is {@code ((h * multiplier)
+ * >>> shift) & (numBuckets - 1)}. The function is chosen so that the given hash codes map to
+ * different buckets if possible, or with the minimum number of collisions otherwise.
+ */
+final class HashSwitchFunction {
+
+  /** The multipliers tried by {@link #create}, 1 first, then some odd constants. */
+  private static final int[] MULTIPLIERS = {
+    1, 0x9E3779B9, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F, 0x165667B1
+  };
+
+  /** The multiplier applied to the hash codes. */
+  final int multiplier;
+
+  /** The number of bits by which the multiplied hash codes are shifted to the right. */
+  final int shift;
+
+  /** The number of buckets of the switch table. This is a power of two. */
+  final int numBuckets;
+
+  /** The number of hash codes which are not alone in their bucket, minus one per such bucket. */
+  final int numCollisions;
+
+  private HashSwitchFunction(
+      final int multiplier, final int shift, final int numBuckets, final int numCollisions) {
+    this.multiplier = multiplier;
+    this.shift = shift;
+    this.numBuckets = numBuckets;
+    this.numCollisions = numCollisions;
+  }
+
+  /**
+   * Returns a function mapping the given hash codes to different buckets, if possible. The number
+   * of buckets is at most four times the number of distinct hash codes.
+   *
+   * @param hashCodes some hash codes (duplicates are allowed, and can't be mapped to different
+   *     buckets).
+   * @return a function with the minimum number of collisions for the given hash codes, among the
+   *     functions which are tried.
+   */
+  static HashSwitchFunction create(final int[] hashCodes) {
+    int[] distinctHashCodes = getDistinctHashCodes(hashCodes);
+    int numHashCodes = distinctHashCodes.length;
+    int minNumBuckets = Integer.highestOneBit(Math.max(1, 2 * numHashCodes - 1));
+    HashSwitchFunction bestFunction = new HashSwitchFunction(1, 0, 1, Math.max(0, numHashCodes - 1));
+    if (numHashCodes <= 1) {
+      return bestFunction;
+    }
+    for (int numBuckets = minNumBuckets;
+        numBuckets <= 2 * minNumBuckets && numBuckets > 0;
+        numBuckets *= 2) {
+      int numBits = Integer.numberOfTrailingZeros(numBuckets);
+      int[] bucketSizes = new int[numBuckets];
+      for (int multiplier : MULTIPLIERS) {
+        for (int shift = 0; shift <= 32 - numBits; ++shift) {
+          int numCollisions = 0;
+          for (int hashCode : distinctHashCodes) {
+            if (bucketSizes[((hashCode * multiplier) >>> shift) & (numBuckets - 1)]++ > 0) {
+              numCollisions++;
+            }
+          }
+          Arrays.fill(bucketSizes, 0);
+          if (numCollisions < bestFunction.numCollisions) {
+            bestFunction = new HashSwitchFunction(multiplier, shift, numBuckets, numCollisions);
+            if (numCollisions == 0) {
+              return bestFunction;
+            }
+          }
+        }
+      }
+    }
+    return bestFunction;
+  }
+
+  /**
+   * Returns the distinct values of the given array.
+   *
+   * @param hashCodes some hash codes.
+   * @return the distinct values of hashCodes, in increasing order.
+   */
+  private static int[] getDistinctHashCodes(final int[] hashCodes) {
+    int[] sortedHashCodes = hashCodes.clone();
+    Arrays.sort(sortedHashCodes);
+    int numDistinctHashCodes = 0;
+    for (int i = 0; i < sortedHashCodes.length; ++i) {
+      if (i == 0 || sortedHashCodes[i] != sortedHashCodes[i - 1]) {
+        sortedHashCodes[numDistinctHashCodes++] = sortedHashCodes[i];
+      }
+    }
+    int[] distinctHashCodes = new int[numDistinctHashCodes];
+    System.arraycopy(sortedHashCodes, 0, distinctHashCodes, 0, numDistinctHashCodes);
+    return distinctHashCodes;
+  }
+
+  /**
+   * Returns the bucket of the given hash code.
+   *
+   * @param hashCode a hash code.
+   * @return the bucket of this hash code, between 0 (inclusive) and {@link #numBuckets}
+   *     (exclusive).
+   */
+  int getBucket(final int hashCode) {
+    return ((hashCode * multiplier) >>> shift) & (numBuckets - 1);
+  }
+}
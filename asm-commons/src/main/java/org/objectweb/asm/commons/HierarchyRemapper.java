@@ -0,0 +1,174 @@
+// ASM: a very small and fast Java bytecode manipulation framework
+// Copyright (c) 2000-2011 INRIA, France Telecom
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+// 1. Redistributions of source code must retain the above copyright
+//    notice, this list of conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright
+//    notice, this list of conditions and the following disclaimer in the
+//    documentation and/or other materials provided with the distribution.
+// 3. Neither the name of the copyright holders nor the names of its
+//    contributors may be used to endorse or promote products derived from
+//    this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+// THE POSSIBILITY OF SUCH DAMAGE.
+package org.objectweb.asm.commons;
+
+import org.objectweb.asm.ConstantDynamic;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.signature.SignatureVisitor;
+
+/**
+ * A {@link Remapper} which propagates the method renamings of another remapper through the class
+ * hierarchy. The method names are looked up in a precomputed table, which contains an entry for
+ * each renamed method in each class where this method is declared or inherited, so that {@link
+ * #mapMethodName} does not walk the class hierarchy. All the other methods are delegated to the
+ * other remapper, except {@link #mapValue} for method handles and dynamic constants, whose method
+ * names must be looked up in the table. Instances of this class are created with a {@link
+ * HierarchyRemapperBuilder}.
+ */
+public class HierarchyRemapper extends Remapper {
+
+  /** The remapper used for everything except the method names found in {@link #methodMapping}. */
+  public final Remapper remapper;
+
+  /** The new names of the renamed methods, indexed by class, name and descriptor. */
+  public final MemberNameTable methodMapping;
+
+  /**
+   * Constructs a new {@link HierarchyRemapper}.
+   *
+   * @param remapper the remapper used for everything except the method names found in
+   *     methodMapping.
+   * @param methodMapping the new names of the renamed methods, indexed by class, name and
+   *     descriptor. Each method must have an entry for each class where it is declared or
+   *     inherited.
+   */
+  public HierarchyRemapper(final Remapper remapper, final MemberNameTable methodMapping) {
+    this.remapper = remapper;
+    this.methodMapping = methodMapping;
+  }
+
+  @Override
+  public String mapMethodName(final String owner, final String name, final String descriptor) {
+    String remappedName = methodMapping.get(owner, name, descriptor);
+    return remappedName == null ? remapper.mapMethodName(owner, name, descriptor) : remappedName;
+  }
+
+  @Override
+  public Object mapValue(final Object value) {
+    if (value instanceof Handle || value instanceof ConstantDynamic) {
+      return super.mapValue(value);
+    }
+    return remapper.mapValue(value);
+  }
+
+  // -----------------------------------------------------------------------------------------------
+  // Delegated methods
+  // -----------------------------------------------------------------------------------------------
+
+  @Override
+  public String mapDesc(final String descriptor) {
+    return remapper.mapDesc(descriptor);
+  }
+
+  @Override
+  public Type mapType(final Type type) {
+    return remapper.mapType(type);
+  }
+
+  @Override
+  public String mapType(final String internalName) {
+    return remapper.mapType(internalName);
+  }
+
+  @Override
+  public String[] mapTypes(final String[] internalNames) {
+    return remapper.mapTypes(internalNames);
+  }
+
+  @Override
+  public String mapMethodDesc(final String methodDescriptor) {
+    return remapper.mapMethodDesc(methodDescriptor);
+  }
+
+  @Override
+  public String mapSignature(final String signature, final boolean typeSignature) {
+    return remapper.mapSignature(signature, typeSignature);
+  }
+
+  /**
+   * Constructs a new remapper for signatures, with the delegate remapper.
+   *
+   * @param signatureVisitor the SignatureVisitor the remapper must delegate to.
+   * @return the newly created remapper.
+   * @deprecated use {@link #createSignatureRemapper} instead.
+   */
+  @Deprecated
+  @Override
+  public SignatureVisitor createRemappingSignatureAdapter(
+      final SignatureVisitor signatureVisitor) {
+    return remapper.createRemappingSignatureAdapter(signatureVisitor);
+  }
+
+  @Override
+  public SignatureVisitor createSignatureRemapper(final SignatureVisitor signatureVisitor) {
+    return remapper.createSignatureRemapper(signatureVisitor);
+  }
+
+  @Override
+  public String mapAnnotationAttributeName(final String descriptor, final String name) {
+    return remapper.mapAnnotationAttributeName(descriptor, name);
+  }
+
+  @Override
+  public String mapInnerClassName(
+      final String name, final String ownerName, final String innerName) {
+    return remapper.mapInnerClassName(name, ownerName, innerName);
+  }
+
+  @Override
+  public String mapInvokeDynamicMethodName(final String name, final String descriptor) {
+    return remapper.mapInvokeDynamicMethodName(name, descriptor);
+  }
+
+  @Override
+  public String mapRecordComponentName(
+      final String owner, final String name, final String descriptor) {
+    return remapper.mapRecordComponentName(owner, name, descriptor);
+  }
+
+  @Override
+  public String mapFieldName(final String owner, final String name, final String descriptor) {
+    return remapper.mapFieldName(owner, name, descriptor);
+  }
+
+  @Override
+  public String mapPackageName(final String name) {
+    return remapper.mapPackageName(name);
+  }
+
+  @Override
+  public String mapModuleName(final String name) {
+    return remapper.mapModuleName(name);
+  }
+
+  @Override
+  public String map(final String internalName) {
+    return remapper.map(internalName);
+  }
+}
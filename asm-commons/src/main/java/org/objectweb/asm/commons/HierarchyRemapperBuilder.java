@@ -0,0 +1,430 @@
+// ASM: a very small and fast Java bytecode manipulation framework
+// Copyright (c) 2000-2011 INRIA, France Telecom
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+// 1. Redistributions of source code must retain the above copyright
+//    notice, this list of conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright
+//    notice, this list of conditions and the following disclaimer in the
+//    documentation and/or other materials provided with the distribution.
+// 3. Neither the name of the copyright holders nor the names of its
+//    contributors may be used to endorse or promote products derived from
+//    this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+// THE POSSIBILITY OF SUCH DAMAGE.
+package org.objectweb.asm.commons;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+/**
+ * A builder of {@link HierarchyRemapper}. The class headers and method lists of all the classes to
+ * be remapped are first added to this builder, possibly in parallel. Then {@link #build} groups the
+ * methods which override each other (directly or not) into families, with a union-find structure,
+ * and propagates the renaming of any member of a family to all of its members, and to all the
+ * classes inheriting one of them.
+ *
+ * <p>Two methods with the same name and descriptor are in the same family if one class declares or
+ * inherits both of them (or declares one and inherits the other). This is conservative: package
+ * private methods are handled like public ones. Private methods, constructors and static interface
+ * methods are never propagated. The classes which are not added to this builder (such as the JDK
+ * classes) are ignored, so renaming a method which overrides a method of such a class breaks the
+ * override.
+ */
+public class HierarchyRemapperBuilder {
+
+  /** The number of classes parsed by each task submitted in {@link #addClasses}. */
+  static final int CLASSES_PER_TASK = 64;
+
+  /** The classes added to this builder, indexed by internal name. */
+  final ConcurrentHashMap<String, ClassInfo> classes;
+
+  /** Constructs a new, empty {@link HierarchyRemapperBuilder}. */
+  public HierarchyRemapperBuilder() {
+    classes = new ConcurrentHashMap<String, ClassInfo>();
+  }
+
+  /**
+   * Adds a class to this builder. This method can be called concurrently from several threads. If
+   * several classes with the same name are added, only one of them is kept.
+   *
+   * @param classReader the class to be added.
+   */
+  public void addClass(final ClassReader classReader) {
+    ClassInfo classInfo = new ClassInfo();
+    classReader.accept(
+        classInfo, ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+    classes.putIfAbsent(classInfo.name, classInfo);
+  }
+
+  /**
+   * Adds a class to this builder. This method can be called concurrently from several threads.
+   *
+   * @param classFile the content of a class file.
+   */
+  public void addClass(final byte[] classFile) {
+    addClass(new ClassReader(classFile));
+  }
+
+  /**
+   * Adds some classes to this builder, by parsing them in parallel with the given executor. This
+   * method returns when all the classes have been added.
+   *
+   * @param classFiles the contents of some class files.
+   * @param executorService the executor used to parse the classes.
+   * @throws InterruptedException if the current thread is interrupted while waiting for the parsing
+   *     tasks.
+   */
+  public void addClasses(final Collection<byte[]> classFiles, final ExecutorService executorService)
+      throws InterruptedException {
+    List<Future<Object>> futures = new ArrayList<Future<Object>>();
+    List<byte[]> batch = new ArrayList<byte[]>(CLASSES_PER_TASK);
+    for (byte[] classFile : classFiles) {
+      batch.add(classFile);
+      if (batch.size() == CLASSES_PER_TASK) {
+        futures.add(executorService.submit(new AddClassesTask(batch)));
+        batch = new ArrayList<byte[]>(CLASSES_PER_TASK);
+      }
+    }
+    if (!batch.isEmpty()) {
+      futures.add(executorService.submit(new AddClassesTask(batch)));
+    }
+    for (Future<Object> future : futures) {
+      try {
+        future.get();
+      } catch (ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof RuntimeException) {
+          throw (RuntimeException) cause;
+        }
+        if (cause instanceof Error) {
+          throw (Error) cause;
+        }
+        throw new IllegalStateException(cause);
+      }
+    }
+  }
+
+  /**
+   * Builds a {@link HierarchyRemapper} from the classes added so far.
+   *
+   * @param remapper the remapper defining the initial method names, as well as the new names of
+   *     everything else. A method is renamed if this remapper renames it in at least one of the
+   *     classes where it is declared, in which case it is renamed in all the classes where it or a
+   *     method of its family is declared or inherited.
+   * @return a {@link HierarchyRemapper} propagating the method renamings of the given remapper.
+   * @throws IllegalArgumentException if two methods of the same family are renamed differently.
+   */
+  public HierarchyRemapper build(final Remapper remapper) {
+    // Assign a node to each declared method.
+    int methodCount = 0;
+    for (ClassInfo classInfo : classes.values()) {
+      classInfo.firstNode = methodCount;
+      methodCount += classInfo.methodNames.size();
+    }
+    String[] names = new String[methodCount];
+    String[] descriptors = new String[methodCount];
+    for (ClassInfo classInfo : classes.values()) {
+      for (int i = 0; i < classInfo.methodNames.size(); ++i) {
+        names[classInfo.firstNode + i] = classInfo.methodNames.get(i);
+        descriptors[classInfo.firstNode + i] = classInfo.methodDescriptors.get(i);
+      }
+    }
+    UnionFind unionFind = new UnionFind(methodCount);
+
+    // Union the methods declared or inherited by each class, and remember the visible methods of
+    // each class (as a map from name and descriptor to a node of the method's family).
+    Map<ClassInfo, Map<String, Integer>> visibleMethods =
+        new HashMap<ClassInfo, Map<String, Integer>>();
+    for (ClassInfo classInfo : classes.values()) {
+      Map<String, Integer> methods = new HashMap<String, Integer>();
+      for (ClassInfo ancestor : getSelfAndAncestors(classInfo)) {
+        for (int i = 0; i < ancestor.methodNames.size(); ++i) {
+          if (!ancestor.isInherited(i)) {
+            continue;
+          }
+          int node = ancestor.firstNode + i;
+          String key = names[node] + descriptors[node];
+          Integer otherNode = methods.get(key);
+          if (otherNode == null) {
+            methods.put(key, node);
+          } else {
+            unionFind.union(node, otherNode);
+          }
+        }
+      }
+      visibleMethods.put(classInfo, methods);
+    }
+
+    // Compute the new name of each family.
+    String[] newNames = new String[methodCount];
+    for (ClassInfo classInfo : classes.values()) {
+      for (int i = 0; i < classInfo.methodNames.size(); ++i) {
+        int node = classInfo.firstNode + i;
+        String newName = remapper.mapMethodName(classInfo.name, names[node], descriptors[node]);
+        if (newName == null || newName.equals(names[node])) {
+          continue;
+        }
+        int root = unionFind.find(node);
+        if (newNames[root] == null) {
+          newNames[root] = newName;
+        } else if (!newNames[root].equals(newName)) {
+          throw new IllegalArgumentException(
+              "Conflicting names for "
+                  + classInfo.name
+                  + '.'
+                  + names[node]
+                  + descriptors[node]
+                  + ": "
+                  + newNames[root]
+                  + " and "
+                  + newName);
+        }
+      }
+    }
+
+    // Add an entry for each renamed method in each class declaring or inheriting it.
+    MemberNameTable methodMapping = new MemberNameTable();
+    for (Map.Entry<ClassInfo, Map<String, Integer>> entry : visibleMethods.entrySet()) {
+      String owner = entry.getKey().name;
+      for (Integer node : entry.getValue().values()) {
+        String newName = newNames[unionFind.find(node)];
+        if (newName != null) {
+          methodMapping.put(owner, names[node], descriptors[node], newName);
+        }
+      }
+    }
+    return new HierarchyRemapper(remapper, methodMapping);
+  }
+
+  /**
+   * Returns the given class and all its super classes and super interfaces which have been added to
+   * this builder.
+   *
+   * @param classInfo a class added to this builder.
+   * @return the given class followed by its ancestors, without duplicates.
+   */
+  List<ClassInfo> getSelfAndAncestors(final ClassInfo classInfo) {
+    List<ClassInfo> result = new ArrayList<ClassInfo>();
+    Set<String> visited = new HashSet<String>();
+    visited.add(classInfo.name);
+    result.add(classInfo);
+    for (int i = 0; i < result.size(); ++i) {
+      ClassInfo current = result.get(i);
+      addAncestor(current.superName, visited, result);
+      for (String interfaceName : current.interfaces) {
+        addAncestor(interfaceName, visited, result);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Adds a class to a list of ancestors, if it has been added to this builder and is not already in
+   * the list.
+   *
+   * @param name the internal name of a class, or {@literal null}.
+   * @param visited the internal names of the classes already in ancestors.
+   * @param ancestors a list of ancestors.
+   */
+  void addAncestor(final String name, final Set<String> visited, final List<ClassInfo> ancestors) {
+    if (name != null && visited.add(name)) {
+      ClassInfo ancestor = classes.get(name);
+      if (ancestor != null) {
+        ancestors.add(ancestor);
+      }
+    }
+  }
+
+  /** The header and method list of a class. */
+  static final class ClassInfo extends ClassVisitor {
+
+    /** The internal name of the class. */
+    String name;
+
+    /** The internal name of the super class, or {@literal null}. */
+    String superName;
+
+    /** The internal names of the super interfaces. */
+    String[] interfaces;
+
+    /** Whether the class is an interface. */
+    boolean isInterface;
+
+    /** The names of the declared methods. */
+    final List<String> methodNames;
+
+    /** The descriptors of the declared methods. */
+    final List<String> methodDescriptors;
+
+    /** The access flags of the declared methods. */
+    final List<Integer> methodAccesses;
+
+    /** The union-find node of the first declared method. */
+    int firstNode;
+
+    /** Constructs a new {@link ClassInfo}. */
+    ClassInfo() {
+      super(/* latest api = */ Opcodes.ASM9);
+      methodNames = new ArrayList<String>();
+      methodDescriptors = new ArrayList<String>();
+      methodAccesses = new ArrayList<Integer>();
+    }
+
+    @Override
+    public void visit(
+        final int version,
+        final int access,
+        final String name,
+        final String signature,
+        final String superName,
+        final String[] interfaces) {
+      this.name = name;
+      this.superName = superName;
+      this.interfaces = interfaces == null ? new String[0] : interfaces;
+      this.isInterface = (access & Opcodes.ACC_INTERFACE) != 0;
+    }
+
+    @Override
+    public MethodVisitor visitMethod(
+        final int access,
+        final String name,
+        final String descriptor,
+        final String signature,
+        final String[] exceptions) {
+      methodNames.add(name);
+      methodDescriptors.add(descriptor);
+      methodAccesses.add(access);
+      return null;
+    }
+
+    /**
+     * Returns whether a declared method can be inherited, i.e. whether it participates in a family.
+     *
+     * @param index the index of a declared method.
+     * @return whether this method is not private, not a constructor or static initializer, and not
+     *     a static interface method.
+     */
+    boolean isInherited(final int index) {
+      int access = methodAccesses.get(index);
+      if ((access & Opcodes.ACC_PRIVATE) != 0) {
+        return false;
+      }
+      if (isInterface && (access & Opcodes.ACC_STATIC) != 0) {
+        return false;
+      }
+      return methodNames.get(index).charAt(0) != '<';
+    }
+  }
+
+  /** A task adding some classes to the enclosing builder. */
+  final class AddClassesTask implements Callable<Object> {
+
+    /** The contents of the class files to be added. */
+    final List<byte[]> classFiles;
+
+    /**
+     * Constructs a new {@link AddClassesTask}.
+     *
+     * @param classFiles the contents of the class files to be added.
+     */
+    AddClassesTask(final List<byte[]> classFiles) {
+      this.classFiles = classFiles;
+    }
+
+    @Override
+    public Object call() {
+      for (byte[] classFile : classFiles) {
+        addClass(classFile);
+      }
+      return null;
+    }
+  }
+
+  /** A union-find structure over integer nodes, with path halving and union by size. */
+  static final class UnionFind {
+
+    /** The parent of each node. Roots are their own parent. */
+    final int[] parents;
+
+    /** The size of the tree rooted at each root node. */
+    final int[] sizes;
+
+    /**
+     * Constructs a new {@link UnionFind} where each node is in its own set.
+     *
+     * @param size the number of nodes.
+     */
+    UnionFind(final int size) {
+      parents = new int[size];
+      sizes = new int[size];
+      for (int i = 0; i < size; ++i) {
+        parents[i] = i;
+        sizes[i] = 1;
+      }
+    }
+
+    /**
+     * Returns the root of the set containing the given node.
+     *
+     * @param node a node.
+     * @return the root of the set containing this node.
+     */
+    int find(final int node) {
+      int current = node;
+      while (parents[current] != current) {
+        parents[current] = parents[parents[current]];
+        current = parents[current];
+      }
+      return current;
+    }
+
+    /**
+     * Merges the sets containing the given nodes.
+     *
+     * @param node1 a node.
+     * @param node2 another node.
+     */
+    void union(final int node1, final int node2) {
+      int root1 = find(node1);
+      int root2 = find(node2);
+      if (root1 == root2) {
+        return;
+      }
+      if (sizes[root1] < sizes[root2]) {
+        parents[root1] = root2;
+        sizes[root2] += sizes[root1];
+      } else {
+        parents[root2] = root1;
+        sizes[root1] += sizes[root2];
+      }
+    }
+  }
+}
@@ -0,0 +1,428 @@
+// ASM: a very small and fast Java bytecode manipulation framework
+// Copyright (c) 2000-2011 INRIA, France Telecom
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+// 1. Redistributions of source code must retain the above copyright
+//    notice, this list of conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright
+//    notice, this list of conditions and the following disclaimer in the
+//    documentation and/or other materials provided with the distribution.
+// 3. Neither the name of the copyright holders nor the names of its
+//    contributors may be used to endorse or promote products derived from
+//    this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+// THE POSSIBILITY OF SUCH DAMAGE.
+package org.objectweb.asm.commons;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.objectweb.asm.Opcodes;
+
+/**
+ * A {@link Remapper} using mapping tables keyed with structured (owner, name, descriptor) tuples.
+ * Unlike {@link SimpleRemapper}, looking up a field or method name does not concatenate its owner,
+ * name and descriptor, and therefore does not allocate any object. The mappings can be added one by
+ * one, or loaded from ProGuard, Tiny (v1 and v2) and SRG mapping files. In all cases the owners and
+ * descriptors of the mapped members must use the old class names.
+ */
+public class MappingRemapper extends Remapper {
+
+  /** The new internal names of the mapped classes, indexed by their old internal name. */
+  public final Map<String, String> classMapping;
+
+  /** The new names of the mapped packages (using dots), indexed by their old name. */
+  public final Map<String, String> packageMapping;
+
+  /** The new names of the mapped fields, indexed by their owner and name. */
+  public final MemberNameTable fieldMapping;
+
+  /** The new names of the mapped methods, indexed by their owner, name and descriptor. */
+  public final MemberNameTable methodMapping;
+
+  /**
+   * The new names of the mapped annotation attributes, indexed by the descriptor of their
+   * annotation and by their name. These entries are derived from the methods without arguments of
+   * {@link #methodMapping}.
+   */
+  public final MemberNameTable annotationAttributeMapping;
+
+  /** Constructs a new {@link MappingRemapper}, without any mapping. */
+  public MappingRemapper() {
+    classMapping = new HashMap<String, String>();
+    packageMapping = new HashMap<String, String>();
+    fieldMapping = new MemberNameTable();
+    methodMapping = new MemberNameTable();
+    annotationAttributeMapping = new MemberNameTable();
+  }
+
+  // -----------------------------------------------------------------------------------------------
+  // Mappings
+  // -----------------------------------------------------------------------------------------------
+
+  /**
+   * Adds a class mapping.
+   *
+   * @param internalName the old internal name of a class.
+   * @param newInternalName the new internal name of this class.
+   */
+  public void addClassMapping(final String internalName, final String newInternalName) {
+    classMapping.put(internalName, newInternalName);
+  }
+
+  /**
+   * Adds a package mapping.
+   *
+   * @param packageName the old fully qualified name of a package (using dots).
+   * @param newPackageName the new fully qualified name of this package (using dots).
+   */
+  public void addPackageMapping(final String packageName, final String newPackageName) {
+    packageMapping.put(packageName, newPackageName);
+  }
+
+  /**
+   * Adds a field mapping. Fields are identified by their owner and name only, like in {@link
+   * SimpleRemapper}. Record components use the mapping of the corresponding field.
+   *
+   * @param owner the old internal name of the owner class of the field.
+   * @param name the old name of the field.
+   * @param newName the new name of the field.
+   */
+  public void addFieldMapping(final String owner, final String name, final String newName) {
+    fieldMapping.put(owner, name, null, newName);
+  }
+
+  /**
+   * Adds a method mapping. If the method has no argument, the mapping is also used for the
+   * annotation attribute with the same name, in case the owner is an annotation.
+   *
+   * @param owner the old internal name of the owner class of the method, or {@literal null} for an
+   *     invokedynamic or constant dynamic method name.
+   * @param name the old name of the method.
+   * @param descriptor the old descriptor of the method.
+   * @param newName the new name of the method.
+   */
+  public void addMethodMapping(
+      final String owner, final String name, final String descriptor, final String newName) {
+    methodMapping.put(owner, name, descriptor, newName);
+    if (owner != null && descriptor.startsWith("()")) {
+      annotationAttributeMapping.put('L' + owner + ';', name, null, newName);
+    }
+  }
+
+  // -----------------------------------------------------------------------------------------------
+  // Remapper methods
+  // -----------------------------------------------------------------------------------------------
+
+  @Override
+  public String mapMethodName(final String owner, final String name, final String descriptor) {
+    String remappedName = methodMapping.get(owner, name, descriptor);
+    return remappedName == null ? name : remappedName;
+  }
+
+  @Override
+  public String mapInvokeDynamicMethodName(final String name, final String descriptor) {
+    String remappedName = methodMapping.get(null, name, descriptor);
+    return remappedName == null ? name : remappedName;
+  }
+
+  @Override
+  public String mapAnnotationAttributeName(final String descriptor, final String name) {
+    String remappedName = annotationAttributeMapping.get(descriptor, name, null);
+    return remappedName == null ? name : remappedName;
+  }
+
+  @Override
+  public String mapRecordComponentName(
+      final String owner, final String name, final String descriptor) {
+    return mapFieldName(owner, name, descriptor);
+  }
+
+  @Override
+  public String mapFieldName(final String owner, final String name, final String descriptor) {
+    String remappedName = fieldMapping.get(owner, name, null);
+    return remappedName == null ? name : remappedName;
+  }
+
+  @Override
+  public String mapPackageName(final String name) {
+    String remappedName = packageMapping.get(name);
+    return remappedName == null ? name : remappedName;
+  }
+
+  @Override
+  public String map(final String internalName) {
+    return classMapping.get(internalName);
+  }
+
+  // -----------------------------------------------------------------------------------------------
+  // Mapping file readers
+  // -----------------------------------------------------------------------------------------------
+
+  /**
+   * Reads the mappings of a ProGuard (or R8) mapping file, from the original names to the
+   * obfuscated names. The methods inlined from other classes are ignored.
+   *
+   * @param reader a reader of a ProGuard mapping file.
+   * @throws IOException if the mapping file can't be read.
+   */
+  public void readProGuardMapping(final Reader reader) throws IOException {
+    BufferedReader bufferedReader = new BufferedReader(reader);
+    String currentClass = null;
+    String line;
+    while ((line = bufferedReader.readLine()) != null) {
+      String trimmedLine = line.trim();
+      int arrowIndex = trimmedLine.indexOf(" -> ");
+      if (trimmedLine.length() == 0 || trimmedLine.charAt(0) == '#' || arrowIndex == -1) {
+        continue;
+      }
+      String newName = trimmedLine.substring(arrowIndex + 4).trim();
+      if (!Character.isWhitespace(line.charAt(0))) {
+        // A class line, of the form "com.example.Foo -> a.b:".
+        if (newName.endsWith(":")) {
+          newName = newName.substring(0, newName.length() - 1);
+        }
+        currentClass = trimmedLine.substring(0, arrowIndex).replace('.', '/');
+        addClassMapping(currentClass, newName.replace('.', '/'));
+        continue;
+      }
+      if (currentClass == null) {
+        throw new IllegalArgumentException("Member mapping without class: " + line);
+      }
+      // A member line, of the form "[startLine:endLine:]type name[(arguments)[:lines]] -> newName".
+      String member = trimmedLine.substring(0, arrowIndex);
+      while (member.length() > 0 && Character.isDigit(member.charAt(0))) {
+        member = member.substring(member.indexOf(':') + 1);
+      }
+      int spaceIndex = member.indexOf(' ');
+      String type = member.substring(0, spaceIndex);
+      int openParenIndex = member.indexOf('(', spaceIndex);
+      if (openParenIndex == -1) {
+        addFieldMapping(currentClass, member.substring(spaceIndex + 1), newName);
+        continue;
+      }
+      String name = member.substring(spaceIndex + 1, openParenIndex);
+      if (name.indexOf('.') != -1) {
+        // A method inlined from another class.
+        continue;
+      }
+      StringBuilder descriptor = new StringBuilder("(");
+      String arguments = member.substring(openParenIndex + 1, member.indexOf(')', openParenIndex));
+      if (arguments.length() > 0) {
+        for (String argument : arguments.split(",")) {
+          appendDescriptor(argument.trim(), descriptor);
+        }
+      }
+      descriptor.append(')');
+      appendDescriptor(type, descriptor);
+      addMethodMapping(currentClass, name, descriptor.toString(), newName);
+    }
+  }
+
+  /**
+   * Appends the descriptor of a Java type to the given string builder.
+   *
+   * @param javaType a Java type name, such as "int", "java.lang.String" or "java.lang.Object[][]".
+   * @param stringBuilder the string builder to which the descriptor must be appended.
+   */
+  static void appendDescriptor(final String javaType, final StringBuilder stringBuilder) {
+    String elementType = javaType;
+    while (elementType.endsWith("[]")) {
+      stringBuilder.append('[');
+      elementType = elementType.substring(0, elementType.length() - 2);
+    }
+    if (elementType.equals("void")) {
+      stringBuilder.append('V');
+    } else if (elementType.equals("boolean")) {
+      stringBuilder.append('Z');
+    } else if (elementType.equals("byte")) {
+      stringBuilder.append('B');
+    } else if (elementType.equals("char")) {
+      stringBuilder.append('C');
+    } else if (elementType.equals("short")) {
+      stringBuilder.append('S');
+    } else if (elementType.equals("int")) {
+      stringBuilder.append('I');
+    } else if (elementType.equals("long")) {
+      stringBuilder.append('J');
+    } else if (elementType.equals("float")) {
+      stringBuilder.append('F');
+    } else if (elementType.equals("double")) {
+      stringBuilder.append('D');
+    } else {
+      stringBuilder.append('L').append(elementType.replace('.', '/')).append(';');
+    }
+  }
+
+  /**
+   * Reads the mappings of a Tiny mapping file, in version 1 or 2, between two of its namespaces.
+   * Method parameters, local variables and comments are ignored.
+   *
+   * @param reader a reader of a Tiny mapping file.
+   * @param fromNamespace the namespace of the old names (e.g. "official").
+   * @param toNamespace the namespace of the new names (e.g. "named").
+   * @throws IOException if the mapping file can't be read.
+   */
+  public void readTinyMapping(
+      final Reader reader, final String fromNamespace, final String toNamespace)
+      throws IOException {
+    BufferedReader bufferedReader = new BufferedReader(reader);
+    String header = bufferedReader.readLine();
+    String[] headerFields = header == null ? new String[0] : header.split("\t");
+    int firstNamespaceIndex;
+    boolean isVersion1;
+    if (headerFields.length >= 3 && headerFields[0].equals("v1")) {
+      firstNamespaceIndex = 1;
+      isVersion1 = true;
+    } else if (headerFields.length >= 5
+        && headerFields[0].equals("tiny")
+        && headerFields[1].equals("2")) {
+      firstNamespaceIndex = 3;
+      isVersion1 = false;
+    } else {
+      throw new IllegalArgumentException("Unsupported Tiny mapping header: " + header);
+    }
+    int fromIndex = -1;
+    int toIndex = -1;
+    for (int i = firstNamespaceIndex; i < headerFields.length; ++i) {
+      if (headerFields[i].equals(fromNamespace)) {
+        fromIndex = i - firstNamespaceIndex;
+      }
+      if (headerFields[i].equals(toNamespace)) {
+        toIndex = i - firstNamespaceIndex;
+      }
+    }
+    if (fromIndex == -1 || toIndex == -1) {
+      throw new IllegalArgumentException(
+          "Unknown Tiny namespace: " + (fromIndex == -1 ? fromNamespace : toNamespace));
+    }
+
+    // The owners and descriptors of the members are given in the first namespace, so all the
+    // entries must be read before they can be converted to the 'from' namespace.
+    Map<String, String[]> classNames = new HashMap<String, String[]>();
+    List<String[]> fields = new ArrayList<String[]>();
+    List<String[]> methods = new ArrayList<String[]>();
+    String currentClass = null;
+    String line;
+    while ((line = bufferedReader.readLine()) != null) {
+      String[] lineFields = line.split("\t", -1);
+      if (isVersion1) {
+        if (lineFields[0].equals("CLASS")) {
+          classNames.put(lineFields[1], copyNames(lineFields, 1));
+        } else if (lineFields[0].equals("FIELD") || lineFields[0].equals("METHOD")) {
+          // Each member is stored as {owner, descriptor, names...}.
+          (lineFields[0].equals("FIELD") ? fields : methods).add(copyNames(lineFields, 1));
+        }
+      } else if (lineFields[0].equals("c")) {
+        currentClass = lineFields[1];
+        classNames.put(currentClass, copyNames(lineFields, 1));
+      } else if (lineFields.length > 2
+          && lineFields[0].length() == 0
+          && (lineFields[1].equals("f") || lineFields[1].equals("m"))) {
+        String[] member = new String[lineFields.length - 1];
+        member[0] = currentClass;
+        System.arraycopy(lineFields, 2, member, 1, lineFields.length - 2);
+        (lineFields[1].equals("f") ? fields : methods).add(member);
+      }
+    }
+
+    Map<String, String> fromClassNames = new HashMap<String, String>();
+    for (Map.Entry<String, String[]> entry : classNames.entrySet()) {
+      String[] names = entry.getValue();
+      String fromName = getName(names, fromIndex, entry.getKey());
+      String toName = getName(names, toIndex, fromName);
+      fromClassNames.put(entry.getKey(), fromName);
+      addClassMapping(fromName, toName);
+    }
+    Remapper fromRemapper = new SimpleRemapper(Opcodes.ASM9, fromClassNames);
+    for (String[] field : fields) {
+      String fromName = getName(field, fromIndex + 2, field[2]);
+      addFieldMapping(
+          fromRemapper.mapType(field[0]), fromName, getName(field, toIndex + 2, fromName));
+    }
+    for (String[] method : methods) {
+      String fromName = getName(method, fromIndex + 2, method[2]);
+      addMethodMapping(
+          fromRemapper.mapType(method[0]),
+          fromName,
+          fromRemapper.mapMethodDesc(method[1]),
+          getName(method, toIndex + 2, fromName));
+    }
+  }
+
+  /**
+   * Returns a copy of the given array, starting at the given index.
+   *
+   * @param fields an array of strings.
+   * @param startIndex the index of the first element to copy.
+   * @return a copy of the elements of fields starting at startIndex.
+   */
+  static String[] copyNames(final String[] fields, final int startIndex) {
+    String[] names = new String[fields.length - startIndex];
+    System.arraycopy(fields, startIndex, names, 0, names.length);
+    return names;
+  }
+
+  /**
+   * Returns a name of a Tiny mapping entry.
+   *
+   * @param names the names of a Tiny mapping entry.
+   * @param index the index of the name to return.
+   * @param defaultName the name to return if this name is missing or empty.
+   * @return the name at the given index, or defaultName if it is missing or empty.
+   */
+  static String getName(final String[] names, final int index, final String defaultName) {
+    return index < names.length && names[index].length() > 0 ? names[index] : defaultName;
+  }
+
+  /**
+   * Reads the mappings of an SRG mapping file. Package names are converted to use dots.
+   *
+   * @param reader a reader of an SRG mapping file.
+   * @throws IOException if the mapping file can't be read.
+   */
+  public void readSrgMapping(final Reader reader) throws IOException {
+    BufferedReader bufferedReader = new BufferedReader(reader);
+    String line;
+    while ((line = bufferedReader.readLine()) != null) {
+      String[] fields = line.trim().split(" +");
+      if (fields[0].equals("PK:") && fields.length >= 3) {
+        addPackageMapping(fields[1].replace('/', '.'), fields[2].replace('/', '.'));
+      } else if (fields[0].equals("CL:") && fields.length >= 3) {
+        addClassMapping(fields[1], fields[2]);
+      } else if (fields[0].equals("FD:") && fields.length >= 3) {
+        int index = fields[1].lastIndexOf('/');
+        addFieldMapping(
+            fields[1].substring(0, index),
+            fields[1].substring(index + 1),
+            fields[2].substring(fields[2].lastIndexOf('/') + 1));
+      } else if (fields[0].equals("MD:") && fields.length >= 5) {
+        int index = fields[1].lastIndexOf('/');
+        addMethodMapping(
+            fields[1].substring(0, index),
+            fields[1].substring(index + 1),
+            fields[2],
+            fields[3].substring(fields[3].lastIndexOf('/') + 1));
+      } else if (fields[0].length() > 0 && !fields[0].startsWith("#")) {
+        throw new IllegalArgumentException("Invalid SRG mapping line: " + line);
+      }
+    }
+  }
+}
@@ -0,0 +1,200 @@
+// ASM: a very small and fast Java bytecode manipulation framework
+// Copyright (c) 2000-2011 INRIA, France Telecom
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+// 1. Redistributions of source code must retain the above copyright
+//    notice, this list of conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright
+//    notice, this list of conditions and the following disclaimer in the
+//    documentation and/or other materials provided with the distribution.
+// 3. Neither the name of the copyright holders nor the names of its
+//    contributors may be used to endorse or promote products derived from
+//    this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+// THE POSSIBILITY OF SUCH DAMAGE.
+package org.objectweb.asm.commons;
+
+/**
+ * A hash table from (owner, name, descriptor) keys to new names. The keys are stored as separate
+ * strings and are never concatenated, so that lookups do not allocate any object (the hash codes of
+ * strings are cached by the {@link String} class). The table uses open addressing with linear
+ * probing, and its capacity is kept at least twice its size.
+ */
+public final class MemberNameTable {
+
+  /** The initial capacity of the table. Must be a power of two. */
+  public static final int INITIAL_CAPACITY = 16;
+
+  /** The owner of each entry (or {@literal null} if the entry has no owner). */
+  public String[] owners;
+
+  /** The name of each entry. */
+  public String[] names;
+
+  /** The descriptor of each entry (or {@literal null} if the entry has no descriptor). */
+  public String[] descriptors;
+
+  /** The new name of each entry, or {@literal null} for empty slots. */
+  public String[] newNames;
+
+  /** The hash code of the key of each entry. */
+  public int[] hashCodes;
+
+  /** The number of entries in this table. */
+  public int size;
+
+  /** Constructs a new, empty {@link MemberNameTable}. */
+  public MemberNameTable() {
+    allocate(INITIAL_CAPACITY);
+  }
+
+  /**
+   * Returns the number of entries in this table.
+   *
+   * @return the number of entries in this table.
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Returns the new name associated with the given key.
+   *
+   * @param owner the owner of the key, or {@literal null}.
+   * @param name the name of the key.
+   * @param descriptor the descriptor of the key, or {@literal null}.
+   * @return the new name associated with the given key, or {@literal null} if there is none.
+   */
+  public String get(final String owner, final String name, final String descriptor) {
+    if (size == 0) {
+      return null;
+    }
+    int hashCode = hash(owner, name, descriptor);
+    int mask = newNames.length - 1;
+    int index = hashCode & mask;
+    String newName;
+    while ((newName = newNames[index]) != null) {
+      if (hashCodes[index] == hashCode
+          && name.equals(names[index])
+          && equals(owner, owners[index])
+          && equals(descriptor, descriptors[index])) {
+        return newName;
+      }
+      index = (index + 1) & mask;
+    }
+    return null;
+  }
+
+  /**
+   * Associates a new name with the given key, replacing the previous one, if any.
+   *
+   * @param owner the owner of the key, or {@literal null}.
+   * @param name the name of the key.
+   * @param descriptor the descriptor of the key, or {@literal null}.
+   * @param newName the new name to associate with this key.
+   */
+  public void put(
+      final String owner, final String name, final String descriptor, final String newName) {
+    if (newName == null) {
+      throw new IllegalArgumentException("newName must not be null");
+    }
+    if (2 * (size + 1) > newNames.length) {
+      String[] oldOwners = owners;
+      String[] oldNames = names;
+      String[] oldDescriptors = descriptors;
+      String[] oldNewNames = newNames;
+      allocate(2 * oldNewNames.length);
+      for (int i = 0; i < oldNewNames.length; ++i) {
+        if (oldNewNames[i] != null) {
+          insert(oldOwners[i], oldNames[i], oldDescriptors[i], oldNewNames[i]);
+        }
+      }
+    }
+    if (insert(owner, name, descriptor, newName)) {
+      size++;
+    }
+  }
+
+  /**
+   * Allocates new, empty arrays for the entries of this table.
+   *
+   * @param capacity the capacity of the new arrays. Must be a power of two.
+   */
+  void allocate(final int capacity) {
+    owners = new String[capacity];
+    names = new String[capacity];
+    descriptors = new String[capacity];
+    newNames = new String[capacity];
+    hashCodes = new int[capacity];
+  }
+
+  /**
+   * Inserts an entry in the arrays of this table, without updating its size or growing it.
+   *
+   * @param owner the owner of the key, or {@literal null}.
+   * @param name the name of the key.
+   * @param descriptor the descriptor of the key, or {@literal null}.
+   * @param newName the new name to associate with this key.
+   * @return whether a new entry has been added (as opposed to an existing one being replaced).
+   */
+  boolean insert(
+      final String owner, final String name, final String descriptor, final String newName) {
+    int hashCode = hash(owner, name, descriptor);
+    int mask = newNames.length - 1;
+    int index = hashCode & mask;
+    while (newNames[index] != null) {
+      if (hashCodes[index] == hashCode
+          && name.equals(names[index])
+          && equals(owner, owners[index])
+          && equals(descriptor, descriptors[index])) {
+        newNames[index] = newName;
+        return false;
+      }
+      index = (index + 1) & mask;
+    }
+    owners[index] = owner;
+    names[index] = name;
+    descriptors[index] = descriptor;
+    newNames[index] = newName;
+    hashCodes[index] = hashCode;
+    return true;
+  }
+
+  /**
+   * Returns the hash code of a key.
+   *
+   * @param owner the owner of the key, or {@literal null}.
+   * @param name the name of the key.
+   * @param descriptor the descriptor of the key, or {@literal null}.
+   * @return the hash code of the given key.
+   */
+  static int hash(final String owner, final String name, final String descriptor) {
+    int hashCode = name.hashCode();
+    if (owner != null) {
+      hashCode = hashCode * 31 + owner.hashCode();
+    }
+    if (descriptor != null) {
+      hashCode = hashCode * 31 + descriptor.hashCode();
+    }
+    // Spread the high bits to the low ones, which are used to compute the slot indices.
+    hashCode *= 0x9E3779B9;
+    return hashCode ^ (hashCode >>> 16);
+  }
+
+  static boolean equals(final String string1, final String string2) {
+    return string1 == null ? string2 == null : string1.equals(string2);
+  }
+}
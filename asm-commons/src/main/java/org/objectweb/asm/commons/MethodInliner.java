@@ -0,0 +1,436 @@
+// ASM: a very small and fast Java bytecode manipulation framework
+// Copyright (c) 2000-2011 INRIA, France Telecom
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+// 1. Redistributions of source code must retain the above copyright
+//    notice, this list of conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright
+//    notice, this list of conditions and the following disclaimer in the
+//    documentation and/or other materials provided with the distribution.
+// 3. Neither the name of the copyright holders nor the names of its
+//    contributors may be used to endorse or promote products derived from
+//    this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+// THE POSSIBILITY OF SUCH DAMAGE.
+package org.objectweb.asm.commons;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.FrameNode;
+import org.objectweb.asm.tree.IincInsnNode;
+import org.objectweb.asm.tree.InsnList;
+import org.objectweb.asm.tree.InsnNode;
+import org.objectweb.asm.tree.JumpInsnNode;
+import org.objectweb.asm.tree.LabelNode;
+import org.objectweb.asm.tree.LineNumberNode;
+import org.objectweb.asm.tree.LocalVariableNode;
+import org.objectweb.asm.tree.MethodInsnNode;
+import org.objectweb.asm.tree.MethodNode;
+import org.objectweb.asm.tree.TryCatchBlockNode;
+import org.objectweb.asm.tree.VarInsnNode;
+import org.objectweb.asm.tree.analysis.Analyzer;
+import org.objectweb.asm.tree.analysis.AnalyzerException;
+import org.objectweb.asm.tree.analysis.BasicInterpreter;
+import org.objectweb.asm.tree.analysis.BasicValue;
+import org.objectweb.asm.tree.analysis.Frame;
+import org.objectweb.asm.tree.analysis.SourceInterpreter;
+import org.objectweb.asm.tree.analysis.SourceValue;
+
+/**
+ * Inlines the calls to the small private methods of a class. By default, the maximum code size of
+ * an inlined method is the HotSpot {@code MaxInlineSize}, i.e. the size below which a method is
+ * always inlined by the JIT compiler, whatever its invocation count. Inlining these methods at the
+ * bytecode level saves inlining levels and budget for the JIT compiler.
+ *
+ * <p>Only the method instructions calling a private, non synchronized method of the same class are
+ * inlined (with INVOKESTATIC, INVOKESPECIAL, or INVOKEVIRTUAL and INVOKEINTERFACE, used by javac 11
+ * and later for private instance methods), and only if the inlined code can be executed in the
+ * calling method with the same semantics. In particular the calls with values below the arguments on the
+ * operand stack are not inlined if the callee contains exception handlers (since they clear the
+ * operand stack), and a null check is inserted for the receiver of inlined instance methods, unless
+ * it is the {@literal this} reference of the caller. The local variables of the inlined code are
+ * remapped to new local variables of the caller, after its original ones, and its returns are
+ * replaced with jumps to the end of the inlined code. Its try catch blocks are added before those
+ * of the caller, i.e. in innermost-to-outermost order (see {@link TryCatchBlockSorter}). The
+ * inlined methods are not removed from the class, and the calls contained in the inlined code are
+ * not themselves inlined.
+ *
+ * <p>The stack map frames of the methods into which some code is inlined are removed, which means
+ * that the class must then be written with {@link org.objectweb.asm.ClassWriter#COMPUTE_FRAMES}.
+ */
+public class MethodInliner {
+
+  /** The default maximum code size of an inlined method, equal to the HotSpot MaxInlineSize. */
+  public static final int DEFAULT_MAX_INLINED_SIZE = 35;
+
+  /** The maximum code size of the methods inlined by this inliner. */
+  public final int maxInlinedSize;
+
+  /** Constructs a new {@link MethodInliner} with the {@link #DEFAULT_MAX_INLINED_SIZE}. */
+  public MethodInliner() {
+    this(DEFAULT_MAX_INLINED_SIZE);
+  }
+
+  /**
+   * Constructs a new {@link MethodInliner}.
+   *
+   * @param maxInlinedSize the maximum code size of the methods inlined by this inliner, in bytes.
+   * @throws IllegalArgumentException if maxInlinedSize is negative.
+   */
+  public MethodInliner(final int maxInlinedSize) {
+    if (maxInlinedSize < 0) {
+      throw new IllegalArgumentException("Invalid maximum inlined size: " + maxInlinedSize);
+    }
+    this.maxInlinedSize = maxInlinedSize;
+  }
+
+  /**
+   * Inlines the calls to the small private methods of the given class, in all its methods.
+   *
+   * @param classNode a class.
+   * @return the number of inlined calls.
+   * @throws IllegalArgumentException if a method of the class is invalid.
+   */
+  public int inline(final ClassNode classNode) {
+    Map<MethodNode, Boolean> inlinableMethods = new HashMap<MethodNode, Boolean>();
+    int numInlinedCalls = 0;
+    for (MethodNode methodNode : classNode.methods) {
+      numInlinedCalls += inline(classNode, methodNode, inlinableMethods);
+    }
+    return numInlinedCalls;
+  }
+
+  /**
+   * Inlines the calls to the small private methods of the given class, in the given method.
+   *
+   * @param classNode a class.
+   * @param methodNode a method of classNode.
+   * @return the number of inlined calls.
+   * @throws IllegalArgumentException if the method, or a method to inline, is invalid.
+   */
+  public int inline(final ClassNode classNode, final MethodNode methodNode) {
+    return inline(classNode, methodNode, new HashMap<MethodNode, Boolean>());
+  }
+
+  /**
+   * Inlines the calls to the small private methods of the given class, in the given method.
+   *
+   * @param classNode a class.
+   * @param methodNode a method of classNode.
+   * @param inlinableMethods the methods already known to be inlinable or not.
+   * @return the number of inlined calls.
+   */
+  private int inline(
+      final ClassNode classNode,
+      final MethodNode methodNode,
+      final Map<MethodNode, Boolean> inlinableMethods) {
+    if (methodNode.instructions.size() == 0) {
+      return 0;
+    }
+    // Find the calls which can be inlined, if any.
+    List<MethodInsnNode> callInsns = new ArrayList<MethodInsnNode>();
+    List<MethodNode> callees = new ArrayList<MethodNode>();
+    for (AbstractInsnNode insnNode : methodNode.instructions) {
+      if (insnNode instanceof MethodInsnNode) {
+        MethodInsnNode methodInsn = (MethodInsnNode) insnNode;
+        MethodNode callee = getCallee(classNode, methodInsn);
+        if (callee != null
+            && callee != methodNode
+            && isInlinable(classNode, callee, inlinableMethods)) {
+          callInsns.add(methodInsn);
+          callees.add(callee);
+        }
+      }
+    }
+    if (callInsns.isEmpty()) {
+      return 0;
+    }
+
+    // Find the operand stack at each call site.
+    Frame<SourceValue>[] frames;
+    try {
+      frames =
+          new Analyzer<SourceValue>(new SourceInterpreter()).analyze(classNode.name, methodNode);
+    } catch (AnalyzerException e) {
+      throw new IllegalArgumentException(e);
+    }
+    int[] callIndices = new int[callInsns.size()];
+    for (int i = 0; i < callIndices.length; ++i) {
+      callIndices[i] = methodNode.instructions.indexOf(callInsns.get(i));
+    }
+    boolean isThisReassigned = (methodNode.access & Opcodes.ACC_STATIC) != 0;
+    for (AbstractInsnNode insnNode : methodNode.instructions) {
+      if ((insnNode.getOpcode() == Opcodes.ASTORE && ((VarInsnNode) insnNode).var == 0)
+          || (insnNode instanceof IincInsnNode && ((IincInsnNode) insnNode).var == 0)) {
+        isThisReassigned = true;
+      }
+    }
+
+    // Inline the calls, all using the same new local variables after the original ones.
+    int firstLocal = methodNode.maxLocals;
+    int maxCalleeLocals = 0;
+    int maxCalleeStack = 0;
+    List<TryCatchBlockNode> inlinedTryCatchBlocks = new ArrayList<TryCatchBlockNode>();
+    int numInlinedCalls = 0;
+    for (int i = 0; i < callIndices.length; ++i) {
+      Frame<SourceValue> frame = frames[callIndices[i]];
+      MethodInsnNode callInsn = callInsns.get(i);
+      MethodNode callee = callees.get(i);
+      if (frame == null) {
+        continue;
+      }
+      int numArguments = Type.getArgumentTypes(callee.desc).length;
+      boolean isStatic = callInsn.getOpcode() == Opcodes.INVOKESTATIC;
+      int numParameters = isStatic ? numArguments : numArguments + 1;
+      if (!callee.tryCatchBlocks.isEmpty() && frame.getStackSize() > numParameters) {
+        continue;
+      }
+      boolean needsNullCheck = !isStatic;
+      if (!isStatic && !isThisReassigned) {
+        needsNullCheck = false;
+        for (AbstractInsnNode source : frame.getStack(frame.getStackSize() - numParameters).insns) {
+          if (source.getOpcode() != Opcodes.ALOAD || ((VarInsnNode) source).var != 0) {
+            needsNullCheck = true;
+          }
+        }
+      }
+      inline(methodNode, callInsn, callee, firstLocal, needsNullCheck, inlinedTryCatchBlocks);
+      maxCalleeLocals = Math.max(maxCalleeLocals, callee.maxLocals);
+      maxCalleeStack = Math.max(maxCalleeStack, Math.max(callee.maxStack, 2));
+      numInlinedCalls++;
+    }
+    if (numInlinedCalls == 0) {
+      return 0;
+    }
+    inlinableMethods.remove(methodNode);
+
+    // Update the try catch blocks, maxs and frames of the caller.
+    methodNode.tryCatchBlocks.addAll(0, inlinedTryCatchBlocks);
+    for (int i = 0; i < methodNode.tryCatchBlocks.size(); ++i) {
+      methodNode.tryCatchBlocks.get(i).updateIndex(i);
+    }
+    methodNode.maxLocals = firstLocal + maxCalleeLocals;
+    methodNode.maxStack += maxCalleeStack;
+    for (AbstractInsnNode insnNode : methodNode.instructions.toArray()) {
+      if (insnNode instanceof FrameNode) {
+        methodNode.instructions.remove(insnNode);
+      }
+    }
+    return numInlinedCalls;
+  }
+
+  /**
+   * Returns the private method of the given class called by the given instruction.
+   *
+   * @param classNode a class.
+   * @param methodInsn a method instruction.
+   * @return the private method of classNode called by methodInsn, or {@literal null} if it does not
+   *     call a private method of this class.
+   */
+  private static MethodNode getCallee(final ClassNode classNode, final MethodInsnNode methodInsn) {
+    if (!methodInsn.owner.equals(classNode.name)) {
+      return null;
+    }
+    // A private method is always the selected method of the INVOKESPECIAL, INVOKEVIRTUAL or
+    // INVOKEINTERFACE instructions which resolve to it (JVMS 6.5), so all of them can be inlined.
+    boolean isStatic = methodInsn.getOpcode() == Opcodes.INVOKESTATIC;
+    for (MethodNode methodNode : classNode.methods) {
+      if (methodNode.name.equals(methodInsn.name)
+          && methodNode.desc.equals(methodInsn.desc)
+          && (methodNode.access & Opcodes.ACC_PRIVATE) != 0
+          && ((methodNode.access & Opcodes.ACC_STATIC) != 0) == isStatic) {
+        return methodNode;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Returns whether the given method can be inlined.
+   *
+   * @param classNode the class containing the method.
+   * @param methodNode a private method of classNode.
+   * @param inlinableMethods the methods already known to be inlinable or not. Updated by this
+   *     method.
+   * @return whether methodNode can be inlined.
+   */
+  private boolean isInlinable(
+      final ClassNode classNode,
+      final MethodNode methodNode,
+      final Map<MethodNode, Boolean> inlinableMethods) {
+    Boolean isInlinable = inlinableMethods.get(methodNode);
+    if (isInlinable == null) {
+      isInlinable = Boolean.valueOf(computeIsInlinable(classNode, methodNode));
+      inlinableMethods.put(methodNode, isInlinable);
+    }
+    return isInlinable.booleanValue();
+  }
+
+  /**
+   * Returns whether the given method can be inlined.
+   *
+   * @param classNode the class containing the method.
+   * @param methodNode a private method of classNode.
+   * @return whether methodNode can be inlined.
+   */
+  private boolean computeIsInlinable(final ClassNode classNode, final MethodNode methodNode) {
+    if ((methodNode.access & (Opcodes.ACC_ABSTRACT | Opcodes.ACC_NATIVE | Opcodes.ACC_SYNCHRONIZED))
+            != 0
+        || methodNode.name.charAt(0) == '<'
+        || methodNode.instructions.size() == 0
+        || MethodSplitter.getCodeSize(methodNode) > maxInlinedSize) {
+      return false;
+    }
+    for (AbstractInsnNode insnNode : methodNode.instructions) {
+      int opcode = insnNode.getOpcode();
+      if (opcode == Opcodes.JSR || opcode == Opcodes.RET) {
+        return false;
+      }
+    }
+    // The operand stack must only contain the return value at each return instruction, since the
+    // other values are not discarded when the return is replaced with a jump.
+    Frame<BasicValue>[] frames;
+    try {
+      frames = new Analyzer<BasicValue>(new BasicInterpreter()).analyze(classNode.name, methodNode);
+    } catch (AnalyzerException e) {
+      throw new IllegalArgumentException(e);
+    }
+    int returnStackSize = Type.getReturnType(methodNode.desc) == Type.VOID_TYPE ? 0 : 1;
+    AbstractInsnNode[] insnNodes = methodNode.instructions.toArray();
+    for (int i = 0; i < insnNodes.length; ++i) {
+      int opcode = insnNodes[i].getOpcode();
+      if (opcode >= Opcodes.IRETURN
+          && opcode <= Opcodes.RETURN
+          && frames[i] != null
+          && frames[i].getStackSize() != returnStackSize) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Replaces the given call instruction with the code of the called method.
+   *
+   * @param methodNode the caller.
+   * @param callInsn the call instruction to replace.
+   * @param callee the called method.
+   * @param firstLocal the local variable of the caller corresponding to the first local variable of
+   *     the callee.
+   * @param needsNullCheck whether a null check must be inserted for the receiver of the call.
+   * @param inlinedTryCatchBlocks where the try catch blocks of the inlined code must be added.
+   */
+  private static void inline(
+      final MethodNode methodNode,
+      final MethodInsnNode callInsn,
+      final MethodNode callee,
+      final int firstLocal,
+      final boolean needsNullCheck,
+      final List<TryCatchBlockNode> inlinedTryCatchBlocks) {
+    Map<LabelNode, LabelNode> labels = new HashMap<LabelNode, LabelNode>();
+    AbstractInsnNode lastInsn = null;
+    for (AbstractInsnNode insnNode : callee.instructions) {
+      if (insnNode instanceof LabelNode) {
+        labels.put((LabelNode) insnNode, new LabelNode());
+      } else if (insnNode.getOpcode() != -1) {
+        lastInsn = insnNode;
+      }
+    }
+
+    // Store the arguments, and the receiver if any, in the remapped parameters of the callee.
+    InsnList inlinedInsns = new InsnList();
+    boolean isStatic = callInsn.getOpcode() == Opcodes.INVOKESTATIC;
+    Type[] argumentTypes = Type.getArgumentTypes(callee.desc);
+    int local = firstLocal + (isStatic ? 0 : 1);
+    int[] argumentLocals = new int[argumentTypes.length];
+    for (int i = 0; i < argumentTypes.length; ++i) {
+      argumentLocals[i] = local;
+      local += argumentTypes[i].getSize();
+    }
+    for (int i = argumentTypes.length - 1; i >= 0; --i) {
+      inlinedInsns.add(
+          new VarInsnNode(argumentTypes[i].getOpcode(Opcodes.ISTORE), argumentLocals[i]));
+    }
+    if (!isStatic) {
+      if (needsNullCheck) {
+        inlinedInsns.add(new InsnNode(Opcodes.DUP));
+        inlinedInsns.add(
+            new MethodInsnNode(
+                Opcodes.INVOKEVIRTUAL,
+                "java/lang/Object",
+                "getClass",
+                "()Ljava/lang/Class;",
+                false));
+        inlinedInsns.add(new InsnNode(Opcodes.POP));
+      }
+      inlinedInsns.add(new VarInsnNode(Opcodes.ASTORE, firstLocal));
+    }
+
+    // Copy the code of the callee, with its local variables remapped and its returns replaced with
+    // jumps to its end. Its line numbers, frames and instruction annotations are removed.
+    LabelNode endLabel = new LabelNode();
+    for (AbstractInsnNode insnNode : callee.instructions) {
+      int opcode = insnNode.getOpcode();
+      if (insnNode instanceof LineNumberNode || insnNode instanceof FrameNode) {
+        continue;
+      } else if (opcode >= Opcodes.IRETURN && opcode <= Opcodes.RETURN) {
+        if (insnNode != lastInsn) {
+          inlinedInsns.add(new JumpInsnNode(Opcodes.GOTO, endLabel));
+        }
+        continue;
+      }
+      AbstractInsnNode clone = insnNode.clone(labels);
+      if (clone instanceof VarInsnNode) {
+        ((VarInsnNode) clone).var += firstLocal;
+      } else if (clone instanceof IincInsnNode) {
+        ((IincInsnNode) clone).var += firstLocal;
+      }
+      clone.visibleTypeAnnotations = null;
+      clone.invisibleTypeAnnotations = null;
+      inlinedInsns.add(clone);
+    }
+    inlinedInsns.add(endLabel);
+
+    for (TryCatchBlockNode tryCatchBlock : callee.tryCatchBlocks) {
+      inlinedTryCatchBlocks.add(
+          new TryCatchBlockNode(
+              labels.get(tryCatchBlock.start),
+              labels.get(tryCatchBlock.end),
+              labels.get(tryCatchBlock.handler),
+              tryCatchBlock.type));
+    }
+    if (callee.localVariables != null && methodNode.localVariables != null) {
+      for (LocalVariableNode localVariable : callee.localVariables) {
+        methodNode.localVariables.add(
+            new LocalVariableNode(
+                localVariable.name,
+                localVariable.desc,
+                localVariable.signature,
+                labels.get(localVariable.start),
+                labels.get(localVariable.end),
+                localVariable.index + firstLocal));
+      }
+    }
+    methodNode.instructions.insert(callInsn, inlinedInsns);
+    methodNode.instructions.remove(callInsn);
+  }
+}
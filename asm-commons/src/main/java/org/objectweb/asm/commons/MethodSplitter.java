@@ -0,0 +1,1300 @@
+// ASM: a very small and fast Java bytecode manipulation framework
+// Copyright (c) 2000-2011 INRIA, France Telecom
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+// 1. Redistributions of source code must retain the above copyright
+//    notice, this list of conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright
+//    notice, this list of conditions and the following disclaimer in the
+//    documentation and/or other materials provided with the distribution.
+// 3. Neither the name of the copyright holders nor the names of its
+//    contributors may be used to endorse or promote products derived from
+//    this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+// THE POSSIBILITY OF SUCH DAMAGE.
+package org.objectweb.asm.commons;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.FrameNode;
+import org.objectweb.asm.tree.IincInsnNode;
+import org.objectweb.asm.tree.InsnList;
+import org.objectweb.asm.tree.InsnNode;
+import org.objectweb.asm.tree.IntInsnNode;
+import org.objectweb.asm.tree.JumpInsnNode;
+import org.objectweb.asm.tree.LabelNode;
+import org.objectweb.asm.tree.LdcInsnNode;
+import org.objectweb.asm.tree.LineNumberNode;
+import org.objectweb.asm.tree.LocalVariableAnnotationNode;
+import org.objectweb.asm.tree.LocalVariableNode;
+import org.objectweb.asm.tree.LookupSwitchInsnNode;
+import org.objectweb.asm.tree.MethodInsnNode;
+import org.objectweb.asm.tree.MethodNode;
+import org.objectweb.asm.tree.TableSwitchInsnNode;
+import org.objectweb.asm.tree.TryCatchBlockNode;
+import org.objectweb.asm.tree.TypeInsnNode;
+import org.objectweb.asm.tree.VarInsnNode;
+import org.objectweb.asm.tree.analysis.Analyzer;
+import org.objectweb.asm.tree.analysis.AnalyzerException;
+import org.objectweb.asm.tree.analysis.BasicInterpreter;
+import org.objectweb.asm.tree.analysis.BasicValue;
+import org.objectweb.asm.tree.analysis.ControlFlowGraph;
+import org.objectweb.asm.tree.analysis.Frame;
+import org.objectweb.asm.tree.analysis.Interpreter;
+import org.objectweb.asm.tree.analysis.LivenessAnalysis;
+
+/**
+ * Splits the methods whose code is too large into several methods. By default, the maximum code
+ * size is the HotSpot {@code HugeMethodLimit}, i.e. the size above which a method is never compiled
+ * by the JIT compiler. Larger values, up to 65535, can be used to avoid a {@link
+ * org.objectweb.asm.MethodTooLargeException}.
+ *
+ * <p>A method is split by extracting some of its single entry, single exit regions into private
+ * static helper methods, added to the same class. A region is a sequence of instructions starting
+ * and ending with an empty operand stack, such that all the jumps into the region target its first
+ * instruction, all the jumps out of it target the instruction following it, and all its try catch
+ * blocks are either fully inside the region (including their handler) or fully outside (possibly
+ * covering the whole region). The region must not contain return, monitor, JSR, RET and super
+ * method call instructions. The region is replaced with a call to the helper method, whose
+ * parameters are the local variables which are live at the start of the region, and whose return
+ * value is the local variable which is written in the region and live after it, or an {@code
+ * Object[]} array if there are several such variables. Regions whose live local variables have an
+ * unknown type (an uninitialized or null value, or a merge of different reference types) can't be
+ * extracted.
+ *
+ * <p>The methods can be split with or without stack map frames. In the first case their frames must
+ * be expanded (see {@link org.objectweb.asm.ClassReader#EXPAND_FRAMES}), and they are updated so
+ * that the class can be written with {@link org.objectweb.asm.ClassWriter#COMPUTE_MAXS}. In the
+ * second case the types of the local variables are inferred with an {@link Analyzer}, and the class
+ * must be written with {@link org.objectweb.asm.ClassWriter#COMPUTE_FRAMES}.
+ */
+public class MethodSplitter {
+
+  /** The default maximum code size of a method, equal to the HotSpot HugeMethodLimit value. */
+  public static final int DEFAULT_MAX_METHOD_SIZE = 8000;
+
+  /** The minimum code size of an extracted region. */
+  public static final int MIN_REGION_SIZE = 64;
+
+  /** The maximum number of parameter slots of a static method. */
+  private static final int MAX_PARAMETER_SLOTS = 255;
+
+  /** The maximum code size of the methods produced by this splitter. */
+  public final int maxMethodSize;
+
+  /** Constructs a new {@link MethodSplitter} with the {@link #DEFAULT_MAX_METHOD_SIZE}. */
+  public MethodSplitter() {
+    this(DEFAULT_MAX_METHOD_SIZE);
+  }
+
+  /**
+   * Constructs a new {@link MethodSplitter}.
+   *
+   * @param maxMethodSize the maximum code size of the methods produced by this splitter, in bytes.
+   * @throws IllegalArgumentException if maxMethodSize is less than {@link #MIN_REGION_SIZE}.
+   */
+  public MethodSplitter(final int maxMethodSize) {
+    if (maxMethodSize < MIN_REGION_SIZE) {
+      throw new IllegalArgumentException("Invalid maximum method size: " + maxMethodSize);
+    }
+    this.maxMethodSize = maxMethodSize;
+  }
+
+  /**
+   * Splits the methods of the given class whose code is larger than {@link #maxMethodSize}. The
+   * split methods are modified in place, and the helper methods are added to the class.
+   *
+   * @param classNode a class.
+   * @return the helper methods added to the class.
+   * @throws IllegalArgumentException if a method to split has compressed frames, or is invalid.
+   */
+  public List<MethodNode> split(final ClassNode classNode) {
+    List<MethodNode> helperMethods = new ArrayList<MethodNode>();
+    for (MethodNode methodNode : new ArrayList<MethodNode>(classNode.methods)) {
+      helperMethods.addAll(split(classNode, methodNode));
+    }
+    return helperMethods;
+  }
+
+  /**
+   * Splits the given method if its code is larger than {@link #maxMethodSize}. The method is
+   * modified in place, and the helper methods are added to the class. The code of the split method
+   * can remain larger than {@link #maxMethodSize} if not enough regions can be extracted.
+   *
+   * @param classNode the class containing the method.
+   * @param methodNode a method of classNode.
+   * @return the helper methods added to the class.
+   * @throws IllegalArgumentException if the method has compressed frames, or is invalid.
+   */
+  public List<MethodNode> split(final ClassNode classNode, final MethodNode methodNode) {
+    List<MethodNode> helperMethods = new ArrayList<MethodNode>();
+    if ((classNode.access & Opcodes.ACC_INTERFACE) != 0
+        && (classNode.version & 0xFFFF) < Opcodes.V9) {
+      // Private static interface methods require Java 9.
+      return helperMethods;
+    }
+    while (methodNode.instructions.size() > 0 && getCodeSize(methodNode) > maxMethodSize) {
+      RegionExtractor regionExtractor = new RegionExtractor(classNode, methodNode);
+      List<Region> regions = regionExtractor.findRegions(maxMethodSize);
+      if (regions.isEmpty()) {
+        break;
+      }
+      for (Region region : regions) {
+        helperMethods.add(regionExtractor.extract(region));
+      }
+      if (regionExtractor.hasFrames) {
+        clearDeadLocals(methodNode);
+        for (int i = helperMethods.size() - regions.size(); i < helperMethods.size(); ++i) {
+          clearDeadLocals(helperMethods.get(i));
+        }
+      }
+    }
+    return helperMethods;
+  }
+
+  /**
+   * Returns the maximum code size of the given method.
+   *
+   * @param methodNode a method.
+   * @return the maximum size of the bytecode of this method, in bytes.
+   */
+  public static int getCodeSize(final MethodNode methodNode) {
+    CodeSizeEvaluator codeSizeEvaluator = new CodeSizeEvaluator(null);
+    methodNode.instructions.accept(codeSizeEvaluator);
+    return codeSizeEvaluator.getMaxSize();
+  }
+
+  /**
+   * Replaces the dead local variables of the frames of the given method with {@link Opcodes#TOP}.
+   * This is needed after a region extraction, since the local variables which are written in the
+   * region, but not live after it, are no longer written in the split method.
+   *
+   * @param methodNode a method with expanded frames.
+   */
+  static void clearDeadLocals(final MethodNode methodNode) {
+    LivenessAnalysis liveness = new LivenessAnalysis(new ControlFlowGraph(methodNode));
+    liveness.analyze();
+    int insnIndex = 0;
+    for (AbstractInsnNode insnNode : methodNode.instructions) {
+      if (insnNode instanceof FrameNode) {
+        FrameNode frameNode = (FrameNode) insnNode;
+        List<Object> frameLocals = new ArrayList<Object>();
+        int local = 0;
+        for (Object frameLocal : frameNode.local) {
+          boolean isLongOrDouble = frameLocal == Opcodes.LONG || frameLocal == Opcodes.DOUBLE;
+          boolean isLive =
+              local < liveness.maxLocals
+                  && (liveness.isLiveBefore(insnIndex, local)
+                      || (isLongOrDouble && liveness.isLiveBefore(insnIndex, local + 1)));
+          if (isLive) {
+            frameLocals.add(frameLocal);
+          } else {
+            frameLocals.add(Opcodes.TOP);
+            if (isLongOrDouble) {
+              frameLocals.add(Opcodes.TOP);
+            }
+          }
+          local += isLongOrDouble ? 2 : 1;
+        }
+        while (!frameLocals.isEmpty() && frameLocals.get(frameLocals.size() - 1) == Opcodes.TOP) {
+          frameLocals.remove(frameLocals.size() - 1);
+        }
+        frameNode.local = frameLocals;
+      }
+      ++insnIndex;
+    }
+  }
+
+  /** A region of a method which can be extracted into a helper method. */
+  static final class Region {
+
+    /** The index of the first node of the region (its first instruction, or a preceding label). */
+    final int entry;
+
+    /** The index of the first instruction of the region. */
+    final int start;
+
+    /** The index of the first node after the region. */
+    final int exit;
+
+    /** The index of the first instruction after the region. */
+    final int end;
+
+    /** The local variables which are passed to the helper method. */
+    final int[] inputs;
+
+    /** The types of {@link #inputs}. */
+    final Type[] inputTypes;
+
+    /** The local variables which are returned by the helper method. */
+    final int[] outputs;
+
+    /** The types of {@link #outputs}. */
+    final Type[] outputTypes;
+
+    Region(
+        final int entry,
+        final int start,
+        final int exit,
+        final int end,
+        final int[] inputs,
+        final Type[] inputTypes,
+        final int[] outputs,
+        final Type[] outputTypes) {
+      this.entry = entry;
+      this.start = start;
+      this.exit = exit;
+      this.end = end;
+      this.inputs = inputs;
+      this.inputTypes = inputTypes;
+      this.outputs = outputs;
+      this.outputTypes = outputTypes;
+    }
+
+    /**
+     * Returns the number of parameter slots of the helper method.
+     *
+     * @return the number of parameter slots of the helper method.
+     */
+    int getParameterSlots() {
+      int parameterSlots = 0;
+      for (Type inputType : inputTypes) {
+        parameterSlots += inputType.getSize();
+      }
+      return parameterSlots;
+    }
+
+    /**
+     * Returns an upper bound of the code size of the instructions replacing the region.
+     *
+     * @return an upper bound of the code size of the call to the helper method.
+     */
+    int getCallSize() {
+      int callSize = 3 + 4 * inputs.length;
+      if (outputs.length == 1) {
+        callSize += 4;
+      } else if (outputs.length > 1) {
+        callSize += 17 * outputs.length;
+      }
+      return callSize;
+    }
+
+    /**
+     * Returns the return type of the helper method.
+     *
+     * @return the return type of the helper method.
+     */
+    Type getReturnType() {
+      if (outputs.length == 0) {
+        return Type.VOID_TYPE;
+      } else if (outputs.length == 1) {
+        return outputTypes[0];
+      }
+      return Type.getType(Object[].class);
+    }
+  }
+
+  /** Finds and extracts the regions of a method. */
+  static final class RegionExtractor {
+
+    /** The class containing the method. */
+    final ClassNode classNode;
+
+    /** The method whose regions must be extracted. */
+    final MethodNode methodNode;
+
+    /** The nodes of the method. */
+    final AbstractInsnNode[] nodes;
+
+    /** Whether the method contains frames. */
+    final boolean hasFrames;
+
+    /** The maximum code offset of each node, plus the code size (at index nodes.length). */
+    final int[] offsets;
+
+    /**
+     * The index of the first node of the group of each node. A group is either an instruction with
+     * the labels, line numbers and frames preceding it, or a trailing sequence of such nodes.
+     */
+    final int[] groupStarts;
+
+    /** The index of the first instruction at or after each node, or nodes.length if none. */
+    final int[] nextInsns;
+
+    /** The group starts of the jump targets of each node, or {@literal null}. */
+    final int[][] jumpTargets;
+
+    /** The indices of the jump instructions targeting each group start, or {@literal null}. */
+    final int[][] jumpSources;
+
+    /** Whether each node is an instruction which can't be extracted. */
+    final boolean[] isForbidden;
+
+    /**
+     * The types of the local variables before each instruction where the operand stack is empty, or
+     * {@literal null} for the other nodes. A type is {@literal null} if it is unknown.
+     */
+    final Type[][] localTypes;
+
+    /** The liveness of the local variables of the method. */
+    final LivenessAnalysis liveness;
+
+    /** The group starts of the start, end and handler labels of each try catch block. */
+    final int[][] tryCatchBlockGroups;
+
+    /** The names of the methods of the class. */
+    final Set<String> methodNames;
+
+    RegionExtractor(final ClassNode classNode, final MethodNode methodNode) {
+      this.classNode = classNode;
+      this.methodNode = methodNode;
+      InsnList insnList = methodNode.instructions;
+      nodes = insnList.toArray();
+      int numNodes = nodes.length;
+      methodNode.maxLocals = Math.max(methodNode.maxLocals, Analyzer.computeMaxLocals(methodNode));
+
+      boolean containsFrames = false;
+      offsets = new int[numNodes + 1];
+      groupStarts = new int[numNodes];
+      isForbidden = new boolean[numNodes];
+      jumpTargets = new int[numNodes][];
+      CodeSizeEvaluator codeSizeEvaluator = new CodeSizeEvaluator(null);
+      for (int i = 0; i < numNodes; ++i) {
+        AbstractInsnNode node = nodes[i];
+        offsets[i] = codeSizeEvaluator.getMaxSize();
+        node.accept(codeSizeEvaluator);
+        groupStarts[i] = i > 0 && nodes[i - 1].getOpcode() == -1 ? groupStarts[i - 1] : i;
+        if (node instanceof FrameNode) {
+          if (((FrameNode) node).type != Opcodes.F_NEW) {
+            throw new IllegalArgumentException(
+                "MethodSplitter only accepts expanded frames (see ClassReader.EXPAND_FRAMES)");
+          }
+          containsFrames = true;
+        }
+        isForbidden[i] = isForbidden(node);
+      }
+      offsets[numNodes] = codeSizeEvaluator.getMaxSize();
+      hasFrames = containsFrames;
+      nextInsns = new int[numNodes + 1];
+      nextInsns[numNodes] = numNodes;
+      for (int i = numNodes - 1; i >= 0; --i) {
+        nextInsns[i] = nodes[i].getOpcode() == -1 ? nextInsns[i + 1] : i;
+      }
+
+      // Compute the jump targets of each instruction, and the jump sources of each group start.
+      int[] numJumpSources = new int[numNodes];
+      for (int i = 0; i < numNodes; ++i) {
+        AbstractInsnNode node = nodes[i];
+        List<LabelNode> labels = new ArrayList<LabelNode>();
+        if (node instanceof JumpInsnNode) {
+          labels.add(((JumpInsnNode) node).label);
+        } else if (node instanceof TableSwitchInsnNode) {
+          labels.add(((TableSwitchInsnNode) node).dflt);
+          labels.addAll(((TableSwitchInsnNode) node).labels);
+        } else if (node instanceof LookupSwitchInsnNode) {
+          labels.add(((LookupSwitchInsnNode) node).dflt);
+          labels.addAll(((LookupSwitchInsnNode) node).labels);
+        } else {
+          continue;
+        }
+        int[] targets = new int[labels.size()];
+        for (int j = 0; j < targets.length; ++j) {
+          targets[j] = groupStarts[insnList.indexOf(labels.get(j))];
+          numJumpSources[targets[j]]++;
+        }
+        jumpTargets[i] = targets;
+      }
+      jumpSources = new int[numNodes][];
+      for (int i = 0; i < numNodes; ++i) {
+        if (numJumpSources[i] > 0) {
+          jumpSources[i] = new int[numJumpSources[i]];
+          numJumpSources[i] = 0;
+        }
+      }
+      for (int i = 0; i < numNodes; ++i) {
+        if (jumpTargets[i] != null) {
+          for (int target : jumpTargets[i]) {
+            jumpSources[target][numJumpSources[target]++] = i;
+          }
+        }
+      }
+
+      tryCatchBlockGroups = new int[methodNode.tryCatchBlocks.size()][];
+      for (int i = 0; i < tryCatchBlockGroups.length; ++i) {
+        TryCatchBlockNode tryCatchBlock = methodNode.tryCatchBlocks.get(i);
+        tryCatchBlockGroups[i] =
+            new int[] {
+              groupStarts[insnList.indexOf(tryCatchBlock.start)],
+              groupStarts[insnList.indexOf(tryCatchBlock.end)],
+              groupStarts[insnList.indexOf(tryCatchBlock.handler)]
+            };
+      }
+
+      localTypes = hasFrames ? computeLocalTypesFromFrames() : computeLocalTypes();
+      liveness = new LivenessAnalysis(new ControlFlowGraph(methodNode));
+      liveness.analyze();
+      methodNames = new HashSet<String>();
+      for (MethodNode method : classNode.methods) {
+        methodNames.add(method.name);
+      }
+    }
+
+    /**
+     * Returns whether the given instruction can't be moved to a helper method.
+     *
+     * @param node an instruction, label, line number or frame node.
+     * @return whether this node can't be moved to a helper method.
+     */
+    private boolean isForbidden(final AbstractInsnNode node) {
+      int opcode = node.getOpcode();
+      if (opcode >= Opcodes.IRETURN && opcode <= Opcodes.RETURN) {
+        return true;
+      }
+      switch (opcode) {
+        case Opcodes.JSR:
+        case Opcodes.RET:
+        case Opcodes.MONITORENTER:
+        case Opcodes.MONITOREXIT:
+          return true;
+        case Opcodes.INVOKESPECIAL:
+          MethodInsnNode methodInsn = (MethodInsnNode) node;
+          return !"<init>".equals(methodInsn.name) && !methodInsn.owner.equals(classNode.name);
+        default:
+          return false;
+      }
+    }
+
+    /**
+     * Computes the types of the local variables before each instruction where the operand stack is
+     * empty, using the frames of the method.
+     *
+     * @return the types of the local variables before each instruction where the operand stack is
+     *     empty, or {@literal null} for the other nodes.
+     */
+    private Type[][] computeLocalTypesFromFrames() {
+      Type[][] types = new Type[nodes.length][];
+      ArrayAnalyzerAdapter analyzerAdapter =
+          new ArrayAnalyzerAdapter(
+              Opcodes.ASM9,
+              classNode.name,
+              methodNode.access,
+              methodNode.name,
+              methodNode.desc,
+              null);
+      for (int i = 0; i < nodes.length; ++i) {
+        if (nodes[i].getOpcode() != -1
+            && analyzerAdapter.isReachable()
+            && analyzerAdapter.getNumStack() == 0) {
+          Type[] frameTypes = new Type[analyzerAdapter.getNumLocals()];
+          for (int local = 0; local < frameTypes.length; ++local) {
+            frameTypes[local] =
+                getType(analyzerAdapter.getTokenValue(analyzerAdapter.getLocal(local)));
+          }
+          types[i] = frameTypes;
+        }
+        nodes[i].accept(analyzerAdapter);
+      }
+      return types;
+    }
+
+    /**
+     * Returns the type corresponding to the given frame type.
+     *
+     * @param frameType a frame type (see {@link org.objectweb.asm.MethodVisitor#visitFrame}).
+     * @return the corresponding type, or {@literal null} if it is unknown.
+     */
+    private static Type getType(final Object frameType) {
+      if (frameType == Opcodes.INTEGER) {
+        return Type.INT_TYPE;
+      } else if (frameType == Opcodes.FLOAT) {
+        return Type.FLOAT_TYPE;
+      } else if (frameType == Opcodes.LONG) {
+        return Type.LONG_TYPE;
+      } else if (frameType == Opcodes.DOUBLE) {
+        return Type.DOUBLE_TYPE;
+      } else if (frameType instanceof String) {
+        return Type.getObjectType((String) frameType);
+      }
+      return null;
+    }
+
+    /**
+     * Computes the types of the local variables before each instruction where the operand stack is
+     * empty, using an {@link Analyzer}.
+     *
+     * @return the types of the local variables before each instruction where the operand stack is
+     *     empty, or {@literal null} for the other nodes.
+     */
+    private Type[][] computeLocalTypes() {
+      TypeInterpreter interpreter = new TypeInterpreter("<init>".equals(methodNode.name));
+      Analyzer<BasicValue> analyzer =
+          new Analyzer<BasicValue>(interpreter) {
+            @Override
+            public Frame<BasicValue> newFrame(final int numLocals, final int numStack) {
+              return new TypeFrame(numLocals, numStack);
+            }
+
+            @Override
+            public Frame<BasicValue> newFrame(final Frame<? extends BasicValue> frame) {
+              return new TypeFrame(frame);
+            }
+          };
+      Frame<BasicValue>[] frames;
+      try {
+        frames = analyzer.analyzeAndComputeMaxs(classNode.name, methodNode);
+      } catch (AnalyzerException e) {
+        throw new IllegalArgumentException(e);
+      }
+      Type[][] types = new Type[nodes.length][];
+      for (int i = 0; i < nodes.length; ++i) {
+        Frame<BasicValue> frame = frames[i];
+        if (nodes[i].getOpcode() != -1 && frame != null && frame.getStackSize() == 0) {
+          Type[] frameTypes = new Type[frame.getLocals()];
+          for (int local = 0; local < frameTypes.length; ++local) {
+            BasicValue value = frame.getLocal(local);
+            Type type = value.getType();
+            if (!(value instanceof UninitializedValue)
+                && type != null
+                && type.getSort() != Type.VOID
+                && !BasicInterpreter.NULL_TYPE.equals(type)) {
+              frameTypes[local] = type;
+            }
+          }
+          types[i] = frameTypes;
+        }
+      }
+      return types;
+    }
+
+    /**
+     * Finds disjoint regions to extract, so that the code size of the method becomes less than the
+     * given size, if possible.
+     *
+     * @param maxMethodSize the maximum code size of the method and of the helper methods.
+     * @return the regions to extract, in instruction order.
+     */
+    List<Region> findRegions(final int maxMethodSize) {
+      List<Region> regions = new ArrayList<Region>();
+      int numNodes = nodes.length;
+      int remainingSize = offsets[numNodes];
+      int[] exits = new int[16];
+      int start = 0;
+      while (start < numNodes && remainingSize > maxMethodSize) {
+        if (localTypes[start] == null) {
+          ++start;
+          continue;
+        }
+        // Find the valid exits of the regions starting at 'start', in increasing order. The region
+        // is made of the nodes between start (inclusive) and the current node (exclusive).
+        int entry = groupStarts[start];
+        int minTarget = Integer.MAX_VALUE;
+        int maxTarget = -1;
+        int numIncomingJumps = 0;
+        int numExits = 0;
+        for (int node = start; node < numNodes; ++node) {
+          if (offsets[node] - offsets[start] > maxMethodSize) {
+            break;
+          }
+          if (node > start
+              && groupStarts[node] == node
+              && nextInsns[node] < numNodes
+              && localTypes[nextInsns[node]] != null
+              && numIncomingJumps == 0
+              && minTarget >= entry
+              && maxTarget <= node) {
+            if (numExits == exits.length) {
+              int[] newExits = new int[2 * numExits];
+              System.arraycopy(exits, 0, newExits, 0, numExits);
+              exits = newExits;
+            }
+            exits[numExits++] = node;
+          }
+          if (isForbidden[node]) {
+            break;
+          }
+          if (node > entry && jumpSources[node] != null) {
+            for (int source : jumpSources[node]) {
+              if (source < start || source > node) {
+                numIncomingJumps++;
+              }
+            }
+          }
+          if (jumpTargets[node] != null) {
+            for (int target : jumpTargets[node]) {
+              minTarget = Math.min(minTarget, target);
+              maxTarget = Math.max(maxTarget, target);
+              if (target > entry && target < node) {
+                numIncomingJumps--;
+              }
+            }
+          }
+        }
+        Region region = null;
+        for (int i = numExits - 1; i >= 0 && region == null; --i) {
+          region = getRegion(entry, start, exits[i], maxMethodSize);
+        }
+        if (region == null) {
+          ++start;
+        } else {
+          regions.add(region);
+          remainingSize -= offsets[region.exit] - offsets[region.start] - region.getCallSize();
+          start = region.end;
+        }
+      }
+      return regions;
+    }
+
+    /**
+     * Returns the region between the given nodes, if it can be extracted.
+     *
+     * @param entry the index of the first node of the region.
+     * @param start the index of the first instruction of the region.
+     * @param exit the index of the first node after the region.
+     * @param maxMethodSize the maximum code size of the helper method.
+     * @return the region between the given nodes, or {@literal null} if it can't be extracted.
+     */
+    private Region getRegion(
+        final int entry, final int start, final int exit, final int maxMethodSize) {
+      int size = offsets[exit] - offsets[start];
+      if (size < MIN_REGION_SIZE) {
+        return null;
+      }
+      int end = nextInsns[exit];
+
+      // Check the try catch blocks, and find the handlers of those covering the region.
+      List<Integer> coveringHandlers = new ArrayList<Integer>();
+      for (int[] groups : tryCatchBlockGroups) {
+        int tryStart = groups[0];
+        int tryEnd = groups[1];
+        int handler = groups[2];
+        boolean isHandlerInside = handler > entry && handler < exit;
+        if (tryStart >= entry && tryEnd <= exit && isHandlerInside) {
+          continue;
+        }
+        if (isHandlerInside) {
+          return null;
+        }
+        if (tryStart <= entry && tryEnd >= exit && tryStart < tryEnd) {
+          coveringHandlers.add(nextInsns[handler]);
+        } else if (tryEnd > entry && tryStart < exit) {
+          return null;
+        }
+      }
+
+      // Find the local variables which are live at the start of the region.
+      int maxLocals = liveness.maxLocals;
+      Type[] startTypes = localTypes[start];
+      List<Integer> inputs = new ArrayList<Integer>();
+      List<Type> inputTypes = new ArrayList<Type>();
+      int parameterSlots = 0;
+      for (int local = 0; local < maxLocals; ++local) {
+        if (liveness.isLiveBefore(start, local)) {
+          Type type = local < startTypes.length ? startTypes[local] : null;
+          if (type == null) {
+            return null;
+          }
+          inputs.add(local);
+          inputTypes.add(type);
+          parameterSlots += type.getSize();
+          local += type.getSize() - 1;
+        }
+      }
+      if (parameterSlots > MAX_PARAMETER_SLOTS) {
+        return null;
+      }
+
+      // Find the local variables which are written in the region and live after it. Also compute
+      // the code size of the region once its local variables are shifted by parameterSlots.
+      boolean[] isWritten = new boolean[maxLocals + 1];
+      int shiftedSize = size;
+      for (int i = start; i < exit; ++i) {
+        AbstractInsnNode node = nodes[i];
+        int opcode = node.getOpcode();
+        if (node instanceof VarInsnNode) {
+          int local = ((VarInsnNode) node).var;
+          shiftedSize += getVarInsnSize(local + parameterSlots) - getVarInsnSize(local);
+          if (opcode >= Opcodes.ISTORE && opcode <= Opcodes.ASTORE) {
+            isWritten[local] = true;
+            if (opcode == Opcodes.LSTORE || opcode == Opcodes.DSTORE) {
+              isWritten[local + 1] = true;
+            }
+          }
+        } else if (node instanceof IincInsnNode) {
+          int local = ((IincInsnNode) node).var;
+          if (local <= 255 && local + parameterSlots > 255) {
+            shiftedSize += 3;
+          }
+          isWritten[local] = true;
+        }
+      }
+      Type[] endTypes = localTypes[end];
+      List<Integer> outputs = new ArrayList<Integer>();
+      List<Type> outputTypes = new ArrayList<Type>();
+      for (int local = 0; local < maxLocals; ++local) {
+        if (!isWritten[local]) {
+          continue;
+        }
+        for (Integer handler : coveringHandlers) {
+          // The handler would see the value of the local variable before the region.
+          if (liveness.isLiveBefore(handler, local)) {
+            return null;
+          }
+        }
+        if (liveness.isLiveBefore(end, local)) {
+          Type type = local < endTypes.length ? endTypes[local] : null;
+          if (type == null) {
+            return null;
+          }
+          outputs.add(local);
+          outputTypes.add(type);
+          local += type.getSize() - 1;
+        }
+      }
+
+      Region region =
+          new Region(
+              entry,
+              start,
+              exit,
+              end,
+              toArray(inputs),
+              inputTypes.toArray(new Type[0]),
+              toArray(outputs),
+              outputTypes.toArray(new Type[0]));
+      int helperSize = shiftedSize + 2 * region.getCallSize() + 1;
+      if (helperSize > maxMethodSize || size < 2 * region.getCallSize()) {
+        return null;
+      }
+      return region;
+    }
+
+    /**
+     * Returns the maximum code size of a load or store instruction.
+     *
+     * @param local the index of the loaded or stored local variable.
+     * @return the maximum code size of a load or store instruction of this local variable.
+     */
+    private static int getVarInsnSize(final int local) {
+      if (local < 4) {
+        return 1;
+      }
+      return local < 256 ? 2 : 4;
+    }
+
+    /**
+     * Returns the given integers in an array.
+     *
+     * @param values some integers.
+     * @return the given integers in an array.
+     */
+    private static int[] toArray(final List<Integer> values) {
+      int[] array = new int[values.size()];
+      for (int i = 0; i < array.length; ++i) {
+        array[i] = values.get(i);
+      }
+      return array;
+    }
+
+    /**
+     * Moves the given region to a new helper method, and replaces it with a call to this method.
+     *
+     * @param region a region returned by {@link #findRegions}.
+     * @return the new helper method, which is also added to the class.
+     */
+    MethodNode extract(final Region region) {
+      Type[] inputTypes = region.inputTypes;
+      int parameterSlots = region.getParameterSlots();
+      String helperName = getHelperName();
+      String helperDescriptor = Type.getMethodDescriptor(region.getReturnType(), inputTypes);
+      MethodNode helper =
+          new MethodNode(
+              Opcodes.ASM9,
+              Opcodes.ACC_PRIVATE | Opcodes.ACC_STATIC | Opcodes.ACC_SYNTHETIC,
+              helperName,
+              helperDescriptor,
+              null,
+              null);
+      helper.maxLocals = parameterSlots + methodNode.maxLocals;
+      helper.maxStack = Math.max(methodNode.maxStack, 5);
+
+      // Map the labels at the entry and exit of the region to the start and end of the helper,
+      // and the labels inside the region to new labels.
+      LabelNode startLabel = new LabelNode();
+      LabelNode endLabel = new LabelNode();
+      Map<LabelNode, LabelNode> labels = new HashMap<LabelNode, LabelNode>();
+      Set<LabelNode> movedLabels = new HashSet<LabelNode>();
+      FrameNode startFrame = null;
+      FrameNode endFrame = null;
+      for (int i = region.entry; i < region.end; ++i) {
+        AbstractInsnNode node = nodes[i];
+        if (node instanceof LabelNode) {
+          if (i < region.start) {
+            labels.put((LabelNode) node, startLabel);
+          } else if (i < region.exit) {
+            labels.put((LabelNode) node, new LabelNode());
+            movedLabels.add((LabelNode) node);
+          } else {
+            labels.put((LabelNode) node, endLabel);
+          }
+        } else if (node instanceof FrameNode) {
+          if (i < region.start) {
+            startFrame = (FrameNode) node;
+          } else if (i >= region.exit) {
+            endFrame = (FrameNode) node;
+          }
+        }
+      }
+
+      // Copy the parameters to the local variables used in the region, shifted by parameterSlots.
+      List<Object> parameterFrameTypes = new ArrayList<Object>();
+      InsnList helperInsns = helper.instructions;
+      int parameterSlot = 0;
+      for (int i = 0; i < inputTypes.length; ++i) {
+        Type inputType = inputTypes[i];
+        helperInsns.add(new VarInsnNode(inputType.getOpcode(Opcodes.ILOAD), parameterSlot));
+        helperInsns.add(
+            new VarInsnNode(
+                inputType.getOpcode(Opcodes.ISTORE), region.inputs[i] + parameterSlots));
+        parameterFrameTypes.add(getFrameType(inputType));
+        parameterSlot += inputType.getSize();
+      }
+      helperInsns.add(startLabel);
+      if (startFrame != null) {
+        helperInsns.add(shiftFrame(startFrame, labels, parameterFrameTypes));
+      }
+      for (int i = region.start; i < region.exit; ++i) {
+        AbstractInsnNode node = nodes[i];
+        if (node instanceof LineNumberNode) {
+          if (labels.containsKey(((LineNumberNode) node).start)) {
+            helperInsns.add(node.clone(labels));
+          }
+        } else if (node instanceof FrameNode) {
+          helperInsns.add(shiftFrame((FrameNode) node, labels, parameterFrameTypes));
+        } else {
+          AbstractInsnNode clone = node.clone(labels);
+          if (clone instanceof VarInsnNode) {
+            ((VarInsnNode) clone).var += parameterSlots;
+          } else if (clone instanceof IincInsnNode) {
+            ((IincInsnNode) clone).var += parameterSlots;
+          }
+          helperInsns.add(clone);
+        }
+      }
+      helperInsns.add(endLabel);
+      if (endFrame != null) {
+        helperInsns.add(shiftFrame(endFrame, labels, parameterFrameTypes));
+      }
+      addReturn(helperInsns, region, parameterSlots);
+
+      // Move the try catch blocks and local variables of the region to the helper method.
+      List<TryCatchBlockNode> tryCatchBlocks = methodNode.tryCatchBlocks;
+      for (int i = 0; i < tryCatchBlocks.size(); ++i) {
+        TryCatchBlockNode tryCatchBlock = tryCatchBlocks.get(i);
+        if (movedLabels.contains(tryCatchBlock.handler)) {
+          TryCatchBlockNode helperTryCatchBlock =
+              new TryCatchBlockNode(
+                  labels.get(tryCatchBlock.start),
+                  labels.get(tryCatchBlock.end),
+                  labels.get(tryCatchBlock.handler),
+                  tryCatchBlock.type);
+          helperTryCatchBlock.visibleTypeAnnotations = tryCatchBlock.visibleTypeAnnotations;
+          helperTryCatchBlock.invisibleTypeAnnotations = tryCatchBlock.invisibleTypeAnnotations;
+          helper.tryCatchBlocks.add(helperTryCatchBlock);
+          tryCatchBlocks.remove(i--);
+        }
+      }
+      if (methodNode.localVariables != null) {
+        List<LocalVariableNode> localVariables = methodNode.localVariables;
+        for (int i = 0; i < localVariables.size(); ++i) {
+          LocalVariableNode localVariable = localVariables.get(i);
+          if (labels.containsKey(localVariable.start) && labels.containsKey(localVariable.end)) {
+            if (helper.localVariables == null) {
+              helper.localVariables = new ArrayList<LocalVariableNode>();
+            }
+            helper.localVariables.add(
+                new LocalVariableNode(
+                    localVariable.name,
+                    localVariable.desc,
+                    localVariable.signature,
+                    labels.get(localVariable.start),
+                    labels.get(localVariable.end),
+                    localVariable.index + parameterSlots));
+          }
+          if (movedLabels.contains(localVariable.start)
+              || movedLabels.contains(localVariable.end)) {
+            localVariables.remove(i--);
+          }
+        }
+      }
+      removeLocalVariableAnnotations(methodNode.visibleLocalVariableAnnotations, movedLabels);
+      removeLocalVariableAnnotations(methodNode.invisibleLocalVariableAnnotations, movedLabels);
+
+      // Replace the region with a call to the helper method.
+      InsnList callInsns = new InsnList();
+      for (int i = 0; i < inputTypes.length; ++i) {
+        callInsns.add(new VarInsnNode(inputTypes[i].getOpcode(Opcodes.ILOAD), region.inputs[i]));
+      }
+      callInsns.add(
+          new MethodInsnNode(
+              Opcodes.INVOKESTATIC,
+              classNode.name,
+              helperName,
+              helperDescriptor,
+              (classNode.access & Opcodes.ACC_INTERFACE) != 0));
+      addResultStores(callInsns, region);
+      InsnList insnList = methodNode.instructions;
+      insnList.insertBefore(nodes[region.start], callInsns);
+      for (int i = region.start; i < region.exit; ++i) {
+        insnList.remove(nodes[i]);
+      }
+      methodNode.maxStack = Math.max(methodNode.maxStack, Math.max(parameterSlots, 4));
+
+      classNode.methods.add(helper);
+      methodNames.add(helperName);
+      return helper;
+    }
+
+    /**
+     * Returns a new helper method name.
+     *
+     * @return a method name which is not used in the class.
+     */
+    private String getHelperName() {
+      String prefix = methodNode.name.replace("<", "").replace(">", "") + "$split$";
+      int index = 0;
+      while (methodNames.contains(prefix + index)) {
+        ++index;
+      }
+      return prefix + index;
+    }
+
+    /**
+     * Returns a copy of the given frame for the helper method.
+     *
+     * @param frameNode a frame of the region or at its boundaries.
+     * @param labels the labels of the helper method corresponding to those of the method.
+     * @param parameterFrameTypes the frame types of the parameters of the helper method.
+     * @return a copy of frameNode, with the parameter frame types inserted before its locals.
+     */
+    private static FrameNode shiftFrame(
+        final FrameNode frameNode,
+        final Map<LabelNode, LabelNode> labels,
+        final List<Object> parameterFrameTypes) {
+      FrameNode shiftedFrame = (FrameNode) frameNode.clone(labels);
+      shiftedFrame.local.addAll(0, parameterFrameTypes);
+      return shiftedFrame;
+    }
+
+    /**
+     * Returns the frame type corresponding to the given type.
+     *
+     * @param type a primitive, array or object type.
+     * @return the corresponding frame type (see {@link
+     *     org.objectweb.asm.MethodVisitor#visitFrame}).
+     */
+    private static Object getFrameType(final Type type) {
+      switch (type.getSort()) {
+        case Type.BOOLEAN:
+        case Type.CHAR:
+        case Type.BYTE:
+        case Type.SHORT:
+        case Type.INT:
+          return Opcodes.INTEGER;
+        case Type.FLOAT:
+          return Opcodes.FLOAT;
+        case Type.LONG:
+          return Opcodes.LONG;
+        case Type.DOUBLE:
+          return Opcodes.DOUBLE;
+        default:
+          return type.getInternalName();
+      }
+    }
+
+    /**
+     * Appends the instructions returning the output local variables of the region.
+     *
+     * @param insns the instructions of the helper method.
+     * @param region the extracted region.
+     * @param parameterSlots the number of parameter slots of the helper method.
+     */
+    private static void addReturn(
+        final InsnList insns, final Region region, final int parameterSlots) {
+      int[] outputs = region.outputs;
+      Type[] outputTypes = region.outputTypes;
+      if (outputs.length == 0) {
+        insns.add(new InsnNode(Opcodes.RETURN));
+      } else if (outputs.length == 1) {
+        Type outputType = outputTypes[0];
+        insns.add(
+            new VarInsnNode(outputType.getOpcode(Opcodes.ILOAD), outputs[0] + parameterSlots));
+        insns.add(new InsnNode(outputType.getOpcode(Opcodes.IRETURN)));
+      } else {
+        insns.add(newIntInsn(outputs.length));
+        insns.add(new TypeInsnNode(Opcodes.ANEWARRAY, "java/lang/Object"));
+        for (int i = 0; i < outputs.length; ++i) {
+          Type outputType = outputTypes[i];
+          insns.add(new InsnNode(Opcodes.DUP));
+          insns.add(newIntInsn(i));
+          insns.add(
+              new VarInsnNode(outputType.getOpcode(Opcodes.ILOAD), outputs[i] + parameterSlots));
+          Type boxedType = getBoxedType(outputType);
+          if (boxedType != null) {
+            insns.add(
+                new MethodInsnNode(
+                    Opcodes.INVOKESTATIC,
+                    boxedType.getInternalName(),
+                    "valueOf",
+                    Type.getMethodDescriptor(boxedType, outputType),
+                    false));
+          }
+          insns.add(new InsnNode(Opcodes.AASTORE));
+        }
+        insns.add(new InsnNode(Opcodes.ARETURN));
+      }
+    }
+
+    /**
+     * Appends the instructions storing the values returned by the helper method in the output local
+     * variables of the region.
+     *
+     * @param insns the instructions replacing the region.
+     * @param region the extracted region.
+     */
+    private static void addResultStores(final InsnList insns, final Region region) {
+      int[] outputs = region.outputs;
+      Type[] outputTypes = region.outputTypes;
+      if (outputs.length == 1) {
+        insns.add(new VarInsnNode(outputTypes[0].getOpcode(Opcodes.ISTORE), outputs[0]));
+      } else if (outputs.length > 1) {
+        for (int i = 0; i < outputs.length; ++i) {
+          Type outputType = outputTypes[i];
+          if (i < outputs.length - 1) {
+            insns.add(new InsnNode(Opcodes.DUP));
+          }
+          insns.add(newIntInsn(i));
+          insns.add(new InsnNode(Opcodes.AALOAD));
+          Type boxedType = getBoxedType(outputType);
+          if (boxedType == null) {
+            insns.add(new TypeInsnNode(Opcodes.CHECKCAST, outputType.getInternalName()));
+          } else {
+            insns.add(new TypeInsnNode(Opcodes.CHECKCAST, boxedType.getInternalName()));
+            insns.add(
+                new MethodInsnNode(
+                    Opcodes.INVOKEVIRTUAL,
+                    boxedType.getInternalName(),
+                    outputType.getClassName() + "Value",
+                    Type.getMethodDescriptor(outputType),
+                    false));
+          }
+          insns.add(new VarInsnNode(outputType.getOpcode(Opcodes.ISTORE), outputs[i]));
+        }
+      }
+    }
+
+    /**
+     * Returns the boxed type of the given type.
+     *
+     * @param type a primitive, array or object type.
+     * @return the boxed type of the given type, or {@literal null} if it is not a primitive type.
+     */
+    private static Type getBoxedType(final Type type) {
+      switch (type.getSort()) {
+        case Type.INT:
+          return Type.getObjectType("java/lang/Integer");
+        case Type.FLOAT:
+          return Type.getObjectType("java/lang/Float");
+        case Type.LONG:
+          return Type.getObjectType("java/lang/Long");
+        case Type.DOUBLE:
+          return Type.getObjectType("java/lang/Double");
+        default:
+          return null;
+      }
+    }
+
+    /**
+     * Returns an instruction pushing the given int value.
+     *
+     * @param value a positive int value.
+     * @return an instruction pushing this value.
+     */
+    private static AbstractInsnNode newIntInsn(final int value) {
+      if (value <= 5) {
+        return new InsnNode(Opcodes.ICONST_0 + value);
+      } else if (value <= Byte.MAX_VALUE) {
+        return new IntInsnNode(Opcodes.BIPUSH, value);
+      } else if (value <= Short.MAX_VALUE) {
+        return new IntInsnNode(Opcodes.SIPUSH, value);
+      }
+      return new LdcInsnNode(value);
+    }
+
+    /**
+     * Removes the local variable annotations which use some moved labels.
+     *
+     * @param annotations some local variable annotations, or {@literal null}.
+     * @param movedLabels the labels moved to a helper method.
+     */
+    private static void removeLocalVariableAnnotations(
+        final List<LocalVariableAnnotationNode> annotations, final Set<LabelNode> movedLabels) {
+      if (annotations == null) {
+        return;
+      }
+      for (int i = 0; i < annotations.size(); ++i) {
+        LocalVariableAnnotationNode annotation = annotations.get(i);
+        boolean usesMovedLabels = false;
+        for (LabelNode label : annotation.start) {
+          usesMovedLabels |= movedLabels.contains(label);
+        }
+        for (LabelNode label : annotation.end) {
+          usesMovedLabels |= movedLabels.contains(label);
+        }
+        if (usesMovedLabels) {
+          annotations.remove(i--);
+        }
+      }
+    }
+  }
+
+  /**
+   * An uninitialized reference value, i.e. created by a NEW instruction or an uninitialized this.
+   */
+  static final class UninitializedValue extends BasicValue {
+
+    UninitializedValue(final Type type) {
+      super(type);
+    }
+
+    @Override
+    public boolean equals(final Object value) {
+      return value == this;
+    }
+
+    @Override
+    public int hashCode() {
+      return System.identityHashCode(this);
+    }
+  }
+
+  /**
+   * A {@link BasicInterpreter} which keeps track of the exact reference types, and of the
+   * uninitialized values. Different reference types are merged to an unknown value.
+   */
+  static final class TypeInterpreter extends BasicInterpreter {
+
+    /** Whether the analyzed method is a constructor. */
+    final boolean isConstructor;
+
+    TypeInterpreter(final boolean isConstructor) {
+      super(Opcodes.ASM9);
+      this.isConstructor = isConstructor;
+    }
+
+    @Override
+    public BasicValue newParameterValue(
+        final boolean isInstanceMethod, final int local, final Type type) {
+      if (isConstructor && local == 0) {
+        return new UninitializedValue(type);
+      }
+      return super.newParameterValue(isInstanceMethod, local, type);
+    }
+
+    @Override
+    public BasicValue newOperation(final AbstractInsnNode insn) throws AnalyzerException {
+      if (insn.getOpcode() == Opcodes.NEW) {
+        return new UninitializedValue(Type.getObjectType(((TypeInsnNode) insn).desc));
+      }
+      return super.newOperation(insn);
+    }
+
+    @Override
+    public BasicValue binaryOperation(
+        final AbstractInsnNode insn, final BasicValue value1, final BasicValue value2)
+        throws AnalyzerException {
+      if (insn.getOpcode() == Opcodes.AALOAD) {
+        Type arrayType = value1.getType();
+        if (arrayType != null && arrayType.getSort() == Type.ARRAY) {
+          return newValue(Type.getType(arrayType.getDescriptor().substring(1)));
+        }
+        return BasicValue.UNINITIALIZED_VALUE;
+      }
+      return super.binaryOperation(insn, value1, value2);
+    }
+
+    @Override
+    public BasicValue merge(final BasicValue value1, final BasicValue value2) {
+      if (value1 == value2) {
+        return value1;
+      }
+      if (value1 instanceof UninitializedValue || value2 instanceof UninitializedValue) {
+        return BasicValue.UNINITIALIZED_VALUE;
+      }
+      if (BasicInterpreter.NULL_TYPE.equals(value1.getType()) && value2.isReference()) {
+        return value2;
+      }
+      if (BasicInterpreter.NULL_TYPE.equals(value2.getType()) && value1.isReference()) {
+        return value1;
+      }
+      return super.merge(value1, value2);
+    }
+  }
+
+  /** A {@link Frame} which replaces uninitialized values when their constructor is called. */
+  static final class TypeFrame extends Frame<BasicValue> {
+
+    TypeFrame(final int numLocals, final int maxStack) {
+      super(numLocals, maxStack);
+    }
+
+    TypeFrame(final Frame<? extends BasicValue> frame) {
+      super(frame);
+    }
+
+    @Override
+    public void execute(final AbstractInsnNode insn, final Interpreter<BasicValue> interpreter)
+        throws AnalyzerException {
+      BasicValue uninitializedValue = null;
+      if (insn.getOpcode() == Opcodes.INVOKESPECIAL
+          && "<init>".equals(((MethodInsnNode) insn).name)) {
+        int numArguments = Type.getArgumentTypes(((MethodInsnNode) insn).desc).length;
+        uninitializedValue = getStack(getStackSize() - numArguments - 1);
+      }
+      super.execute(insn, interpreter);
+      if (uninitializedValue instanceof UninitializedValue) {
+        BasicValue initializedValue = new BasicValue(uninitializedValue.getType());
+        for (int i = 0; i < getLocals(); ++i) {
+          if (getLocal(i) == uninitializedValue) {
+            setLocal(i, initializedValue);
+          }
+        }
+        for (int i = 0; i < getStackSize(); ++i) {
+          if (getStack(i) == uninitializedValue) {
+            setStack(i, initializedValue);
+          }
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,610 @@
+// ASM: a very small and fast Java bytecode manipulation framework
+// Copyright (c) 2000-2011 INRIA, France Telecom
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+// 1. Redistributions of source code must retain the above copyright
+//    notice, this list of conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright
+//    notice, this list of conditions and the following disclaimer in the
+//    documentation and/or other materials provided with the distribution.
+// 3. Neither the name of the copyright holders nor the names of its
+//    contributors may be used to endorse or promote products derived from
+//    this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+// THE POSSIBILITY OF SUCH DAMAGE.
+package org.objectweb.asm.commons;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import org.objectweb.asm.AnnotationVisitor;
+import org.objectweb.asm.Attribute;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.TypePath;
+
+/**
+ * A {@link MethodVisitor} that removes some useless instruction sequences, typically emitted by
+ * code generators. The instructions are buffered in a small window, and the following patterns are
+ * removed when the instructions are consecutive (i.e. not separated by a label, a frame or a line
+ * number):
+ *
+ * <ul>
+ *   <li>a load instruction followed by a store instruction of the same local variable,
+ *   <li>an instruction pushing a value without side effect (a load, a constant or a DUP) followed
+ *       by a POP of the same size,
+ *   <li>an ICONST_0 or LCONST_0 followed by an addition, subtraction, shift, or, xor instruction,
+ *       and an ICONST_1 or LCONST_1 followed by a multiplication or division instruction,
+ *   <li>the second of two identical CHECKCAST instructions,
+ *   <li>a GOTO to the label which immediately follows it.
+ * </ul>
+ *
+ * <p>In addition, the jumps to a label which is immediately followed by a GOTO instruction are
+ * replaced with jumps to the target of this GOTO. Since this visitor is streaming, this is only
+ * possible for backward jumps. The labels, line numbers and frames are preserved, and remain valid
+ * since the removed sequences do not change the execution frames. The maximum stack size is left
+ * unchanged (it can be overestimated). The instruction annotations of the removed instructions are
+ * removed. The instructions at the beginning of a try catch block range are never removed, since
+ * this could leave the range empty (which is rejected by the JVM).
+ */
+public class PeepholeOptimizer extends MethodVisitor {
+
+  /** The maximum number of instructions in {@link #windowOpcodes}. */
+  static final int WINDOW_SIZE = 4;
+
+  /** The opcodes of the buffered instructions, not yet sent to the next visitor. */
+  final int[] windowOpcodes;
+
+  /** The int operands of the buffered instructions (local variable index or int value). */
+  final int[] windowOperands;
+
+  /** The object operands of the buffered instructions (CHECKCAST type or GOTO label). */
+  final Object[] windowObjects;
+
+  /** The number of buffered instructions. */
+  int windowSize;
+
+  /** The labels visited after a buffered GOTO instruction, not yet sent to the next visitor. */
+  final ArrayList<Label> labelsAfterGoto;
+
+  /** The labels sent to the next visitor since the last instruction. */
+  final ArrayList<Label> labelsBeforeInsn;
+
+  /** The target of the GOTO instructions which immediately follow a label, indexed by label. */
+  final HashMap<Label, Label> gotoTargets;
+
+  /** Whether the last visited instruction has been removed. */
+  boolean lastInsnRemoved;
+
+  /** The start labels of the visited try catch blocks. */
+  final HashSet<Label> tryCatchBlockStarts;
+
+  /**
+   * Whether the start label of a try catch block has been sent to the next visitor, and no
+   * instruction has been sent since then.
+   */
+  boolean atTryCatchBlockStart;
+
+  /**
+   * Constructs a new {@link PeepholeOptimizer}. <i>Subclasses must not use this constructor</i>.
+   * Instead, they must use the {@link #PeepholeOptimizer(int, MethodVisitor)} version.
+   *
+   * @param methodVisitor the method visitor to which this optimizer delegates calls. May be
+   *     {@literal null}.
+   * @throws IllegalStateException If a subclass calls this constructor.
+   */
+  public PeepholeOptimizer(final MethodVisitor methodVisitor) {
+    this(/* latest api = */ Opcodes.ASM9, methodVisitor);
+    if (getClass() != PeepholeOptimizer.class) {
+      throw new IllegalStateException();
+    }
+  }
+
+  /**
+   * Constructs a new {@link PeepholeOptimizer}.
+   *
+   * @param api the ASM API version implemented by this visitor. Must be one of the {@code
+   *     ASM}<i>x</i> values in {@link Opcodes}.
+   * @param methodVisitor the method visitor to which this optimizer delegates calls. May be
+   *     {@literal null}.
+   */
+  protected PeepholeOptimizer(final int api, final MethodVisitor methodVisitor) {
+    super(api, methodVisitor);
+    windowOpcodes = new int[WINDOW_SIZE];
+    windowOperands = new int[WINDOW_SIZE];
+    windowObjects = new Object[WINDOW_SIZE];
+    labelsAfterGoto = new ArrayList<Label>();
+    labelsBeforeInsn = new ArrayList<Label>();
+    gotoTargets = new HashMap<Label, Label>();
+    tryCatchBlockStarts = new HashSet<Label>();
+  }
+
+  // -----------------------------------------------------------------------------------------------
+  // Non instruction visit methods, which flush the window.
+  // -----------------------------------------------------------------------------------------------
+
+  @Override
+  public void visitAttribute(final Attribute attribute) {
+    flush();
+    super.visitAttribute(attribute);
+  }
+
+  @Override
+  public void visitFrame(
+      final int type,
+      final int numLocal,
+      final Object[] local,
+      final int numStack,
+      final Object[] stack) {
+    flush();
+    super.visitFrame(type, numLocal, local, numStack, stack);
+  }
+
+  @Override
+  public void visitLabel(final Label label) {
+    if (windowSize > 0 && windowOpcodes[windowSize - 1] == Opcodes.GOTO) {
+      if (windowObjects[windowSize - 1] != label) {
+        labelsAfterGoto.add(label);
+        return;
+      }
+      if (!atTryCatchBlockStart) {
+        // Remove the GOTO to the next instruction.
+        windowSize--;
+      }
+    }
+    flush();
+    sendLabel(label);
+  }
+
+  @Override
+  public AnnotationVisitor visitInsnAnnotation(
+      final int typeRef, final TypePath typePath, final String descriptor, final boolean visible) {
+    if (lastInsnRemoved) {
+      return null;
+    }
+    flush();
+    return super.visitInsnAnnotation(typeRef, typePath, descriptor, visible);
+  }
+
+  @Override
+  public void visitTryCatchBlock(
+      final Label start, final Label end, final Label handler, final String type) {
+    flush();
+    tryCatchBlockStarts.add(start);
+    super.visitTryCatchBlock(start, end, handler, type);
+  }
+
+  @Override
+  public AnnotationVisitor visitTryCatchAnnotation(
+      final int typeRef, final TypePath typePath, final String descriptor, final boolean visible) {
+    flush();
+    return super.visitTryCatchAnnotation(typeRef, typePath, descriptor, visible);
+  }
+
+  @Override
+  public void visitLocalVariable(
+      final String name,
+      final String descriptor,
+      final String signature,
+      final Label start,
+      final Label end,
+      final int index) {
+    flush();
+    super.visitLocalVariable(name, descriptor, signature, start, end, index);
+  }
+
+  @Override
+  public AnnotationVisitor visitLocalVariableAnnotation(
+      final int typeRef,
+      final TypePath typePath,
+      final Label[] start,
+      final Label[] end,
+      final int[] index,
+      final String descriptor,
+      final boolean visible) {
+    flush();
+    return super.visitLocalVariableAnnotation(
+        typeRef, typePath, start, end, index, descriptor, visible);
+  }
+
+  @Override
+  public void visitLineNumber(final int line, final Label start) {
+    flush();
+    super.visitLineNumber(line, start);
+  }
+
+  @Override
+  public void visitMaxs(final int maxStack, final int maxLocals) {
+    flush();
+    super.visitMaxs(maxStack, maxLocals);
+  }
+
+  @Override
+  public void visitEnd() {
+    flush();
+    super.visitEnd();
+  }
+
+  // -----------------------------------------------------------------------------------------------
+  // Instruction visit methods.
+  // -----------------------------------------------------------------------------------------------
+
+  @Override
+  public void visitInsn(final int opcode) {
+    if (!optimize(opcode, 0, null)) {
+      super.visitInsn(opcode);
+    }
+  }
+
+  @Override
+  public void visitIntInsn(final int opcode, final int operand) {
+    if (!optimize(opcode, operand, null)) {
+      super.visitIntInsn(opcode, operand);
+    }
+  }
+
+  @Override
+  public void visitVarInsn(final int opcode, final int varIndex) {
+    if (!optimize(opcode, varIndex, null)) {
+      super.visitVarInsn(opcode, varIndex);
+    }
+  }
+
+  @Override
+  public void visitTypeInsn(final int opcode, final String type) {
+    if (!optimize(opcode, 0, type)) {
+      super.visitTypeInsn(opcode, type);
+    }
+  }
+
+  @Override
+  public void visitFieldInsn(
+      final int opcode, final String owner, final String name, final String descriptor) {
+    beforeInsn();
+    super.visitFieldInsn(opcode, owner, name, descriptor);
+  }
+
+  @Override
+  public void visitMethodInsn(
+      final int opcodeAndSource,
+      final String owner,
+      final String name,
+      final String descriptor,
+      final boolean isInterface) {
+    if (api < Opcodes.ASM5 && (opcodeAndSource & Opcodes.SOURCE_DEPRECATED) == 0) {
+      // Redirect the call to the deprecated version of this method.
+      super.visitMethodInsn(opcodeAndSource, owner, name, descriptor, isInterface);
+      return;
+    }
+    beforeInsn();
+    super.visitMethodInsn(opcodeAndSource, owner, name, descriptor, isInterface);
+  }
+
+  @Override
+  public void visitInvokeDynamicInsn(
+      final String name,
+      final String descriptor,
+      final Handle bootstrapMethodHandle,
+      final Object... bootstrapMethodArguments) {
+    beforeInsn();
+    super.visitInvokeDynamicInsn(name, descriptor, bootstrapMethodHandle, bootstrapMethodArguments);
+  }
+
+  @Override
+  public void visitJumpInsn(final int opcode, final Label label) {
+    Label target = opcode == Opcodes.JSR ? label : getFinalTarget(label);
+    if (!optimize(opcode, 0, target)) {
+      super.visitJumpInsn(opcode, target);
+    }
+  }
+
+  @Override
+  public void visitLdcInsn(final Object value) {
+    beforeInsn();
+    super.visitLdcInsn(value);
+  }
+
+  @Override
+  public void visitIincInsn(final int varIndex, final int increment) {
+    beforeInsn();
+    super.visitIincInsn(varIndex, increment);
+  }
+
+  @Override
+  public void visitTableSwitchInsn(
+      final int min, final int max, final Label dflt, final Label... labels) {
+    Label[] targets = new Label[labels.length];
+    for (int i = 0; i < labels.length; ++i) {
+      targets[i] = getFinalTarget(labels[i]);
+    }
+    beforeInsn();
+    super.visitTableSwitchInsn(min, max, getFinalTarget(dflt), targets);
+  }
+
+  @Override
+  public void visitLookupSwitchInsn(final Label dflt, final int[] keys, final Label[] labels) {
+    Label[] targets = new Label[labels.length];
+    for (int i = 0; i < labels.length; ++i) {
+      targets[i] = getFinalTarget(labels[i]);
+    }
+    beforeInsn();
+    super.visitLookupSwitchInsn(getFinalTarget(dflt), keys, targets);
+  }
+
+  @Override
+  public void visitMultiANewArrayInsn(final String descriptor, final int numDimensions) {
+    beforeInsn();
+    super.visitMultiANewArrayInsn(descriptor, numDimensions);
+  }
+
+  // -----------------------------------------------------------------------------------------------
+  // Utility methods
+  // -----------------------------------------------------------------------------------------------
+
+  /**
+   * Returns the final target of a jump to the given label.
+   *
+   * @param label a jump target.
+   * @return the target of the GOTO instruction immediately following label, if it has already been
+   *     visited, or label itself otherwise.
+   */
+  private Label getFinalTarget(final Label label) {
+    Label target = gotoTargets.get(label);
+    return target == null ? label : target;
+  }
+
+  /**
+   * Removes the given instruction and the last buffered one if they form a useless sequence, or
+   * buffers the given instruction if it can start such a sequence. Otherwise flushes the window, so
+   * that the caller can send the given instruction to the next visitor.
+   *
+   * @param opcode the opcode of a visited instruction.
+   * @param operand the int operand of this instruction (local variable index or int value), if any.
+   * @param object the object operand of this instruction (CHECKCAST type or jump label), if any.
+   * @return whether the instruction has been removed or buffered. If {@literal false}, the caller
+   *     must send it to the next visitor.
+   */
+  private boolean optimize(final int opcode, final int operand, final Object object) {
+    if (!labelsAfterGoto.isEmpty()) {
+      flush();
+    }
+    if (windowSize > 0 && !atTryCatchBlockStart) {
+      int lastOpcode = windowOpcodes[windowSize - 1];
+      if (isUselessSequence(lastOpcode, windowOperands[windowSize - 1], opcode, operand)) {
+        windowSize--;
+        lastInsnRemoved = true;
+        return true;
+      }
+      if (lastOpcode == Opcodes.CHECKCAST
+          && opcode == Opcodes.CHECKCAST
+          && windowObjects[windowSize - 1].equals(object)) {
+        lastInsnRemoved = true;
+        return true;
+      }
+    }
+    lastInsnRemoved = false;
+    if (isBufferable(opcode)) {
+      if (windowSize == WINDOW_SIZE) {
+        emit(0);
+        System.arraycopy(windowOpcodes, 1, windowOpcodes, 0, WINDOW_SIZE - 1);
+        System.arraycopy(windowOperands, 1, windowOperands, 0, WINDOW_SIZE - 1);
+        System.arraycopy(windowObjects, 1, windowObjects, 0, WINDOW_SIZE - 1);
+        windowSize--;
+      }
+      windowOpcodes[windowSize] = opcode;
+      windowOperands[windowSize] = operand;
+      windowObjects[windowSize] = object;
+      windowSize++;
+      return true;
+    }
+    beforeInsn();
+    return false;
+  }
+
+  /**
+   * Returns whether the given instruction sequence has no effect.
+   *
+   * @param opcode1 the opcode of the first instruction.
+   * @param operand1 the int operand of the first instruction, if any.
+   * @param opcode2 the opcode of the second instruction.
+   * @param operand2 the int operand of the second instruction, if any.
+   * @return whether the two instructions, executed in sequence, have no effect.
+   */
+  private static boolean isUselessSequence(
+      final int opcode1, final int operand1, final int opcode2, final int operand2) {
+    switch (opcode1) {
+      case Opcodes.ILOAD:
+      case Opcodes.LLOAD:
+      case Opcodes.FLOAD:
+      case Opcodes.DLOAD:
+      case Opcodes.ALOAD:
+        if (opcode2 == opcode1 + (Opcodes.ISTORE - Opcodes.ILOAD) && operand2 == operand1) {
+          return true;
+        }
+        break;
+      case Opcodes.ICONST_0:
+        switch (opcode2) {
+          case Opcodes.IADD:
+          case Opcodes.ISUB:
+          case Opcodes.IOR:
+          case Opcodes.IXOR:
+          case Opcodes.ISHL:
+          case Opcodes.ISHR:
+          case Opcodes.IUSHR:
+          case Opcodes.LSHL:
+          case Opcodes.LSHR:
+          case Opcodes.LUSHR:
+            return true;
+          default:
+            break;
+        }
+        break;
+      case Opcodes.ICONST_1:
+        if (opcode2 == Opcodes.IMUL || opcode2 == Opcodes.IDIV) {
+          return true;
+        }
+        break;
+      case Opcodes.LCONST_0:
+        switch (opcode2) {
+          case Opcodes.LADD:
+          case Opcodes.LSUB:
+          case Opcodes.LOR:
+          case Opcodes.LXOR:
+            return true;
+          default:
+            break;
+        }
+        break;
+      case Opcodes.LCONST_1:
+        if (opcode2 == Opcodes.LMUL || opcode2 == Opcodes.LDIV) {
+          return true;
+        }
+        break;
+      default:
+        break;
+    }
+    if (opcode2 == Opcodes.POP) {
+      return getPushedSize(opcode1) == 1;
+    } else if (opcode2 == Opcodes.POP2) {
+      return getPushedSize(opcode1) == 2;
+    }
+    return false;
+  }
+
+  /**
+   * Returns the size of the value pushed by the given instruction, if it has no side effect.
+   *
+   * @param opcode the opcode of a bufferable instruction.
+   * @return the size of the value pushed by this instruction, or 0 if it has some side effect.
+   */
+  private static int getPushedSize(final int opcode) {
+    switch (opcode) {
+      case Opcodes.ACONST_NULL:
+      case Opcodes.ICONST_M1:
+      case Opcodes.ICONST_0:
+      case Opcodes.ICONST_1:
+      case Opcodes.ICONST_2:
+      case Opcodes.ICONST_3:
+      case Opcodes.ICONST_4:
+      case Opcodes.ICONST_5:
+      case Opcodes.FCONST_0:
+      case Opcodes.FCONST_1:
+      case Opcodes.FCONST_2:
+      case Opcodes.BIPUSH:
+      case Opcodes.SIPUSH:
+      case Opcodes.ILOAD:
+      case Opcodes.FLOAD:
+      case Opcodes.ALOAD:
+      case Opcodes.DUP:
+        return 1;
+      case Opcodes.LCONST_0:
+      case Opcodes.LCONST_1:
+      case Opcodes.DCONST_0:
+      case Opcodes.DCONST_1:
+      case Opcodes.LLOAD:
+      case Opcodes.DLOAD:
+      case Opcodes.DUP2:
+        return 2;
+      default:
+        return 0;
+    }
+  }
+
+  /**
+   * Returns whether the given instruction can start a useless instruction sequence.
+   *
+   * @param opcode an instruction opcode.
+   * @return whether an instruction with this opcode must be buffered.
+   */
+  private static boolean isBufferable(final int opcode) {
+    return opcode == Opcodes.CHECKCAST || opcode == Opcodes.GOTO || getPushedSize(opcode) > 0;
+  }
+
+  /** Sends the buffered instructions and labels to the next visitor, and clears the window. */
+  private void flush() {
+    for (int i = 0; i < windowSize; ++i) {
+      emit(i);
+    }
+    windowSize = 0;
+    for (Label label : labelsAfterGoto) {
+      sendLabel(label);
+    }
+    labelsAfterGoto.clear();
+  }
+
+  /**
+   * Sends a label to the next visitor.
+   *
+   * @param label a label.
+   */
+  private void sendLabel(final Label label) {
+    super.visitLabel(label);
+    labelsBeforeInsn.add(label);
+    if (tryCatchBlockStarts.contains(label)) {
+      atTryCatchBlockStart = true;
+    }
+  }
+
+  /**
+   * Flushes the window before an instruction is sent to the next visitor. This instruction can't be
+   * part of a useless sequence, and can't be a GOTO.
+   */
+  private void beforeInsn() {
+    flush();
+    labelsBeforeInsn.clear();
+    lastInsnRemoved = false;
+    atTryCatchBlockStart = false;
+  }
+
+  /**
+   * Sends a buffered instruction to the next visitor.
+   *
+   * @param index the index of a buffered instruction.
+   */
+  private void emit(final int index) {
+    int opcode = windowOpcodes[index];
+    switch (opcode) {
+      case Opcodes.ILOAD:
+      case Opcodes.LLOAD:
+      case Opcodes.FLOAD:
+      case Opcodes.DLOAD:
+      case Opcodes.ALOAD:
+        super.visitVarInsn(opcode, windowOperands[index]);
+        break;
+      case Opcodes.BIPUSH:
+      case Opcodes.SIPUSH:
+        super.visitIntInsn(opcode, windowOperands[index]);
+        break;
+      case Opcodes.CHECKCAST:
+        super.visitTypeInsn(opcode, (String) windowObjects[index]);
+        break;
+      case Opcodes.GOTO:
+        Label target = (Label) windowObjects[index];
+        for (Label label : labelsBeforeInsn) {
+          gotoTargets.put(label, target);
+        }
+        super.visitJumpInsn(opcode, target);
+        break;
+      default:
+        super.visitInsn(opcode);
+        break;
+    }
+    labelsBeforeInsn.clear();
+    atTryCatchBlockStart = false;
+  }
+}
@@ -0,0 +1,466 @@
+// ASM: a very small and fast Java bytecode manipulation framework
+// Copyright (c) 2000-2011 INRIA, France Telecom
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+// 1. Redistributions of source code must retain the above copyright
+//    notice, this list of conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright
+//    notice, this list of conditions and the following disclaimer in the
+//    documentation and/or other materials provided with the distribution.
+// 3. Neither the name of the copyright holders nor the names of its
+//    contributors may be used to endorse or promote products derived from
+//    this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+// THE POSSIBILITY OF SUCH DAMAGE.
+package org.objectweb.asm.commons;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UnsupportedEncodingException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.zip.CRC32;
+import org.objectweb.asm.ClassReader;
+
+/**
+ * A persistent cache of class transformation results, indexed by content. Each result is indexed by
+ * a hash of the input class bytes and of a fingerprint of the transformer configuration, so that
+ * the whole ClassReader -&gt; visitor chain -&gt; ClassWriter pipeline can be skipped when the same
+ * class is transformed again with the same configuration, for instance when a JVM restarts.
+ *
+ * <p>The results are stored in a memory mapped, append only file, which can be shared by several
+ * instances, in the same JVM or in several processes: a lock on the file is acquired to append a
+ * result, while lookups do not need any lock. When the file is full, all its results are evicted at
+ * once, and new results are appended from the start of the file again. Each result is protected
+ * with a checksum, so that a truncated or corrupted result (or a result evicted during a lookup) is
+ * simply treated as a cache miss.
+ *
+ * <p>An instance of this class is thread safe. Since file locks are held on behalf of the whole
+ * JVM, the instances using the same file in a JVM also synchronize on a JVM wide mutex associated
+ * with its canonical path before locking it. All the instances sharing a file should use the same
+ * maximum size. The transformations are not run while holding a lock, so that several threads can
+ * transform classes concurrently (a class transformed concurrently by several threads can thus be
+ * transformed more than once).
+ */
+public final class TransformationCache implements Closeable {
+
+  /** A class transformation pipeline. */
+  public interface Transformer {
+
+    /**
+     * Transforms a class.
+     *
+     * @param classReader the class to transform.
+     * @return the transformed class, or {@literal null} if the class must not be transformed.
+     */
+    byte[] transform(ClassReader classReader);
+  }
+
+  /** The magic number identifying the cache files ("ASMC"). */
+  private static final int MAGIC = 0x41534D43;
+
+  /** The version of the cache file format. */
+  private static final int FORMAT_VERSION = 1;
+
+  /** The offset of the magic number in the cache files. */
+  private static final int MAGIC_OFFSET = 0;
+
+  /** The offset of the file format version in the cache files. */
+  private static final int VERSION_OFFSET = 4;
+
+  /** The offset of the generation number, incremented at each eviction, in the cache files. */
+  private static final int GENERATION_OFFSET = 8;
+
+  /** The offset of the end offset of the last complete result in the cache files. */
+  private static final int END_OFFSET = 12;
+
+  /** The size of the cache file header. */
+  private static final int HEADER_SIZE = 16;
+
+  /** The size of the keys, i.e. of a SHA-256 hash. */
+  private static final int KEY_SIZE = 32;
+
+  /**
+   * The size of the header of each result: its key, followed by the value length and the value
+   * checksum. This header is followed by the value bytes.
+   */
+  private static final int RECORD_HEADER_SIZE = KEY_SIZE + 8;
+
+  /** The minimum size of a cache file. */
+  private static final int MIN_SIZE = HEADER_SIZE + RECORD_HEADER_SIZE;
+
+  /** The mutexes of the cache files opened in this JVM, indexed by canonical path. */
+  private static final HashMap<String, FileMutex> FILE_MUTEXES = new HashMap<String, FileMutex>();
+
+  /** The mutex of the cache file, which must be held while locking the file. */
+  private final FileMutex fileMutex;
+
+  /** The cache file. */
+  private final RandomAccessFile randomAccessFile;
+
+  /** The channel of {@link #randomAccessFile}, used to lock it. */
+  private final FileChannel fileChannel;
+
+  /** The memory mapped content of {@link #randomAccessFile}. */
+  private final ByteBuffer buffer;
+
+  /** The SHA-256 hash of the transformer configuration fingerprint. */
+  private final byte[] fingerprintHash;
+
+  /** The offsets of the results in {@link #buffer}, indexed by key. */
+  private final HashMap<Key, Integer> index;
+
+  /** The generation of the cache file corresponding to {@link #index}. */
+  private int indexGeneration;
+
+  /** The offset in {@link #buffer} of the first result not yet added to {@link #index}. */
+  private int indexEnd;
+
+  /** Whether {@link #close} has been called. */
+  private boolean closed;
+
+  /**
+   * Constructs a new {@link TransformationCache}. The given file is created if it does not exist.
+   *
+   * @param file the file where the results must be stored.
+   * @param fingerprint a fingerprint of the transformer configuration. It must change each time the
+   *     transformer configuration changes (e.g. it can contain a version number and the values of
+   *     the transformer options).
+   * @param maxSize the maximum size of the cache file, in bytes.
+   * @throws IOException if the file can't be opened, or is not a cache file.
+   */
+  public TransformationCache(final File file, final String fingerprint, final int maxSize)
+      throws IOException {
+    if (maxSize < MIN_SIZE) {
+      throw new IllegalArgumentException("Invalid maximum size: " + maxSize);
+    }
+    try {
+      fingerprintHash = newMessageDigest().digest(fingerprint.getBytes("UTF-8"));
+    } catch (UnsupportedEncodingException e) {
+      throw new IllegalStateException(e);
+    }
+    fileMutex = FileMutex.acquire(file.getCanonicalPath());
+    RandomAccessFile newRandomAccessFile = null;
+    try {
+      newRandomAccessFile = new RandomAccessFile(file, "rw");
+      fileChannel = newRandomAccessFile.getChannel();
+      buffer = fileChannel.map(FileChannel.MapMode.READ_WRITE, 0, maxSize);
+      synchronized (fileMutex) {
+        FileLock fileLock = fileChannel.lock();
+        try {
+          int magic = buffer.getInt(MAGIC_OFFSET);
+          if (magic == 0) {
+            buffer.putInt(VERSION_OFFSET, FORMAT_VERSION);
+            buffer.putInt(GENERATION_OFFSET, 0);
+            buffer.putInt(END_OFFSET, HEADER_SIZE);
+            buffer.putInt(MAGIC_OFFSET, MAGIC);
+          } else if (magic != MAGIC || buffer.getInt(VERSION_OFFSET) != FORMAT_VERSION) {
+            throw new IOException("Invalid cache file: " + file);
+          }
+        } finally {
+          fileLock.release();
+        }
+      }
+    } catch (IOException e) {
+      close(newRandomAccessFile, fileMutex);
+      throw e;
+    } catch (RuntimeException e) {
+      close(newRandomAccessFile, fileMutex);
+      throw e;
+    }
+    randomAccessFile = newRandomAccessFile;
+    index = new HashMap<Key, Integer>();
+    indexGeneration = -1;
+  }
+
+  /**
+   * Transforms a class, or returns the cached result of a previous transformation of this class.
+   *
+   * @param classFile the class to transform.
+   * @param transformer the transformation pipeline to use if the cache does not contain the result.
+   *     Its configuration must correspond to the fingerprint of this cache.
+   * @return the transformed class, or {@literal null} if the class must not be transformed.
+   * @throws IOException if the result can't be stored in the cache file.
+   */
+  public byte[] transform(final byte[] classFile, final Transformer transformer)
+      throws IOException {
+    byte[] key = computeKey(classFile);
+    byte[] value = get(key);
+    if (value != null) {
+      return value.length == 0 ? null : value;
+    }
+    byte[] transformedClassFile = transformer.transform(new ClassReader(classFile));
+    put(key, transformedClassFile == null ? new byte[0] : transformedClassFile);
+    return transformedClassFile;
+  }
+
+  /**
+   * Closes this cache. Its file can no longer be used by this instance after this method has been
+   * called.
+   *
+   * @throws IOException if the cache file can't be closed.
+   */
+  @Override
+  public synchronized void close() throws IOException {
+    if (!closed) {
+      closed = true;
+      index.clear();
+      close(randomAccessFile, fileMutex);
+    }
+  }
+
+  /**
+   * Closes the given file, if any, and releases the given file mutex.
+   *
+   * @param file a file, or {@literal null}.
+   * @param fileMutex the mutex of this file.
+   * @throws IOException if the file can't be closed.
+   */
+  private static void close(final RandomAccessFile file, final FileMutex fileMutex)
+      throws IOException {
+    try {
+      if (file != null) {
+        file.close();
+      }
+    } finally {
+      fileMutex.release();
+    }
+  }
+
+  /**
+   * Returns the key of the given class, i.e. the hash of its content and of the transformer
+   * configuration fingerprint.
+   *
+   * @param classFile a class file.
+   * @return the key of the given class.
+   */
+  byte[] computeKey(final byte[] classFile) {
+    MessageDigest messageDigest = newMessageDigest();
+    messageDigest.update(fingerprintHash);
+    return messageDigest.digest(classFile);
+  }
+
+  /**
+   * Returns the value associated with the given key.
+   *
+   * @param key a key.
+   * @return the value associated with this key, or {@literal null} if there is no such value.
+   */
+  synchronized byte[] get(final byte[] key) {
+    checkNotClosed();
+    updateIndex();
+    Key indexKey = new Key(key);
+    Integer offset = index.get(indexKey);
+    if (offset == null) {
+      return null;
+    }
+    // The record might have been evicted and overwritten by another process since the index was
+    // updated, in which case its value length can't be trusted.
+    int valueLength = buffer.getInt(offset + KEY_SIZE);
+    if (buffer.getInt(GENERATION_OFFSET) != indexGeneration
+        || valueLength < 0
+        || valueLength > buffer.capacity() - offset - RECORD_HEADER_SIZE) {
+      index.remove(indexKey);
+      return null;
+    }
+    int checksum = buffer.getInt(offset + KEY_SIZE + 4);
+    byte[] value = new byte[valueLength];
+    read(offset + RECORD_HEADER_SIZE, value);
+    byte[] recordKey = new byte[KEY_SIZE];
+    read(offset, recordKey);
+    // Likewise, the record might have been overwritten while it was read, in which case its key or
+    // its checksum do not match.
+    if (!Arrays.equals(key, recordKey)
+        || computeChecksum(recordKey, value) != checksum
+        || buffer.getInt(GENERATION_OFFSET) != indexGeneration) {
+      index.remove(indexKey);
+      return null;
+    }
+    return value;
+  }
+
+  /**
+   * Appends a key value pair at the end of the cache file, after evicting all the existing values
+   * if there is not enough space left. Does nothing if the value is too large to fit in the file.
+   *
+   * @param key a key.
+   * @param value the value associated with this key.
+   * @throws IOException if the cache file can't be locked.
+   */
+  synchronized void put(final byte[] key, final byte[] value) throws IOException {
+    checkNotClosed();
+    int capacity = buffer.capacity();
+    if (value.length > capacity - HEADER_SIZE - RECORD_HEADER_SIZE) {
+      return;
+    }
+    synchronized (fileMutex) {
+      FileLock fileLock = fileChannel.lock();
+      try {
+        int end = buffer.getInt(END_OFFSET);
+        if (end < HEADER_SIZE || end > capacity - RECORD_HEADER_SIZE - value.length) {
+          // Evict all the values. The generation is updated first, so that the readers of the
+          // evicted values can detect that these values might have been overwritten.
+          buffer.putInt(GENERATION_OFFSET, buffer.getInt(GENERATION_OFFSET) + 1);
+          buffer.putInt(END_OFFSET, HEADER_SIZE);
+          end = HEADER_SIZE;
+        }
+        write(end, key);
+        buffer.putInt(end + KEY_SIZE, value.length);
+        buffer.putInt(end + KEY_SIZE + 4, computeChecksum(key, value));
+        write(end + RECORD_HEADER_SIZE, value);
+        buffer.putInt(END_OFFSET, end + RECORD_HEADER_SIZE + value.length);
+      } finally {
+        fileLock.release();
+      }
+    }
+  }
+
+  /**
+   * Adds the results appended to the cache file since the last call of this method to {@link
+   * #index}, after clearing it if the cache file has been evicted in the meantime.
+   */
+  private void updateIndex() {
+    int generation = buffer.getInt(GENERATION_OFFSET);
+    if (generation != indexGeneration) {
+      index.clear();
+      indexGeneration = generation;
+      indexEnd = HEADER_SIZE;
+    }
+    int end = Math.min(buffer.getInt(END_OFFSET), buffer.capacity());
+    int offset = indexEnd;
+    while (offset <= end - RECORD_HEADER_SIZE) {
+      int valueLength = buffer.getInt(offset + KEY_SIZE);
+      if (valueLength < 0 || valueLength > end - offset - RECORD_HEADER_SIZE) {
+        break;
+      }
+      byte[] key = new byte[KEY_SIZE];
+      read(offset, key);
+      index.put(new Key(key), offset);
+      offset += RECORD_HEADER_SIZE + valueLength;
+    }
+    indexEnd = offset;
+  }
+
+  private static MessageDigest newMessageDigest() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private void read(final int offset, final byte[] data) {
+    ByteBuffer view = buffer.duplicate();
+    ((Buffer) view).position(offset);
+    view.get(data);
+  }
+
+  private void write(final int offset, final byte[] data) {
+    ByteBuffer view = buffer.duplicate();
+    ((Buffer) view).position(offset);
+    view.put(data);
+  }
+
+  private void checkNotClosed() {
+    if (closed) {
+      throw new IllegalStateException("Closed cache");
+    }
+  }
+
+  private static int computeChecksum(final byte[] key, final byte[] value) {
+    CRC32 crc32 = new CRC32();
+    crc32.update(key);
+    crc32.update(value);
+    return (int) crc32.getValue();
+  }
+
+  /**
+   * A JVM wide mutex associated with a cache file. File locks are held on behalf of the whole JVM,
+   * and trying to lock a file already locked in the same JVM throws an exception instead of
+   * waiting, so the instances using the same file must synchronize on this mutex before locking it.
+   */
+  private static final class FileMutex {
+
+    /** The canonical path of the cache file. */
+    private final String path;
+
+    /** The number of instances using this mutex. Guarded by {@link #FILE_MUTEXES}. */
+    private int numInstances;
+
+    private FileMutex(final String path) {
+      this.path = path;
+    }
+
+    /**
+     * Returns the mutex of the given cache file, creating it if necessary. The returned mutex must
+     * be released with {@link #release}.
+     *
+     * @param path the canonical path of a cache file.
+     * @return the mutex of this file.
+     */
+    static FileMutex acquire(final String path) {
+      synchronized (FILE_MUTEXES) {
+        FileMutex fileMutex = FILE_MUTEXES.get(path);
+        if (fileMutex == null) {
+          fileMutex = new FileMutex(path);
+          FILE_MUTEXES.put(path, fileMutex);
+        }
+        fileMutex.numInstances++;
+        return fileMutex;
+      }
+    }
+
+    /** Releases this mutex, and removes it when it is no longer used. */
+    void release() {
+      synchronized (FILE_MUTEXES) {
+        if (--numInstances == 0) {
+          FILE_MUTEXES.remove(path);
+        }
+      }
+    }
+  }
+
+  /** A key of the {@link #index} map. */
+  private static final class Key {
+
+    private final byte[] hash;
+
+    private final int hashCode;
+
+    Key(final byte[] hash) {
+      this.hash = hash;
+      this.hashCode = Arrays.hashCode(hash);
+    }
+
+    @Override
+    public boolean equals(final Object object) {
+      return object instanceof Key && Arrays.equals(hash, ((Key) object).hash);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+  }
+}
@@ -0,0 +1,275 @@
+// ASM: a very small and fast Java bytecode manipulation framework
+// Copyright (c) 2000-2011 INRIA, France Telecom
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+// 1. Redistributions of source code must retain the above copyright
+//    notice, this list of conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright
+//    notice, this list of conditions and the following disclaimer in the
+//    documentation and/or other materials provided with the distribution.
+// 3. Neither the name of the copyright holders nor the names of its
+//    contributors may be used to endorse or promote products derived from
+//    this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+// THE POSSIBILITY OF SUCH DAMAGE.
+package org.objectweb.asm.commons;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.test.AsmTest;
+
+/** Unit tests for {@link ArrayAnalyzerAdapter}. */
+class ArrayAnalyzerAdapterTest extends AsmTest {
+
+  @Test
+  void testConstructor() {
+    assertDoesNotThrow(
+        () -> new ArrayAnalyzerAdapter("pkg/Class", Opcodes.ACC_PUBLIC, "name", "()V", null));
+    assertThrows(
+        IllegalStateException.class,
+        () -> new ArrayAnalyzerAdapter("pkg/Class", Opcodes.ACC_PUBLIC, "name", "()V", null) {});
+  }
+
+  @Test
+  void testConstructor_arguments() {
+    ArrayAnalyzerAdapter analyzerAdapter =
+        new ArrayAnalyzerAdapter("pkg/Class", 0, "<init>", "(J[ILpkg/Arg;)V", null);
+
+    assertEquals(
+        Arrays.asList(Opcodes.UNINITIALIZED_THIS, Opcodes.LONG, Opcodes.TOP, "[I", "pkg/Arg"),
+        analyzerAdapter.getLocals());
+    assertEquals(5, analyzerAdapter.maxLocals);
+  }
+
+  @Test
+  void testVisitFrame_invalidFrameType() {
+    ArrayAnalyzerAdapter analyzerAdapter =
+        new ArrayAnalyzerAdapter("pkg/Class", Opcodes.ACC_PUBLIC, "name", "()V", null);
+
+    Executable visitFrame = () -> analyzerAdapter.visitFrame(Opcodes.F_FULL, 0, null, 0, null);
+
+    assertThrows(IllegalArgumentException.class, visitFrame);
+  }
+
+  @Test
+  void testViews() {
+    ArrayAnalyzerAdapter analyzerAdapter =
+        new ArrayAnalyzerAdapter("pkg/Class", Opcodes.ACC_STATIC, "name", "()V", null);
+    Label label = new Label();
+
+    analyzerAdapter.visitLabel(label);
+    List<Object> labels = Arrays.asList(analyzerAdapter.getLabels().toArray());
+    analyzerAdapter.visitTypeInsn(Opcodes.NEW, "pkg/Class");
+    analyzerAdapter.visitInsn(Opcodes.DUP);
+    List<Object> stack = analyzerAdapter.getStack();
+    List<Object> stackBeforeInit = Arrays.asList(stack.toArray());
+    analyzerAdapter.visitMethodInsn(Opcodes.INVOKESPECIAL, "pkg/Class", "<init>", "()V", false);
+    analyzerAdapter.visitVarInsn(Opcodes.ASTORE, 1);
+    analyzerAdapter.visitInsn(Opcodes.RETURN);
+
+    assertEquals(Arrays.asList(label), labels);
+    assertEquals(Arrays.asList(label, label), stackBeforeInit);
+    assertEquals("pkg/Class", analyzerAdapter.uninitializedTypes.get(label));
+    assertNull(analyzerAdapter.getLabels());
+    assertNull(analyzerAdapter.getLocals());
+    assertNull(analyzerAdapter.getStack());
+    assertEquals(2, analyzerAdapter.maxStack);
+    assertEquals(2, analyzerAdapter.maxLocals);
+    assertThrows(UnsupportedOperationException.class, () -> stack.add("pkg/Class"));
+    assertThrows(IndexOutOfBoundsException.class, () -> stack.get(2));
+    assertSame(Opcodes.TOP, analyzerAdapter.getTokenValue(0));
+  }
+
+  /**
+   * Tests that an {@link ArrayAnalyzerAdapter} computes the same frames as an {@link
+   * AnalyzerAdapter}, before each instruction of each method.
+   */
+  @ParameterizedTest
+  @MethodSource(ALL_CLASSES_AND_LATEST_API)
+  void testAllMethods_sameAsAnalyzerAdapter(
+      final PrecompiledClass classParameter, final Api apiParameter) {
+    ClassReader classReader = new ClassReader(classParameter.getBytes());
+    ClassVisitor classVisitor = new ComparingClassVisitor(apiParameter.value());
+
+    Executable accept = () -> classReader.accept(classVisitor, ClassReader.EXPAND_FRAMES);
+
+    // jdk3.AllInstructions and jdk3.LargeMethod contain unsupported jsr/ret instructions.
+    if (classParameter == PrecompiledClass.JDK3_ALL_INSTRUCTIONS
+        || classParameter == PrecompiledClass.JDK3_LARGE_METHOD) {
+      assertThrows(IllegalArgumentException.class, accept);
+    } else {
+      assertDoesNotThrow(accept);
+    }
+  }
+
+  /**
+   * A ClassVisitor which analyzes each method with an {@link AnalyzerAdapter} followed by an {@link
+   * ArrayAnalyzerAdapter}, followed by a {@link ComparingMethodVisitor}.
+   */
+  static class ComparingClassVisitor extends ClassVisitor {
+
+    String owner;
+
+    ComparingClassVisitor(final int api) {
+      super(api);
+    }
+
+    @Override
+    public void visit(
+        final int version,
+        final int access,
+        final String name,
+        final String signature,
+        final String superName,
+        final String[] interfaces) {
+      owner = name;
+    }
+
+    @Override
+    public MethodVisitor visitMethod(
+        final int access,
+        final String name,
+        final String descriptor,
+        final String signature,
+        final String[] exceptions) {
+      ComparingMethodVisitor comparingMethodVisitor = new ComparingMethodVisitor(api);
+      ArrayAnalyzerAdapter arrayAnalyzerAdapter =
+          new ArrayAnalyzerAdapter(api, owner, access, name, descriptor, comparingMethodVisitor);
+      AnalyzerAdapter analyzerAdapter =
+          new AnalyzerAdapter(api, owner, access, name, descriptor, arrayAnalyzerAdapter);
+      comparingMethodVisitor.analyzerAdapter = analyzerAdapter;
+      comparingMethodVisitor.arrayAnalyzerAdapter = arrayAnalyzerAdapter;
+      return analyzerAdapter;
+    }
+  }
+
+  /**
+   * Checks that the frames of an {@link AnalyzerAdapter} and of an {@link ArrayAnalyzerAdapter} are
+   * the same before each instruction.
+   */
+  static class ComparingMethodVisitor extends MethodVisitor {
+
+    AnalyzerAdapter analyzerAdapter;
+    ArrayAnalyzerAdapter arrayAnalyzerAdapter;
+
+    ComparingMethodVisitor(final int api) {
+      super(api);
+    }
+
+    void compare() {
+      assertEquals(analyzerAdapter.locals, arrayAnalyzerAdapter.getLocals());
+      assertEquals(analyzerAdapter.stack, arrayAnalyzerAdapter.getStack());
+    }
+
+    @Override
+    public void visitInsn(final int opcode) {
+      compare();
+    }
+
+    @Override
+    public void visitIntInsn(final int opcode, final int operand) {
+      compare();
+    }
+
+    @Override
+    public void visitVarInsn(final int opcode, final int varIndex) {
+      compare();
+    }
+
+    @Override
+    public void visitTypeInsn(final int opcode, final String type) {
+      compare();
+    }
+
+    @Override
+    public void visitFieldInsn(
+        final int opcode, final String owner, final String name, final String descriptor) {
+      compare();
+    }
+
+    @Override
+    public void visitMethodInsn(
+        final int opcode,
+        final String owner,
+        final String name,
+        final String descriptor,
+        final boolean isInterface) {
+      compare();
+    }
+
+    @Override
+    public void visitInvokeDynamicInsn(
+        final String name,
+        final String descriptor,
+        final Handle bootstrapMethodHandle,
+        final Object... bootstrapMethodArguments) {
+      compare();
+    }
+
+    @Override
+    public void visitJumpInsn(final int opcode, final Label label) {
+      compare();
+    }
+
+    @Override
+    public void visitLdcInsn(final Object value) {
+      compare();
+    }
+
+    @Override
+    public void visitIincInsn(final int varIndex, final int increment) {
+      compare();
+    }
+
+    @Override
+    public void visitTableSwitchInsn(
+        final int min, final int max, final Label dflt, final Label... labels) {
+      compare();
+    }
+
+    @Override
+    public void visitLookupSwitchInsn(final Label dflt, final int[] keys, final Label[] labels) {
+      compare();
+    }
+
+    @Override
+    public void visitMultiANewArrayInsn(final String descriptor, final int numDimensions) {
+      compare();
+    }
+
+    @Override
+    public void visitEnd() {
+      assertEquals(analyzerAdapter.maxLocals, arrayAnalyzerAdapter.maxLocals);
+      assertEquals(analyzerAdapter.maxStack, arrayAnalyzerAdapter.maxStack);
+    }
+  }
+}
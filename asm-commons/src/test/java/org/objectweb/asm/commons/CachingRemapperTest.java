@@ -0,0 +1,218 @@
+// ASM: a very small and fast Java bytecode manipulation framework
+// Copyright (c) 2000-2011 INRIA, France Telecom
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+// 1. Redistributions of source code must retain the above copyright
+//    notice, this list of conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright
+//    notice, this list of conditions and the following disclaimer in the
+//    documentation and/or other materials provided with the distribution.
+// 3. Neither the name of the copyright holders nor the names of its
+//    contributors may be used to endorse or promote products derived from
+//    this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+// THE POSSIBILITY OF SUCH DAMAGE.
+package org.objectweb.asm.commons;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.test.AsmTest;
+import org.objectweb.asm.tree.ClassNode;
+
+/** Unit tests for {@link CachingRemapper}. */
+class CachingRemapperTest extends AsmTest {
+
+  @Test
+  void testConstructor_invalidMaximumSize() {
+    SimpleRemapper simpleRemapper = new SimpleRemapper(Opcodes.ASM9, new HashMap<>());
+
+    assertThrows(IllegalArgumentException.class, () -> new CachingRemapper(simpleRemapper, 0));
+  }
+
+  @Test
+  void testMapDesc() {
+    CachingRemapper remapper =
+        new CachingRemapper(new SimpleRemapper(Opcodes.ASM9, "pkg/C", "pkg/D"));
+    String unchangedDescriptor = new String("Ljava/lang/Object;");
+
+    assertEquals("Lpkg/D;", remapper.mapDesc("Lpkg/C;"));
+    assertEquals("[[Lpkg/D;", remapper.mapDesc("[[Lpkg/C;"));
+    assertSame(unchangedDescriptor, remapper.mapDesc(unchangedDescriptor));
+    assertSame(unchangedDescriptor, remapper.mapDesc(unchangedDescriptor));
+    assertEquals("Ljava/lang/Object;", remapper.mapDesc("Ljava/lang/Object;"));
+  }
+
+  @Test
+  void testMapMethodDesc() {
+    CachingRemapper remapper =
+        new CachingRemapper(new SimpleRemapper(Opcodes.ASM9, "pkg/C", "pkg/D"));
+    String primitiveDescriptor = new String("(IJ)[D");
+    String unchangedDescriptor = new String("(Ljava/lang/String;)V");
+
+    assertEquals("(Lpkg/D;I)[Lpkg/D;", remapper.mapMethodDesc("(Lpkg/C;I)[Lpkg/C;"));
+    assertSame(primitiveDescriptor, remapper.mapMethodDesc(primitiveDescriptor));
+    assertSame(unchangedDescriptor, remapper.mapMethodDesc(unchangedDescriptor));
+    assertSame(unchangedDescriptor, remapper.mapMethodDesc(unchangedDescriptor));
+  }
+
+  @Test
+  void testMapSignature() {
+    CachingRemapper remapper =
+        new CachingRemapper(new SimpleRemapper(Opcodes.ASM9, "pkg/C", "pkg/D"));
+    String unchangedSignature = new String("Ljava/util/List<Ljava/lang/String;>;");
+
+    assertNull(remapper.mapSignature(null, false));
+    assertEquals(
+        "Ljava/util/List<Lpkg/D;>;", remapper.mapSignature("Ljava/util/List<Lpkg/C;>;", true));
+    assertEquals(
+        "<T:Lpkg/D;>Ljava/lang/Object;",
+        remapper.mapSignature("<T:Lpkg/C;>Ljava/lang/Object;", false));
+    assertSame(unchangedSignature, remapper.mapSignature(unchangedSignature, true));
+    assertSame(unchangedSignature, remapper.mapSignature(unchangedSignature, true));
+  }
+
+  @Test
+  void testMapTypes() {
+    CachingRemapper remapper =
+        new CachingRemapper(new SimpleRemapper(Opcodes.ASM9, "pkg/C", "pkg/D"));
+    Type unchangedType = Type.getType("Ljava/lang/Object;");
+    Type unchangedMethodType = Type.getMethodType("(Ljava/lang/Object;)V");
+
+    assertEquals("pkg/D", remapper.map("pkg/C"));
+    assertNull(remapper.map("pkg/E"));
+    assertNull(remapper.map("pkg/E"));
+    assertEquals("pkg/D", remapper.mapType("pkg/C"));
+    assertEquals("[Lpkg/D;", remapper.mapType("[Lpkg/C;"));
+    assertEquals("pkg/E", remapper.mapType("pkg/E"));
+    assertNull(remapper.mapType((String) null));
+    assertEquals(Type.getType("[Lpkg/D;"), remapper.mapType(Type.getType("[Lpkg/C;")));
+    assertEquals(Type.getMethodType("()Lpkg/D;"), remapper.mapType(Type.getType("()Lpkg/C;")));
+    assertSame(unchangedType, remapper.mapType(unchangedType));
+    assertSame(unchangedMethodType, remapper.mapType(unchangedMethodType));
+    assertSame(Type.INT_TYPE, remapper.mapType(Type.INT_TYPE));
+  }
+
+  @Test
+  void testCache() {
+    CountingRemapper countingRemapper = new CountingRemapper();
+    CachingRemapper remapper = new CachingRemapper(countingRemapper, 2);
+
+    remapper.mapDesc("LA;");
+    remapper.mapDesc("LA;");
+    remapper.mapDesc("LB;");
+    remapper.mapDesc("LA;");
+    int countBeforeEviction = countingRemapper.count;
+    remapper.mapDesc("LC;");
+    remapper.mapDesc("LA;");
+    int countAfterEviction = countingRemapper.count;
+    remapper.clear();
+    remapper.mapDesc("LA;");
+
+    assertEquals(2, countBeforeEviction);
+    assertEquals(4, countAfterEviction);
+    assertEquals(5, countingRemapper.count);
+  }
+
+  @Test
+  void testMapMemberNames() {
+    Map<String, String> mapping = new HashMap<>();
+    mapping.put("pkg/C.f", "g");
+    mapping.put("pkg/C.m()V", "n");
+    mapping.put(".run()Ljava/lang/Runnable;", "go");
+    mapping.put("Lpkg/A;.value", "v");
+    CachingRemapper remapper = new CachingRemapper(new SimpleRemapper(Opcodes.ASM9, mapping));
+
+    assertEquals("g", remapper.mapFieldName("pkg/C", "f", "I"));
+    assertEquals("f", remapper.mapRecordComponentName("pkg/C", "f", "I"));
+    assertEquals("n", remapper.mapMethodName("pkg/C", "m", "()V"));
+    assertEquals("go", remapper.mapInvokeDynamicMethodName("run", "()Ljava/lang/Runnable;"));
+    assertEquals("v", remapper.mapAnnotationAttributeName("Lpkg/A;", "value"));
+    assertEquals("Inner", remapper.mapInnerClassName("pkg/C$Inner", "pkg/C", "Inner"));
+    assertEquals("pkg", remapper.mapPackageName("pkg"));
+    assertEquals("mod", remapper.mapModuleName("mod"));
+  }
+
+  @Test
+  void testMapValueAndTypes_delegated() {
+    Remapper delegateRemapper =
+        new SimpleRemapper(Opcodes.ASM9, "pkg/C", "pkg/D") {
+          @Override
+          public Object mapValue(final Object value) {
+            return "constant".equals(value) ? "renamedConstant" : super.mapValue(value);
+          }
+
+          @Override
+          public String[] mapTypes(final String[] internalNames) {
+            return new String[] {"pkg/E"};
+          }
+        };
+    CachingRemapper remapper = new CachingRemapper(delegateRemapper);
+
+    assertEquals("renamedConstant", remapper.mapValue("constant"));
+    assertEquals(Type.getType("Lpkg/D;"), remapper.mapValue(Type.getType("Lpkg/C;")));
+    assertArrayEquals(new String[] {"pkg/E"}, remapper.mapTypes(new String[] {"pkg/C"}));
+  }
+
+  /**
+   * Tests that a {@link CachingRemapper} gives the same result as its delegate remapper, even with
+   * a cache too small to contain all the remapped values.
+   */
+  @ParameterizedTest
+  @MethodSource(ALL_CLASSES_AND_LATEST_API)
+  void testClassRemapper_sameAsDelegate(
+      final PrecompiledClass classParameter, final Api apiParameter) {
+    ClassNode classNode = new ClassNode();
+    new ClassReader(classParameter.getBytes()).accept(classNode, 0);
+    Map<String, String> mapping = new HashMap<>();
+    mapping.put(classNode.name, classNode.name + "Renamed");
+    mapping.put("java/lang/String", "java/lang/Text");
+    mapping.put("java/lang/Object", "java/lang/Root");
+    SimpleRemapper simpleRemapper = new SimpleRemapper(Opcodes.ASM9, mapping);
+    ClassWriter expectedClassWriter = new ClassWriter(0);
+    ClassWriter actualClassWriter = new ClassWriter(0);
+
+    new ClassReader(classParameter.getBytes())
+        .accept(new ClassRemapper(expectedClassWriter, simpleRemapper), 0);
+    new ClassReader(classParameter.getBytes())
+        .accept(new ClassRemapper(actualClassWriter, new CachingRemapper(simpleRemapper, 8)), 0);
+
+    assertArrayEquals(expectedClassWriter.toByteArray(), actualClassWriter.toByteArray());
+  }
+
+  private static class CountingRemapper extends Remapper {
+
+    int count;
+
+    @Override
+    public String mapDesc(final String descriptor) {
+      ++count;
+      return super.mapDesc(descriptor);
+    }
+  }
+}
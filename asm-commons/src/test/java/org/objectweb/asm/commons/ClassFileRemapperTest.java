@@ -0,0 +1,144 @@
+// ASM: a very small and fast Java bytecode manipulation framework
+// Copyright (c) 2000-2011 INRIA, France Telecom
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+// 1. Redistributions of source code must retain the above copyright
+//    notice, this list of conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright
+//    notice, this list of conditions and the following disclaimer in the
+//    documentation and/or other materials provided with the distribution.
+// 3. Neither the name of the copyright holders nor the names of its
+//    contributors may be used to endorse or promote products derived from
+//    this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+// THE POSSIBILITY OF SUCH DAMAGE.
+package org.objectweb.asm.commons;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.test.AsmTest;
+
+/** Unit tests for {@link ClassFileRemapper}. */
+class ClassFileRemapperTest extends AsmTest {
+
+  @Test
+  void testConstructor_simpleRemapper() {
+    Map<String, String> mapping = new HashMap<>();
+    mapping.put("pkg/C$D", "pkg/E");
+    mapping.put("pkg/C.f", "g");
+    mapping.put("pkg/C.m(I)V", "n");
+    mapping.put(".run()Ljava/lang/Runnable;", "go");
+    mapping.put("Lpkg/A;.value", "v");
+
+    ClassFileRemapper classFileRemapper =
+        new ClassFileRemapper(new SimpleRemapper(Opcodes.ASM9, mapping));
+
+    assertTrue(classFileRemapper.classNames.containsAll(Arrays.asList("pkg/C$D", "pkg/C")));
+    assertTrue(classFileRemapper.names.containsAll(Arrays.asList("f", "m", "run", "value")));
+    assertTrue(classFileRemapper.isAffected("(ILpkg/C$D;)V"));
+    assertTrue(classFileRemapper.isAffected("Ljava/util/List<Lpkg/C<TT;>.D;>;"));
+    assertTrue(classFileRemapper.isAffected("[Lpkg/C$D;"));
+    assertTrue(classFileRemapper.isAffected("run"));
+    assertFalse(classFileRemapper.isAffected("(Lpkg/C$DE;)V"));
+    assertFalse(classFileRemapper.isAffected("LLLL"));
+    assertFalse(classFileRemapper.isAffected("pkg/C$DE"));
+  }
+
+  @Test
+  void testConstructor_mappingRemapper() {
+    MappingRemapper mappingRemapper = new MappingRemapper();
+    mappingRemapper.addClassMapping("pkg/C", "a");
+    mappingRemapper.addPackageMapping("pkg.sub", "p");
+    mappingRemapper.addFieldMapping("pkg/C", "field", "b");
+    mappingRemapper.addMethodMapping("pkg/C", "method", "()I", "c");
+
+    ClassFileRemapper classFileRemapper = new ClassFileRemapper(mappingRemapper);
+
+    assertTrue(classFileRemapper.classNames.contains("pkg/C"));
+    assertTrue(classFileRemapper.names.containsAll(Arrays.asList("pkg/sub", "field", "method")));
+  }
+
+  @Test
+  void testRemap() {
+    ClassFileRemapper classFileRemapper =
+        new ClassFileRemapper(
+            new SimpleRemapper(Opcodes.ASM9, "pkg/C", "pkg/D"),
+            Collections.singleton("pkg/C"),
+            Collections.<String>emptySet());
+    byte[] unaffectedClassFile = newClass("pkg/A", "java/lang/Object");
+    byte[] affectedClassFile = newClass("pkg/B", "pkg/C");
+
+    byte[] remappedUnaffectedClassFile = classFileRemapper.remap(unaffectedClassFile);
+    byte[] remappedAffectedClassFile = classFileRemapper.remap(affectedClassFile);
+
+    assertSame(unaffectedClassFile, remappedUnaffectedClassFile);
+    assertNotSame(affectedClassFile, remappedAffectedClassFile);
+    assertArrayEquals(newClass("pkg/B", "pkg/D"), remappedAffectedClassFile);
+  }
+
+  /**
+   * Tests that the class files which are not remapped by a {@link ClassFileRemapper} are not
+   * changed by a {@link ClassRemapper}, and that the other ones are remapped like with a {@link
+   * ClassRemapper}. The mapping renames some classes and members referenced in the JDK 8 and 11
+   * precompiled classes.
+   */
+  @ParameterizedTest
+  @MethodSource(ALL_CLASSES_AND_LATEST_API)
+  void testRemap_precompiledClass(final PrecompiledClass classParameter, final Api apiParameter) {
+    Map<String, String> mapping = new HashMap<>();
+    mapping.put("java/lang/StringBuilder", "java/lang/StringBuffer");
+    mapping.put("java/util/Map$Entry", "java/util/MapEntry");
+    mapping.put("java/lang/Integer.MAX_VALUE", "MAX");
+    mapping.put("java/lang/Object.hashCode()I", "hash");
+    mapping.put("Ljava/lang/annotation/Retention;.value", "policy");
+    SimpleRemapper simpleRemapper = new SimpleRemapper(Opcodes.ASM9, mapping);
+    ClassFileRemapper classFileRemapper = new ClassFileRemapper(simpleRemapper);
+    byte[] classFile = classParameter.getBytes();
+
+    byte[] remappedClassFile = classFileRemapper.remap(classFile);
+
+    ClassWriter expectedClassWriter = new ClassWriter(0);
+    ClassWriter copiedClassWriter = new ClassWriter(0);
+    new ClassReader(classFile).accept(new ClassRemapper(expectedClassWriter, simpleRemapper), 0);
+    new ClassReader(classFile).accept(copiedClassWriter, 0);
+    if (remappedClassFile == classFile) {
+      assertArrayEquals(copiedClassWriter.toByteArray(), expectedClassWriter.toByteArray());
+    } else {
+      assertArrayEquals(expectedClassWriter.toByteArray(), remappedClassFile);
+    }
+  }
+
+  private static byte[] newClass(final String name, final String superName) {
+    ClassWriter classWriter = new ClassWriter(0);
+    classWriter.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC, name, null, superName, null);
+    classWriter.visitEnd();
+    return classWriter.toByteArray();
+  }
+}
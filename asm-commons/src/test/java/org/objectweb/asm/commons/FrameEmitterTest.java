@@ -0,0 +1,521 @@
+// ASM: a very small and fast Java bytecode manipulation framework
+// Copyright (c) 2000-2011 INRIA, France Telecom
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+// 1. Redistributions of source code must retain the above copyright
+//    notice, this list of conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright
+//    notice, this list of conditions and the following disclaimer in the
+//    documentation and/or other materials provided with the distribution.
+// 3. Neither the name of the copyright holders nor the names of its
+//    contributors may be used to endorse or promote products derived from
+//    this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+// THE POSSIBILITY OF SUCH DAMAGE.
+package org.objectweb.asm.commons;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.lang.reflect.Method;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.test.AsmTest;
+import org.objectweb.asm.test.ClassFile;
+
+/** Unit tests for {@link FrameEmitter}. */
+class FrameEmitterTest extends AsmTest {
+
+  private static final Type STRING_TYPE = Type.getType(String.class);
+
+  private static final Type STRING_BUILDER_TYPE = Type.getType(StringBuilder.class);
+
+  @Test
+  void testConstructor() {
+    assertDoesNotThrow(
+        () -> new FrameEmitter("pkg/Class", Opcodes.ACC_PUBLIC, "name", "()V", null));
+    assertThrows(
+        IllegalStateException.class,
+        () -> new FrameEmitter("pkg/Class", Opcodes.ACC_PUBLIC, "name", "()V", null) {});
+  }
+
+  @Test
+  void testEmitFrames_loop() throws ReflectiveOperationException {
+    Object instance =
+        newInstance(
+            "sum",
+            "([I)I",
+            generatorAdapter -> {
+              int total = generatorAdapter.newLocal(Type.INT_TYPE);
+              int index = generatorAdapter.newLocal(Type.INT_TYPE);
+              generatorAdapter.push(0);
+              generatorAdapter.storeLocal(total);
+              generatorAdapter.push(0);
+              generatorAdapter.storeLocal(index);
+              Label loop = generatorAdapter.mark();
+              Label end = new Label();
+              generatorAdapter.loadLocal(index);
+              generatorAdapter.loadArg(0);
+              generatorAdapter.arrayLength();
+              generatorAdapter.ifICmp(GeneratorAdapter.GE, end);
+              generatorAdapter.loadLocal(total);
+              generatorAdapter.loadArg(0);
+              generatorAdapter.loadLocal(index);
+              generatorAdapter.arrayLoad(Type.INT_TYPE);
+              generatorAdapter.math(GeneratorAdapter.ADD, Type.INT_TYPE);
+              generatorAdapter.storeLocal(total);
+              generatorAdapter.iinc(index, 1);
+              generatorAdapter.goTo(loop);
+              generatorAdapter.mark(end);
+              generatorAdapter.loadLocal(total);
+              generatorAdapter.returnValue();
+            });
+
+    assertEquals(10, invoke(instance, "sum", new int[] {1, 2, 3, 4}));
+  }
+
+  @Test
+  void testEmitFrames_nullInitializedLocalAssignedInLoop() throws ReflectiveOperationException {
+    Object instance =
+        newInstance(
+            "last",
+            "(I)Ljava/lang/Object;",
+            generatorAdapter -> {
+              // Object x = null; while (arg0 > 0) { x = "x"; --arg0; } return x;
+              int x = generatorAdapter.newLocal(Type.getType(Object.class));
+              generatorAdapter.visitInsn(Opcodes.ACONST_NULL);
+              generatorAdapter.storeLocal(x);
+              Label loop = generatorAdapter.mark();
+              Label end = new Label();
+              generatorAdapter.loadArg(0);
+              generatorAdapter.ifZCmp(GeneratorAdapter.LE, end);
+              generatorAdapter.push("x");
+              generatorAdapter.storeLocal(x);
+              generatorAdapter.loadArg(0);
+              generatorAdapter.push(1);
+              generatorAdapter.math(GeneratorAdapter.SUB, Type.INT_TYPE);
+              generatorAdapter.storeArg(0);
+              generatorAdapter.goTo(loop);
+              generatorAdapter.mark(end);
+              generatorAdapter.loadLocal(x);
+              generatorAdapter.returnValue();
+            });
+
+    assertEquals(null, invoke(instance, "last", 0));
+    assertEquals("x", invoke(instance, "last", 2));
+  }
+
+  @Test
+  void testEmitFrames_mergedTypes() throws ReflectiveOperationException {
+    Object instance =
+        newInstance(
+            "describe",
+            "(Ljava/lang/Object;)Ljava/lang/String;",
+            generatorAdapter -> {
+              int value = generatorAdapter.newLocal(Type.getType(CharSequence.class));
+              int length = generatorAdapter.newLocal(Type.LONG_TYPE);
+              Label notString = new Label();
+              Label merge = new Label();
+              generatorAdapter.push(7L);
+              generatorAdapter.storeLocal(length);
+              generatorAdapter.loadArg(0);
+              generatorAdapter.instanceOf(STRING_TYPE);
+              generatorAdapter.ifZCmp(GeneratorAdapter.EQ, notString);
+              generatorAdapter.loadArg(0);
+              generatorAdapter.checkCast(STRING_TYPE);
+              generatorAdapter.storeLocal(value);
+              generatorAdapter.goTo(merge);
+              generatorAdapter.mark(notString);
+              // The length local variable is overwritten with an int on this branch only.
+              generatorAdapter.push(3);
+              generatorAdapter.storeLocal(length, Type.INT_TYPE);
+              generatorAdapter.newInstance(STRING_BUILDER_TYPE);
+              generatorAdapter.dup();
+              generatorAdapter.push("other");
+              generatorAdapter.invokeConstructor(
+                  STRING_BUILDER_TYPE,
+                  org.objectweb.asm.commons.Method.getMethod("void <init>(String)"));
+              generatorAdapter.storeLocal(value);
+              generatorAdapter.mark(merge);
+              // The merged type of value is CharSequence, its declared type.
+              generatorAdapter.loadLocal(value);
+              generatorAdapter.invokeInterface(
+                  Type.getType(CharSequence.class),
+                  org.objectweb.asm.commons.Method.getMethod("String toString()"));
+              generatorAdapter.returnValue();
+            });
+
+    assertEquals("abc", invoke(instance, "describe", "abc"));
+    assertEquals("other", invoke(instance, "describe", 42));
+  }
+
+  @Test
+  void testEmitFrames_commonSuperClass() throws ReflectiveOperationException {
+    Type numberType = Type.getType(Number.class);
+    Object instance =
+        newInstance(
+            "intValue",
+            "(Z)I",
+            numberType.getInternalName(),
+            generatorAdapter -> {
+              Label isLong = new Label();
+              Label merge = new Label();
+              // (arg ? Integer.valueOf(1) : Long.valueOf(2)).intValue()
+              generatorAdapter.loadArg(0);
+              generatorAdapter.ifZCmp(GeneratorAdapter.EQ, isLong);
+              generatorAdapter.push(1);
+              generatorAdapter.valueOf(Type.INT_TYPE);
+              generatorAdapter.goTo(merge);
+              generatorAdapter.mark(isLong);
+              generatorAdapter.push(2L);
+              generatorAdapter.valueOf(Type.LONG_TYPE);
+              generatorAdapter.mark(merge);
+              generatorAdapter.invokeVirtual(
+                  numberType, org.objectweb.asm.commons.Method.getMethod("int intValue()"));
+              generatorAdapter.returnValue();
+            });
+
+    assertEquals(1, invoke(instance, "intValue", true));
+    assertEquals(2, invoke(instance, "intValue", false));
+  }
+
+  @Test
+  void testEmitFrames_invalidFrameEmitter() {
+    GeneratorAdapter generatorAdapter =
+        new GeneratorAdapter(/* methodVisitor= */ null, Opcodes.ACC_PUBLIC, "name", "()V");
+    FrameEmitter frameEmitter =
+        new FrameEmitter(
+            Opcodes.ASM9,
+            "C",
+            Opcodes.ACC_PUBLIC,
+            "name",
+            "()V",
+            null,
+            /* generatorAdapter= */ null);
+
+    Executable emitFrames = () -> generatorAdapter.emitFrames(frameEmitter);
+
+    assertThrows(IllegalArgumentException.class, emitFrames);
+  }
+
+  @Test
+  void testEmitFrames_tryCatch() throws ReflectiveOperationException {
+    Object instance =
+        newInstance(
+            "parse",
+            "(Ljava/lang/String;)I",
+            generatorAdapter -> {
+              int result = generatorAdapter.newLocal(Type.INT_TYPE);
+              generatorAdapter.push(-1);
+              generatorAdapter.storeLocal(result);
+              Label start = generatorAdapter.mark();
+              generatorAdapter.loadArg(0);
+              generatorAdapter.invokeStatic(
+                  Type.getType(Integer.class),
+                  org.objectweb.asm.commons.Method.getMethod("int parseInt(String)"));
+              generatorAdapter.storeLocal(result);
+              Label end = generatorAdapter.mark();
+              Label done = new Label();
+              generatorAdapter.goTo(done);
+              generatorAdapter.catchException(
+                  start, end, Type.getType(NumberFormatException.class));
+              generatorAdapter.pop();
+              generatorAdapter.push(-2);
+              generatorAdapter.storeLocal(result);
+              generatorAdapter.mark(done);
+              generatorAdapter.loadLocal(result);
+              generatorAdapter.returnValue();
+            });
+
+    assertEquals(12, invoke(instance, "parse", "12"));
+    assertEquals(-2, invoke(instance, "parse", "abc"));
+  }
+
+  @Test
+  void testEmitFrames_tableSwitch() throws ReflectiveOperationException {
+    Object instance =
+        newInstance(
+            "name",
+            "(I)Ljava/lang/String;",
+            generatorAdapter -> {
+              generatorAdapter.loadArg(0);
+              generatorAdapter.tableSwitch(
+                  new int[] {1, 2, 4},
+                  new TableSwitchGenerator() {
+                    @Override
+                    public void generateCase(final int key, final Label end) {
+                      generatorAdapter.push("case" + key);
+                      generatorAdapter.returnValue();
+                    }
+
+                    @Override
+                    public void generateDefault() {
+                      generatorAdapter.visitInsn(Opcodes.ACONST_NULL);
+                      generatorAdapter.returnValue();
+                    }
+                  });
+              // Unreachable code, which also needs a frame.
+              generatorAdapter.push("unreachable");
+              generatorAdapter.returnValue();
+            });
+
+    assertEquals("case2", invoke(instance, "name", 2));
+    assertEquals(null, invoke(instance, "name", 3));
+  }
+
+  @Test
+  void testVisitJumpInsn_incompatibleBackwardJump() {
+    FrameEmitter frameEmitter =
+        new FrameEmitter("pkg/Class", Opcodes.ACC_STATIC, "name", "()V", null);
+    Label label = new Label();
+    frameEmitter.visitInsn(Opcodes.ICONST_0);
+    frameEmitter.visitVarInsn(Opcodes.ISTORE, 0);
+    frameEmitter.visitLabel(label);
+    frameEmitter.visitInsn(Opcodes.FCONST_0);
+    frameEmitter.visitVarInsn(Opcodes.FSTORE, 0);
+
+    Exception exception =
+        assertThrows(
+            IllegalStateException.class, () -> frameEmitter.visitJumpInsn(Opcodes.GOTO, label));
+    assertEquals(
+        "Incompatible type for local variable 0: float instead of int", exception.getMessage());
+  }
+
+  @Test
+  void testVisitLabel_incompatibleStacks() {
+    FrameEmitter frameEmitter =
+        new FrameEmitter("pkg/Class", Opcodes.ACC_STATIC, "name", "(I)V", null);
+    Label label = new Label();
+    frameEmitter.visitVarInsn(Opcodes.ILOAD, 0);
+    frameEmitter.visitJumpInsn(Opcodes.IFEQ, label);
+    frameEmitter.visitInsn(Opcodes.ICONST_0);
+
+    Exception exception =
+        assertThrows(IllegalStateException.class, () -> frameEmitter.visitLabel(label));
+    assertEquals("Incompatible operand stack sizes: 0 and 1", exception.getMessage());
+  }
+
+  @Test
+  void testVisitLabel_unknownCommonSuperClass() {
+    FrameEmitter frameEmitter =
+        new FrameEmitter("pkg/Class", Opcodes.ACC_STATIC, "name", "(I)V", null);
+    Label label = new Label();
+    frameEmitter.visitLdcInsn("string");
+    frameEmitter.visitVarInsn(Opcodes.ILOAD, 0);
+    frameEmitter.visitJumpInsn(Opcodes.IFEQ, label);
+    frameEmitter.visitInsn(Opcodes.POP);
+    frameEmitter.visitLdcInsn(Type.getObjectType("pkg/Class"));
+
+    Exception exception =
+        assertThrows(IllegalStateException.class, () -> frameEmitter.visitLabel(label));
+    assertEquals(
+        "Unknown common super class of operand stack types: java/lang/String and java/lang/Class",
+        exception.getMessage());
+  }
+
+  @Test
+  void testVisitLabel_rangeEndBeforeStart() {
+    FrameEmitter frameEmitter =
+        new FrameEmitter("pkg/Class", Opcodes.ACC_STATIC, "name", "()V", null);
+    Label start = new Label();
+    Label end = new Label();
+    Label handler = new Label();
+    frameEmitter.visitTryCatchBlock(start, end, handler, null);
+
+    Exception exception =
+        assertThrows(IllegalStateException.class, () -> frameEmitter.visitLabel(end));
+    assertEquals(
+        "The start of an exception handler range must be visited before its end",
+        exception.getMessage());
+  }
+
+  /**
+   * Tests that the frames emitted for the precompiled classes, read without their frames, are
+   * accepted by the JVM verifier.
+   */
+  @ParameterizedTest
+  @MethodSource(ALL_CLASSES_AND_LATEST_API)
+  void testAllMethods_precompiledClass(
+      final PrecompiledClass classParameter, final Api apiParameter) {
+    ClassReader classReader = new ClassReader(classParameter.getBytes());
+    ClassWriter classWriter = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+    ClassVisitor classVisitor =
+        new ClassVisitor(apiParameter.value(), classWriter) {
+          private String owner;
+
+          @Override
+          public void visit(
+              final int version,
+              final int access,
+              final String name,
+              final String signature,
+              final String superName,
+              final String[] interfaces) {
+            owner = name;
+            super.visit(version, access, name, signature, superName, interfaces);
+          }
+
+          @Override
+          public MethodVisitor visitMethod(
+              final int access,
+              final String name,
+              final String descriptor,
+              final String signature,
+              final String[] exceptions) {
+            MethodVisitor methodVisitor =
+                super.visitMethod(access, name, descriptor, signature, exceptions);
+            return new FrameEmitter(
+                api, owner, access, name, descriptor, methodVisitor, /* generatorAdapter= */ null) {
+              @Override
+              protected String getCommonSuperClass(final String type1, final String type2) {
+                return FrameEmitterTest.getCommonSuperClass(type1, type2);
+              }
+            };
+          }
+        };
+
+    Executable accept = () -> classReader.accept(classVisitor, ClassReader.SKIP_FRAMES);
+
+    // jdk3.AllInstructions and jdk3.LargeMethod contain unsupported jsr/ret instructions.
+    if (classParameter == PrecompiledClass.JDK3_ALL_INSTRUCTIONS
+        || classParameter == PrecompiledClass.JDK3_LARGE_METHOD) {
+      Exception exception = assertThrows(IllegalArgumentException.class, accept);
+      assertEquals("JSR/RET are not supported", exception.getMessage());
+    } else if (classParameter == PrecompiledClass.JDK8_ARTIFICIAL_STRUCTURES) {
+      // This class contains a label reached only by a backward jump, with a non empty stack.
+      Exception exception = assertThrows(IllegalStateException.class, accept);
+      assertEquals("Incompatible operand stack sizes: 1 and 3", exception.getMessage());
+    } else {
+      assertDoesNotThrow(accept);
+      Executable newInstance = () -> new ClassFile(classWriter.toByteArray()).newInstance();
+      if (classParameter.isNotCompatibleWithCurrentJdk()) {
+        assertThrows(UnsupportedClassVersionError.class, newInstance);
+      } else {
+        assertDoesNotThrow(newInstance);
+      }
+    }
+  }
+
+  /** Returns the common super class of two classes or array types, using reflection. */
+  private static String getCommonSuperClass(final String type1, final String type2) {
+    try {
+      Class<?> class1 = Class.forName(type1.replace('/', '.'));
+      Class<?> class2 = Class.forName(type2.replace('/', '.'));
+      if (class1.isArray() && class2.isArray()) {
+        if (class1.getComponentType().isPrimitive() || class2.getComponentType().isPrimitive()) {
+          return "java/lang/Object";
+        }
+        return "["
+            + Type.getObjectType(
+                    getCommonSuperClass(
+                        Type.getInternalName(class1.getComponentType()),
+                        Type.getInternalName(class2.getComponentType())))
+                .getDescriptor();
+      }
+      if (class1.isInterface() || class2.isInterface()) {
+        return "java/lang/Object";
+      }
+      while (!class1.isAssignableFrom(class2)) {
+        class1 = class1.getSuperclass();
+      }
+      return Type.getInternalName(class1);
+    } catch (ClassNotFoundException e) {
+      throw new TypeNotPresentException(e.getMessage(), e);
+    }
+  }
+
+  /** Generates the code of a method with a {@link GeneratorAdapter}. */
+  private interface MethodGenerator {
+    void generate(GeneratorAdapter generatorAdapter);
+  }
+
+  private static Object newInstance(
+      final String name, final String descriptor, final MethodGenerator methodGenerator)
+      throws ReflectiveOperationException {
+    return newInstance(name, descriptor, /* commonSuperClass= */ null, methodGenerator);
+  }
+
+  private static Object newInstance(
+      final String name,
+      final String descriptor,
+      final String commonSuperClass,
+      final MethodGenerator methodGenerator)
+      throws ReflectiveOperationException {
+    ClassWriter classWriter = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+    classWriter.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC, "C", null, "java/lang/Object", null);
+    GeneratorAdapter constructor =
+        new GeneratorAdapter(
+            classWriter.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "()V", null, null),
+            Opcodes.ACC_PUBLIC,
+            "<init>",
+            "()V");
+    constructor.emitFrames("C");
+    constructor.loadThis();
+    constructor.invokeConstructor(
+        Type.getObjectType("java/lang/Object"),
+        org.objectweb.asm.commons.Method.getMethod("void <init>()"));
+    constructor.returnValue();
+    constructor.endMethod();
+    GeneratorAdapter generatorAdapter =
+        new GeneratorAdapter(
+            classWriter.visitMethod(Opcodes.ACC_PUBLIC, name, descriptor, null, null),
+            Opcodes.ACC_PUBLIC,
+            name,
+            descriptor);
+    if (commonSuperClass == null) {
+      generatorAdapter.emitFrames("C");
+    } else {
+      generatorAdapter.emitFrames(
+          new FrameEmitter(
+              Opcodes.ASM9,
+              "C",
+              Opcodes.ACC_PUBLIC,
+              name,
+              descriptor,
+              generatorAdapter.getDelegate(),
+              generatorAdapter) {
+            @Override
+            protected String getCommonSuperClass(final String type1, final String type2) {
+              return commonSuperClass;
+            }
+          });
+    }
+    methodGenerator.generate(generatorAdapter);
+    generatorAdapter.endMethod();
+    classWriter.visitEnd();
+    return new ClassFile(classWriter.toByteArray()).newInstance();
+  }
+
+  private static Object invoke(final Object instance, final String name, final Object argument)
+      throws ReflectiveOperationException {
+    for (Method method : instance.getClass().getMethods()) {
+      if (method.getName().equals(name)) {
+        return method.invoke(instance, argument);
+      }
+    }
+    throw new NoSuchMethodException(name);
+  }
+}
@@ -37,15 +37,19 @@ import static org.objectweb.asm.commons.GeneratorAdapter.LE;
 import static org.objectweb.asm.commons.GeneratorAdapter.LT;
 import static org.objectweb.asm.commons.GeneratorAdapter.NE;
 
+import java.lang.annotation.RetentionPolicy;
+import java.lang.reflect.InvocationTargetException;
 import java.util.List;
 import java.util.stream.Collectors;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.function.Executable;
+import org.objectweb.asm.ClassWriter;
 import org.objectweb.asm.ConstantDynamic;
 import org.objectweb.asm.Handle;
 import org.objectweb.asm.Label;
 import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.Type;
+import org.objectweb.asm.test.ClassFile;
 import org.objectweb.asm.tree.ClassNode;
 import org.objectweb.asm.tree.MethodNode;
 import org.objectweb.asm.util.Textifier;
@@ -858,6 +862,184 @@ class GeneratorAdapterTest {
             .catchException(new Label(), new Label(), Type.getObjectType("pkg/Exception")));
   }
 
+  @Test
+  void testStringSwitch() throws ReflectiveOperationException {
+    String[] keys = new String[52];
+    keys[0] = "Aa";
+    keys[1] = "BB";
+    for (int i = 2; i < keys.length; ++i) {
+      keys[i] = "key" + i;
+    }
+    java.lang.reflect.Method method =
+        generateSwitchMethod(
+            "(Ljava/lang/String;)I",
+            generatorAdapter ->
+                generatorAdapter.stringSwitch(keys, generatorAdapter.getCaseGenerator()));
+
+    for (int i = 0; i < keys.length; ++i) {
+      assertEquals(i, method.invoke(null, new String(keys[i])));
+    }
+    assertEquals(-1, method.invoke(null, "key"));
+    assertEquals(-1, method.invoke(null, ""));
+    Exception exception =
+        assertThrows(InvocationTargetException.class, () -> method.invoke(null, (Object) null));
+    assertEquals(NullPointerException.class, exception.getCause().getClass());
+  }
+
+  @Test
+  void testStringSwitch_singleKey() throws ReflectiveOperationException {
+    java.lang.reflect.Method method =
+        generateSwitchMethod(
+            "(Ljava/lang/String;)I",
+            generatorAdapter ->
+                generatorAdapter.stringSwitch(
+                    new String[] {"a"}, generatorAdapter.getCaseGenerator()));
+
+    assertEquals(0, method.invoke(null, "a"));
+    assertEquals(-1, method.invoke(null, "b"));
+  }
+
+  @Test
+  void testStringSwitch_noKey() throws ReflectiveOperationException {
+    java.lang.reflect.Method method =
+        generateSwitchMethod(
+            "(Ljava/lang/String;)I",
+            generatorAdapter ->
+                generatorAdapter.stringSwitch(new String[0], generatorAdapter.getCaseGenerator()));
+
+    assertEquals(-1, method.invoke(null, "a"));
+  }
+
+  @Test
+  void testStringSwitch_duplicateKeys() {
+    Executable stringSwitch =
+        () ->
+            new Generator()
+                .generatorAdapter.stringSwitch(new String[] {"a", "b", "a"}, new Generator());
+
+    Exception exception = assertThrows(IllegalArgumentException.class, stringSwitch);
+    assertEquals("Duplicate switch key: a", exception.getMessage());
+  }
+
+  @Test
+  void testEnumSwitch() throws ReflectiveOperationException {
+    String[] names = {"RUNTIME", "SOURCE"};
+    java.lang.reflect.Method method =
+        generateSwitchMethod(
+            "(Ljava/lang/annotation/RetentionPolicy;)I",
+            generatorAdapter ->
+                generatorAdapter.enumSwitch(names, generatorAdapter.getCaseGenerator()));
+
+    assertEquals(0, method.invoke(null, RetentionPolicy.RUNTIME));
+    assertEquals(1, method.invoke(null, RetentionPolicy.SOURCE));
+    assertEquals(-1, method.invoke(null, RetentionPolicy.CLASS));
+  }
+
+  @Test
+  void testClassSwitch() throws ReflectiveOperationException {
+    Class<?>[] classes = {String.class, int.class, String[].class, Object.class, int[][].class};
+    Type[] keys = new Type[classes.length];
+    for (int i = 0; i < classes.length; ++i) {
+      keys[i] = Type.getType(classes[i]);
+    }
+    java.lang.reflect.Method method =
+        generateSwitchMethod(
+            "(Ljava/lang/Class;)I",
+            generatorAdapter ->
+                generatorAdapter.classSwitch(keys, generatorAdapter.getCaseGenerator()));
+
+    for (int i = 0; i < classes.length; ++i) {
+      assertEquals(i, method.invoke(null, classes[i]));
+    }
+    assertEquals(-1, method.invoke(null, Integer.class));
+    Exception exception =
+        assertThrows(InvocationTargetException.class, () -> method.invoke(null, (Object) null));
+    assertEquals(NullPointerException.class, exception.getCause().getClass());
+  }
+
+  @Test
+  void testClassSwitch_singleKey() throws ReflectiveOperationException {
+    java.lang.reflect.Method method =
+        generateSwitchMethod(
+            "(Ljava/lang/Class;)I",
+            generatorAdapter ->
+                generatorAdapter.classSwitch(
+                    new Type[] {Type.getType(String.class)}, generatorAdapter.getCaseGenerator()));
+
+    assertEquals(0, method.invoke(null, String.class));
+    assertEquals(-1, method.invoke(null, Object.class));
+    Exception exception =
+        assertThrows(InvocationTargetException.class, () -> method.invoke(null, (Object) null));
+    assertEquals(NullPointerException.class, exception.getCause().getClass());
+  }
+
+  /** Generates the switch instructions of a method, with a {@link SwitchGeneratorAdapter}. */
+  private interface SwitchGenerator {
+    void generate(SwitchGeneratorAdapter generatorAdapter);
+  }
+
+  /**
+   * A {@link GeneratorAdapter} whose switch cases return their index, and whose default case
+   * returns -1.
+   */
+  private static final class SwitchGeneratorAdapter extends GeneratorAdapter {
+
+    SwitchGeneratorAdapter(final ClassWriter classWriter, final String descriptor) {
+      super(
+          /* latest */ Opcodes.ASM9,
+          classWriter.visitMethod(
+              Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, "f", descriptor, null, null),
+          Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC,
+          "f",
+          descriptor);
+    }
+
+    TableSwitchGenerator getCaseGenerator() {
+      return new TableSwitchGenerator() {
+        @Override
+        public void generateCase(final int key, final Label end) {
+          push(key);
+          returnValue();
+        }
+
+        @Override
+        public void generateDefault() {
+          push(-1);
+          returnValue();
+        }
+      };
+    }
+  }
+
+  private static java.lang.reflect.Method generateSwitchMethod(
+      final String descriptor, final SwitchGenerator switchGenerator)
+      throws ReflectiveOperationException {
+    ClassWriter classWriter = new ClassWriter(ClassWriter.COMPUTE_FRAMES);
+    classWriter.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC, "C", null, "java/lang/Object", null);
+    GeneratorAdapter constructor =
+        new GeneratorAdapter(
+            classWriter.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "()V", null, null),
+            Opcodes.ACC_PUBLIC,
+            "<init>",
+            "()V");
+    constructor.loadThis();
+    constructor.invokeConstructor(GeneratorAdapter.OBJECT_TYPE, Method.getMethod("void <init>()"));
+    constructor.returnValue();
+    constructor.endMethod();
+    SwitchGeneratorAdapter generatorAdapter = new SwitchGeneratorAdapter(classWriter, descriptor);
+    generatorAdapter.loadArg(0);
+    switchGenerator.generate(generatorAdapter);
+    generatorAdapter.endMethod();
+    classWriter.visitEnd();
+    Object instance = new ClassFile(classWriter.toByteArray()).newInstance();
+    for (java.lang.reflect.Method method : instance.getClass().getMethods()) {
+      if (method.getName().equals("f")) {
+        return method;
+      }
+    }
+    throw new NoSuchMethodException("f");
+  }
+
   public static class GeneratorException extends Exception {
 
     public static final long serialVersionUID = -7167830120642305483L;
@@ -0,0 +1,86 @@
+// ASM: a very small and fast Java bytecode manipulation framework
+// Copyright (c) 2000-2011 INRIA, France Telecom
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+// 1. Redistributions of source code must retain the above copyright
+//    notice, this list of conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright
+//    notice, this list of conditions and the following disclaimer in the
+//    documentation and/or other materials provided with the distribution.
+// 3. Neither the name of the copyright holders nor the names of its
+//    contributors may be used to endorse or promote products derived from
+//    this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+// THE POSSIBILITY OF SUCH DAMAGE.
+package org.objectweb.asm.commons;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashSet;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+/** Unit tests for {@link HashSwitchFunction}. */
+class HashSwitchFunctionTest {
+
+  @Test
+  void testCreate_noHashCode() {
+    HashSwitchFunction hashFunction = HashSwitchFunction.create(new int[0]);
+
+    assertEquals(1, hashFunction.numBuckets);
+    assertEquals(0, hashFunction.numCollisions);
+  }
+
+  @Test
+  void testCreate_duplicateHashCodes() {
+    HashSwitchFunction hashFunction =
+        HashSwitchFunction.create(new int[] {"Aa".hashCode(), "BB".hashCode()});
+
+    assertEquals(1, hashFunction.numBuckets);
+    assertEquals(0, hashFunction.numCollisions);
+  }
+
+  @Test
+  void testCreate_collisionFree() {
+    int[] hashCodes = new int[100];
+    for (int i = 0; i < hashCodes.length; ++i) {
+      hashCodes[i] = ("name" + i).hashCode();
+    }
+
+    HashSwitchFunction hashFunction = HashSwitchFunction.create(hashCodes);
+
+    assertEquals(0, hashFunction.numCollisions);
+    assertTrue(hashFunction.numBuckets <= 4 * hashCodes.length);
+    Set<Integer> buckets = new HashSet<>();
+    for (int hashCode : hashCodes) {
+      int bucket = hashFunction.getBucket(hashCode);
+      assertTrue(bucket >= 0 && bucket < hashFunction.numBuckets);
+      buckets.add(bucket);
+    }
+    assertEquals(hashCodes.length, buckets.size());
+  }
+
+  @Test
+  void testCreate_hashCodesDifferingInHighBits() {
+    int[] hashCodes = {0, 1 << 28, 2 << 28, 3 << 28};
+
+    HashSwitchFunction hashFunction = HashSwitchFunction.create(hashCodes);
+
+    assertEquals(0, hashFunction.numCollisions);
+    assertEquals(4, hashFunction.numBuckets);
+  }
+}
@@ -0,0 +1,263 @@
+// ASM: a very small and fast Java bytecode manipulation framework
+// Copyright (c) 2000-2011 INRIA, France Telecom
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+// 1. Redistributions of source code must retain the above copyright
+//    notice, this list of conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright
+//    notice, this list of conditions and the following disclaimer in the
+//    documentation and/or other materials provided with the distribution.
+// 3. Neither the name of the copyright holders nor the names of its
+//    contributors may be used to endorse or promote products derived from
+//    this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+// THE POSSIBILITY OF SUCH DAMAGE.
+package org.objectweb.asm.commons;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.jupiter.api.Test;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.MethodInsnNode;
+import org.objectweb.asm.tree.MethodNode;
+
+/** Unit tests for {@link HierarchyRemapperBuilder} and {@link HierarchyRemapper}. */
+class HierarchyRemapperBuilderTest {
+
+  @Test
+  void testBuild_overridingMethods() {
+    HierarchyRemapperBuilder builder = newBuilder();
+    Map<String, String> mapping = new HashMap<>();
+    mapping.put("pkg/A.m()V", "a");
+
+    HierarchyRemapper remapper = builder.build(new SimpleRemapper(Opcodes.ASM9, mapping));
+
+    assertEquals("a", remapper.mapMethodName("pkg/A", "m", "()V"));
+    assertEquals("a", remapper.mapMethodName("pkg/B", "m", "()V"));
+    assertEquals("a", remapper.mapMethodName("pkg/C", "m", "()V"));
+    assertEquals("m", remapper.mapMethodName("pkg/D", "m", "()V"));
+    assertEquals("m", remapper.mapMethodName("pkg/A", "m", "(I)V"));
+  }
+
+  @Test
+  void testBuild_renamedInSubclass() {
+    HierarchyRemapperBuilder builder = newBuilder();
+    Map<String, String> mapping = new HashMap<>();
+    mapping.put("pkg/B.m()V", "b");
+
+    HierarchyRemapper remapper = builder.build(new SimpleRemapper(Opcodes.ASM9, mapping));
+
+    assertEquals("b", remapper.mapMethodName("pkg/A", "m", "()V"));
+    assertEquals("b", remapper.mapMethodName("pkg/C", "m", "()V"));
+  }
+
+  @Test
+  void testBuild_interfaceImplementedByInheritedMethod() {
+    HierarchyRemapperBuilder builder = newBuilder();
+    Map<String, String> mapping = new HashMap<>();
+    mapping.put("pkg/I.n()V", "c");
+
+    HierarchyRemapper remapper = builder.build(new SimpleRemapper(Opcodes.ASM9, mapping));
+
+    // D inherits E.n() and implements I.n(), so E.n() and I.n() are in the same family.
+    assertEquals("c", remapper.mapMethodName("pkg/I", "n", "()V"));
+    assertEquals("c", remapper.mapMethodName("pkg/E", "n", "()V"));
+    assertEquals("c", remapper.mapMethodName("pkg/D", "n", "()V"));
+    assertEquals("n", remapper.mapMethodName("pkg/A", "n", "()V"));
+  }
+
+  @Test
+  void testBuild_privateMethods() {
+    HierarchyRemapperBuilder builder = newBuilder();
+    Map<String, String> mapping = new HashMap<>();
+    mapping.put("pkg/A.p()V", "d");
+    mapping.put("pkg/A.<init>()V", "e");
+
+    HierarchyRemapper remapper = builder.build(new SimpleRemapper(Opcodes.ASM9, mapping));
+
+    assertEquals("d", remapper.mapMethodName("pkg/A", "p", "()V"));
+    assertEquals("p", remapper.mapMethodName("pkg/B", "p", "()V"));
+    assertEquals("<init>", remapper.mapMethodName("pkg/B", "<init>", "()V"));
+  }
+
+  @Test
+  void testBuild_conflictingNames() {
+    HierarchyRemapperBuilder builder = newBuilder();
+    Map<String, String> mapping = new HashMap<>();
+    mapping.put("pkg/A.m()V", "a");
+    mapping.put("pkg/B.m()V", "b");
+    SimpleRemapper simpleRemapper = new SimpleRemapper(Opcodes.ASM9, mapping);
+
+    assertThrows(IllegalArgumentException.class, () -> builder.build(simpleRemapper));
+  }
+
+  @Test
+  void testMapValue() {
+    HierarchyRemapperBuilder builder = newBuilder();
+    Map<String, String> mapping = new HashMap<>();
+    mapping.put("pkg/A.m()V", "a");
+    mapping.put("pkg/A", "pkg/Z");
+    SimpleRemapper simpleRemapper =
+        new SimpleRemapper(Opcodes.ASM9, mapping) {
+          @Override
+          public Object mapValue(final Object value) {
+            return "constant".equals(value) ? "renamedConstant" : super.mapValue(value);
+          }
+
+          @Override
+          public String[] mapTypes(final String[] internalNames) {
+            return new String[] {"pkg/Y"};
+          }
+        };
+
+    HierarchyRemapper remapper = builder.build(simpleRemapper);
+
+    assertEquals("renamedConstant", remapper.mapValue("constant"));
+    assertEquals(Type.getType("Lpkg/Z;"), remapper.mapValue(Type.getType("Lpkg/A;")));
+    assertEquals(
+        new Handle(Opcodes.H_INVOKEVIRTUAL, "pkg/B", "a", "()V", false),
+        remapper.mapValue(new Handle(Opcodes.H_INVOKEVIRTUAL, "pkg/B", "m", "()V", false)));
+    assertArrayEquals(new String[] {"pkg/Y"}, remapper.mapTypes(new String[] {"pkg/A"}));
+  }
+
+  @Test
+  void testAddClasses() throws InterruptedException {
+    List<byte[]> classFiles = new ArrayList<>();
+    for (int i = 0; i < 200; ++i) {
+      classFiles.add(newClass("pkg/Sub" + i, "pkg/A", new String[0], Opcodes.ACC_PUBLIC, "q"));
+    }
+    classFiles.add(newClass("pkg/A", "java/lang/Object", new String[0], Opcodes.ACC_PUBLIC, "m"));
+    HierarchyRemapperBuilder builder = new HierarchyRemapperBuilder();
+    ExecutorService executorService = Executors.newFixedThreadPool(4);
+    try {
+      builder.addClasses(classFiles, executorService);
+    } finally {
+      executorService.shutdown();
+    }
+    Map<String, String> mapping = new HashMap<>();
+    mapping.put("pkg/A.m()V", "a");
+
+    HierarchyRemapper remapper = builder.build(new SimpleRemapper(Opcodes.ASM9, mapping));
+
+    assertEquals(201, builder.classes.size());
+    assertEquals("a", remapper.mapMethodName("pkg/Sub0", "m", "()V"));
+    assertEquals("a", remapper.mapMethodName("pkg/Sub199", "m", "()V"));
+  }
+
+  @Test
+  void testClassRemapper() {
+    HierarchyRemapperBuilder builder = newBuilder();
+    Map<String, String> mapping = new HashMap<>();
+    mapping.put("pkg/A.m()V", "a");
+    mapping.put("pkg/C", "pkg/Renamed");
+    HierarchyRemapper remapper = builder.build(new SimpleRemapper(Opcodes.ASM9, mapping));
+    ClassWriter classWriter = new ClassWriter(0);
+    ClassWriter callerWriter = new ClassWriter(0);
+    callerWriter.visit(
+        Opcodes.V1_8, Opcodes.ACC_PUBLIC, "pkg/Caller", null, "java/lang/Object", null);
+    MethodVisitor methodVisitor =
+        callerWriter.visitMethod(Opcodes.ACC_STATIC, "call", "(Lpkg/C;)V", null, null);
+    methodVisitor.visitCode();
+    methodVisitor.visitVarInsn(Opcodes.ALOAD, 0);
+    methodVisitor.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "pkg/C", "m", "()V", false);
+    methodVisitor.visitInsn(Opcodes.RETURN);
+    methodVisitor.visitMaxs(1, 1);
+    methodVisitor.visitEnd();
+    callerWriter.visitEnd();
+
+    new ClassReader(callerWriter.toByteArray()).accept(new ClassRemapper(classWriter, remapper), 0);
+
+    ClassNode classNode = new ClassNode();
+    new ClassReader(classWriter.toByteArray()).accept(classNode, 0);
+    MethodNode methodNode = classNode.methods.get(0);
+    MethodInsnNode methodInsnNode = (MethodInsnNode) methodNode.instructions.get(1);
+    assertEquals("(Lpkg/Renamed;)V", methodNode.desc);
+    assertEquals("pkg/Renamed", methodInsnNode.owner);
+    assertEquals("a", methodInsnNode.name);
+  }
+
+  /**
+   * Returns a builder with the following classes: A declares m(), B extends A and overrides m(), C
+   * extends B, E declares n(), D extends E and implements I, and I declares n(). All the classes
+   * also declare a constructor, a private p() method and a public m(int) method.
+   *
+   * @return a builder for the test classes.
+   */
+  private static HierarchyRemapperBuilder newBuilder() {
+    HierarchyRemapperBuilder builder = new HierarchyRemapperBuilder();
+    String[] noInterfaces = new String[0];
+    builder.addClass(newClass("pkg/A", "java/lang/Object", noInterfaces, Opcodes.ACC_PUBLIC, "m"));
+    builder.addClass(newClass("pkg/B", "pkg/A", noInterfaces, Opcodes.ACC_PUBLIC, "m"));
+    builder.addClass(newClass("pkg/C", "pkg/B", noInterfaces, Opcodes.ACC_PUBLIC));
+    builder.addClass(newClass("pkg/D", "pkg/E", new String[] {"pkg/I"}, Opcodes.ACC_PUBLIC));
+    builder.addClass(newClass("pkg/E", "java/lang/Object", noInterfaces, Opcodes.ACC_PUBLIC, "n"));
+    builder.addClass(
+        newClass(
+            "pkg/I",
+            "java/lang/Object",
+            noInterfaces,
+            Opcodes.ACC_PUBLIC | Opcodes.ACC_INTERFACE | Opcodes.ACC_ABSTRACT,
+            "n"));
+    return builder;
+  }
+
+  /**
+   * Returns a class with the given header and public methods. Classes also get a constructor, a
+   * private p() method and a public m(int) method.
+   *
+   * @param name the internal name of the class.
+   * @param superName the internal name of its super class.
+   * @param interfaces the internal names of its super interfaces.
+   * @param access the access flags of the class.
+   * @param methodNames the names of the public methods of the class, all with a ()V descriptor.
+   * @return the content of the class file.
+   */
+  private static byte[] newClass(
+      final String name,
+      final String superName,
+      final String[] interfaces,
+      final int access,
+      final String... methodNames) {
+    ClassWriter classWriter = new ClassWriter(0);
+    classWriter.visit(Opcodes.V1_8, access, name, null, superName, interfaces);
+    if ((access & Opcodes.ACC_INTERFACE) == 0) {
+      classWriter.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "()V", null, null).visitEnd();
+      classWriter.visitMethod(Opcodes.ACC_PRIVATE, "p", "()V", null, null).visitEnd();
+      classWriter.visitMethod(Opcodes.ACC_PUBLIC, "m", "(I)V", null, null).visitEnd();
+    }
+    for (String methodName : methodNames) {
+      classWriter
+          .visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_ABSTRACT, methodName, "()V", null, null)
+          .visitEnd();
+    }
+    classWriter.visitEnd();
+    return classWriter.toByteArray();
+  }
+}
@@ -0,0 +1,226 @@
+// ASM: a very small and fast Java bytecode manipulation framework
+// Copyright (c) 2000-2011 INRIA, France Telecom
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+// 1. Redistributions of source code must retain the above copyright
+//    notice, this list of conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright
+//    notice, this list of conditions and the following disclaimer in the
+//    documentation and/or other materials provided with the distribution.
+// 3. Neither the name of the copyright holders nor the names of its
+//    contributors may be used to endorse or promote products derived from
+//    this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+// THE POSSIBILITY OF SUCH DAMAGE.
+package org.objectweb.asm.commons;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.test.AsmTest;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.FieldNode;
+import org.objectweb.asm.tree.MethodNode;
+
+/** Unit tests for {@link MappingRemapper}. */
+class MappingRemapperTest extends AsmTest {
+
+  @Test
+  void testMapMethods() {
+    MappingRemapper remapper = new MappingRemapper();
+    remapper.addClassMapping("pkg/C", "a");
+    remapper.addPackageMapping("pkg", "p");
+    remapper.addFieldMapping("pkg/C", "field", "b");
+    remapper.addMethodMapping("pkg/C", "method", "(I)V", "c");
+    remapper.addMethodMapping("pkg/C", "value", "()I", "d");
+    remapper.addMethodMapping(null, "run", "()Ljava/lang/Runnable;", "e");
+
+    assertEquals("a", remapper.map("pkg/C"));
+    assertNull(remapper.map("pkg/D"));
+    assertEquals("La;", remapper.mapDesc("Lpkg/C;"));
+    assertEquals("p", remapper.mapPackageName("pkg"));
+    assertEquals("q", remapper.mapPackageName("q"));
+    assertEquals("b", remapper.mapFieldName("pkg/C", "field", "I"));
+    assertEquals("b", remapper.mapRecordComponentName("pkg/C", "field", "I"));
+    assertEquals("field", remapper.mapFieldName("pkg/D", "field", "I"));
+    assertEquals("c", remapper.mapMethodName("pkg/C", "method", "(I)V"));
+    assertEquals("method", remapper.mapMethodName("pkg/C", "method", "(J)V"));
+    assertEquals("d", remapper.mapAnnotationAttributeName("Lpkg/C;", "value"));
+    assertEquals("method", remapper.mapAnnotationAttributeName("Lpkg/C;", "method"));
+    assertEquals("e", remapper.mapInvokeDynamicMethodName("run", "()Ljava/lang/Runnable;"));
+    assertEquals("run", remapper.mapInvokeDynamicMethodName("run", "()V"));
+  }
+
+  @Test
+  void testReadProGuardMapping() throws IOException {
+    String mapping =
+        "# compiler: R8\n"
+            + "com.example.Foo -> a.b:\n"
+            + "    int count -> a\n"
+            + "    java.lang.String[] names -> b\n"
+            + "    void <init>() -> <init>\n"
+            + "    1:5:long compute(int,java.lang.String[][],boolean):10:14 -> c\n"
+            + "    6:6:void com.example.Bar.inlined():20:20 -> c\n"
+            + "com.example.Bar -> a.c:\n"
+            + "    com.example.Foo get() -> a\n";
+    MappingRemapper remapper = new MappingRemapper();
+
+    remapper.readProGuardMapping(new StringReader(mapping));
+
+    assertEquals("a/b", remapper.map("com/example/Foo"));
+    assertEquals("a/c", remapper.map("com/example/Bar"));
+    assertEquals("a", remapper.mapFieldName("com/example/Foo", "count", "I"));
+    assertEquals("b", remapper.mapFieldName("com/example/Foo", "names", "[Ljava/lang/String;"));
+    assertEquals(
+        "c", remapper.mapMethodName("com/example/Foo", "compute", "(I[[Ljava/lang/String;Z)J"));
+    assertEquals("inlined", remapper.mapMethodName("com/example/Bar", "inlined", "()V"));
+    assertEquals("a", remapper.mapMethodName("com/example/Bar", "get", "()Lcom/example/Foo;"));
+    assertEquals(3, remapper.methodMapping.size());
+  }
+
+  @Test
+  void testReadTinyMapping_v1() throws IOException {
+    String mapping =
+        "v1\tofficial\tintermediary\tnamed\n"
+            + "CLASS\ta\tclass_1\tcom/example/Foo\n"
+            + "CLASS\tb\tclass_2\tcom/example/Bar\n"
+            + "FIELD\ta\tLb;\tc\tfield_1\tbar\n"
+            + "METHOD\ta\t(Lb;)La;\td\tmethod_1\twith\n"
+            + "METHOD\ta\t()V\te\tmethod_2\t\n";
+    MappingRemapper remapper = new MappingRemapper();
+
+    remapper.readTinyMapping(new StringReader(mapping), "intermediary", "named");
+
+    assertEquals("com/example/Foo", remapper.map("class_1"));
+    assertEquals("bar", remapper.mapFieldName("class_1", "field_1", "Lclass_2;"));
+    assertEquals("with", remapper.mapMethodName("class_1", "method_1", "(Lclass_2;)Lclass_1;"));
+    assertEquals("method_2", remapper.mapMethodName("class_1", "method_2", "()V"));
+  }
+
+  @Test
+  void testReadTinyMapping_v2() throws IOException {
+    String mapping =
+        "tiny\t2\t0\tofficial\tnamed\n"
+            + "c\ta\tcom/example/Foo\n"
+            + "\tc\tA class comment.\n"
+            + "\tf\tI\tb\tcount\n"
+            + "\tm\t(La;)V\tc\tcopy\n"
+            + "\t\tp\t1\t\tother\n"
+            + "c\td\n"
+            + "\tm\t()La;\te\tget\n";
+    MappingRemapper remapper = new MappingRemapper();
+
+    remapper.readTinyMapping(new StringReader(mapping), "official", "named");
+
+    assertEquals("com/example/Foo", remapper.map("a"));
+    assertEquals("d", remapper.map("d"));
+    assertEquals("count", remapper.mapFieldName("a", "b", "I"));
+    assertEquals("copy", remapper.mapMethodName("a", "c", "(La;)V"));
+    assertEquals("get", remapper.mapMethodName("d", "e", "()La;"));
+  }
+
+  @Test
+  void testReadTinyMapping_invalid() {
+    MappingRemapper remapper = new MappingRemapper();
+
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> remapper.readTinyMapping(new StringReader("v2\ta\tb\n"), "a", "b"));
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> remapper.readTinyMapping(new StringReader("v1\ta\tb\n"), "a", "c"));
+  }
+
+  @Test
+  void testReadSrgMapping() throws IOException {
+    String mapping =
+        "PK: net/minecraft/src net/minecraft/client\n"
+            + "CL: a net/minecraft/client/Main\n"
+            + "FD: a/b net/minecraft/client/Main/field_1\n"
+            + "MD: a/c (La;)V net/minecraft/client/Main/func_1 (Lnet/minecraft/client/Main;)V\n";
+    MappingRemapper remapper = new MappingRemapper();
+
+    remapper.readSrgMapping(new StringReader(mapping));
+
+    assertEquals("net.minecraft.client", remapper.mapPackageName("net.minecraft.src"));
+    assertEquals("net/minecraft/client/Main", remapper.map("a"));
+    assertEquals("field_1", remapper.mapFieldName("a", "b", "I"));
+    assertEquals("func_1", remapper.mapMethodName("a", "c", "(La;)V"));
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> remapper.readSrgMapping(new StringReader("XX: a b\n")));
+  }
+
+  /**
+   * Tests that a {@link MappingRemapper} gives the same result as a {@link SimpleRemapper} with the
+   * same mappings.
+   */
+  @ParameterizedTest
+  @MethodSource(ALL_CLASSES_AND_LATEST_API)
+  void testClassRemapper_sameAsSimpleRemapper(
+      final PrecompiledClass classParameter, final Api apiParameter) {
+    ClassNode classNode = new ClassNode();
+    new ClassReader(classParameter.getBytes()).accept(classNode, 0);
+    Map<String, String> mapping = new HashMap<>();
+    MappingRemapper mappingRemapper = new MappingRemapper();
+    mapping.put(classNode.name, classNode.name + "Renamed");
+    mappingRemapper.addClassMapping(classNode.name, classNode.name + "Renamed");
+    for (FieldNode fieldNode : classNode.fields) {
+      mapping.put(classNode.name + '.' + fieldNode.name, fieldNode.name + "Renamed");
+      mappingRemapper.addFieldMapping(classNode.name, fieldNode.name, fieldNode.name + "Renamed");
+    }
+    for (MethodNode methodNode : classNode.methods) {
+      if (!methodNode.name.startsWith("<")) {
+        String newName = methodNode.name + "Renamed";
+        mapping.put(classNode.name + '.' + methodNode.name + methodNode.desc, newName);
+        if (methodNode.desc.startsWith("()")) {
+          mapping.put('L' + classNode.name + ";." + methodNode.name, newName);
+        }
+        mappingRemapper.addMethodMapping(classNode.name, methodNode.name, methodNode.desc, newName);
+      }
+    }
+    // Unlike SimpleRemapper, MappingRemapper also renames the record components like their fields.
+    Remapper simpleRemapper =
+        new SimpleRemapper(Opcodes.ASM9, mapping) {
+          @Override
+          public String mapRecordComponentName(
+              final String owner, final String name, final String descriptor) {
+            return mapFieldName(owner, name, descriptor);
+          }
+        };
+    ClassWriter expectedClassWriter = new ClassWriter(0);
+    ClassWriter actualClassWriter = new ClassWriter(0);
+
+    new ClassReader(classParameter.getBytes())
+        .accept(new ClassRemapper(expectedClassWriter, simpleRemapper), 0);
+    new ClassReader(classParameter.getBytes())
+        .accept(new ClassRemapper(actualClassWriter, mappingRemapper), 0);
+
+    assertArrayEquals(expectedClassWriter.toByteArray(), actualClassWriter.toByteArray());
+  }
+}
@@ -0,0 +1,79 @@
+// ASM: a very small and fast Java bytecode manipulation framework
+// Copyright (c) 2000-2011 INRIA, France Telecom
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+// 1. Redistributions of source code must retain the above copyright
+//    notice, this list of conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright
+//    notice, this list of conditions and the following disclaimer in the
+//    documentation and/or other materials provided with the distribution.
+// 3. Neither the name of the copyright holders nor the names of its
+//    contributors may be used to endorse or promote products derived from
+//    this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+// THE POSSIBILITY OF SUCH DAMAGE.
+package org.objectweb.asm.commons;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+/** Unit tests for {@link MemberNameTable}. */
+class MemberNameTableTest {
+
+  @Test
+  void testPutAndGet() {
+    MemberNameTable table = new MemberNameTable();
+
+    for (int i = 0; i < 1000; ++i) {
+      table.put("owner" + (i % 10), "name" + i, i % 2 == 0 ? null : "()V", "newName" + i);
+    }
+
+    assertEquals(1000, table.size());
+    for (int i = 0; i < 1000; ++i) {
+      assertEquals(
+          "newName" + i, table.get("owner" + (i % 10), "name" + i, i % 2 == 0 ? null : "()V"));
+    }
+    assertNull(table.get("owner1", "name0", null));
+    assertNull(table.get("owner0", "name0", "()V"));
+    assertNull(table.get(null, "name0", null));
+  }
+
+  @Test
+  void testPut_replace() {
+    MemberNameTable table = new MemberNameTable();
+
+    table.put(null, "name", "()V", "a");
+    table.put(null, "name", "()V", "b");
+
+    assertEquals(1, table.size());
+    assertEquals("b", table.get(null, "name", "()V"));
+  }
+
+  @Test
+  void testPut_nullNewName() {
+    MemberNameTable table = new MemberNameTable();
+
+    assertThrows(IllegalArgumentException.class, () -> table.put("owner", "name", null, null));
+  }
+
+  @Test
+  void testGet_empty() {
+    assertNull(new MemberNameTable().get("owner", "name", "()V"));
+  }
+}
@@ -0,0 +1,347 @@
+// ASM: a very small and fast Java bytecode manipulation framework
+// Copyright (c) 2000-2011 INRIA, France Telecom
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+// 1. Redistributions of source code must retain the above copyright
+//    notice, this list of conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright
+//    notice, this list of conditions and the following disclaimer in the
+//    documentation and/or other materials provided with the distribution.
+// 3. Neither the name of the copyright holders nor the names of its
+//    contributors may be used to endorse or promote products derived from
+//    this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+// THE POSSIBILITY OF SUCH DAMAGE.
+package org.objectweb.asm.commons;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.test.AsmTest;
+import org.objectweb.asm.test.ClassFile;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.MethodInsnNode;
+import org.objectweb.asm.tree.MethodNode;
+
+/** Unit tests for {@link MethodInliner}. */
+class MethodInlinerTest extends AsmTest {
+
+  private static final Type OWNER_TYPE = Type.getObjectType("C");
+
+  private static final int[] ARGUMENTS = {0, 1, -7, 42};
+
+  @Test
+  void testConstructor() {
+    assertEquals(MethodInliner.DEFAULT_MAX_INLINED_SIZE, new MethodInliner().maxInlinedSize);
+    assertEquals(10, new MethodInliner(10).maxInlinedSize);
+    assertThrows(IllegalArgumentException.class, () -> new MethodInliner(-1));
+  }
+
+  @Test
+  void testInline() throws ReflectiveOperationException {
+    assertInlinedCallsHaveSameResults(generateClass(/* javac11Calls= */ false));
+  }
+
+  /**
+   * Tests that the calls to private instance methods compiled as javac 11 and later do (with
+   * INVOKEVIRTUAL instead of INVOKESPECIAL) are inlined.
+   */
+  @Test
+  void testInline_invokeVirtual() throws ReflectiveOperationException {
+    assertInlinedCallsHaveSameResults(generateClass(/* javac11Calls= */ true));
+  }
+
+  @Test
+  void testInline_invokeInterface() {
+    ClassWriter classWriter = new ClassWriter(ClassWriter.COMPUTE_FRAMES);
+    classWriter.visit(
+        Opcodes.V11,
+        Opcodes.ACC_PUBLIC | Opcodes.ACC_ABSTRACT | Opcodes.ACC_INTERFACE,
+        "I",
+        null,
+        "java/lang/Object",
+        null);
+    // private int twice(int x) { return x + x; }
+    GeneratorAdapter generatorAdapter =
+        newMethod(classWriter, Opcodes.ACC_PRIVATE, "int twice(int)");
+    generatorAdapter.loadArg(0);
+    generatorAdapter.loadArg(0);
+    generatorAdapter.math(GeneratorAdapter.ADD, Type.INT_TYPE);
+    generatorAdapter.returnValue();
+    generatorAdapter.endMethod();
+    // default int compute(int x) { return twice(x); }
+    generatorAdapter = newMethod(classWriter, Opcodes.ACC_PUBLIC, "int compute(int)");
+    generatorAdapter.loadThis();
+    generatorAdapter.loadArg(0);
+    generatorAdapter.invokeInterface(Type.getObjectType("I"), Method.getMethod("int twice(int)"));
+    generatorAdapter.returnValue();
+    generatorAdapter.endMethod();
+    classWriter.visitEnd();
+    ClassNode classNode = new ClassNode();
+    new ClassReader(classWriter.toByteArray()).accept(classNode, 0);
+
+    int numInlinedCalls = new MethodInliner().inline(classNode);
+
+    assertEquals(1, numInlinedCalls);
+    assertEquals(List.of(), getCalledMethods(classNode, "compute"));
+  }
+
+  private static void assertInlinedCallsHaveSameResults(final byte[] classFile)
+      throws ReflectiveOperationException {
+    ClassNode classNode = new ClassNode();
+    new ClassReader(classFile).accept(classNode, 0);
+
+    int numInlinedCalls = new MethodInliner().inline(classNode);
+
+    // The call to safeDiv with a non empty stack, and the calls to the large method, remain.
+    assertEquals(5, numInlinedCalls);
+    assertEquals(List.of("safeDiv", "large"), getCalledMethods(classNode, "compute"));
+    assertEquals(List.of(), getCalledMethods(classNode, "other"));
+    ClassWriter classWriter = new ClassWriter(ClassWriter.COMPUTE_FRAMES);
+    classNode.accept(classWriter);
+    Object expectedInstance = new ClassFile(classFile).newInstance();
+    Object actualInstance = new ClassFile(classWriter.toByteArray()).newInstance();
+    for (int argument : ARGUMENTS) {
+      assertEquals(
+          invoke(expectedInstance, "compute", argument),
+          invoke(actualInstance, "compute", argument));
+      assertEquals(
+          invoke(expectedInstance, "other", expectedInstance, argument),
+          invoke(actualInstance, "other", actualInstance, argument));
+    }
+    Executable nullReceiver = () -> invoke(actualInstance, "other", null, 1);
+    Exception exception = assertThrows(InvocationTargetException.class, nullReceiver);
+    assertEquals(NullPointerException.class, exception.getCause().getClass());
+  }
+
+  @Test
+  void testInline_maxInlinedSize() {
+    ClassNode classNode = new ClassNode();
+    new ClassReader(generateClass(/* javac11Calls= */ false)).accept(classNode, 0);
+
+    int numInlinedCalls = new MethodInliner(0).inline(classNode);
+
+    assertEquals(0, numInlinedCalls);
+  }
+
+  /**
+   * Tests that the precompiled classes, with their small private methods inlined, are accepted by
+   * the JVM verifier.
+   */
+  @ParameterizedTest
+  @MethodSource(ALL_CLASSES_AND_LATEST_API)
+  void testInline_precompiledClass(final PrecompiledClass classParameter, final Api apiParameter) {
+    ClassNode classNode = new ClassNode(apiParameter.value());
+    new ClassReader(classParameter.getBytes()).accept(classNode, 0);
+
+    new MethodInliner(1000).inline(classNode);
+
+    ClassWriter classWriter = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+    classNode.accept(classWriter);
+    Executable newInstance = () -> new ClassFile(classWriter.toByteArray()).newInstance();
+    if (classParameter.isNotCompatibleWithCurrentJdk()) {
+      assertThrows(UnsupportedClassVersionError.class, newInstance);
+    } else {
+      assertDoesNotThrow(newInstance);
+    }
+  }
+
+  private static List<String> getCalledMethods(final ClassNode classNode, final String name) {
+    List<String> calledMethods = new ArrayList<>();
+    for (MethodNode methodNode : classNode.methods) {
+      if (methodNode.name.equals(name)) {
+        for (AbstractInsnNode insnNode : methodNode.instructions) {
+          if (insnNode instanceof MethodInsnNode
+              && ((MethodInsnNode) insnNode).owner.equals(classNode.name)) {
+            calledMethods.add(((MethodInsnNode) insnNode).name);
+          }
+        }
+      }
+    }
+    return calledMethods;
+  }
+
+  private static Object invoke(final Object instance, final String name, final Object... arguments)
+      throws ReflectiveOperationException {
+    for (java.lang.reflect.Method method : instance.getClass().getMethods()) {
+      if (method.getName().equals(name)) {
+        return method.invoke(instance, arguments);
+      }
+    }
+    throw new NoSuchMethodException(name);
+  }
+
+  /**
+   * Generates a class with some small private methods, a large private method, and two public
+   * methods calling them.
+   *
+   * @param javac11Calls whether the private instance methods must be called with INVOKEVIRTUAL, as
+   *     javac 11 and later do, instead of INVOKESPECIAL.
+   */
+  private static byte[] generateClass(final boolean javac11Calls) {
+    ClassWriter classWriter = new ClassWriter(ClassWriter.COMPUTE_FRAMES);
+    classWriter.visit(
+        javac11Calls ? Opcodes.V11 : Opcodes.V1_8,
+        Opcodes.ACC_PUBLIC,
+        "C",
+        null,
+        "java/lang/Object",
+        null);
+    GeneratorAdapter generatorAdapter = newMethod(classWriter, Opcodes.ACC_PUBLIC, "void <init>()");
+    generatorAdapter.loadThis();
+    generatorAdapter.invokeConstructor(
+        Type.getObjectType("java/lang/Object"), Method.getMethod("void <init>()"));
+    generatorAdapter.returnValue();
+    generatorAdapter.endMethod();
+
+    // private static int square(int x) { return x * x; }
+    generatorAdapter =
+        newMethod(classWriter, Opcodes.ACC_PRIVATE | Opcodes.ACC_STATIC, "int square(int)");
+    generatorAdapter.loadArg(0);
+    generatorAdapter.loadArg(0);
+    generatorAdapter.math(GeneratorAdapter.MUL, Type.INT_TYPE);
+    generatorAdapter.returnValue();
+    generatorAdapter.endMethod();
+
+    // private static int abs(int x) { if (x < 0) return -x; return x; }
+    generatorAdapter =
+        newMethod(classWriter, Opcodes.ACC_PRIVATE | Opcodes.ACC_STATIC, "int abs(int)");
+    Label positive = new Label();
+    generatorAdapter.loadArg(0);
+    generatorAdapter.ifZCmp(GeneratorAdapter.GE, positive);
+    generatorAdapter.loadArg(0);
+    generatorAdapter.math(GeneratorAdapter.NEG, Type.INT_TYPE);
+    generatorAdapter.returnValue();
+    generatorAdapter.mark(positive);
+    generatorAdapter.loadArg(0);
+    generatorAdapter.returnValue();
+    generatorAdapter.endMethod();
+
+    // private static int safeDiv(int x, int y) {
+    //   try { return x / y; } catch (ArithmeticException e) { return -1; }
+    // }
+    generatorAdapter =
+        newMethod(classWriter, Opcodes.ACC_PRIVATE | Opcodes.ACC_STATIC, "int safeDiv(int, int)");
+    Label tryStart = generatorAdapter.mark();
+    generatorAdapter.loadArg(0);
+    generatorAdapter.loadArg(1);
+    generatorAdapter.math(GeneratorAdapter.DIV, Type.INT_TYPE);
+    generatorAdapter.returnValue();
+    Label tryEnd = generatorAdapter.mark();
+    generatorAdapter.catchException(
+        tryStart, tryEnd, Type.getObjectType("java/lang/ArithmeticException"));
+    generatorAdapter.pop();
+    generatorAdapter.push(-1);
+    generatorAdapter.returnValue();
+    generatorAdapter.endMethod();
+
+    // private int twice(int x) { int y = x + x; return y; }
+    generatorAdapter = newMethod(classWriter, Opcodes.ACC_PRIVATE, "int twice(int)");
+    int local = generatorAdapter.newLocal(Type.INT_TYPE);
+    generatorAdapter.loadArg(0);
+    generatorAdapter.loadArg(0);
+    generatorAdapter.math(GeneratorAdapter.ADD, Type.INT_TYPE);
+    generatorAdapter.storeLocal(local);
+    generatorAdapter.loadLocal(local);
+    generatorAdapter.returnValue();
+    generatorAdapter.endMethod();
+
+    // private static int large(int x) { return x + 1 + 2 + ... + 20; }
+    generatorAdapter =
+        newMethod(classWriter, Opcodes.ACC_PRIVATE | Opcodes.ACC_STATIC, "int large(int)");
+    generatorAdapter.loadArg(0);
+    for (int i = 1; i <= 20; ++i) {
+      generatorAdapter.push(i);
+      generatorAdapter.math(GeneratorAdapter.ADD, Type.INT_TYPE);
+    }
+    generatorAdapter.returnValue();
+    generatorAdapter.endMethod();
+
+    // public int compute(int x) {
+    //   int y = safeDiv(100, x);
+    //   return y + safeDiv(x, 2) + square(abs(x)) + twice(x) + large(x);
+    // }
+    generatorAdapter = newMethod(classWriter, Opcodes.ACC_PUBLIC, "int compute(int)");
+    local = generatorAdapter.newLocal(Type.INT_TYPE);
+    generatorAdapter.push(100);
+    generatorAdapter.loadArg(0);
+    generatorAdapter.invokeStatic(OWNER_TYPE, Method.getMethod("int safeDiv(int, int)"));
+    generatorAdapter.storeLocal(local);
+    generatorAdapter.loadLocal(local);
+    generatorAdapter.loadArg(0);
+    generatorAdapter.push(2);
+    generatorAdapter.invokeStatic(OWNER_TYPE, Method.getMethod("int safeDiv(int, int)"));
+    generatorAdapter.math(GeneratorAdapter.ADD, Type.INT_TYPE);
+    generatorAdapter.loadArg(0);
+    generatorAdapter.invokeStatic(OWNER_TYPE, Method.getMethod("int abs(int)"));
+    generatorAdapter.invokeStatic(OWNER_TYPE, Method.getMethod("int square(int)"));
+    generatorAdapter.math(GeneratorAdapter.ADD, Type.INT_TYPE);
+    generatorAdapter.loadThis();
+    generatorAdapter.loadArg(0);
+    invokeTwice(generatorAdapter, javac11Calls);
+    generatorAdapter.math(GeneratorAdapter.ADD, Type.INT_TYPE);
+    generatorAdapter.loadArg(0);
+    generatorAdapter.invokeStatic(OWNER_TYPE, Method.getMethod("int large(int)"));
+    generatorAdapter.math(GeneratorAdapter.ADD, Type.INT_TYPE);
+    generatorAdapter.returnValue();
+    generatorAdapter.endMethod();
+
+    // public static int other(C c, int x) { return c.twice(x); }
+    generatorAdapter =
+        newMethod(classWriter, Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, "int other(C, int)");
+    generatorAdapter.loadArg(0);
+    generatorAdapter.loadArg(1);
+    invokeTwice(generatorAdapter, javac11Calls);
+    generatorAdapter.returnValue();
+    generatorAdapter.endMethod();
+    classWriter.visitEnd();
+    return classWriter.toByteArray();
+  }
+
+  private static void invokeTwice(
+      final GeneratorAdapter generatorAdapter, final boolean javac11Calls) {
+    Method twice = Method.getMethod("int twice(int)");
+    if (javac11Calls) {
+      generatorAdapter.invokeVirtual(OWNER_TYPE, twice);
+    } else {
+      generatorAdapter.invokeConstructor(OWNER_TYPE, twice);
+    }
+  }
+
+  private static GeneratorAdapter newMethod(
+      final ClassWriter classWriter, final int access, final String method) {
+    Method asmMethod = Method.getMethod(method, /* defaultPackage= */ true);
+    return new GeneratorAdapter(
+        access,
+        asmMethod,
+        classWriter.visitMethod(
+            access, asmMethod.getName(), asmMethod.getDescriptor(), null, null));
+  }
+}
@@ -0,0 +1,339 @@
+// ASM: a very small and fast Java bytecode manipulation framework
+// Copyright (c) 2000-2011 INRIA, France Telecom
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+// 1. Redistributions of source code must retain the above copyright
+//    notice, this list of conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright
+//    notice, this list of conditions and the following disclaimer in the
+//    documentation and/or other materials provided with the distribution.
+// 3. Neither the name of the copyright holders nor the names of its
+//    contributors may be used to endorse or promote products derived from
+//    this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+// THE POSSIBILITY OF SUCH DAMAGE.
+package org.objectweb.asm.commons;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.test.AsmTest;
+import org.objectweb.asm.test.ClassFile;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.InsnList;
+import org.objectweb.asm.tree.JumpInsnNode;
+import org.objectweb.asm.tree.LabelNode;
+import org.objectweb.asm.tree.MethodNode;
+
+/** Unit tests for {@link MethodSplitter}. */
+class MethodSplitterTest extends AsmTest {
+
+  private static final Type STRING_TYPE = Type.getType(String.class);
+
+  private static final int[] ARGUMENTS = {0, 1, 7, 42, 123, -5};
+
+  @Test
+  void testConstructor() {
+    assertEquals(MethodSplitter.DEFAULT_MAX_METHOD_SIZE, new MethodSplitter().maxMethodSize);
+    assertEquals(1000, new MethodSplitter(1000).maxMethodSize);
+    assertThrows(IllegalArgumentException.class, () -> new MethodSplitter(0));
+  }
+
+  @Test
+  void testSplit_smallMethod() {
+    ClassNode classNode = new ClassNode();
+    new ClassReader(generateClass(10)).accept(classNode, 0);
+
+    List<MethodNode> helperMethods = new MethodSplitter().split(classNode);
+
+    assertTrue(helperMethods.isEmpty());
+    assertEquals(2, classNode.methods.size());
+  }
+
+  @Test
+  void testSplit_compressedFrames() {
+    ClassNode classNode = new ClassNode();
+    new ClassReader(generateClass(400)).accept(classNode, 0);
+
+    Executable split = () -> new MethodSplitter().split(classNode);
+
+    assertThrows(IllegalArgumentException.class, split);
+  }
+
+  @Test
+  void testSplit_withoutFrames() throws ReflectiveOperationException {
+    byte[] classFile = generateClass(400);
+    ClassNode classNode = new ClassNode();
+    new ClassReader(classFile).accept(classNode, ClassReader.SKIP_FRAMES);
+
+    List<MethodNode> helperMethods = new MethodSplitter().split(classNode);
+
+    assertSplit(classNode, helperMethods, MethodSplitter.DEFAULT_MAX_METHOD_SIZE);
+    ClassWriter classWriter = new ClassWriter(ClassWriter.COMPUTE_FRAMES);
+    classNode.accept(classWriter);
+    assertSameResults(classFile, classWriter.toByteArray());
+  }
+
+  @Test
+  void testSplit_withFrames() throws ReflectiveOperationException {
+    byte[] classFile = generateClass(400);
+    ClassNode classNode = new ClassNode();
+    new ClassReader(classFile).accept(classNode, ClassReader.EXPAND_FRAMES);
+
+    List<MethodNode> helperMethods = new MethodSplitter().split(classNode);
+
+    assertSplit(classNode, helperMethods, MethodSplitter.DEFAULT_MAX_METHOD_SIZE);
+    ClassWriter classWriter = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+    classNode.accept(classWriter);
+    assertSameResults(classFile, classWriter.toByteArray());
+  }
+
+  @Test
+  void testSplit_methodEndingWithLabel() throws ReflectiveOperationException {
+    byte[] classFile = generateClass(400);
+    ClassNode classNode = new ClassNode();
+    new ClassReader(classFile).accept(classNode, ClassReader.SKIP_FRAMES);
+    // Move the final 'return string + ":" + total' code before a backward jump, so that the method
+    // ends with a GOTO instruction followed by a label (which is what javac generates for methods
+    // ending with an infinite loop).
+    InsnList instructions = classNode.methods.get(1).instructions;
+    AbstractInsnNode returnInsn = instructions.getLast();
+    AbstractInsnNode returnStart = returnInsn;
+    while (returnStart.getPrevious().getOpcode() != Opcodes.LSTORE) {
+      returnStart = returnStart.getPrevious();
+    }
+    LabelNode returnLabel = new LabelNode();
+    LabelNode jumpLabel = new LabelNode();
+    instructions.insertBefore(returnStart, new JumpInsnNode(Opcodes.GOTO, jumpLabel));
+    instructions.insertBefore(returnStart, returnLabel);
+    instructions.add(jumpLabel);
+    instructions.add(new JumpInsnNode(Opcodes.GOTO, returnLabel));
+    instructions.add(new LabelNode());
+
+    List<MethodNode> helperMethods = new MethodSplitter(300).split(classNode);
+
+    assertSplit(classNode, helperMethods, 300);
+    ClassWriter classWriter = new ClassWriter(ClassWriter.COMPUTE_FRAMES);
+    classNode.accept(classWriter);
+    assertSameResults(classFile, classWriter.toByteArray());
+  }
+
+  @Test
+  void testSplit_methodTooLarge() {
+    ClassNode classNode = new ClassNode();
+    generateClass(2000, classNode);
+    assertTrue(MethodSplitter.getCodeSize(classNode.methods.get(1)) > 65535);
+
+    List<MethodNode> helperMethods = new MethodSplitter(65535).split(classNode);
+
+    assertSplit(classNode, helperMethods, 65535);
+    ClassWriter classWriter = new ClassWriter(ClassWriter.COMPUTE_FRAMES);
+    classNode.accept(classWriter);
+    Executable newInstance = () -> new ClassFile(classWriter.toByteArray()).newInstance();
+    assertDoesNotThrow(newInstance);
+  }
+
+  /**
+   * Tests that the precompiled classes, split into methods of at most 100 bytes when possible, are
+   * accepted by the JVM verifier.
+   */
+  @ParameterizedTest
+  @MethodSource(ALL_CLASSES_AND_LATEST_API)
+  void testSplit_precompiledClass(final PrecompiledClass classParameter, final Api apiParameter) {
+    ClassNode classNode = new ClassNode(apiParameter.value());
+    new ClassReader(classParameter.getBytes()).accept(classNode, ClassReader.EXPAND_FRAMES);
+
+    new MethodSplitter(100).split(classNode);
+
+    ClassWriter classWriter = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+    classNode.accept(classWriter);
+    Executable newInstance = () -> new ClassFile(classWriter.toByteArray()).newInstance();
+    if (classParameter.isNotCompatibleWithCurrentJdk()) {
+      assertThrows(UnsupportedClassVersionError.class, newInstance);
+    } else {
+      assertDoesNotThrow(newInstance);
+    }
+  }
+
+  private static void assertSplit(
+      final ClassNode classNode, final List<MethodNode> helperMethods, final int maxMethodSize) {
+    assertFalse(helperMethods.isEmpty());
+    assertEquals(2 + helperMethods.size(), classNode.methods.size());
+    for (MethodNode methodNode : classNode.methods) {
+      assertTrue(MethodSplitter.getCodeSize(methodNode) <= maxMethodSize, methodNode.name);
+    }
+  }
+
+  private static void assertSameResults(final byte[] expectedClass, final byte[] actualClass)
+      throws ReflectiveOperationException {
+    Object expectedInstance = new ClassFile(expectedClass).newInstance();
+    Object actualInstance = new ClassFile(actualClass).newInstance();
+    java.lang.reflect.Method expectedMethod =
+        expectedInstance.getClass().getMethod("compute", int.class);
+    java.lang.reflect.Method actualMethod =
+        actualInstance.getClass().getMethod("compute", int.class);
+    for (int argument : ARGUMENTS) {
+      assertEquals(
+          expectedMethod.invoke(expectedInstance, argument),
+          actualMethod.invoke(actualInstance, argument));
+    }
+  }
+
+  private static byte[] generateClass(final int numBlocks) {
+    ClassWriter classWriter = new ClassWriter(ClassWriter.COMPUTE_FRAMES);
+    generateClass(numBlocks, classWriter);
+    return classWriter.toByteArray();
+  }
+
+  /**
+   * Generates a class with a constructor and a 'String compute(int)' method made of the given
+   * number of blocks, each block containing loops, conditional jumps, and sometimes a switch or a
+   * try catch block.
+   */
+  private static void generateClass(final int numBlocks, final ClassVisitor cv) {
+    cv.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC, "C", null, "java/lang/Object", null);
+    GeneratorAdapter constructor =
+        new GeneratorAdapter(
+            cv.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "()V", null, null),
+            Opcodes.ACC_PUBLIC,
+            "<init>",
+            "()V");
+    constructor.loadThis();
+    constructor.invokeConstructor(
+        Type.getObjectType("java/lang/Object"), Method.getMethod("void <init>()"));
+    constructor.returnValue();
+    constructor.endMethod();
+
+    GeneratorAdapter generatorAdapter =
+        new GeneratorAdapter(
+            cv.visitMethod(Opcodes.ACC_PUBLIC, "compute", "(I)Ljava/lang/String;", null, null),
+            Opcodes.ACC_PUBLIC,
+            "compute",
+            "(I)Ljava/lang/String;");
+    int acc = generatorAdapter.newLocal(Type.INT_TYPE);
+    int total = generatorAdapter.newLocal(Type.LONG_TYPE);
+    int string = generatorAdapter.newLocal(STRING_TYPE);
+    int index = generatorAdapter.newLocal(Type.INT_TYPE);
+    generatorAdapter.loadArg(0);
+    generatorAdapter.storeLocal(acc);
+    generatorAdapter.push(0L);
+    generatorAdapter.storeLocal(total);
+    generatorAdapter.push("s");
+    generatorAdapter.storeLocal(string);
+    for (int block = 0; block < numBlocks; ++block) {
+      // acc = acc * 31 + block; if (acc < 0) acc = -acc;
+      generatorAdapter.loadLocal(acc);
+      generatorAdapter.push(31);
+      generatorAdapter.math(GeneratorAdapter.MUL, Type.INT_TYPE);
+      generatorAdapter.push(block);
+      generatorAdapter.math(GeneratorAdapter.ADD, Type.INT_TYPE);
+      generatorAdapter.storeLocal(acc);
+      Label positive = new Label();
+      generatorAdapter.loadLocal(acc);
+      generatorAdapter.ifZCmp(GeneratorAdapter.GE, positive);
+      generatorAdapter.loadLocal(acc);
+      generatorAdapter.math(GeneratorAdapter.NEG, Type.INT_TYPE);
+      generatorAdapter.storeLocal(acc);
+      generatorAdapter.mark(positive);
+      // for (index = 0; index < 3; ++index) acc += index ^ block;
+      generatorAdapter.push(0);
+      generatorAdapter.storeLocal(index);
+      Label loop = generatorAdapter.mark();
+      Label loopEnd = new Label();
+      generatorAdapter.loadLocal(index);
+      generatorAdapter.push(3);
+      generatorAdapter.ifICmp(GeneratorAdapter.GE, loopEnd);
+      generatorAdapter.loadLocal(acc);
+      generatorAdapter.loadLocal(index);
+      generatorAdapter.push(block);
+      generatorAdapter.math(GeneratorAdapter.XOR, Type.INT_TYPE);
+      generatorAdapter.math(GeneratorAdapter.ADD, Type.INT_TYPE);
+      generatorAdapter.storeLocal(acc);
+      generatorAdapter.iinc(index, 1);
+      generatorAdapter.goTo(loop);
+      generatorAdapter.mark(loopEnd);
+      if (block % 10 == 0) {
+        // try { acc = acc / (arg - block); } catch (ArithmeticException e) { acc += 7; }
+        Label tryStart = generatorAdapter.mark();
+        generatorAdapter.loadLocal(acc);
+        generatorAdapter.loadArg(0);
+        generatorAdapter.push(block);
+        generatorAdapter.math(GeneratorAdapter.SUB, Type.INT_TYPE);
+        generatorAdapter.math(GeneratorAdapter.DIV, Type.INT_TYPE);
+        generatorAdapter.storeLocal(acc);
+        Label tryEnd = generatorAdapter.mark();
+        Label afterCatch = new Label();
+        generatorAdapter.goTo(afterCatch);
+        generatorAdapter.catchException(
+            tryStart, tryEnd, Type.getObjectType("java/lang/ArithmeticException"));
+        generatorAdapter.pop();
+        generatorAdapter.iinc(acc, 7);
+        generatorAdapter.mark(afterCatch);
+      }
+      if (block % 25 == 0) {
+        // switch (acc % 3) { case 0: string = string + block; break; case 1: acc += 1; }
+        Label switchEnd = new Label();
+        Label case0 = new Label();
+        Label case1 = new Label();
+        generatorAdapter.loadLocal(acc);
+        generatorAdapter.push(3);
+        generatorAdapter.math(GeneratorAdapter.REM, Type.INT_TYPE);
+        generatorAdapter.visitTableSwitchInsn(0, 1, switchEnd, case0, case1);
+        generatorAdapter.mark(case0);
+        generatorAdapter.loadLocal(string);
+        generatorAdapter.push(block);
+        generatorAdapter.invokeStatic(STRING_TYPE, Method.getMethod("String valueOf(int)"));
+        generatorAdapter.invokeVirtual(STRING_TYPE, Method.getMethod("String concat(String)"));
+        generatorAdapter.storeLocal(string);
+        generatorAdapter.goTo(switchEnd);
+        generatorAdapter.mark(case1);
+        generatorAdapter.iinc(acc, 1);
+        generatorAdapter.mark(switchEnd);
+      }
+      // total += acc;
+      generatorAdapter.loadLocal(total);
+      generatorAdapter.loadLocal(acc);
+      generatorAdapter.cast(Type.INT_TYPE, Type.LONG_TYPE);
+      generatorAdapter.math(GeneratorAdapter.ADD, Type.LONG_TYPE);
+      generatorAdapter.storeLocal(total);
+    }
+    // return string + ":" + total;
+    generatorAdapter.loadLocal(string);
+    generatorAdapter.push(":");
+    generatorAdapter.invokeVirtual(STRING_TYPE, Method.getMethod("String concat(String)"));
+    generatorAdapter.loadLocal(total);
+    generatorAdapter.invokeStatic(STRING_TYPE, Method.getMethod("String valueOf(long)"));
+    generatorAdapter.invokeVirtual(STRING_TYPE, Method.getMethod("String concat(String)"));
+    generatorAdapter.returnValue();
+    generatorAdapter.endMethod();
+    cv.visitEnd();
+  }
+}
@@ -0,0 +1,308 @@
+// ASM: a very small and fast Java bytecode manipulation framework
+// Copyright (c) 2000-2011 INRIA, France Telecom
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+// 1. Redistributions of source code must retain the above copyright
+//    notice, this list of conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright
+//    notice, this list of conditions and the following disclaimer in the
+//    documentation and/or other materials provided with the distribution.
+// 3. Neither the name of the copyright holders nor the names of its
+//    contributors may be used to endorse or promote products derived from
+//    this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+// THE POSSIBILITY OF SUCH DAMAGE.
+package org.objectweb.asm.commons;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.test.AsmTest;
+import org.objectweb.asm.test.ClassFile;
+import org.objectweb.asm.tree.MethodNode;
+import org.objectweb.asm.util.Textifier;
+import org.objectweb.asm.util.TraceMethodVisitor;
+
+/** Unit tests for {@link PeepholeOptimizer}. */
+class PeepholeOptimizerTest extends AsmTest {
+
+  private final Textifier textifier = new Textifier();
+
+  private final PeepholeOptimizer peepholeOptimizer =
+      new PeepholeOptimizer(new TraceMethodVisitor(textifier));
+
+  @Test
+  void testConstructor() {
+    MethodNode methodNode = new MethodNode();
+
+    assertDoesNotThrow(() -> new PeepholeOptimizer(methodNode));
+    assertThrows(IllegalStateException.class, () -> new PeepholeOptimizer(methodNode) {});
+  }
+
+  @Test
+  void testVisitVarInsn_loadStore() {
+    peepholeOptimizer.visitVarInsn(Opcodes.ALOAD, 1);
+    peepholeOptimizer.visitVarInsn(Opcodes.ASTORE, 1);
+    peepholeOptimizer.visitVarInsn(Opcodes.LLOAD, 2);
+    peepholeOptimizer.visitVarInsn(Opcodes.LSTORE, 4);
+    peepholeOptimizer.visitVarInsn(Opcodes.ILOAD, 1);
+    peepholeOptimizer.visitVarInsn(Opcodes.FSTORE, 1);
+    peepholeOptimizer.visitEnd();
+
+    assertEquals("LLOAD 2 LSTORE 4 ILOAD 1 FSTORE 1", getText());
+  }
+
+  @Test
+  void testVisitInsn_pushPop() {
+    peepholeOptimizer.visitVarInsn(Opcodes.ILOAD, 1);
+    peepholeOptimizer.visitInsn(Opcodes.DUP);
+    peepholeOptimizer.visitInsn(Opcodes.POP);
+    peepholeOptimizer.visitIntInsn(Opcodes.BIPUSH, 10);
+    peepholeOptimizer.visitInsn(Opcodes.POP);
+    peepholeOptimizer.visitInsn(Opcodes.DCONST_1);
+    peepholeOptimizer.visitInsn(Opcodes.POP2);
+    peepholeOptimizer.visitVarInsn(Opcodes.ISTORE, 1);
+    peepholeOptimizer.visitInsn(Opcodes.LCONST_0);
+    peepholeOptimizer.visitInsn(Opcodes.POP);
+    peepholeOptimizer.visitEnd();
+
+    assertEquals("LCONST_0 POP", getText());
+  }
+
+  @Test
+  void testVisitInsn_arithmeticIdentities() {
+    peepholeOptimizer.visitVarInsn(Opcodes.ILOAD, 1);
+    peepholeOptimizer.visitInsn(Opcodes.ICONST_0);
+    peepholeOptimizer.visitInsn(Opcodes.IADD);
+    peepholeOptimizer.visitInsn(Opcodes.ICONST_1);
+    peepholeOptimizer.visitInsn(Opcodes.IMUL);
+    peepholeOptimizer.visitInsn(Opcodes.ICONST_0);
+    peepholeOptimizer.visitInsn(Opcodes.IMUL);
+    peepholeOptimizer.visitVarInsn(Opcodes.LLOAD, 2);
+    peepholeOptimizer.visitInsn(Opcodes.LCONST_0);
+    peepholeOptimizer.visitInsn(Opcodes.LXOR);
+    peepholeOptimizer.visitInsn(Opcodes.LCONST_1);
+    peepholeOptimizer.visitInsn(Opcodes.LDIV);
+    peepholeOptimizer.visitInsn(Opcodes.ICONST_0);
+    peepholeOptimizer.visitInsn(Opcodes.LSHL);
+    peepholeOptimizer.visitEnd();
+
+    assertEquals("ILOAD 1 ICONST_0 IMUL LLOAD 2", getText());
+  }
+
+  @Test
+  void testVisitTypeInsn_checkcasts() {
+    peepholeOptimizer.visitVarInsn(Opcodes.ALOAD, 1);
+    peepholeOptimizer.visitTypeInsn(Opcodes.CHECKCAST, "java/lang/String");
+    peepholeOptimizer.visitTypeInsn(Opcodes.CHECKCAST, "java/lang/String");
+    peepholeOptimizer.visitTypeInsn(Opcodes.CHECKCAST, "java/lang/String");
+    peepholeOptimizer.visitTypeInsn(Opcodes.CHECKCAST, "java/lang/Object");
+    peepholeOptimizer.visitEnd();
+
+    assertEquals("ALOAD 1 CHECKCAST java/lang/String CHECKCAST java/lang/Object", getText());
+  }
+
+  @Test
+  void testVisitInsnAnnotation_removedInsn() {
+    peepholeOptimizer.visitTypeInsn(Opcodes.CHECKCAST, "java/lang/String");
+    peepholeOptimizer.visitTypeInsn(Opcodes.CHECKCAST, "java/lang/String");
+
+    assertNull(peepholeOptimizer.visitInsnAnnotation(0x47000000, null, "LA;", true));
+  }
+
+  @Test
+  void testVisitLabel_patternsNotMergedAcrossLabels() {
+    Label label = new Label();
+    peepholeOptimizer.visitVarInsn(Opcodes.ALOAD, 1);
+    peepholeOptimizer.visitLabel(label);
+    peepholeOptimizer.visitVarInsn(Opcodes.ASTORE, 1);
+    peepholeOptimizer.visitEnd();
+
+    assertEquals("ALOAD 1 L0 ASTORE 1", getText());
+  }
+
+  @Test
+  void testVisitLabel_gotoNextInsn() {
+    Label label0 = new Label();
+    Label label1 = new Label();
+    Label label2 = new Label();
+    peepholeOptimizer.visitJumpInsn(Opcodes.GOTO, label1);
+    peepholeOptimizer.visitLabel(label0);
+    peepholeOptimizer.visitLabel(label1);
+    peepholeOptimizer.visitFrame(Opcodes.F_SAME, 0, null, 0, null);
+    peepholeOptimizer.visitJumpInsn(Opcodes.GOTO, label0);
+    peepholeOptimizer.visitLabel(label2);
+    peepholeOptimizer.visitInsn(Opcodes.RETURN);
+    peepholeOptimizer.visitEnd();
+
+    assertEquals("L0 L1 FRAME SAME GOTO L0 L2 RETURN", getText());
+  }
+
+  @Test
+  void testVisitTryCatchBlock_rangeStart() {
+    Label label0 = new Label();
+    Label label1 = new Label();
+    Label label2 = new Label();
+    Label label3 = new Label();
+    peepholeOptimizer.visitTryCatchBlock(label0, label1, label2, null);
+    peepholeOptimizer.visitTryCatchBlock(label1, label3, label2, null);
+    peepholeOptimizer.visitLabel(label0);
+    peepholeOptimizer.visitVarInsn(Opcodes.ALOAD, 0);
+    peepholeOptimizer.visitVarInsn(Opcodes.ASTORE, 0);
+    peepholeOptimizer.visitVarInsn(Opcodes.ALOAD, 0);
+    peepholeOptimizer.visitInsn(Opcodes.POP);
+    peepholeOptimizer.visitJumpInsn(Opcodes.GOTO, label1);
+    peepholeOptimizer.visitLabel(label1);
+    peepholeOptimizer.visitJumpInsn(Opcodes.GOTO, label3);
+    peepholeOptimizer.visitLabel(label3);
+    peepholeOptimizer.visitInsn(Opcodes.RETURN);
+    peepholeOptimizer.visitLabel(label2);
+    peepholeOptimizer.visitInsn(Opcodes.ATHROW);
+    peepholeOptimizer.visitEnd();
+
+    assertEquals(
+        "TRYCATCHBLOCK L0 L1 L2 null TRYCATCHBLOCK L1 L3 L2 null L0 ALOAD 0 ASTORE 0 L1 "
+            + "GOTO L3 L3 RETURN L2 ATHROW",
+        getText());
+  }
+
+  @Test
+  void testVisitTryCatchBlock_rangeStartNotEmptied() {
+    ClassWriter classWriter = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+    classWriter.visit(Opcodes.V1_5, Opcodes.ACC_PUBLIC, "C", null, "java/lang/Object", null);
+    MethodVisitor methodVisitor =
+        new PeepholeOptimizer(
+            classWriter.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "()V", null, null));
+    Label label0 = new Label();
+    Label label1 = new Label();
+    Label label2 = new Label();
+    methodVisitor.visitCode();
+    methodVisitor.visitTryCatchBlock(label0, label1, label2, null);
+    methodVisitor.visitVarInsn(Opcodes.ALOAD, 0);
+    methodVisitor.visitMethodInsn(
+        Opcodes.INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+    methodVisitor.visitLabel(label0);
+    methodVisitor.visitVarInsn(Opcodes.ALOAD, 0);
+    methodVisitor.visitVarInsn(Opcodes.ASTORE, 0);
+    methodVisitor.visitLabel(label1);
+    methodVisitor.visitInsn(Opcodes.RETURN);
+    methodVisitor.visitLabel(label2);
+    methodVisitor.visitInsn(Opcodes.ATHROW);
+    methodVisitor.visitMaxs(0, 0);
+    methodVisitor.visitEnd();
+    classWriter.visitEnd();
+
+    Executable newInstance = () -> new ClassFile(classWriter.toByteArray()).newInstance();
+
+    assertDoesNotThrow(newInstance);
+  }
+
+  @Test
+  void testVisitJumpInsn_jumpToJump() {
+    Label label0 = new Label();
+    Label label1 = new Label();
+    Label label2 = new Label();
+    peepholeOptimizer.visitLabel(label0);
+    peepholeOptimizer.visitInsn(Opcodes.NOP);
+    peepholeOptimizer.visitLabel(label1);
+    peepholeOptimizer.visitLineNumber(1, label1);
+    peepholeOptimizer.visitJumpInsn(Opcodes.GOTO, label0);
+    peepholeOptimizer.visitLabel(label2);
+    peepholeOptimizer.visitVarInsn(Opcodes.ILOAD, 1);
+    peepholeOptimizer.visitJumpInsn(Opcodes.IFEQ, label1);
+    peepholeOptimizer.visitVarInsn(Opcodes.ILOAD, 1);
+    peepholeOptimizer.visitTableSwitchInsn(0, 0, label1, label2);
+    peepholeOptimizer.visitVarInsn(Opcodes.ILOAD, 1);
+    peepholeOptimizer.visitLookupSwitchInsn(label1, new int[] {0}, new Label[] {label1});
+    peepholeOptimizer.visitJumpInsn(Opcodes.JSR, label1);
+    peepholeOptimizer.visitEnd();
+
+    String text = getText();
+    assertTrue(
+        text.startsWith("L0 NOP L1 LINENUMBER 1 L1 GOTO L0 L2 ILOAD 1 IFEQ L0 ILOAD 1"), text);
+    assertTrue(text.endsWith("JSR L1"), text);
+  }
+
+  @Test
+  void testVisitInsn_windowOverflow() {
+    peepholeOptimizer.visitVarInsn(Opcodes.ILOAD, 1);
+    for (int i = 0; i < PeepholeOptimizer.WINDOW_SIZE; ++i) {
+      peepholeOptimizer.visitInsn(Opcodes.DUP);
+    }
+    for (int i = 0; i <= PeepholeOptimizer.WINDOW_SIZE; ++i) {
+      peepholeOptimizer.visitInsn(Opcodes.POP);
+    }
+    peepholeOptimizer.visitEnd();
+
+    assertEquals("ILOAD 1 POP", getText());
+  }
+
+  /**
+   * Tests that the precompiled classes, with their frames, are still accepted by the JVM verifier
+   * when their methods are optimized.
+   */
+  @ParameterizedTest
+  @MethodSource(ALL_CLASSES_AND_LATEST_API)
+  void testOptimize_precompiledClass(
+      final PrecompiledClass classParameter, final Api apiParameter) {
+    ClassReader classReader = new ClassReader(classParameter.getBytes());
+    ClassWriter classWriter = new ClassWriter(0);
+    ClassVisitor classVisitor =
+        new ClassVisitor(apiParameter.value(), classWriter) {
+          @Override
+          public MethodVisitor visitMethod(
+              final int access,
+              final String name,
+              final String descriptor,
+              final String signature,
+              final String[] exceptions) {
+            return new PeepholeOptimizer(
+                api, super.visitMethod(access, name, descriptor, signature, exceptions)) {};
+          }
+        };
+
+    classReader.accept(classVisitor, 0);
+
+    Executable newInstance = () -> new ClassFile(classWriter.toByteArray()).newInstance();
+    if (classParameter.isNotCompatibleWithCurrentJdk()) {
+      assertThrows(UnsupportedClassVersionError.class, newInstance);
+    } else {
+      assertDoesNotThrow(newInstance);
+    }
+  }
+
+  private String getText() {
+    return textifier.text.stream()
+        .map(text -> text.toString().trim())
+        .filter(text -> !text.isEmpty())
+        .collect(Collectors.joining(" "))
+        .replaceAll("\\s+", " ");
+  }
+}
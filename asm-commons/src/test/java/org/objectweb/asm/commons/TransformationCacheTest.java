@@ -0,0 +1,424 @@
+// ASM: a very small and fast Java bytecode manipulation framework
+// Copyright (c) 2000-2011 INRIA, France Telecom
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+// 1. Redistributions of source code must retain the above copyright
+//    notice, this list of conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright
+//    notice, this list of conditions and the following disclaimer in the
+//    documentation and/or other materials provided with the distribution.
+// 3. Neither the name of the copyright holders nor the names of its
+//    contributors may be used to endorse or promote products derived from
+//    this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+// THE POSSIBILITY OF SUCH DAMAGE.
+package org.objectweb.asm.commons;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.test.AsmTest;
+
+/** Unit tests for {@link TransformationCache}. */
+class TransformationCacheTest extends AsmTest {
+
+  private static final int MAX_SIZE = 1 << 20;
+
+  @TempDir File tempDir;
+
+  @Test
+  void testConstructor_invalidMaxSize() {
+    File file = new File(tempDir, "cache");
+
+    Executable constructor = () -> new TransformationCache(file, "fingerprint", 16);
+
+    assertThrows(IllegalArgumentException.class, constructor);
+  }
+
+  @Test
+  void testConstructor_invalidFile() throws IOException {
+    File file = new File(tempDir, "cache");
+    try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+      randomAccessFile.writeInt(0xCAFEBABE);
+    }
+
+    Executable constructor = () -> new TransformationCache(file, "fingerprint", MAX_SIZE);
+
+    Exception exception = assertThrows(IOException.class, constructor);
+    assertTrue(exception.getMessage().startsWith("Invalid cache file"));
+  }
+
+  @Test
+  void testTransform_cacheHit() throws IOException {
+    File file = new File(tempDir, "cache");
+    byte[] classFile = PrecompiledClass.JDK8_ALL_STRUCTURES.getBytes();
+    CountingTransformer transformer = new CountingTransformer();
+
+    byte[] result1;
+    byte[] result2;
+    byte[] result3;
+    try (TransformationCache cache = new TransformationCache(file, "fingerprint", MAX_SIZE)) {
+      result1 = cache.transform(classFile, transformer);
+      result2 = cache.transform(classFile, transformer);
+    }
+    try (TransformationCache cache = new TransformationCache(file, "fingerprint", MAX_SIZE)) {
+      result3 = cache.transform(classFile, transformer);
+    }
+
+    assertEquals(1, transformer.count.get());
+    assertArrayEquals(transformer.transform(new ClassReader(classFile)), result1);
+    assertArrayEquals(result1, result2);
+    assertArrayEquals(result1, result3);
+  }
+
+  @Test
+  void testTransform_differentFingerprint() throws IOException {
+    File file = new File(tempDir, "cache");
+    byte[] classFile = PrecompiledClass.JDK8_ALL_STRUCTURES.getBytes();
+    CountingTransformer transformer = new CountingTransformer();
+
+    try (TransformationCache cache = new TransformationCache(file, "fingerprint1", MAX_SIZE)) {
+      cache.transform(classFile, transformer);
+    }
+    try (TransformationCache cache = new TransformationCache(file, "fingerprint2", MAX_SIZE)) {
+      cache.transform(classFile, transformer);
+    }
+
+    assertEquals(2, transformer.count.get());
+  }
+
+  @Test
+  void testTransform_sharedFile() throws IOException {
+    File file = new File(tempDir, "cache");
+    byte[] classFile1 = PrecompiledClass.JDK3_ALL_INSTRUCTIONS.getBytes();
+    byte[] classFile2 = PrecompiledClass.JDK8_ALL_STRUCTURES.getBytes();
+    CountingTransformer transformer = new CountingTransformer();
+
+    try (TransformationCache cache1 = new TransformationCache(file, "fingerprint", MAX_SIZE);
+        TransformationCache cache2 = new TransformationCache(file, "fingerprint", MAX_SIZE)) {
+      cache1.transform(classFile1, transformer);
+      cache2.transform(classFile1, transformer);
+      cache2.transform(classFile2, transformer);
+      cache1.transform(classFile2, transformer);
+    }
+
+    assertEquals(2, transformer.count.get());
+  }
+
+  /**
+   * Tests that several instances using the same file in the same JVM can append results
+   * concurrently, with frequent evictions.
+   */
+  @Test
+  void testTransform_sharedFileConcurrentInstances() throws Exception {
+    File file = new File(tempDir, "cache");
+
+    try (TransformationCache cache1 = new TransformationCache(file, "fingerprint", 4096);
+        TransformationCache cache2 = new TransformationCache(file, "fingerprint", 4096)) {
+      List<Callable<Integer>> tasks = new ArrayList<>();
+      for (int i = 0; i < 4; ++i) {
+        TransformationCache cache = i % 2 == 0 ? cache1 : cache2;
+        tasks.add(() -> transformClasses(cache, /* numPasses= */ 50));
+      }
+      ExecutorService executorService = Executors.newFixedThreadPool(tasks.size());
+      try {
+        for (Future<Integer> future : executorService.invokeAll(tasks)) {
+          assertEquals(0, future.get());
+        }
+      } finally {
+        executorService.shutdown();
+      }
+    }
+  }
+
+  /**
+   * Tests that several processes can use the same file concurrently, with frequent evictions. Each
+   * process uses several threads, and checks all the results it gets.
+   */
+  @Test
+  void testTransform_sharedFileSeveralProcesses() throws Exception {
+    File file = new File(tempDir, "cache");
+    String classPath =
+        String.join(
+            File.pathSeparator,
+            System.getProperty("java.class.path"),
+            getLocation(SharedFileProcess.class),
+            getLocation(TransformationCache.class),
+            getLocation(ClassReader.class),
+            getLocation(AsmTest.class),
+            getLocation(Test.class));
+    String java = new File(new File(System.getProperty("java.home"), "bin"), "java").getPath();
+
+    List<Process> processes = new ArrayList<>();
+    for (int i = 0; i < 3; ++i) {
+      processes.add(
+          new ProcessBuilder(
+                  java, "-cp", classPath, SharedFileProcess.class.getName(), file.getPath())
+              .redirectErrorStream(true)
+              .redirectOutput(ProcessBuilder.Redirect.INHERIT)
+              .start());
+    }
+
+    for (Process process : processes) {
+      assertTrue(process.waitFor(60, TimeUnit.SECONDS));
+      assertEquals(0, process.exitValue());
+    }
+  }
+
+  @Test
+  void testTransform_nullResult() throws IOException {
+    File file = new File(tempDir, "cache");
+    byte[] classFile = PrecompiledClass.JDK3_ALL_INSTRUCTIONS.getBytes();
+    AtomicInteger count = new AtomicInteger();
+    TransformationCache.Transformer transformer =
+        classReader -> {
+          count.incrementAndGet();
+          return null;
+        };
+
+    try (TransformationCache cache = new TransformationCache(file, "fingerprint", MAX_SIZE)) {
+      assertNull(cache.transform(classFile, transformer));
+      assertNull(cache.transform(classFile, transformer));
+    }
+
+    assertEquals(1, count.get());
+  }
+
+  @Test
+  void testTransform_eviction() throws IOException {
+    File file = new File(tempDir, "cache");
+    CountingTransformer transformer = new CountingTransformer();
+    byte[][] classFiles = new byte[64][];
+    for (int i = 0; i < classFiles.length; ++i) {
+      classFiles[i] = newClass("C" + i);
+    }
+
+    try (TransformationCache cache = new TransformationCache(file, "fingerprint", 4096)) {
+      for (byte[] classFile : classFiles) {
+        cache.transform(classFile, transformer);
+      }
+      transformer.count.set(0);
+      cache.transform(classFiles[classFiles.length - 1], transformer);
+      assertEquals(0, transformer.count.get());
+      cache.transform(classFiles[0], transformer);
+      assertEquals(1, transformer.count.get());
+    }
+
+    assertEquals(4096, file.length());
+  }
+
+  @Test
+  void testTransform_corruptedResult() throws IOException {
+    File file = new File(tempDir, "cache");
+    byte[] classFile = PrecompiledClass.JDK3_ALL_INSTRUCTIONS.getBytes();
+    CountingTransformer transformer = new CountingTransformer();
+    try (TransformationCache cache = new TransformationCache(file, "fingerprint", MAX_SIZE)) {
+      cache.transform(classFile, transformer);
+    }
+    try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+      randomAccessFile.seek(100);
+      randomAccessFile.writeByte(randomAccessFile.readByte() ^ 0xFF);
+    }
+
+    byte[] result;
+    try (TransformationCache cache = new TransformationCache(file, "fingerprint", MAX_SIZE)) {
+      result = cache.transform(classFile, transformer);
+    }
+
+    assertEquals(2, transformer.count.get());
+    assertArrayEquals(transformer.transform(new ClassReader(classFile)), result);
+  }
+
+  @ParameterizedTest
+  @ValueSource(ints = {-1, Integer.MAX_VALUE})
+  void testTransform_overwrittenValueLength(final int valueLength) throws IOException {
+    File file = new File(tempDir, "cache");
+    byte[] classFile = PrecompiledClass.JDK3_ALL_INSTRUCTIONS.getBytes();
+    CountingTransformer transformer = new CountingTransformer();
+
+    byte[] result;
+    try (TransformationCache cache = new TransformationCache(file, "fingerprint", MAX_SIZE);
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+      cache.transform(classFile, transformer);
+      cache.transform(classFile, transformer);
+      // Overwrite the value length of the first result, as if it had been evicted and overwritten
+      // by another process since it was indexed.
+      randomAccessFile.seek(48);
+      randomAccessFile.writeInt(valueLength);
+      result = cache.transform(classFile, transformer);
+    }
+
+    assertEquals(2, transformer.count.get());
+    assertArrayEquals(transformer.transform(new ClassReader(classFile)), result);
+  }
+
+  @Test
+  void testTransform_concurrentTransformations() throws Exception {
+    File file = new File(tempDir, "cache");
+    byte[] classFile1 = PrecompiledClass.JDK3_ALL_INSTRUCTIONS.getBytes();
+    byte[] classFile2 = PrecompiledClass.JDK8_ALL_STRUCTURES.getBytes();
+    CountDownLatch secondTransformationDone = new CountDownLatch(1);
+    CountingTransformer transformer = new CountingTransformer();
+
+    try (TransformationCache cache = new TransformationCache(file, "fingerprint", MAX_SIZE)) {
+      Thread thread =
+          new Thread(
+              () -> {
+                try {
+                  cache.transform(classFile2, transformer);
+                } catch (IOException e) {
+                  throw new UncheckedIOException(e);
+                }
+                secondTransformationDone.countDown();
+              });
+      // The second transformation must be able to complete while the first one is running.
+      byte[] result =
+          cache.transform(
+              classFile1,
+              classReader -> {
+                thread.start();
+                try {
+                  assertTrue(secondTransformationDone.await(10, TimeUnit.SECONDS));
+                } catch (InterruptedException e) {
+                  Thread.currentThread().interrupt();
+                }
+                return transformer.transform(classReader);
+              });
+      thread.join();
+
+      assertArrayEquals(result, cache.transform(classFile1, transformer));
+    }
+
+    assertEquals(2, transformer.count.get());
+  }
+
+  @Test
+  void testTransform_closed() throws IOException {
+    File file = new File(tempDir, "cache");
+    TransformationCache cache = new TransformationCache(file, "fingerprint", MAX_SIZE);
+    cache.close();
+
+    Executable transform = () -> cache.transform(new byte[0], classReader -> null);
+
+    assertThrows(IllegalStateException.class, transform);
+  }
+
+  private static String getLocation(final Class<?> c) throws URISyntaxException {
+    return new File(c.getProtectionDomain().getCodeSource().getLocation().toURI()).getPath();
+  }
+
+  /**
+   * Transforms some classes several times with the given cache, and checks the results.
+   *
+   * @param cache a cache.
+   * @param numPasses the number of times each class must be transformed.
+   * @return the number of wrong results.
+   * @throws IOException if a result can't be stored in the cache.
+   */
+  private static int transformClasses(final TransformationCache cache, final int numPasses)
+      throws IOException {
+    CountingTransformer transformer = new CountingTransformer();
+    byte[][] classFiles = new byte[20][];
+    byte[][] expectedResults = new byte[classFiles.length][];
+    for (int i = 0; i < classFiles.length; ++i) {
+      classFiles[i] = newClass("pkg/C" + i);
+      expectedResults[i] = transformer.transform(new ClassReader(classFiles[i]));
+    }
+    int numWrongResults = 0;
+    for (int pass = 0; pass < numPasses; ++pass) {
+      for (int i = 0; i < classFiles.length; ++i) {
+        if (!Arrays.equals(expectedResults[i], cache.transform(classFiles[i], transformer))) {
+          numWrongResults++;
+        }
+      }
+    }
+    return numWrongResults;
+  }
+
+  /** A process using a shared cache file, for {@link #testTransform_sharedFileSeveralProcesses}. */
+  static final class SharedFileProcess {
+
+    private SharedFileProcess() {}
+
+    public static void main(final String[] args) throws Exception {
+      int numWrongResults = 0;
+      try (TransformationCache cache = new TransformationCache(new File(args[0]), "fp", 4096)) {
+        List<Callable<Integer>> tasks = new ArrayList<>();
+        for (int i = 0; i < 3; ++i) {
+          tasks.add(() -> transformClasses(cache, /* numPasses= */ 200));
+        }
+        ExecutorService executorService = Executors.newFixedThreadPool(tasks.size());
+        try {
+          for (Future<Integer> future : executorService.invokeAll(tasks)) {
+            numWrongResults += future.get();
+          }
+        } finally {
+          executorService.shutdown();
+        }
+      }
+      System.exit(numWrongResults == 0 ? 0 : 1);
+    }
+  }
+
+  private static byte[] newClass(final String name) {
+    ClassWriter classWriter = new ClassWriter(0);
+    classWriter.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC, name, null, "java/lang/Object", null);
+    classWriter.visitEnd();
+    return classWriter.toByteArray();
+  }
+
+  /** A transformer which renames a class, and counts the number of transformed classes. */
+  private static final class CountingTransformer implements TransformationCache.Transformer {
+
+    final AtomicInteger count = new AtomicInteger();
+
+    @Override
+    public byte[] transform(final ClassReader classReader) {
+      count.incrementAndGet();
+      ClassWriter classWriter = new ClassWriter(0);
+      classReader.accept(
+          new ClassRemapper(classWriter, new SimpleRemapper(classReader.getClassName(), "Renamed")),
+          0);
+      return classWriter.toByteArray();
+    }
+  }
+}
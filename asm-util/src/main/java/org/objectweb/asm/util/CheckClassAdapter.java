@@ -107,6 +107,11 @@ import org.objectweb.asm.tree.analysis.SimpleVerifier;
  * instruction at position <code>00071</code> is not initialized, whereas the local variable 2 is
  * initialized and contains an int value.
  *
+ * <p>The data flow checks are much more expensive than the other checks. In order to check classes
+ * in production, with a small overhead, a <code>CheckClassAdapter</code> can be constructed with a
+ * data flow check rate (see {@link #CheckClassAdapter(ClassVisitor, double)}). The cheap checks are
+ * then performed for all the classes, and the data flow checks only for a sample of them.
+ *
  * @author Eric Bruneton
  */
 public class CheckClassAdapter extends ClassVisitor {
@@ -121,6 +126,12 @@ public class CheckClassAdapter extends ClassVisitor {
   /** Whether the bytecode must be checked with a BasicVerifier. */
   public boolean checkDataFlow;
 
+  /**
+   * The fraction of the visited classes whose bytecode must be checked with a BasicVerifier, when
+   * {@link #checkDataFlow} is {@literal false}. Between 0 (no class) and 1 (all classes).
+   */
+  public final double dataFlowCheckRate;
+
   /** The class version number. */
   public int version;
 
@@ -151,6 +162,9 @@ public class CheckClassAdapter extends ClassVisitor {
   /** The index of the instruction designated by each visited label so far. */
   public Map<Label, Integer> labelInsnIndices;
 
+  /** The internal names and descriptors which have already been checked in the visited class. */
+  private final CheckedNames checkedNames;
+
   // -----------------------------------------------------------------------------------------------
   // Constructors
   // -----------------------------------------------------------------------------------------------
@@ -194,6 +208,52 @@ public class CheckClassAdapter extends ClassVisitor {
     super(api, classVisitor);
     this.labelInsnIndices = new HashMap<>();
     this.checkDataFlow = checkDataFlow;
+    this.dataFlowCheckRate = 0.0;
+    this.checkedNames = new CheckedNames();
+  }
+
+  /**
+   * Constructs a new {@link CheckClassAdapter} which performs basic data flow checks only on a
+   * sample of the visited classes. All the other checks, which are much cheaper, are performed for
+   * all the classes. <i>Subclasses must not use this constructor</i>. Instead, they must use the
+   * {@link #CheckClassAdapter(int, ClassVisitor, double)} version.
+   *
+   * @param classVisitor the class visitor to which this adapter must delegate calls.
+   * @param dataFlowCheckRate the fraction of the visited classes whose bytecode must be checked
+   *     with a BasicVerifier (or with a {@link CheckFrameAnalyzer}, if the stack map frames are not
+   *     computed by the delegate class visitor). Must be between 0 and 1.
+   * @throws IllegalStateException If a subclass calls this constructor.
+   */
+  public CheckClassAdapter(final ClassVisitor classVisitor, final double dataFlowCheckRate) {
+    this(/* latest api = */ Opcodes.ASM9, classVisitor, dataFlowCheckRate);
+    if (getClass() != CheckClassAdapter.class) {
+      throw new IllegalStateException();
+    }
+  }
+
+  /**
+   * Constructs a new {@link CheckClassAdapter} which performs basic data flow checks only on a
+   * sample of the visited classes. All the other checks, which are much cheaper, are performed for
+   * all the classes. The sampled classes are selected from a hash of their name, so that a given
+   * class is always checked, or never checked, with a given rate.
+   *
+   * @param api the ASM API version implemented by this visitor. Must be one of the {@code
+   *     ASM}<i>x</i> values in {@link Opcodes}.
+   * @param classVisitor the class visitor to which this adapter must delegate calls.
+   * @param dataFlowCheckRate the fraction of the visited classes whose bytecode must be checked
+   *     with a BasicVerifier (or with a {@link CheckFrameAnalyzer}, if the stack map frames are not
+   *     computed by the delegate class visitor). Must be between 0 and 1.
+   */
+  public CheckClassAdapter(
+      final int api, final ClassVisitor classVisitor, final double dataFlowCheckRate) {
+    super(api, classVisitor);
+    if (!(dataFlowCheckRate >= 0.0 && dataFlowCheckRate <= 1.0)) {
+      throw new IllegalArgumentException("Invalid data flow check rate: " + dataFlowCheckRate);
+    }
+    this.labelInsnIndices = new HashMap<>();
+    this.checkDataFlow = false;
+    this.dataFlowCheckRate = dataFlowCheckRate;
+    this.checkedNames = new CheckedNames();
   }
 
   // -----------------------------------------------------------------------------------------------
@@ -232,6 +292,9 @@ public class CheckClassAdapter extends ClassVisitor {
     if (!name.endsWith("package-info") && !name.endsWith("module-info")) {
       CheckMethodAdapter.checkInternalName(version, name, "class name");
     }
+    if (!checkDataFlow && dataFlowCheckRate > 0.0) {
+      checkDataFlow = isSampled(name, dataFlowCheckRate);
+    }
     if ("java/lang/Object".equals(name)) {
       if (superName != null) {
         throw new IllegalArgumentException(
@@ -448,14 +511,13 @@ public class CheckClassAdapter extends ClassVisitor {
     if (!"<init>".equals(name) && !"<clinit>".equals(name)) {
       CheckMethodAdapter.checkMethodIdentifier(version, name, "method name");
     }
-    CheckMethodAdapter.checkMethodDescriptor(version, descriptor);
+    checkedNames.checkMethodDescriptor(version, descriptor);
     if (signature != null) {
       checkMethodSignature(signature);
     }
     if (exceptions != null) {
       for (int i = 0; i < exceptions.length; ++i) {
-        CheckMethodAdapter.checkInternalName(
-            version, exceptions[i], "exception name at index " + i);
+        checkedNames.checkInternalName(version, exceptions[i], "exception name at index " + i);
       }
     }
     CheckMethodAdapter checkMethodAdapter;
@@ -473,6 +535,7 @@ public class CheckClassAdapter extends ClassVisitor {
       checkMethodAdapter = new CheckMethodAdapter(api, methodVisitor, labelInsnIndices);
     }
     checkMethodAdapter.version = version;
+    checkMethodAdapter.checkedNames = checkedNames;
     return checkMethodAdapter;
   }
 
@@ -530,6 +593,19 @@ public class CheckClassAdapter extends ClassVisitor {
     }
   }
 
+  /**
+   * Returns whether the given class is part of the sample of classes to check with a BasicVerifier.
+   *
+   * @param className the internal name of a class.
+   * @param rate the fraction of the classes in the sample, between 0 and 1.
+   * @return whether the given class is part of the sample.
+   */
+  static boolean isSampled(final String className, final double rate) {
+    // Spread the hash code bits, since the hash codes of similar names are close to each other.
+    int hash = className.hashCode() * 0x9E3779B9;
+    return (hash >>> 8) < rate * (1 << 24);
+  }
+
   /**
    * Checks that the given access flags do not contain invalid flags. This method also checks that
    * mutually incompatible flags are not set simultaneously.
@@ -327,6 +327,9 @@ public class CheckMethodAdapter extends MethodVisitor {
   /** The labels referenced by the visited method. */
   public Set<Label> referencedLabels;
 
+  /** The internal names and descriptors which have already been checked. */
+  CheckedNames checkedNames;
+
   /** The index of the instruction corresponding to the last visited stack map frame. */
   public int lastFrameInsnIndex = -1;
 
@@ -391,6 +394,7 @@ public class CheckMethodAdapter extends MethodVisitor {
     this.labelInsnIndices = labelInsnIndices;
     this.referencedLabels = new HashSet<>();
     this.handlers = new ArrayList<>();
+    this.checkedNames = new CheckedNames();
   }
 
   /**
@@ -506,7 +510,7 @@ public class CheckMethodAdapter extends MethodVisitor {
   @Override
   public AnnotationVisitor visitAnnotation(final String descriptor, final boolean visible) {
     checkVisitEndNotCalled();
-    checkDescriptor(version, descriptor, false);
+    checkedNames.checkDescriptor(version, descriptor);
     return new CheckAnnotationAdapter(super.visitAnnotation(descriptor, visible));
   }
 
@@ -524,7 +528,7 @@ public class CheckMethodAdapter extends MethodVisitor {
       throw new IllegalArgumentException(INVALID_TYPE_REFERENCE + Integer.toHexString(sort));
     }
     CheckClassAdapter.checkTypeRef(typeRef);
-    CheckMethodAdapter.checkDescriptor(version, descriptor, false);
+    checkedNames.checkDescriptor(version, descriptor);
     return new CheckAnnotationAdapter(
         super.visitTypeAnnotation(typeRef, typePath, descriptor, visible));
   }
@@ -558,7 +562,7 @@ public class CheckMethodAdapter extends MethodVisitor {
             && parameter >= invisibleAnnotableParameterCount)) {
       throw new IllegalArgumentException("Invalid parameter index");
     }
-    checkDescriptor(version, descriptor, false);
+    checkedNames.checkDescriptor(version, descriptor);
     return new CheckAnnotationAdapter(
         super.visitParameterAnnotation(parameter, descriptor, visible));
   }
@@ -704,7 +708,7 @@ public class CheckMethodAdapter extends MethodVisitor {
     checkVisitCodeCalled();
     checkVisitMaxsNotCalled();
     checkOpcodeMethod(opcode, Method.VISIT_TYPE_INSN);
-    checkInternalName(version, type, "type");
+    checkedNames.checkInternalName(version, type, "type");
     if (opcode == Opcodes.NEW && type.charAt(0) == '[') {
       throw new IllegalArgumentException("NEW cannot be used to create arrays: " + type);
     }
@@ -718,9 +722,9 @@ public class CheckMethodAdapter extends MethodVisitor {
     checkVisitCodeCalled();
     checkVisitMaxsNotCalled();
     checkOpcodeMethod(opcode, Method.VISIT_FIELD_INSN);
-    checkInternalName(version, owner, "owner");
+    checkedNames.checkInternalName(version, owner, "owner");
     checkUnqualifiedName(version, name, "name");
-    checkDescriptor(version, descriptor, false);
+    checkedNames.checkDescriptor(version, descriptor);
     super.visitFieldInsn(opcode, owner, name, descriptor);
     ++insnCount;
   }
@@ -745,8 +749,8 @@ public class CheckMethodAdapter extends MethodVisitor {
     if (opcode != Opcodes.INVOKESPECIAL || !"<init>".equals(name)) {
       checkMethodIdentifier(version, name, "name");
     }
-    checkInternalName(version, owner, "owner");
-    checkMethodDescriptor(version, descriptor);
+    checkedNames.checkInternalName(version, owner, "owner");
+    checkedNames.checkMethodDescriptor(version, descriptor);
     if (opcode == Opcodes.INVOKEVIRTUAL && isInterface) {
       throw new IllegalArgumentException("INVOKEVIRTUAL can't be used with interfaces");
     }
@@ -770,7 +774,7 @@ public class CheckMethodAdapter extends MethodVisitor {
     checkVisitCodeCalled();
     checkVisitMaxsNotCalled();
     checkMethodIdentifier(version, name, "name");
-    checkMethodDescriptor(version, descriptor);
+    checkedNames.checkMethodDescriptor(version, descriptor);
     if (bootstrapMethodHandle.getTag() != Opcodes.H_INVOKESTATIC
         && bootstrapMethodHandle.getTag() != Opcodes.H_NEWINVOKESPECIAL) {
       throw new IllegalArgumentException("invalid handle tag " + bootstrapMethodHandle.getTag());
@@ -867,7 +871,7 @@ public class CheckMethodAdapter extends MethodVisitor {
   public void visitMultiANewArrayInsn(final String descriptor, final int numDimensions) {
     checkVisitCodeCalled();
     checkVisitMaxsNotCalled();
-    checkDescriptor(version, descriptor, false);
+    checkedNames.checkDescriptor(version, descriptor);
     if (descriptor.charAt(0) != '[') {
       throw new IllegalArgumentException(
           "Invalid descriptor (must be an array type descriptor): " + descriptor);
@@ -903,7 +907,7 @@ public class CheckMethodAdapter extends MethodVisitor {
       throw new IllegalArgumentException(INVALID_TYPE_REFERENCE + Integer.toHexString(sort));
     }
     CheckClassAdapter.checkTypeRef(typeRef);
-    CheckMethodAdapter.checkDescriptor(version, descriptor, false);
+    checkedNames.checkDescriptor(version, descriptor);
     return new CheckAnnotationAdapter(
         super.visitInsnAnnotation(typeRef, typePath, descriptor, visible));
   }
@@ -922,7 +926,7 @@ public class CheckMethodAdapter extends MethodVisitor {
       throw new IllegalStateException("Try catch blocks must be visited before their labels");
     }
     if (type != null) {
-      checkInternalName(version, type, "type");
+      checkedNames.checkInternalName(version, type, "type");
     }
     super.visitTryCatchBlock(start, end, handler, type);
     handlers.add(start);
@@ -939,7 +943,7 @@ public class CheckMethodAdapter extends MethodVisitor {
       throw new IllegalArgumentException(INVALID_TYPE_REFERENCE + Integer.toHexString(sort));
     }
     CheckClassAdapter.checkTypeRef(typeRef);
-    CheckMethodAdapter.checkDescriptor(version, descriptor, false);
+    checkedNames.checkDescriptor(version, descriptor);
     return new CheckAnnotationAdapter(
         super.visitTryCatchAnnotation(typeRef, typePath, descriptor, visible));
   }
@@ -955,7 +959,7 @@ public class CheckMethodAdapter extends MethodVisitor {
     checkVisitCodeCalled();
     checkVisitMaxsNotCalled();
     checkUnqualifiedName(version, name, "name");
-    checkDescriptor(version, descriptor, false);
+    checkedNames.checkDescriptor(version, descriptor);
     if (signature != null) {
       CheckClassAdapter.checkFieldSignature(signature);
     }
@@ -987,7 +991,7 @@ public class CheckMethodAdapter extends MethodVisitor {
       throw new IllegalArgumentException(INVALID_TYPE_REFERENCE + Integer.toHexString(sort));
     }
     CheckClassAdapter.checkTypeRef(typeRef);
-    checkDescriptor(version, descriptor, false);
+    checkedNames.checkDescriptor(version, descriptor);
     if (start == null
         || end == null
         || index == null
@@ -1091,7 +1095,7 @@ public class CheckMethodAdapter extends MethodVisitor {
       return;
     }
     if (value instanceof String) {
-      checkInternalName(version, (String) value, "Invalid stack frame value");
+      checkedNames.checkInternalName(version, (String) value, "Invalid stack frame value");
     } else if (value instanceof Label) {
       checkLabel((Label) value, /* checkVisited= */ false, "label");
     } else {
@@ -1193,11 +1197,11 @@ public class CheckMethodAdapter extends MethodVisitor {
       if (tag < Opcodes.H_GETFIELD || tag > Opcodes.H_INVOKEINTERFACE) {
         throw new IllegalArgumentException("invalid handle tag " + tag);
       }
-      checkInternalName(this.version, handle.getOwner(), "handle owner");
+      checkedNames.checkInternalName(this.version, handle.getOwner(), "handle owner");
       if (tag <= Opcodes.H_PUTSTATIC) {
-        checkDescriptor(this.version, handle.getDesc(), false);
+        checkedNames.checkDescriptor(this.version, handle.getDesc());
       } else {
-        checkMethodDescriptor(this.version, handle.getDesc());
+        checkedNames.checkMethodDescriptor(this.version, handle.getDesc());
       }
       String handleName = handle.getName();
       if (!("<init>".equals(handleName) && tag == Opcodes.H_NEWINVOKESPECIAL)) {
@@ -1209,7 +1213,7 @@ public class CheckMethodAdapter extends MethodVisitor {
       }
       ConstantDynamic constantDynamic = (ConstantDynamic) value;
       checkMethodIdentifier(this.version, constantDynamic.getName(), "constant dynamic name");
-      checkDescriptor(this.version, constantDynamic.getDescriptor(), false);
+      checkedNames.checkDescriptor(this.version, constantDynamic.getDescriptor());
       checkLdcConstant(constantDynamic.getBootstrapMethod());
       int bootstrapMethodArgumentCount = constantDynamic.getBootstrapMethodArgumentCount();
       for (int i = 0; i < bootstrapMethodArgumentCount; ++i) {
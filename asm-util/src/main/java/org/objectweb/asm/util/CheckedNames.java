@@ -0,0 +1,106 @@
+// ASM: a very small and fast Java bytecode manipulation framework
+// Copyright (c) 2000-2011 INRIA, France Telecom
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+// 1. Redistributions of source code must retain the above copyright
+//    notice, this list of conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright
+//    notice, this list of conditions and the following disclaimer in the
+//    documentation and/or other materials provided with the distribution.
+// 3. Neither the name of the copyright holders nor the names of its
+//    contributors may be used to endorse or promote products derived from
+//    this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+// THE POSSIBILITY OF SUCH DAMAGE.
+package org.objectweb.asm.util;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * The internal names and descriptors which have already been checked by a {@link
+ * CheckMethodAdapter}. Most classes use the same names and descriptors many times, which therefore
+ * only need to be parsed once. The checked names are shared between the methods of a class by
+ * {@link CheckClassAdapter}.
+ */
+final class CheckedNames {
+
+  /** The class version with which the names and descriptors in this object have been checked. */
+  private int version;
+
+  /**
+   * The internal names, or array type descriptors, which have been checked with {@link #version}.
+   */
+  private final Set<String> internalNames = new HashSet<>();
+
+  /** The type descriptors which have been checked with {@link #version}. */
+  private final Set<String> descriptors = new HashSet<>();
+
+  /** The method descriptors which have been checked with {@link #version}. */
+  private final Set<String> methodDescriptors = new HashSet<>();
+
+  /**
+   * Checks that the given string is a valid internal class name or array type descriptor.
+   *
+   * @param version the class version.
+   * @param name the string to be checked.
+   * @param message the message to use in case of error.
+   */
+  void checkInternalName(final int version, final String name, final String message) {
+    setVersion(version);
+    if (!internalNames.contains(name)) {
+      CheckMethodAdapter.checkInternalName(version, name, message);
+      internalNames.add(name);
+    }
+  }
+
+  /**
+   * Checks that the given string is a valid type descriptor (other than {@code V}).
+   *
+   * @param version the class version.
+   * @param descriptor the string to be checked.
+   */
+  void checkDescriptor(final int version, final String descriptor) {
+    setVersion(version);
+    if (!descriptors.contains(descriptor)) {
+      CheckMethodAdapter.checkDescriptor(version, descriptor, false);
+      descriptors.add(descriptor);
+    }
+  }
+
+  /**
+   * Checks that the given string is a valid method descriptor.
+   *
+   * @param version the class version.
+   * @param descriptor the string to be checked.
+   */
+  void checkMethodDescriptor(final int version, final String descriptor) {
+    setVersion(version);
+    if (!methodDescriptors.contains(descriptor)) {
+      CheckMethodAdapter.checkMethodDescriptor(version, descriptor);
+      methodDescriptors.add(descriptor);
+    }
+  }
+
+  private void setVersion(final int version) {
+    if (version != this.version) {
+      internalNames.clear();
+      descriptors.clear();
+      methodDescriptors.clear();
+      this.version = version;
+    }
+  }
+}
@@ -0,0 +1,412 @@
+// ASM: a very small and fast Java bytecode manipulation framework
+// Copyright (c) 2000-2011 INRIA, France Telecom
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+// 1. Redistributions of source code must retain the above copyright
+//    notice, this list of conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright
+//    notice, this list of conditions and the following disclaimer in the
+//    documentation and/or other materials provided with the distribution.
+// 3. Neither the name of the copyright holders nor the names of its
+//    contributors may be used to endorse or promote products derived from
+//    this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+// THE POSSIBILITY OF SUCH DAMAGE.
+package org.objectweb.asm.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+/**
+ * A tool to find the classes and methods which differ between two jar files. The classes of both
+ * jars are disassembled in parallel with a {@link Textifier}, whose output is normalized (it does
+ * not depend on the constant pool, and the labels of each method are named in the order in which
+ * they are first used). Only a digest of the text of each method, and of the rest of each class
+ * (header, attributes, annotations and fields), is kept in memory, and the classes and methods
+ * whose digests differ are reported.
+ */
+public class JarDiff {
+
+  private static final String USAGE =
+      "Prints the classes and methods which differ between two jar files.\n"
+          + "Usage: JarDiff [-nodebug] [-noframes] [-threads <number of threads>] <jar1> <jar2>";
+
+  /** The kind of the differences corresponding to classes or methods which are only in jar2. */
+  public static final int ADDED = 1;
+
+  /** The kind of the differences corresponding to classes or methods which are only in jar1. */
+  public static final int REMOVED = 2;
+
+  /** The kind of the differences corresponding to classes or methods which are in both jars. */
+  public static final int CHANGED = 3;
+
+  /** The key of the digest of a class, minus its methods, in the digests of a class. */
+  private static final String CLASS_KEY = "";
+
+  private static final String CLASS_SUFFIX = ".class";
+
+  private static final String DIGEST_ALGORITHM = "SHA-256";
+
+  /**
+   * The options used to parse the classes. Must be zero or more of {@link ClassReader#SKIP_DEBUG}
+   * and {@link ClassReader#SKIP_FRAMES}.
+   */
+  private final int parsingOptions;
+
+  /** The number of threads used to disassemble the classes. */
+  private final int numThreads;
+
+  /**
+   * Constructs a new {@link JarDiff}.
+   *
+   * @param parsingOptions the options used to parse the classes. Must be zero or more of {@link
+   *     ClassReader#SKIP_DEBUG} (to ignore the source file names, line numbers and local variable
+   *     names) and {@link ClassReader#SKIP_FRAMES} (to ignore the stack map frames).
+   * @param numThreads the number of threads used to disassemble the classes.
+   */
+  public JarDiff(final int parsingOptions, final int numThreads) {
+    if ((parsingOptions & ~(ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES)) != 0) {
+      throw new IllegalArgumentException("Invalid parsing options: " + parsingOptions);
+    }
+    if (numThreads < 1) {
+      throw new IllegalArgumentException("Invalid number of threads: " + numThreads);
+    }
+    this.parsingOptions = parsingOptions;
+    this.numThreads = numThreads;
+  }
+
+  /**
+   * Prints the classes and methods which differ between two jar files.
+   *
+   * @param args the command line arguments.
+   * @throws IOException if a jar file cannot be read.
+   */
+  public static void main(final String[] args) throws IOException {
+    main(args, new PrintWriter(System.out, true), new PrintWriter(System.err, true));
+  }
+
+  /**
+   * Prints the classes and methods which differ between two jar files.
+   *
+   * @param args the command line arguments.
+   * @param output where to print the result.
+   * @param logger where to log errors.
+   * @throws IOException if a jar file cannot be read.
+   */
+  static void main(final String[] args, final PrintWriter output, final PrintWriter logger)
+      throws IOException {
+    int parsingOptions = 0;
+    int numThreads = Runtime.getRuntime().availableProcessors();
+    int argIndex = 0;
+    while (argIndex < args.length && args[argIndex].startsWith("-")) {
+      String option = args[argIndex++];
+      if (option.equals("-nodebug")) {
+        parsingOptions |= ClassReader.SKIP_DEBUG;
+      } else if (option.equals("-noframes")) {
+        parsingOptions |= ClassReader.SKIP_FRAMES;
+      } else if (option.equals("-threads") && argIndex < args.length) {
+        try {
+          numThreads = Integer.parseInt(args[argIndex++]);
+        } catch (NumberFormatException e) {
+          numThreads = 0;
+        }
+      } else {
+        argIndex = args.length;
+      }
+    }
+    if (argIndex != args.length - 2 || numThreads < 1) {
+      logger.println(USAGE);
+      return;
+    }
+
+    List<Difference> differences =
+        new JarDiff(parsingOptions, numThreads)
+            .diff(new File(args[argIndex]), new File(args[argIndex + 1]));
+    for (Difference difference : differences) {
+      output.println(difference);
+    }
+    output.flush();
+  }
+
+  /**
+   * Returns the classes and methods which differ between two jar files. Classes which are only in
+   * one jar are reported as a single difference (their methods are not reported individually).
+   *
+   * @param jar1 the first jar file.
+   * @param jar2 the second jar file.
+   * @return the differences between the two jar files, sorted by class name, and then by method
+   *     name and descriptor (the difference for a class itself, if any, comes first).
+   * @throws IOException if a jar file cannot be read.
+   */
+  public List<Difference> diff(final File jar1, final File jar2) throws IOException {
+    ExecutorService executorService = Executors.newFixedThreadPool(numThreads);
+    try (ZipFile zipFile1 = new ZipFile(jar1);
+        ZipFile zipFile2 = new ZipFile(jar2)) {
+      Map<String, Future<SortedMap<String, byte[]>>> classDigests1 =
+          submitDigestTasks(zipFile1, executorService);
+      Map<String, Future<SortedMap<String, byte[]>>> classDigests2 =
+          submitDigestTasks(zipFile2, executorService);
+
+      List<Difference> differences = new ArrayList<>();
+      TreeSet<String> classNames = new TreeSet<>(classDigests1.keySet());
+      classNames.addAll(classDigests2.keySet());
+      for (String className : classNames) {
+        SortedMap<String, byte[]> digests1 = getResult(classDigests1.get(className));
+        SortedMap<String, byte[]> digests2 = getResult(classDigests2.get(className));
+        if (digests1 == null) {
+          differences.add(new Difference(ADDED, className, null));
+        } else if (digests2 == null) {
+          differences.add(new Difference(REMOVED, className, null));
+        } else {
+          diff(className, digests1, digests2, differences);
+        }
+      }
+      return differences;
+    } finally {
+      executorService.shutdownNow();
+    }
+  }
+
+  /**
+   * Submits a task to compute the digests of each class of the given zip file.
+   *
+   * @param zipFile a zip file.
+   * @param executorService the executor service to use to run the tasks.
+   * @return the results of the submitted tasks, indexed by class internal name.
+   */
+  private Map<String, Future<SortedMap<String, byte[]>>> submitDigestTasks(
+      final ZipFile zipFile, final ExecutorService executorService) {
+    Map<String, Future<SortedMap<String, byte[]>>> classDigests = new TreeMap<>();
+    Enumeration<? extends ZipEntry> entries = zipFile.entries();
+    while (entries.hasMoreElements()) {
+      final ZipEntry entry = entries.nextElement();
+      String entryName = entry.getName();
+      if (!entry.isDirectory() && entryName.endsWith(CLASS_SUFFIX)) {
+        classDigests.put(
+            entryName.substring(0, entryName.length() - CLASS_SUFFIX.length()),
+            executorService.submit(
+                new Callable<SortedMap<String, byte[]>>() {
+                  @Override
+                  public SortedMap<String, byte[]> call() throws IOException {
+                    try (InputStream inputStream = zipFile.getInputStream(entry)) {
+                      return computeDigests(new ClassReader(inputStream));
+                    }
+                  }
+                }));
+      }
+    }
+    return classDigests;
+  }
+
+  /**
+   * Waits for the result of a task.
+   *
+   * @param <T> the type of the task result.
+   * @param future the result of a task, or {@literal null}.
+   * @return the result of the given task, or {@literal null} if the given future is {@literal
+   *     null}.
+   * @throws IOException if the task failed with an IOException.
+   */
+  static <T> T getResult(final Future<T> future) throws IOException {
+    if (future == null) {
+      return null;
+    }
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException(e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      } else if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      } else if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new IllegalStateException(cause);
+    }
+  }
+
+  private static void diff(
+      final String className,
+      final SortedMap<String, byte[]> digests1,
+      final SortedMap<String, byte[]> digests2,
+      final List<Difference> differences) {
+    TreeSet<String> keys = new TreeSet<>(digests1.keySet());
+    keys.addAll(digests2.keySet());
+    for (String key : keys) {
+      byte[] digest1 = digests1.get(key);
+      byte[] digest2 = digests2.get(key);
+      String methodName = key.equals(CLASS_KEY) ? null : key;
+      if (digest1 == null) {
+        differences.add(new Difference(ADDED, className, methodName));
+      } else if (digest2 == null) {
+        differences.add(new Difference(REMOVED, className, methodName));
+      } else if (!Arrays.equals(digest1, digest2)) {
+        differences.add(new Difference(CHANGED, className, methodName));
+      }
+    }
+  }
+
+  /**
+   * Computes the digests of the textual form of a class.
+   *
+   * @param classReader the class to disassemble.
+   * @return the digests of the text of each method of the class, indexed by method name and
+   *     descriptor, and the digest of the text of the rest of the class, indexed by {@link
+   *     #CLASS_KEY}.
+   */
+  SortedMap<String, byte[]> computeDigests(final ClassReader classReader) {
+    final List<String> methodKeys = new ArrayList<>();
+    final List<Textifier> methodTextifiers = new ArrayList<>();
+    final List<DigestOutput> methodOutputs = new ArrayList<>();
+    Textifier classTextifier = new Textifier();
+    DigestOutput classOutput = new DigestOutput();
+    classTextifier.setOutput(classOutput);
+    classReader.accept(
+        new ClassVisitor(Opcodes.ASM9, new TraceClassVisitor(null, classTextifier, null)) {
+          @Override
+          public MethodVisitor visitMethod(
+              final int access,
+              final String name,
+              final String descriptor,
+              final String signature,
+              final String[] exceptions) {
+            Textifier methodTextifier = new Textifier();
+            DigestOutput methodOutput = new DigestOutput();
+            methodTextifier.setOutput(methodOutput);
+            methodKeys.add(name + descriptor);
+            methodTextifiers.add(methodTextifier);
+            methodOutputs.add(methodOutput);
+            return new TraceMethodVisitor(
+                methodTextifier.visitMethod(access, name, descriptor, signature, exceptions));
+          }
+        },
+        parsingOptions);
+
+    SortedMap<String, byte[]> digests = new TreeMap<>();
+    digests.put(CLASS_KEY, classOutput.digest());
+    for (int i = 0; i < methodKeys.size(); ++i) {
+      methodTextifiers.get(i).flushOutput();
+      digests.put(methodKeys.get(i), methodOutputs.get(i).digest());
+    }
+    return digests;
+  }
+
+  /** A difference between two jar files. */
+  public static final class Difference {
+
+    /** The kind of this difference. One of {@link #ADDED}, {@link #REMOVED} or {@link #CHANGED}. */
+    public final int kind;
+
+    /** The internal name of the class which differs, or which contains the method which differs. */
+    public final String className;
+
+    /**
+     * The name and descriptor of the method which differs, or {@literal null} if this difference is
+     * about the class itself (or about the class without its methods, for {@link #CHANGED}).
+     */
+    public final String methodName;
+
+    Difference(final int kind, final String className, final String methodName) {
+      this.kind = kind;
+      this.className = className;
+      this.methodName = methodName;
+    }
+
+    @Override
+    public String toString() {
+      String prefix = kind == ADDED ? "ADDED " : kind == REMOVED ? "REMOVED " : "CHANGED ";
+      return prefix + className + (methodName == null ? "" : " " + methodName);
+    }
+  }
+
+  /** An {@link Appendable} which computes the digest of the characters appended to it. */
+  private static final class DigestOutput implements Appendable {
+
+    private final MessageDigest messageDigest;
+
+    /** The buffer used to pass the UTF-16 bytes of the appended characters to messageDigest. */
+    private final byte[] buffer;
+
+    /** The number of bytes in buffer. */
+    private int length;
+
+    DigestOutput() {
+      try {
+        messageDigest = MessageDigest.getInstance(DIGEST_ALGORITHM);
+      } catch (NoSuchAlgorithmException e) {
+        throw new IllegalStateException(e);
+      }
+      buffer = new byte[1024];
+    }
+
+    @Override
+    public Appendable append(final CharSequence charSequence) {
+      return append(charSequence, 0, charSequence.length());
+    }
+
+    @Override
+    public Appendable append(final CharSequence charSequence, final int start, final int end) {
+      for (int i = start; i < end; ++i) {
+        append(charSequence.charAt(i));
+      }
+      return this;
+    }
+
+    @Override
+    public Appendable append(final char c) {
+      if (length == buffer.length) {
+        messageDigest.update(buffer, 0, length);
+        length = 0;
+      }
+      buffer[length++] = (byte) (c >>> 8);
+      buffer[length++] = (byte) c;
+      return this;
+    }
+
+    byte[] digest() {
+      messageDigest.update(buffer, 0, length);
+      length = 0;
+      return messageDigest.digest();
+    }
+  }
+}
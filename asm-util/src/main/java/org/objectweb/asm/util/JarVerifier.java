@@ -0,0 +1,480 @@
+// ASM: a very small and fast Java bytecode manipulation framework
+// Copyright (c) 2000-2011 INRIA, France Telecom
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+// 1. Redistributions of source code must retain the above copyright
+//    notice, this list of conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright
+//    notice, this list of conditions and the following disclaimer in the
+//    documentation and/or other materials provided with the distribution.
+// 3. Neither the name of the copyright holders nor the names of its
+//    contributors may be used to endorse or promote products derived from
+//    this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+// THE POSSIBILITY OF SUCH DAMAGE.
+package org.objectweb.asm.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.MethodNode;
+import org.objectweb.asm.tree.analysis.Analyzer;
+import org.objectweb.asm.tree.analysis.AnalyzerException;
+import org.objectweb.asm.tree.analysis.BasicValue;
+import org.objectweb.asm.tree.analysis.SimpleVerifier;
+
+/**
+ * A tool to verify all the classes of a set of jar files, in parallel. This tool performs the same
+ * checks as {@link CheckClassAdapter#verify(ClassReader, ClassLoader, boolean, PrintWriter)}, but
+ * the class hierarchy used by the {@link SimpleVerifier} is built once, from the headers of the
+ * classes in the jar files, instead of being loaded with a {@link ClassLoader}. Only the classes
+ * which are not in the jar files (such as the JDK classes) are loaded with a class loader.
+ *
+ * <p>The result is a list of {@link ClassResult}, one per class, each containing the verification
+ * time of the class and its errors, if any. The string representation of these results is a machine
+ * readable list of tab separated records.
+ */
+public class JarVerifier {
+
+  private static final String USAGE =
+      "Verifies all the classes of the given jar files.\n"
+          + "Usage: JarVerifier [-threads <number of threads>] <jar>...";
+
+  private static final String CLASS_SUFFIX = ".class";
+
+  /** The number of threads used to verify the classes. */
+  private final int numThreads;
+
+  /**
+   * The class loader used to load the classes which are not in the verified jars. May be {@literal
+   * null}.
+   */
+  private final ClassLoader loader;
+
+  /**
+   * Constructs a new {@link JarVerifier}.
+   *
+   * @param numThreads the number of threads used to verify the classes.
+   * @param loader the class loader used to load the classes which are not in the verified jars, or
+   *     {@literal null} to use the class loader of {@link SimpleVerifier}.
+   */
+  public JarVerifier(final int numThreads, final ClassLoader loader) {
+    if (numThreads < 1) {
+      throw new IllegalArgumentException("Invalid number of threads: " + numThreads);
+    }
+    this.numThreads = numThreads;
+    this.loader = loader;
+  }
+
+  /**
+   * Verifies all the classes of the given jar files, and prints the results.
+   *
+   * @param args the command line arguments.
+   * @throws IOException if a jar file cannot be read.
+   */
+  public static void main(final String[] args) throws IOException {
+    main(args, new PrintWriter(System.out, true), new PrintWriter(System.err, true));
+  }
+
+  /**
+   * Verifies all the classes of the given jar files, and prints the results.
+   *
+   * @param args the command line arguments.
+   * @param output where to print the result.
+   * @param logger where to log errors.
+   * @throws IOException if a jar file cannot be read.
+   */
+  static void main(final String[] args, final PrintWriter output, final PrintWriter logger)
+      throws IOException {
+    int numThreads = Runtime.getRuntime().availableProcessors();
+    int argIndex = 0;
+    if (args.length > 1 && args[0].equals("-threads")) {
+      try {
+        numThreads = Integer.parseInt(args[1]);
+      } catch (NumberFormatException e) {
+        numThreads = 0;
+      }
+      argIndex = 2;
+    }
+    if (argIndex == args.length || numThreads < 1) {
+      logger.println(USAGE);
+      return;
+    }
+
+    List<File> jars = new ArrayList<>();
+    for (int i = argIndex; i < args.length; ++i) {
+      jars.add(new File(args[i]));
+    }
+    for (ClassResult classResult : new JarVerifier(numThreads, null).verify(jars)) {
+      output.print(classResult);
+    }
+    output.flush();
+  }
+
+  /**
+   * Verifies all the classes of the given jar files.
+   *
+   * @param jars the jar files to verify. If a class is present in several jars, only the first
+   *     occurrence is verified, as with a class path.
+   * @return the verification result of each class, sorted by class name.
+   * @throws IOException if a jar file cannot be read.
+   */
+  public List<ClassResult> verify(final List<File> jars) throws IOException {
+    ExecutorService executorService = Executors.newFixedThreadPool(numThreads);
+    List<ZipFile> zipFiles = new ArrayList<>();
+    try {
+      for (File jar : jars) {
+        zipFiles.add(new ZipFile(jar));
+      }
+
+      // First step: read the headers of all the classes, and build the class hierarchy.
+      Map<String, Future<ClassHeader>> headerFutures = new HashMap<>();
+      for (final ZipFile zipFile : zipFiles) {
+        Enumeration<? extends ZipEntry> entries = zipFile.entries();
+        while (entries.hasMoreElements()) {
+          final ZipEntry entry = entries.nextElement();
+          final String className = getClassName(entry);
+          if (className != null && !headerFutures.containsKey(className)) {
+            headerFutures.put(
+                className,
+                executorService.submit(
+                    new Callable<ClassHeader>() {
+                      @Override
+                      public ClassHeader call() throws IOException {
+                        return new ClassHeader(zipFile, entry, className);
+                      }
+                    }));
+          }
+        }
+      }
+      final Map<String, ClassHeader> hierarchy = new HashMap<>();
+      for (Map.Entry<String, Future<ClassHeader>> entry : headerFutures.entrySet()) {
+        ClassHeader classHeader = JarDiff.getResult(entry.getValue());
+        hierarchy.put(classHeader.name, classHeader);
+      }
+
+      // Second step: verify all the classes.
+      List<Future<ClassResult>> resultFutures = new ArrayList<>();
+      for (final ClassHeader classHeader : hierarchy.values()) {
+        resultFutures.add(
+            executorService.submit(
+                new Callable<ClassResult>() {
+                  @Override
+                  public ClassResult call() throws IOException {
+                    return verify(classHeader, hierarchy);
+                  }
+                }));
+      }
+      List<ClassResult> classResults = new ArrayList<>();
+      for (Future<ClassResult> resultFuture : resultFutures) {
+        classResults.add(JarDiff.getResult(resultFuture));
+      }
+      Collections.sort(classResults);
+      return classResults;
+    } finally {
+      executorService.shutdownNow();
+      for (ZipFile zipFile : zipFiles) {
+        zipFile.close();
+      }
+    }
+  }
+
+  private static String getClassName(final ZipEntry entry) {
+    String entryName = entry.getName();
+    if (entry.isDirectory()
+        || !entryName.endsWith(CLASS_SUFFIX)
+        || entryName.startsWith("META-INF/")
+        || entryName.endsWith("module-info.class")) {
+      return null;
+    }
+    return entryName.substring(0, entryName.length() - CLASS_SUFFIX.length());
+  }
+
+  /**
+   * Verifies a class.
+   *
+   * @param classHeader the header of the class to verify.
+   * @param hierarchy the headers of all the classes of the verified jars, indexed by internal name.
+   * @return the verification result of the class.
+   * @throws IOException if the class can't be read.
+   */
+  private ClassResult verify(
+      final ClassHeader classHeader, final Map<String, ClassHeader> hierarchy) throws IOException {
+    long startTime = System.nanoTime();
+    List<VerificationError> errors = new ArrayList<>();
+    if (classHeader.parseException != null) {
+      errors.add(new VerificationError(null, -1, classHeader.parseException));
+      return new ClassResult(classHeader, System.nanoTime() - startTime, errors);
+    }
+    ClassReader classReader;
+    try (InputStream inputStream = classHeader.zipFile.getInputStream(classHeader.entry)) {
+      classReader = new ClassReader(inputStream);
+    }
+    ClassNode classNode = new ClassNode();
+    try {
+      classReader.accept(
+          new CheckClassAdapter(/*latest*/ Opcodes.ASM9, classNode, false) {},
+          ClassReader.SKIP_DEBUG);
+    } catch (RuntimeException e) {
+      errors.add(new VerificationError(null, -1, e));
+      return new ClassResult(classHeader, System.nanoTime() - startTime, errors);
+    }
+
+    Type superType = classNode.superName == null ? null : Type.getObjectType(classNode.superName);
+    List<Type> interfaces = new ArrayList<>();
+    for (String interfaceName : classNode.interfaces) {
+      interfaces.add(Type.getObjectType(interfaceName));
+    }
+    for (MethodNode method : classNode.methods) {
+      HierarchyVerifier verifier =
+          new HierarchyVerifier(
+              Type.getObjectType(classNode.name),
+              superType,
+              interfaces,
+              (classNode.access & Opcodes.ACC_INTERFACE) != 0,
+              hierarchy);
+      if (loader != null) {
+        verifier.setClassLoader(loader);
+      }
+      Analyzer<BasicValue> analyzer = new Analyzer<>(verifier);
+      try {
+        analyzer.analyze(classNode.name, method);
+      } catch (AnalyzerException e) {
+        int insnIndex = e.node == null ? -1 : method.instructions.indexOf(e.node);
+        errors.add(new VerificationError(method.name + method.desc, insnIndex, e));
+      } catch (RuntimeException e) {
+        errors.add(new VerificationError(method.name + method.desc, -1, e));
+      }
+    }
+    return new ClassResult(classHeader, System.nanoTime() - startTime, errors);
+  }
+
+  /** The verification result of a class. */
+  public static final class ClassResult implements Comparable<ClassResult> {
+
+    /** The internal name of the verified class. */
+    public final String className;
+
+    /** The name of the jar file containing the verified class. */
+    public final String jarName;
+
+    /** The time used to verify the class, in nanoseconds. */
+    public final long timeNanos;
+
+    /** The errors found in the verified class. Empty if the class is valid. */
+    public final List<VerificationError> errors;
+
+    ClassResult(
+        final ClassHeader classHeader, final long timeNanos, final List<VerificationError> errors) {
+      this.className = classHeader.name;
+      this.jarName = classHeader.zipFile.getName();
+      this.timeNanos = timeNanos;
+      this.errors = Collections.unmodifiableList(errors);
+    }
+
+    @Override
+    public int compareTo(final ClassResult classResult) {
+      return className.compareTo(classResult.className);
+    }
+
+    /**
+     * Returns the string representation of this result. This representation contains one "CLASS"
+     * record, followed by one "ERROR" record per error. Each record is terminated with a new line,
+     * and the fields of each record are separated with tabs. The fields of a "CLASS" record are the
+     * class name, the jar file name, the verification time in microseconds, and the number of
+     * errors. The fields of an "ERROR" record are the class name, the method name and descriptor
+     * (or "-" if the error is not in a method), the instruction index (or -1 if unknown), and the
+     * error message.
+     *
+     * @return the string representation of this result.
+     */
+    @Override
+    public String toString() {
+      StringBuilder stringBuilder = new StringBuilder();
+      stringBuilder
+          .append("CLASS\t")
+          .append(className)
+          .append('\t')
+          .append(jarName)
+          .append('\t')
+          .append(timeNanos / 1000)
+          .append('\t')
+          .append(errors.size())
+          .append('\n');
+      for (VerificationError error : errors) {
+        stringBuilder
+            .append("ERROR\t")
+            .append(className)
+            .append('\t')
+            .append(error.methodName == null ? "-" : error.methodName)
+            .append('\t')
+            .append(error.insnIndex)
+            .append('\t')
+            .append(error.message.replace('\t', ' ').replace('\n', ' ').replace('\r', ' '))
+            .append('\n');
+      }
+      return stringBuilder.toString();
+    }
+  }
+
+  /** A verification error. */
+  public static final class VerificationError {
+
+    /**
+     * The name and descriptor of the method containing the error, or {@literal null} if the error
+     * is not in a method.
+     */
+    public final String methodName;
+
+    /** The index of the instruction where the error was found, or -1 if unknown. */
+    public final int insnIndex;
+
+    /** The error message. */
+    public final String message;
+
+    VerificationError(final String methodName, final int insnIndex, final Exception exception) {
+      this.methodName = methodName;
+      this.insnIndex = insnIndex;
+      this.message = String.valueOf(exception.getMessage());
+    }
+  }
+
+  /** The header of a class, i.e. its access flags, name, super class and interfaces. */
+  private static final class ClassHeader {
+
+    final ZipFile zipFile;
+
+    final ZipEntry entry;
+
+    final boolean isInterface;
+
+    final String name;
+
+    final String superName;
+
+    final String[] interfaces;
+
+    /** The exception thrown when the class header was parsed, or {@literal null}. */
+    final RuntimeException parseException;
+
+    ClassHeader(final ZipFile zipFile, final ZipEntry entry, final String className)
+        throws IOException {
+      this.zipFile = zipFile;
+      this.entry = entry;
+      int access = 0;
+      String headerName = className;
+      String headerSuperName = null;
+      String[] headerInterfaces = new String[0];
+      RuntimeException exception = null;
+      try (InputStream inputStream = zipFile.getInputStream(entry)) {
+        ClassReader classReader = new ClassReader(inputStream);
+        access = classReader.getAccess();
+        headerName = classReader.getClassName();
+        headerSuperName = classReader.getSuperName();
+        headerInterfaces = classReader.getInterfaces();
+      } catch (RuntimeException e) {
+        exception = e;
+      }
+      this.isInterface = (access & Opcodes.ACC_INTERFACE) != 0;
+      this.name = headerName;
+      this.superName = headerSuperName;
+      this.interfaces = headerInterfaces;
+      this.parseException = exception;
+    }
+  }
+
+  /**
+   * A {@link SimpleVerifier} which gets the class hierarchy from the headers of the classes of the
+   * verified jars, and from its class loader for the other classes.
+   */
+  private static final class HierarchyVerifier extends SimpleVerifier {
+
+    private final Map<String, ClassHeader> hierarchy;
+
+    HierarchyVerifier(
+        final Type currentClass,
+        final Type currentSuperClass,
+        final List<Type> currentClassInterfaces,
+        final boolean isInterface,
+        final Map<String, ClassHeader> hierarchy) {
+      super(
+          /* latest api = */ Opcodes.ASM9,
+          currentClass,
+          currentSuperClass,
+          currentClassInterfaces,
+          isInterface);
+      this.hierarchy = hierarchy;
+    }
+
+    @Override
+    public boolean isInterface(final Type type) {
+      ClassHeader classHeader = hierarchy.get(type.getInternalName());
+      if (classHeader != null) {
+        return classHeader.isInterface;
+      }
+      return super.isInterface(type);
+    }
+
+    @Override
+    public Type getSuperClass(final Type type) {
+      ClassHeader classHeader = hierarchy.get(type.getInternalName());
+      if (classHeader != null) {
+        return classHeader.superName == null ? null : Type.getObjectType(classHeader.superName);
+      }
+      return super.getSuperClass(type);
+    }
+
+    @Override
+    public boolean isAssignableFrom(final Type type1, final Type type2) {
+      if (type1.equals(type2)) {
+        return true;
+      }
+      ClassHeader classHeader2 = hierarchy.get(type2.getInternalName());
+      if (classHeader2 == null) {
+        // A class which is not in the verified jars can't extend a class from these jars.
+        return !hierarchy.containsKey(type1.getInternalName())
+            && super.isAssignableFrom(type1, type2);
+      }
+      if (classHeader2.superName != null
+          && isAssignableFrom(type1, Type.getObjectType(classHeader2.superName))) {
+        return true;
+      }
+      for (String interfaceName : classHeader2.interfaces) {
+        if (isAssignableFrom(type1, Type.getObjectType(interfaceName))) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+}
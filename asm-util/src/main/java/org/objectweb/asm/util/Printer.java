@@ -31,7 +31,6 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.PrintWriter;
-import java.util.ArrayList;
 import java.util.List;
 import org.objectweb.asm.Attribute;
 import org.objectweb.asm.ClassReader;
@@ -307,7 +306,8 @@ public abstract class Printer {
    * therefore printed in a two steps process: a string tree is constructed during the visit, and
    * printed to a sequential stream at the end of the visit. This string tree is stored in this
    * field, as a string list that can contain other string lists, which can themselves contain other
-   * string lists, and so on.
+   * string lists, and so on. Alternatively, if the visit is sequential, this tree can be written to
+   * a stream while it is constructed, see {@link #setOutput}.
    */
   public final List<Object> text;
 
@@ -324,7 +324,7 @@ public abstract class Printer {
   public Printer(final int api) {
     this.api = api;
     this.stringBuilder = new StringBuilder();
-    this.text = new ArrayList<>();
+    this.text = new TextList();
   }
 
   // -----------------------------------------------------------------------------------------------
@@ -1206,6 +1206,34 @@ public abstract class Printer {
     printList(printWriter, text);
   }
 
+  /**
+   * Sets the output where the text constructed by this visitor must be written, as soon as it is
+   * constructed. The text constructed by the printers created by this printer (for fields, methods,
+   * annotations, etc) is also written to this output, in the order in which it would be printed by
+   * {@link #print}. The written text is removed from {@link #text}, so that the memory used by this
+   * printer remains small, whatever the size of the visited class. Label names are not affected by
+   * this mode, since they are assigned when labels are first used.
+   *
+   * <p>This mode requires a sequential visit, such as the one done by {@link ClassReader}: the
+   * visit of a method (or field, annotation, etc) must be complete before the next element of the
+   * enclosing class (or method, etc) is visited. At the end of the visit, {@link #flushOutput} must
+   * be called to write the remaining text (this is done by {@link TraceClassVisitor#visitEnd}).
+   *
+   * @param output where the text constructed by this visitor must be written, or {@literal null} to
+   *     keep it in {@link #text} until {@link #print} is called.
+   */
+  public void setOutput(final Appendable output) {
+    ((TextList) text).setOutput(output);
+  }
+
+  /**
+   * Writes the text constructed by this visitor which has not been written yet to the output set
+   * with {@link #setOutput}, and flushes this output. Does nothing if no output has been set.
+   */
+  public void flushOutput() {
+    ((TextList) text).flush();
+  }
+
   /**
    * Prints the given string tree.
    *
@@ -1284,7 +1312,8 @@ public abstract class Printer {
       return;
     }
 
-    TraceClassVisitor traceClassVisitor = new TraceClassVisitor(null, printer, output);
+    printer.setOutput(output);
+    TraceClassVisitor traceClassVisitor = new TraceClassVisitor(null, printer, null);
 
     String className;
     int parsingOptions;
@@ -0,0 +1,185 @@
+// ASM: a very small and fast Java bytecode manipulation framework
+// Copyright (c) 2000-2011 INRIA, France Telecom
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+// 1. Redistributions of source code must retain the above copyright
+//    notice, this list of conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright
+//    notice, this list of conditions and the following disclaimer in the
+//    documentation and/or other materials provided with the distribution.
+// 3. Neither the name of the copyright holders nor the names of its
+//    contributors may be used to endorse or promote products derived from
+//    this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+// THE POSSIBILITY OF SUCH DAMAGE.
+package org.objectweb.asm.util;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The string tree used to store the text of a {@link Printer}. This list behaves like an {@link
+ * ArrayList}, unless an output is set with {@link #setOutput}. In this case the strings added to
+ * this list, or to the lists added to it (recursively), are written to the output as soon as all
+ * the text which precedes them in the tree has been written, and are then removed from the tree.
+ *
+ * <p>This requires the tree to be built sequentially, i.e. a list added to its parent list must be
+ * complete when a string or list is added to the parent list in a subsequent visit event. Such an
+ * event is detected when the parent list is modified after the child list (or one of its
+ * descendants) has been modified, or when two elements are added to the parent list after the child
+ * list (a printer can add the text of a new child printer followed by a closing string, in the same
+ * visit event, but not more).
+ */
+final class TextList extends ArrayList<Object> {
+
+  private static final long serialVersionUID = -7413568512957431467L;
+
+  /** The list containing this list, or {@literal null} for the root of the tree. */
+  private transient TextList parent;
+
+  /** Where the text must be written, or {@literal null} to keep it in this list. */
+  private transient Appendable output;
+
+  /**
+   * The last list added to this list, if it is not complete yet, or {@literal null}. The text after
+   * this list can't be written until this list is complete.
+   */
+  private transient TextList openChild;
+
+  /** Whether {@link #openChild}, or one of its descendants, has been modified. */
+  private transient boolean openChildModified;
+
+  /** The number of elements added to this list after {@link #openChild}. */
+  private transient int addsAfterOpenChild;
+
+  /**
+   * Sets the output where the text of this tree must be written. The text already in this tree is
+   * written as soon as possible.
+   *
+   * @param output where the text of this tree must be written, or {@literal null} to keep it in
+   *     this tree.
+   */
+  void setOutput(final Appendable output) {
+    setOutputRecursively(output);
+    if (output != null) {
+      getRoot().write(/* all= */ false);
+    }
+  }
+
+  private void setOutputRecursively(final Appendable output) {
+    this.output = output;
+    for (Object element : this) {
+      if (element instanceof TextList) {
+        TextList child = (TextList) element;
+        child.parent = this;
+        child.setOutputRecursively(output);
+      }
+    }
+  }
+
+  /**
+   * Writes all the text of this tree which is not written yet to the output, and flushes the output
+   * if it is {@link Flushable}. Does nothing if no output is set.
+   */
+  void flush() {
+    if (output != null) {
+      TextList root = getRoot();
+      root.write(/* all= */ true);
+      try {
+        if (output instanceof Flushable) {
+          ((Flushable) output).flush();
+        }
+      } catch (IOException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+  }
+
+  @Override
+  public boolean add(final Object element) {
+    super.add(element);
+    if (output == null) {
+      return true;
+    }
+    if (openChild != null
+        && (element instanceof List || openChildModified || ++addsAfterOpenChild > 1)) {
+      openChild = null;
+    }
+    if (element instanceof TextList) {
+      TextList child = (TextList) element;
+      child.parent = this;
+      child.setOutputRecursively(output);
+      openChild = child;
+      openChildModified = false;
+      addsAfterOpenChild = 0;
+    }
+    TextList list = this;
+    while (list.parent != null && list.parent.openChild == list) {
+      list.parent.openChildModified = true;
+      list = list.parent;
+    }
+    getRoot().write(/* all= */ false);
+    return true;
+  }
+
+  private TextList getRoot() {
+    TextList root = this;
+    while (root.parent != null) {
+      root = root.parent;
+    }
+    return root;
+  }
+
+  /**
+   * Writes the text of this list to the output, and removes it from this list.
+   *
+   * @param all whether all the text must be written, or only the text preceding the first list
+   *     which is not complete yet (this text is written recursively, until an incomplete list).
+   */
+  private void write(final boolean all) {
+    int index = 0;
+    while (index < size()) {
+      Object element = get(index);
+      if (element == openChild && !all) {
+        openChild.write(/* all= */ false);
+        break;
+      }
+      write(element);
+      index++;
+    }
+    removeRange(0, index);
+    if (all) {
+      openChild = null;
+    }
+  }
+
+  private void write(final Object element) {
+    if (element instanceof List) {
+      for (Object child : (List<?>) element) {
+        write(child);
+      }
+      ((List<?>) element).clear();
+    } else {
+      try {
+        output.append(element.toString());
+      } catch (IOException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+  }
+}
@@ -79,6 +79,10 @@ import org.objectweb.asm.TypePath;
  * }
  * </pre>
  *
+ * <p>By default the text of the class is printed at the end of the visit. For large classes, it can
+ * instead be written while the class is visited, with a bounded memory usage, by setting the output
+ * of the printer with {@link Printer#setOutput} (and by using a {@literal null} print writer).
+ *
  * @author Eric Bruneton
  * @author Eugene Kuleshov
  */
@@ -235,6 +239,7 @@ public final class TraceClassVisitor extends ClassVisitor {
   @Override
   public void visitEnd() {
     p.visitClassEnd();
+    p.flushOutput();
     if (printWriter != null) {
       p.print(printWriter);
       printWriter.flush();
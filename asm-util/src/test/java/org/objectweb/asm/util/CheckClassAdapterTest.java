@@ -68,6 +68,15 @@ class CheckClassAdapterTest extends AsmTest implements Opcodes {
     assertThrows(IllegalStateException.class, () -> new CheckClassAdapter(null) {});
   }
 
+  @Test
+  void testConstructor_dataFlowCheckRate() {
+    assertDoesNotThrow(() -> new CheckClassAdapter(null, 0.5));
+    assertThrows(IllegalStateException.class, () -> new CheckClassAdapter(null, 0.5) {});
+    assertThrows(IllegalArgumentException.class, () -> new CheckClassAdapter(null, -0.5));
+    assertThrows(IllegalArgumentException.class, () -> new CheckClassAdapter(null, 1.5));
+    assertThrows(IllegalArgumentException.class, () -> new CheckClassAdapter(null, Double.NaN));
+  }
+
   @Test
   void testVisit_illegalClassAccessFlag() {
     CheckClassAdapter checkClassAdapter = new CheckClassAdapter(null);
@@ -428,6 +437,44 @@ class CheckClassAdapterTest extends AsmTest implements Opcodes {
     assertDoesNotThrow(visitEnd);
   }
 
+  @ParameterizedTest
+  @CsvSource({"0.0, false", "1.0, true"})
+  void testVisitMethod_sampledDataFlowCheck(
+      final double dataFlowCheckRate, final boolean expectError) {
+    CheckClassAdapter checkClassAdapter = new CheckClassAdapter(null, dataFlowCheckRate);
+    checkClassAdapter.visit(V1_1, ACC_PUBLIC, "C", null, "java/lang/Object", null);
+    MethodVisitor methodVisitor = checkClassAdapter.visitMethod(ACC_PUBLIC, "m", "()V", null, null);
+    methodVisitor.visitCode();
+    methodVisitor.visitVarInsn(ILOAD, 1);
+    methodVisitor.visitVarInsn(ASTORE, 0);
+    methodVisitor.visitInsn(IRETURN);
+    methodVisitor.visitMaxs(0, 0);
+
+    Executable visitEnd = methodVisitor::visitEnd;
+
+    if (expectError) {
+      assertThrows(IllegalArgumentException.class, visitEnd);
+    } else {
+      assertDoesNotThrow(visitEnd);
+    }
+  }
+
+  @Test
+  void testIsSampled() {
+    int numSampled = 0;
+    for (int i = 0; i < 1000; ++i) {
+      String className = "pkg/C" + i;
+      assertFalse(CheckClassAdapter.isSampled(className, 0.0));
+      assertTrue(CheckClassAdapter.isSampled(className, 1.0));
+      if (CheckClassAdapter.isSampled(className, 0.25)) {
+        assertTrue(CheckClassAdapter.isSampled(className, 0.5));
+        numSampled++;
+      }
+    }
+
+    assertTrue(numSampled > 200 && numSampled < 300);
+  }
+
   @Test
   void testVisitTypeAnnotation_illegalAnnotation1() {
     CheckClassAdapter checkClassAdapter = new CheckClassAdapter(null);
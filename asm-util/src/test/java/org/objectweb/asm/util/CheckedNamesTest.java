@@ -0,0 +1,80 @@
+// ASM: a very small and fast Java bytecode manipulation framework
+// Copyright (c) 2000-2011 INRIA, France Telecom
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+// 1. Redistributions of source code must retain the above copyright
+//    notice, this list of conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright
+//    notice, this list of conditions and the following disclaimer in the
+//    documentation and/or other materials provided with the distribution.
+// 3. Neither the name of the copyright holders nor the names of its
+//    contributors may be used to endorse or promote products derived from
+//    this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+// THE POSSIBILITY OF SUCH DAMAGE.
+package org.objectweb.asm.util;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+import org.objectweb.asm.Opcodes;
+
+/** Unit tests for {@link CheckedNames}. */
+class CheckedNamesTest {
+
+  @Test
+  void testCheckInternalName() {
+    CheckedNames checkedNames = new CheckedNames();
+
+    assertDoesNotThrow(() -> checkedNames.checkInternalName(Opcodes.V1_5, "a b", "name"));
+    assertDoesNotThrow(() -> checkedNames.checkInternalName(Opcodes.V1_5, "a b", "name"));
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> checkedNames.checkInternalName(Opcodes.V1_4, "a b", "name"));
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> checkedNames.checkInternalName(Opcodes.V1_4, "a b", "name"));
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> checkedNames.checkInternalName(Opcodes.V1_4, null, "name"));
+  }
+
+  @Test
+  void testCheckDescriptor() {
+    CheckedNames checkedNames = new CheckedNames();
+
+    assertDoesNotThrow(() -> checkedNames.checkDescriptor(Opcodes.V1_5, "La b;"));
+    assertDoesNotThrow(() -> checkedNames.checkDescriptor(Opcodes.V1_5, "La b;"));
+    assertThrows(
+        IllegalArgumentException.class, () -> checkedNames.checkDescriptor(Opcodes.V1_4, "La b;"));
+    assertThrows(
+        IllegalArgumentException.class, () -> checkedNames.checkDescriptor(Opcodes.V1_5, "V"));
+  }
+
+  @Test
+  void testCheckMethodDescriptor() {
+    CheckedNames checkedNames = new CheckedNames();
+
+    assertDoesNotThrow(() -> checkedNames.checkMethodDescriptor(Opcodes.V1_5, "(I)V"));
+    assertDoesNotThrow(() -> checkedNames.checkMethodDescriptor(Opcodes.V1_5, "(I)V"));
+    assertThrows(
+        IllegalArgumentException.class, () -> checkedNames.checkDescriptor(Opcodes.V1_5, "(I)V"));
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> checkedNames.checkMethodDescriptor(Opcodes.V1_5, "(V)V"));
+  }
+}
@@ -0,0 +1,218 @@
+// ASM: a very small and fast Java bytecode manipulation framework
+// Copyright (c) 2000-2011 INRIA, France Telecom
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+// 1. Redistributions of source code must retain the above copyright
+//    notice, this list of conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright
+//    notice, this list of conditions and the following disclaimer in the
+//    documentation and/or other materials provided with the distribution.
+// 3. Neither the name of the copyright holders nor the names of its
+//    contributors may be used to endorse or promote products derived from
+//    this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+// THE POSSIBILITY OF SUCH DAMAGE.
+package org.objectweb.asm.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+import org.junit.jupiter.api.io.TempDir;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.test.AsmTest;
+
+/** Unit tests for {@link JarDiff}. */
+class JarDiffTest extends AsmTest {
+
+  @TempDir File tempDir;
+
+  @Test
+  void testConstructor() {
+    Executable invalidOptions = () -> new JarDiff(ClassReader.EXPAND_FRAMES, 1);
+    Executable invalidNumThreads = () -> new JarDiff(0, 0);
+
+    assertThrows(IllegalArgumentException.class, invalidOptions);
+    assertThrows(IllegalArgumentException.class, invalidNumThreads);
+  }
+
+  @Test
+  void testDiff_sameClasses() throws IOException {
+    List<byte[]> classFiles = new ArrayList<>();
+    allClassesAndLatestApi()
+        .forEach(arguments -> classFiles.add(((PrecompiledClass) arguments.get()[0]).getBytes()));
+    File jar1 = writeJar("jar1.jar", classFiles.toArray(new byte[0][]));
+    File jar2 = writeJar("jar2.jar", classFiles.toArray(new byte[0][]));
+
+    List<JarDiff.Difference> differences = new JarDiff(0, 4).diff(jar1, jar2);
+
+    assertTrue(differences.isEmpty());
+  }
+
+  @Test
+  void testDiff_differentClasses() throws IOException {
+    File jar1 =
+        writeJar(
+            "jar1.jar",
+            generateClass("pkg/A", 0, 1, "m1", 1, "m2", 2),
+            generateClass("pkg/B", 0, 1, "m1", 1),
+            generateClass("pkg/C", 0, 1, "m1", 1, "m2", 2));
+    File jar2 =
+        writeJar(
+            "jar2.jar",
+            generateClass("pkg/A", 0, 1, "m1", 3, "m2", 2),
+            generateClass("pkg/C", Opcodes.ACC_FINAL, 1, "m2", 2, "m3", 3),
+            generateClass("pkg/D", 0, 1, "m1", 1));
+
+    List<JarDiff.Difference> differences = new JarDiff(0, 2).diff(jar1, jar2);
+
+    assertEquals(
+        "[CHANGED pkg/A m1()I, REMOVED pkg/B, CHANGED pkg/C, REMOVED pkg/C m1()I, "
+            + "ADDED pkg/C m3()I, ADDED pkg/D]",
+        differences.toString());
+  }
+
+  @Test
+  void testDiff_skipDebug() throws IOException {
+    File jar1 = writeJar("jar1.jar", generateClass("pkg/A", 0, 1, "m1", 1));
+    File jar2 = writeJar("jar2.jar", generateClass("pkg/A", 0, 2, "m1", 1));
+
+    List<JarDiff.Difference> differences = new JarDiff(0, 1).diff(jar1, jar2);
+    List<JarDiff.Difference> differencesWithoutDebug =
+        new JarDiff(ClassReader.SKIP_DEBUG, 1).diff(jar1, jar2);
+
+    assertEquals("[CHANGED pkg/A m1()I]", differences.toString());
+    assertTrue(differencesWithoutDebug.isEmpty());
+  }
+
+  @Test
+  void testDiff_invalidClass() throws IOException {
+    File jar1 = writeJar("jar1.jar", generateClass("pkg/A", 0, 1, "m1", 1));
+    File jar2 = writeJar("jar2.jar", new byte[] {(byte) 0xCA, (byte) 0xFE});
+    JarDiff jarDiff = new JarDiff(0, 1);
+
+    Executable diff = () -> jarDiff.diff(jar1, jar2);
+
+    assertThrows(RuntimeException.class, diff);
+  }
+
+  @Test
+  void testMain_invalidArguments() throws IOException {
+    StringWriter output = new StringWriter();
+    StringWriter logger = new StringWriter();
+    String[] args = {"-threads", "0", "jar1.jar", "jar2.jar"};
+
+    JarDiff.main(args, new PrintWriter(output, true), new PrintWriter(logger, true));
+
+    assertEquals("", output.toString());
+    assertTrue(logger.toString().startsWith("Prints the classes and methods which differ"));
+  }
+
+  @Test
+  void testMain() throws IOException {
+    File jar1 = writeJar("jar1.jar", generateClass("pkg/A", 0, 1, "m1", 1));
+    File jar2 = writeJar("jar2.jar", generateClass("pkg/A", 0, 1, "m1", 2));
+    StringWriter output = new StringWriter();
+    StringWriter logger = new StringWriter();
+    String[] args = {"-nodebug", "-noframes", "-threads", "2", jar1.getPath(), jar2.getPath()};
+
+    JarDiff.main(args, new PrintWriter(output, true), new PrintWriter(logger, true));
+
+    assertEquals("CHANGED pkg/A m1()I" + System.lineSeparator(), output.toString());
+    assertEquals("", logger.toString());
+  }
+
+  /**
+   * Generates a class with methods returning constant int values.
+   *
+   * @param name the internal name of the class.
+   * @param access the access flags of the class.
+   * @param lineNumber the line number of the instructions of each method.
+   * @param methodNamesAndValues the name of each method, followed by the value it returns.
+   * @return the generated class.
+   */
+  private static byte[] generateClass(
+      final String name,
+      final int access,
+      final int lineNumber,
+      final Object... methodNamesAndValues) {
+    ClassWriter classWriter = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+    classWriter.visit(
+        Opcodes.V1_8, Opcodes.ACC_PUBLIC | access, name, null, "java/lang/Object", null);
+    for (int i = 0; i < methodNamesAndValues.length; i += 2) {
+      MethodVisitor methodVisitor =
+          classWriter.visitMethod(
+              Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC,
+              (String) methodNamesAndValues[i],
+              "()I",
+              null,
+              null);
+      methodVisitor.visitCode();
+      Label label = new Label();
+      methodVisitor.visitLabel(label);
+      methodVisitor.visitLineNumber(lineNumber, label);
+      methodVisitor.visitIntInsn(Opcodes.BIPUSH, (Integer) methodNamesAndValues[i + 1]);
+      methodVisitor.visitInsn(Opcodes.IRETURN);
+      methodVisitor.visitMaxs(0, 0);
+      methodVisitor.visitEnd();
+    }
+    classWriter.visitEnd();
+    return classWriter.toByteArray();
+  }
+
+  /**
+   * Writes a jar file in {@link #tempDir} containing the given classes.
+   *
+   * @param fileName the name of the jar file.
+   * @param classFiles the content of the classes. Each class is stored in the entry corresponding
+   *     to its internal name, if it can be parsed, or to "Invalid.class" otherwise.
+   * @return the jar file.
+   */
+  private File writeJar(final String fileName, final byte[]... classFiles) throws IOException {
+    File file = new File(tempDir, fileName);
+    try (ZipOutputStream zipOutputStream = new ZipOutputStream(new FileOutputStream(file))) {
+      zipOutputStream.putNextEntry(new ZipEntry("META-INF/"));
+      zipOutputStream.putNextEntry(new ZipEntry("META-INF/MANIFEST.MF"));
+      zipOutputStream.write("Manifest-Version: 1.0\n".getBytes("UTF-8"));
+      for (byte[] classFile : classFiles) {
+        String className;
+        try {
+          className = new ClassReader(classFile).getClassName();
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+          className = "Invalid";
+        }
+        zipOutputStream.putNextEntry(new ZipEntry(className + ".class"));
+        zipOutputStream.write(classFile);
+      }
+    }
+    return file;
+  }
+}
@@ -0,0 +1,255 @@
+// ASM: a very small and fast Java bytecode manipulation framework
+// Copyright (c) 2000-2011 INRIA, France Telecom
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+// 1. Redistributions of source code must retain the above copyright
+//    notice, this list of conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright
+//    notice, this list of conditions and the following disclaimer in the
+//    documentation and/or other materials provided with the distribution.
+// 3. Neither the name of the copyright holders nor the names of its
+//    contributors may be used to endorse or promote products derived from
+//    this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+// THE POSSIBILITY OF SUCH DAMAGE.
+package org.objectweb.asm.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.test.AsmTest;
+
+/** Unit tests for {@link JarVerifier}. */
+class JarVerifierTest extends AsmTest {
+
+  @TempDir File tempDir;
+
+  @Test
+  void testConstructor() {
+    assertThrows(IllegalArgumentException.class, () -> new JarVerifier(0, null));
+  }
+
+  @Test
+  void testVerify_precompiledClasses() throws IOException {
+    List<byte[]> classFiles = new ArrayList<>();
+    allClassesAndLatestApi()
+        .map(arguments -> (PrecompiledClass) arguments.get()[0])
+        // Module info classes are ignored by JarVerifier.
+        .filter(precompiledClass -> !precompiledClass.getInternalName().equals("module-info"))
+        .forEach(precompiledClass -> classFiles.add(precompiledClass.getBytes()));
+    File jar = writeJar("classes.jar", classFiles.toArray(new byte[0][]));
+
+    List<JarVerifier.ClassResult> classResults =
+        new JarVerifier(4, null).verify(Arrays.asList(jar));
+
+    assertEquals(classFiles.size(), classResults.size());
+    for (JarVerifier.ClassResult classResult : classResults) {
+      assertEquals(jar.getPath(), classResult.jarName);
+      assertEquals("[]", classResult.errors.toString(), classResult.className);
+    }
+  }
+
+  /**
+   * Tests that classes which are not in the class path, but in the verified jars, can be used to
+   * verify other classes.
+   */
+  @Test
+  void testVerify_hierarchyFromJars() throws IOException {
+    File jar1 =
+        writeJar(
+            "jar1.jar",
+            generateClass(
+                Opcodes.ACC_INTERFACE | Opcodes.ACC_ABSTRACT, "pkg/I", "java/lang/Object"),
+            generateClass(0, "pkg/A", "java/lang/Object"));
+    File jar2 =
+        writeJar(
+            "jar2.jar",
+            generateClass(0, "pkg/B", "pkg/A", "pkg/I"),
+            generateMergeClass(/* valid= */ true));
+
+    List<JarVerifier.ClassResult> classResults =
+        new JarVerifier(2, null).verify(Arrays.asList(jar1, jar2));
+
+    assertEquals(4, classResults.size());
+    assertEquals("pkg/A", classResults.get(0).className);
+    assertEquals("pkg/B", classResults.get(1).className);
+    assertEquals("pkg/C", classResults.get(2).className);
+    assertEquals("pkg/I", classResults.get(3).className);
+    for (JarVerifier.ClassResult classResult : classResults) {
+      assertTrue(classResult.errors.isEmpty(), classResult.className);
+    }
+    assertTrue(classResults.get(0).toString().startsWith("CLASS\tpkg/A\t" + jar1.getPath()));
+  }
+
+  @Test
+  void testVerify_invalidClasses() throws IOException {
+    File jar =
+        writeJar(
+            "jar.jar",
+            generateClass(
+                Opcodes.ACC_INTERFACE | Opcodes.ACC_ABSTRACT, "pkg/I", "java/lang/Object"),
+            generateClass(0, "pkg/A", "java/lang/Object"),
+            generateClass(0, "pkg/B", "pkg/A", "pkg/I"),
+            generateMergeClass(/* valid= */ false),
+            new byte[] {(byte) 0xCA, (byte) 0xFE});
+
+    List<JarVerifier.ClassResult> classResults =
+        new JarVerifier(1, null).verify(Arrays.asList(jar));
+
+    assertEquals(5, classResults.size());
+    assertEquals("Invalid", classResults.get(0).className);
+    assertEquals(1, classResults.get(0).errors.size());
+    assertEquals(null, classResults.get(0).errors.get(0).methodName);
+    JarVerifier.ClassResult classResult = classResults.get(3);
+    assertEquals("pkg/C", classResult.className);
+    assertEquals(1, classResult.errors.size());
+    assertEquals("m(Z)Lpkg/B;", classResult.errors.get(0).methodName);
+    String[] records = classResult.toString().split("\n");
+    assertEquals(2, records.length);
+    assertTrue(records[0].startsWith("CLASS\tpkg/C\t"));
+    assertTrue(records[0].endsWith("\t1"));
+    assertTrue(records[1].startsWith("ERROR\tpkg/C\tm(Z)Lpkg/B;\t"));
+  }
+
+  @Test
+  void testMain_invalidArguments() throws IOException {
+    StringWriter output = new StringWriter();
+    StringWriter logger = new StringWriter();
+    String[] args = {"-threads", "2"};
+
+    JarVerifier.main(args, new PrintWriter(output, true), new PrintWriter(logger, true));
+
+    assertEquals("", output.toString());
+    assertTrue(logger.toString().startsWith("Verifies all the classes of the given jar files."));
+  }
+
+  @Test
+  void testMain() throws IOException {
+    File jar = writeJar("jar.jar", generateClass(0, "pkg/A", "java/lang/Object"));
+    StringWriter output = new StringWriter();
+    StringWriter logger = new StringWriter();
+    String[] args = {"-threads", "2", jar.getPath()};
+
+    JarVerifier.main(args, new PrintWriter(output, true), new PrintWriter(logger, true));
+
+    assertTrue(output.toString().startsWith("CLASS\tpkg/A\t" + jar.getPath() + "\t"));
+    assertTrue(output.toString().endsWith("\t0\n"));
+    assertEquals("", logger.toString());
+  }
+
+  private static byte[] generateClass(
+      final int access, final String name, final String superName, final String... interfaces) {
+    ClassWriter classWriter = new ClassWriter(0);
+    classWriter.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC | access, name, null, superName, interfaces);
+    if ((access & Opcodes.ACC_INTERFACE) == 0) {
+      MethodVisitor methodVisitor =
+          classWriter.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "()V", null, null);
+      methodVisitor.visitCode();
+      methodVisitor.visitVarInsn(Opcodes.ALOAD, 0);
+      methodVisitor.visitMethodInsn(Opcodes.INVOKESPECIAL, superName, "<init>", "()V", false);
+      methodVisitor.visitInsn(Opcodes.RETURN);
+      methodVisitor.visitMaxs(1, 1);
+      methodVisitor.visitEnd();
+    }
+    classWriter.visitEnd();
+    return classWriter.toByteArray();
+  }
+
+  /**
+   * Generates a class "pkg/C" with a method {@code I n() { return new B(); }}, and a method {@code
+   * A m(boolean z) { return z ? new A() : new B(); }} (or {@code B m(boolean z)} if 'valid' is
+   * false). Verifying these methods requires the class hierarchy of A, B and I.
+   */
+  private static byte[] generateMergeClass(final boolean valid) {
+    ClassWriter classWriter = new ClassWriter(0);
+    classWriter.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC, "pkg/C", null, "java/lang/Object", null);
+    MethodVisitor methodVisitor =
+        classWriter.visitMethod(Opcodes.ACC_STATIC, "n", "()Lpkg/I;", null, null);
+    methodVisitor.visitCode();
+    methodVisitor.visitTypeInsn(Opcodes.NEW, "pkg/B");
+    methodVisitor.visitInsn(Opcodes.DUP);
+    methodVisitor.visitMethodInsn(Opcodes.INVOKESPECIAL, "pkg/B", "<init>", "()V", false);
+    methodVisitor.visitInsn(Opcodes.ARETURN);
+    methodVisitor.visitMaxs(2, 0);
+    methodVisitor.visitEnd();
+
+    methodVisitor =
+        classWriter.visitMethod(
+            Opcodes.ACC_STATIC, "m", valid ? "(Z)Lpkg/A;" : "(Z)Lpkg/B;", null, null);
+    methodVisitor.visitCode();
+    Label elseLabel = new Label();
+    Label endLabel = new Label();
+    methodVisitor.visitVarInsn(Opcodes.ILOAD, 0);
+    methodVisitor.visitJumpInsn(Opcodes.IFEQ, elseLabel);
+    methodVisitor.visitTypeInsn(Opcodes.NEW, "pkg/A");
+    methodVisitor.visitInsn(Opcodes.DUP);
+    methodVisitor.visitMethodInsn(Opcodes.INVOKESPECIAL, "pkg/A", "<init>", "()V", false);
+    methodVisitor.visitJumpInsn(Opcodes.GOTO, endLabel);
+    methodVisitor.visitLabel(elseLabel);
+    methodVisitor.visitTypeInsn(Opcodes.NEW, "pkg/B");
+    methodVisitor.visitInsn(Opcodes.DUP);
+    methodVisitor.visitMethodInsn(Opcodes.INVOKESPECIAL, "pkg/B", "<init>", "()V", false);
+    methodVisitor.visitLabel(endLabel);
+    methodVisitor.visitInsn(Opcodes.ARETURN);
+    methodVisitor.visitMaxs(2, 1);
+    methodVisitor.visitEnd();
+    classWriter.visitEnd();
+    return classWriter.toByteArray();
+  }
+
+  /**
+   * Writes a jar file in {@link #tempDir} containing the given classes.
+   *
+   * @param fileName the name of the jar file.
+   * @param classFiles the content of the classes. Each class is stored in the entry corresponding
+   *     to its internal name, if it can be parsed, or to "Invalid.class" otherwise.
+   * @return the jar file.
+   */
+  private File writeJar(final String fileName, final byte[]... classFiles) throws IOException {
+    File file = new File(tempDir, fileName);
+    try (ZipOutputStream zipOutputStream = new ZipOutputStream(new FileOutputStream(file))) {
+      for (byte[] classFile : classFiles) {
+        String className;
+        try {
+          className = new ClassReader(classFile).getClassName();
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+          className = "Invalid";
+        }
+        zipOutputStream.putNextEntry(new ZipEntry(className + ".class"));
+        zipOutputStream.write(classFile);
+      }
+    }
+    return file;
+  }
+}
@@ -0,0 +1,183 @@
+// ASM: a very small and fast Java bytecode manipulation framework
+// Copyright (c) 2000-2011 INRIA, France Telecom
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+// 1. Redistributions of source code must retain the above copyright
+//    notice, this list of conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright
+//    notice, this list of conditions and the following disclaimer in the
+//    documentation and/or other materials provided with the distribution.
+// 3. Neither the name of the copyright holders nor the names of its
+//    contributors may be used to endorse or promote products derived from
+//    this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+// THE POSSIBILITY OF SUCH DAMAGE.
+package org.objectweb.asm.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.Arrays;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+
+/** Unit tests for {@link TextList}. */
+class TextListTest {
+
+  @Test
+  void testAdd_noOutput() {
+    TextList textList = new TextList();
+    TextList child = new TextList();
+
+    textList.add("a");
+    textList.add(child);
+    child.add("b");
+
+    assertEquals(Arrays.asList("a", Arrays.asList("b")), textList);
+  }
+
+  @Test
+  void testAdd_withOutput() {
+    StringBuilder output = new StringBuilder();
+    TextList textList = new TextList();
+    textList.setOutput(output);
+    TextList child = new TextList();
+    TextList grandChild = new TextList();
+
+    textList.add("a");
+    String output1 = output.toString();
+    textList.add(child);
+    textList.add("}");
+    child.add("b");
+    child.add(grandChild);
+    grandChild.add("c");
+    String output2 = output.toString();
+    child.add("d");
+    String output3 = output.toString();
+    textList.add("e");
+
+    assertEquals("a", output1);
+    assertEquals("abc", output2);
+    assertEquals("abcd", output3);
+    assertEquals("abcd}e", output.toString());
+    assertTrue(textList.isEmpty());
+  }
+
+  @Test
+  void testAdd_withOutput_emptyChild() {
+    StringBuilder output = new StringBuilder();
+    TextList textList = new TextList();
+    textList.setOutput(output);
+
+    textList.add(new TextList());
+    textList.add(")");
+    String output1 = output.toString();
+    textList.add("a");
+    String output2 = output.toString();
+    textList.add(new TextList());
+    textList.add(new TextList());
+    String output3 = output.toString();
+
+    assertEquals("", output1);
+    assertEquals(")a", output2);
+    assertEquals(")a", output3);
+    assertEquals(1, textList.size());
+  }
+
+  @Test
+  void testSetOutput_existingText() {
+    StringBuilder output = new StringBuilder();
+    TextList textList = new TextList();
+    TextList child = new TextList();
+    textList.add("a");
+    textList.add(child);
+    child.add("b");
+    textList.add("c");
+
+    textList.setOutput(output);
+
+    assertEquals("abc", output.toString());
+    assertTrue(textList.isEmpty());
+  }
+
+  @Test
+  void testFlush() {
+    StringWriter stringWriter = new StringWriter();
+    boolean[] flushed = new boolean[1];
+    Writer output =
+        new Writer() {
+          @Override
+          public void write(final char[] buffer, final int offset, final int length) {
+            stringWriter.write(buffer, offset, length);
+          }
+
+          @Override
+          public void flush() {
+            flushed[0] = true;
+          }
+
+          @Override
+          public void close() {
+            // Nothing to do.
+          }
+        };
+    TextList textList = new TextList();
+    textList.setOutput(output);
+    TextList child = new TextList();
+    textList.add(child);
+    textList.add("}");
+    String output1 = stringWriter.toString();
+
+    textList.flush();
+
+    assertEquals("", output1);
+    assertEquals("}", stringWriter.toString());
+    assertTrue(flushed[0]);
+    assertTrue(textList.isEmpty());
+  }
+
+  @Test
+  void testAdd_ioException() {
+    TextList textList = new TextList();
+    textList.setOutput(
+        new Appendable() {
+          @Override
+          public Appendable append(final CharSequence charSequence) throws IOException {
+            throw new IOException();
+          }
+
+          @Override
+          public Appendable append(final CharSequence charSequence, final int start, final int end)
+              throws IOException {
+            throw new IOException();
+          }
+
+          @Override
+          public Appendable append(final char c) throws IOException {
+            throw new IOException();
+          }
+        });
+
+    Executable add = () -> textList.add("a");
+
+    Exception exception = assertThrows(IllegalStateException.class, add);
+    assertTrue(exception.getCause() instanceof IOException);
+  }
+}
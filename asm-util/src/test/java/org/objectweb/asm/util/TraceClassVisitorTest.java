@@ -71,6 +71,38 @@ class TraceClassVisitorTest extends AsmTest {
     assertEquals(new ClassFile(classFile), new ClassFile(classWriter.toByteArray()));
   }
 
+  /** Tests that a Textifier prints the same text with a streaming output and a print writer. */
+  @ParameterizedTest
+  @MethodSource(ALL_CLASSES_AND_LATEST_API)
+  void testVisitEnd_streamingTextifier(
+      final PrecompiledClass classParameter, final Api apiParameter) {
+    assertSameStreamingOutput(classParameter.getBytes(), new Textifier(), new Textifier());
+  }
+
+  /** Tests that an ASMifier prints the same text with a streaming output and a print writer. */
+  @ParameterizedTest
+  @MethodSource(ALL_CLASSES_AND_LATEST_API)
+  void testVisitEnd_streamingAsmifier(
+      final PrecompiledClass classParameter, final Api apiParameter) {
+    assertSameStreamingOutput(classParameter.getBytes(), new ASMifier(), new ASMifier());
+  }
+
+  private static void assertSameStreamingOutput(
+      final byte[] classFile, final Printer printer, final Printer streamingPrinter) {
+    ClassReader classReader = new ClassReader(classFile);
+    Attribute[] attributes = new Attribute[] {new Comment(), new CodeComment()};
+    StringWriter expectedOutput = new StringWriter();
+    StringWriter output = new StringWriter();
+    streamingPrinter.setOutput(output);
+
+    classReader.accept(
+        new TraceClassVisitor(null, printer, new PrintWriter(expectedOutput)), attributes, 0);
+    classReader.accept(new TraceClassVisitor(null, streamingPrinter, null), attributes, 0);
+
+    assertEquals(expectedOutput.toString(), output.toString());
+    assertTrue(streamingPrinter.getText().isEmpty());
+  }
+
   /** Tests that ClassReader can accept a TraceClassVisitor without delegate. */
   @ParameterizedTest
   @MethodSource(ALL_CLASSES_AND_LATEST_API)
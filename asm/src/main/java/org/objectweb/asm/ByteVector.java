@@ -364,6 +364,9 @@ public class ByteVector {
     if (length > data.length) {
       throw new AssertionError("Internal error");
     }
+    if (Counters.enabled) {
+      Counters.add(Counters.BYTE_VECTOR_ENLARGEMENTS, 1);
+    }
     int doubleCapacity = 2 * data.length;
     int minimalCapacity = length + size;
     byte[] newData = new byte[doubleCapacity > minimalCapacity ? doubleCapacity : minimalCapacity];
@@ -37,6 +37,14 @@ import java.io.InputStream;
  * appropriate visit methods of a given {@link ClassVisitor} for each field, method and bytecode
  * instruction encountered.
  *
+ * <p>A ClassReader can be shared between threads: its {@link #accept} methods, as well as its
+ * read methods, can be called concurrently on the same instance (provided that the given visitors,
+ * attribute prototypes and char buffers are not shared). The lazily filled caches {@link
+ * #constantUtf8Values} and {@link #constantDynamicValues} only contain immutable objects, whose
+ * fields are all final. Their slots can thus be published without synchronization: a thread
+ * reading a slot either sees null, in which case it computes an equal value and stores it in the
+ * slot, or a fully constructed object.
+ *
  * @see <a href="https://docs.oracle.com/javase/specs/jvms/se9/html/jvms-4.html">JVMS 4</a>
  * @author Eric Bruneton
  * @author Eugene Kuleshov
@@ -128,13 +136,15 @@ public class ClassReader {
 
   /**
    * The String objects corresponding to the CONSTANT_Utf8 constant pool items. This cache avoids
-   * multiple parsing of a given CONSTANT_Utf8 constant pool item.
+   * multiple parsing of a given CONSTANT_Utf8 constant pool item. It can be filled concurrently by
+   * several threads (see the class documentation).
    */
   public final String[] constantUtf8Values;
 
   /**
    * The ConstantDynamic objects corresponding to the CONSTANT_Dynamic constant pool items. This
-   * cache avoids multiple parsing of a given CONSTANT_Dynamic constant pool item.
+   * cache avoids multiple parsing of a given CONSTANT_Dynamic constant pool item. It can be filled
+   * concurrently by several threads (see the class documentation).
    */
   public final ConstantDynamic[] constantDynamicValues;
 
@@ -443,6 +453,7 @@ public class ClassReader {
       final ClassVisitor classVisitor,
       final Attribute[] attributePrototypes,
       final int parsingOptions) {
+    long startTime = Counters.enabled ? System.nanoTime() : 0L;
     Context context = new Context();
     context.attributePrototypes = attributePrototypes;
     context.parsingOptions = parsingOptions;
@@ -747,6 +758,13 @@ public class ClassReader {
 
     // Visit the end of the class.
     classVisitor.visitEnd();
+    if (Counters.enabled) {
+      Counters.add(Counters.CLASSES_READ, 1);
+      Counters.add(Counters.BYTES_READ, classFileBuffer.length);
+      if (startTime != 0L) {
+        Counters.add(Counters.READ_NANOS, System.nanoTime() - startTime);
+      }
+    }
   }
 
   // ----------------------------------------------------------------------------------------------
@@ -3734,6 +3752,8 @@ public class ClassReader {
    * @return the String corresponding to the specified CONSTANT_Utf8 entry.
    */
   final String readUtf(final int constantPoolEntryIndex, final char[] charBuffer) {
+    // The cache slot must be read only once: another thread can set it concurrently. This is safe
+    // because String objects are immutable, and thus safely published even through a data race.
     String value = constantUtf8Values[constantPoolEntryIndex];
     if (value != null) {
       return value;
@@ -3858,6 +3878,8 @@ public class ClassReader {
    */
   public ConstantDynamic readConstantDynamic(
       final int constantPoolEntryIndex, final char[] charBuffer) {
+    // Same as in readUtf: ConstantDynamic objects only have final fields (and their argument array
+    // is fully filled before the constructor is called), and are thus safely published.
     ConstantDynamic constantDynamic = constantDynamicValues[constantPoolEntryIndex];
     if (constantDynamic != null) {
       return constantDynamic;
@@ -750,8 +750,15 @@ public class ClassWriter extends ClassVisitor {
 
     // Third step: replace the ASM specific instructions, if any.
     if (hasAsmInstructions) {
+      if (Counters.enabled) {
+        Counters.add(Counters.ASM_INSTRUCTIONS_PASSES, 1);
+      }
       return replaceAsmInstructions(result.data, hasFrames);
     } else {
+      if (Counters.enabled) {
+        Counters.add(Counters.CLASSES_WRITTEN, 1);
+        Counters.add(Counters.BYTES_WRITTEN, result.length);
+      }
       return result.data;
     }
   }
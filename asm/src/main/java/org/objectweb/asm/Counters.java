@@ -0,0 +1,182 @@
+// ASM: a very small and fast Java bytecode manipulation framework
+// Copyright (c) 2000-2011 INRIA, France Telecom
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+// 1. Redistributions of source code must retain the above copyright
+//    notice, this list of conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright
+//    notice, this list of conditions and the following disclaimer in the
+//    documentation and/or other materials provided with the distribution.
+// 3. Neither the name of the copyright holders nor the names of its
+//    contributors may be used to endorse or promote products derived from
+//    this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+// THE POSSIBILITY OF SUCH DAMAGE.
+package org.objectweb.asm;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Global counters measuring the work done by {@link ClassReader} and {@link ClassWriter}. Counters
+ * are disabled by default, in which case each instrumented code location only costs a read of a
+ * static boolean field. When they are enabled, the counters are updated atomically, and can thus be
+ * used with several threads reading or writing classes concurrently. They can be sampled at any
+ * time, for instance to report them as events of a profiling tool.
+ *
+ * <p>The counters are global, i.e. they aggregate the work of all the readers and writers of the
+ * JVM. Use {@link #reset} and {@link #get} around a piece of code to measure its own work.
+ */
+public final class Counters {
+
+  /** The number of {@link ClassReader#accept(ClassVisitor, Attribute[], int)} calls. */
+  public static final int CLASSES_READ = 0;
+
+  /** The total size of the class files parsed by {@link ClassReader#accept}, in bytes. */
+  public static final int BYTES_READ = 1;
+
+  /**
+   * The total time spent in {@link ClassReader#accept}, in nanoseconds. This includes the time
+   * spent in the visitors called by the reader (in particular, in the class writer, if any).
+   */
+  public static final int READ_NANOS = 2;
+
+  /** The number of class files returned by {@link ClassWriter#toByteArray}. */
+  public static final int CLASSES_WRITTEN = 3;
+
+  /** The total size of the class files returned by {@link ClassWriter#toByteArray}, in bytes. */
+  public static final int BYTES_WRITTEN = 4;
+
+  /**
+   * The number of method_info structures copied as is from the {@link ClassReader} by a {@link
+   * ClassWriter} (see {@link ClassWriter#ClassWriter(ClassReader, int, SymbolTable)}).
+   */
+  public static final int METHODS_COPIED = 5;
+
+  /** The number of method_info structures generated from scratch by a {@link ClassWriter}. */
+  public static final int METHODS_ENCODED = 6;
+
+  /** The number of methods whose stack map frames have been computed from scratch. */
+  public static final int FRAMES_COMPUTED = 7;
+
+  /** The number of basic blocks processed by the stack map frame computation algorithm. */
+  public static final int FRAME_BLOCK_ITERATIONS = 8;
+
+  /** The number of frame merges done by the stack map frame computation algorithm. */
+  public static final int FRAME_MERGES = 9;
+
+  /** The number of {@link ClassWriter#getCommonSuperClass} calls. */
+  public static final int COMMON_SUPER_CLASS_LOOKUPS = 10;
+
+  /** The number of {@link ByteVector} enlargements. */
+  public static final int BYTE_VECTOR_ENLARGEMENTS = 11;
+
+  /** The number of resizes of the constant pool hash sets of the class writers. */
+  public static final int SYMBOL_TABLE_RESIZES = 12;
+
+  /**
+   * The number of additional passes done by {@link ClassWriter#toByteArray} to replace the ASM
+   * specific instructions with standard ones (see {@link ClassWriter#replaceAsmInstructions}).
+   */
+  public static final int ASM_INSTRUCTIONS_PASSES = 13;
+
+  /** The number of counters. Valid counter indices are between 0 and this value, exclusive. */
+  public static final int NUM_COUNTERS = 14;
+
+  /** The names of the counters, indexed by counter index. */
+  private static final String[] NAMES = {
+    "classesRead",
+    "bytesRead",
+    "readNanos",
+    "classesWritten",
+    "bytesWritten",
+    "methodsCopied",
+    "methodsEncoded",
+    "framesComputed",
+    "frameBlockIterations",
+    "frameMerges",
+    "commonSuperClassLookups",
+    "byteVectorEnlargements",
+    "symbolTableResizes",
+    "asmInstructionsPasses"
+  };
+
+  /** The values of the counters, indexed by counter index. */
+  private static final AtomicLongArray VALUES = new AtomicLongArray(NUM_COUNTERS);
+
+  /**
+   * Whether the counters are enabled. This field is deliberately not volatile, to keep the cost of
+   * the instrumented code locations as low as possible when the counters are disabled. As a
+   * consequence, a call to {@link #setEnabled} might not be immediately visible in other threads.
+   */
+  static boolean enabled;
+
+  private Counters() {}
+
+  /**
+   * Enables or disables the counters. Disabling the counters does not reset their values.
+   *
+   * @param enabled whether the counters must be updated.
+   */
+  public static void setEnabled(final boolean enabled) {
+    Counters.enabled = enabled;
+  }
+
+  /**
+   * Returns whether the counters are enabled.
+   *
+   * @return whether the counters are enabled.
+   */
+  public static boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Returns the current value of a counter.
+   *
+   * @param counter a counter index, such as {@link #CLASSES_READ}.
+   * @return the current value of this counter.
+   */
+  public static long get(final int counter) {
+    return VALUES.get(counter);
+  }
+
+  /**
+   * Returns the name of a counter.
+   *
+   * @param counter a counter index, such as {@link #CLASSES_READ}.
+   * @return the name of this counter, in camel case (e.g. "classesRead").
+   */
+  public static String getName(final int counter) {
+    return NAMES[counter];
+  }
+
+  /** Resets all the counters to 0. */
+  public static void reset() {
+    for (int i = 0; i < NUM_COUNTERS; ++i) {
+      VALUES.set(i, 0);
+    }
+  }
+
+  /**
+   * Adds a value to a counter. Callers must check {@link #enabled} before calling this method.
+   *
+   * @param counter a counter index, such as {@link #CLASSES_READ}.
+   * @param delta the value to add to this counter.
+   */
+  static void add(final int counter, final long delta) {
+    VALUES.addAndGet(counter, delta);
+  }
+}
@@ -1172,6 +1172,9 @@ public class Frame {
    */
   final boolean merge(
       final SymbolTable symbolTable, final Frame dstFrame, final int catchTypeIndex) {
+    if (Counters.enabled) {
+      Counters.add(Counters.FRAME_MERGES, 1);
+    }
     boolean frameChanged = false;
 
     // Compute the concrete types of the local variables at the end of the basic block corresponding
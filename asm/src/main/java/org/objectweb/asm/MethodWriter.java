@@ -1563,6 +1563,9 @@ public class MethodWriter extends MethodVisitor {
   /** Computes all the stack map frames of the method, from scratch. */
   public void computeAllFrames() {
     if (noverify) return;
+    if (Counters.enabled) {
+      Counters.add(Counters.FRAMES_COMPUTED, 1);
+    }
     // Complete the control flow graph with exception handler blocks.
     Handler handler = firstHandler;
     while (handler != null) {
@@ -1602,6 +1605,9 @@ public class MethodWriter extends MethodVisitor {
       Label basicBlock = listOfBlocksToProcess;
       listOfBlocksToProcess = listOfBlocksToProcess.nextListElement;
       basicBlock.nextListElement = null;
+      if (Counters.enabled) {
+        Counters.add(Counters.FRAME_BLOCK_ITERATIONS, 1);
+      }
       // By definition, basicBlock is reachable.
       basicBlock.flags |= Label.FLAG_REACHABLE;
       // Update the (absolute) maximum stack size.
@@ -2190,8 +2196,14 @@ public class MethodWriter extends MethodVisitor {
     // If this method_info must be copied from an existing one, copy it now and return early.
     if (sourceOffset != 0) {
       output.putByteArray(symbolTable.getSource().classFileBuffer, sourceOffset, sourceLength);
+      if (Counters.enabled) {
+        Counters.add(Counters.METHODS_COPIED, 1);
+      }
       return;
     }
+    if (Counters.enabled) {
+      Counters.add(Counters.METHODS_ENCODED, 1);
+    }
     // For ease of reference, we use here the same attribute order as in Section 4.7 of the JVMS.
     int attributeCount = 0;
     if (code.length > 0) {
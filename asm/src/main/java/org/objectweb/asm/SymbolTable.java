@@ -474,6 +474,9 @@ public class SymbolTable {
     if (entryCount > (entries.length * 3) / 4) {
       int currentCapacity = entries.length;
       int newCapacity = currentCapacity * 2 + 1;
+      if (Counters.enabled) {
+        Counters.add(Counters.SYMBOL_TABLE_RESIZES, 1);
+      }
       Entry[] newEntries = new Entry[newCapacity];
       for (int i = currentCapacity - 1; i >= 0; --i) {
         Entry currentEntry = entries[i];
@@ -1324,6 +1327,9 @@ public class SymbolTable {
     }
     String type1 = typeTable[typeTableIndex1].value;
     String type2 = typeTable[typeTableIndex2].value;
+    if (Counters.enabled) {
+      Counters.add(Counters.COMMON_SUPER_CLASS_LOOKUPS, 1);
+    }
     int commonSuperTypeIndex = addType(classWriter.getCommonSuperClass(type1, type2));
     put(new Entry(typeCount, Symbol.MERGED_TYPE_TAG, data, hashCode)).info = commonSuperTypeIndex;
     return commonSuperTypeIndex;
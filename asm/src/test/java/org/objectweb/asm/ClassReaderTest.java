@@ -27,6 +27,7 @@
 // THE POSSIBILITY OF SUCH DAMAGE.
 package org.objectweb.asm;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
@@ -41,6 +42,12 @@ import static org.junit.jupiter.api.Assumptions.assumeTrue;
 import java.io.IOException;
 import java.io.InputStream;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -571,6 +578,40 @@ class ClassReaderTest extends AsmTest implements Opcodes {
     }
   }
 
+  /** Tests that the ClassReader accept method can be called concurrently on a shared instance. */
+  @ParameterizedTest
+  @MethodSource(ALL_CLASSES_AND_LATEST_API)
+  void testAccept_concurrentCalls(final PrecompiledClass classParameter, final Api apiParameter)
+      throws Exception {
+    byte[] classFile = classParameter.getBytes();
+    ClassWriter expectedClassWriter = new ClassWriter(0);
+    new ClassReader(classFile).accept(expectedClassWriter, 0);
+    byte[] expectedClassFile = expectedClassWriter.toByteArray();
+    int numThreads = 4;
+    ClassReader sharedClassReader = new ClassReader(classFile);
+    CyclicBarrier barrier = new CyclicBarrier(numThreads);
+    ExecutorService executorService = Executors.newFixedThreadPool(numThreads);
+    List<Future<byte[]>> results = new ArrayList<>();
+
+    try {
+      for (int i = 0; i < numThreads; ++i) {
+        results.add(
+            executorService.submit(
+                () -> {
+                  barrier.await();
+                  ClassWriter classWriter = new ClassWriter(0);
+                  sharedClassReader.accept(classWriter, 0);
+                  return classWriter.toByteArray();
+                }));
+      }
+      for (Future<byte[]> result : results) {
+        assertArrayEquals(expectedClassFile, result.get());
+      }
+    } finally {
+      executorService.shutdownNow();
+    }
+  }
+
   @Test
   void testAccept_parameterAnnotationIndices() {
     ClassReader classReader = new ClassReader(PrecompiledClass.JDK5_LOCAL_CLASS.getBytes());
@@ -0,0 +1,187 @@
+// ASM: a very small and fast Java bytecode manipulation framework
+// Copyright (c) 2000-2011 INRIA, France Telecom
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+// 1. Redistributions of source code must retain the above copyright
+//    notice, this list of conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright
+//    notice, this list of conditions and the following disclaimer in the
+//    documentation and/or other materials provided with the distribution.
+// 3. Neither the name of the copyright holders nor the names of its
+//    contributors may be used to endorse or promote products derived from
+//    this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+// THE POSSIBILITY OF SUCH DAMAGE.
+package org.objectweb.asm;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/** Unit tests for {@link Counters}. */
+class CountersTest {
+
+  @BeforeEach
+  void setUp() {
+    Counters.reset();
+  }
+
+  @AfterEach
+  void tearDown() {
+    Counters.setEnabled(false);
+    Counters.reset();
+  }
+
+  @Test
+  void testGetName() {
+    for (int i = 0; i < Counters.NUM_COUNTERS; ++i) {
+      String name = Counters.getName(i);
+
+      assertTrue(Character.isLowerCase(name.charAt(0)));
+    }
+    assertEquals("classesRead", Counters.getName(Counters.CLASSES_READ));
+    assertEquals("asmInstructionsPasses", Counters.getName(Counters.ASM_INSTRUCTIONS_PASSES));
+  }
+
+  @Test
+  void testDisabled() {
+    byte[] classFile = newClass();
+
+    new ClassReader(classFile).accept(new ClassWriter(0), 0);
+
+    assertFalse(Counters.isEnabled());
+    for (int i = 0; i < Counters.NUM_COUNTERS; ++i) {
+      assertEquals(0, Counters.get(i));
+    }
+  }
+
+  @Test
+  void testReadAndCopy() {
+    byte[] classFile = newClass();
+    Counters.setEnabled(true);
+
+    ClassReader classReader = new ClassReader(classFile);
+    ClassWriter classWriter = new ClassWriter(classReader, 0, null);
+    classReader.accept(classWriter, 0);
+    byte[] result = classWriter.toByteArray();
+
+    assertTrue(Counters.isEnabled());
+    assertEquals(1, Counters.get(Counters.CLASSES_READ));
+    assertEquals(classFile.length, Counters.get(Counters.BYTES_READ));
+    assertTrue(Counters.get(Counters.READ_NANOS) > 0);
+    assertEquals(1, Counters.get(Counters.CLASSES_WRITTEN));
+    assertEquals(result.length, Counters.get(Counters.BYTES_WRITTEN));
+    assertEquals(2, Counters.get(Counters.METHODS_COPIED));
+    assertEquals(0, Counters.get(Counters.METHODS_ENCODED));
+    assertEquals(0, Counters.get(Counters.FRAMES_COMPUTED));
+  }
+
+  @Test
+  void testComputeFrames() {
+    byte[] classFile = newClass();
+    Counters.setEnabled(true);
+
+    ClassWriter classWriter = new ClassWriter(ClassWriter.COMPUTE_FRAMES);
+    new ClassReader(classFile).accept(classWriter, ClassReader.SKIP_FRAMES);
+    classWriter.toByteArray();
+
+    assertEquals(0, Counters.get(Counters.METHODS_COPIED));
+    assertEquals(2, Counters.get(Counters.METHODS_ENCODED));
+    assertEquals(2, Counters.get(Counters.FRAMES_COMPUTED));
+    assertTrue(Counters.get(Counters.FRAME_BLOCK_ITERATIONS) >= 4);
+    assertTrue(Counters.get(Counters.FRAME_MERGES) >= 3);
+    assertEquals(1, Counters.get(Counters.COMMON_SUPER_CLASS_LOOKUPS));
+    assertEquals(0, Counters.get(Counters.ASM_INSTRUCTIONS_PASSES));
+  }
+
+  @Test
+  void testByteVectorEnlargements() {
+    Counters.setEnabled(true);
+
+    new ByteVector(1).putInt(0);
+
+    assertEquals(1, Counters.get(Counters.BYTE_VECTOR_ENLARGEMENTS));
+  }
+
+  @Test
+  void testSymbolTableResizes() {
+    Counters.setEnabled(true);
+
+    ClassWriter classWriter = new ClassWriter(0);
+    for (int i = 0; i < 1024; ++i) {
+      classWriter.newConst(Integer.valueOf(i));
+    }
+
+    assertTrue(Counters.get(Counters.SYMBOL_TABLE_RESIZES) > 0);
+  }
+
+  @Test
+  void testReset() {
+    Counters.setEnabled(true);
+    new ByteVector(1).putInt(0);
+
+    Counters.reset();
+
+    assertEquals(0, Counters.get(Counters.BYTE_VECTOR_ENLARGEMENTS));
+  }
+
+  /**
+   * Returns a class with a constructor, and a method whose two branches push different types on the
+   * stack, which requires a common super class lookup to compute its frames.
+   */
+  private static byte[] newClass() {
+    ClassWriter classWriter = new ClassWriter(ClassWriter.COMPUTE_FRAMES);
+    classWriter.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC, "C", null, "java/lang/Object", null);
+    MethodVisitor methodVisitor =
+        classWriter.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "()V", null, null);
+    methodVisitor.visitCode();
+    methodVisitor.visitVarInsn(Opcodes.ALOAD, 0);
+    methodVisitor.visitMethodInsn(
+        Opcodes.INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+    methodVisitor.visitInsn(Opcodes.RETURN);
+    methodVisitor.visitMaxs(0, 0);
+    methodVisitor.visitEnd();
+    methodVisitor =
+        classWriter.visitMethod(
+            Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, "m", "(Z)Ljava/lang/Number;", null, null);
+    methodVisitor.visitCode();
+    Label elseLabel = new Label();
+    Label endLabel = new Label();
+    methodVisitor.visitVarInsn(Opcodes.ILOAD, 0);
+    methodVisitor.visitJumpInsn(Opcodes.IFEQ, elseLabel);
+    methodVisitor.visitTypeInsn(Opcodes.NEW, "java/lang/Integer");
+    methodVisitor.visitInsn(Opcodes.DUP);
+    methodVisitor.visitInsn(Opcodes.ICONST_0);
+    methodVisitor.visitMethodInsn(
+        Opcodes.INVOKESPECIAL, "java/lang/Integer", "<init>", "(I)V", false);
+    methodVisitor.visitJumpInsn(Opcodes.GOTO, endLabel);
+    methodVisitor.visitLabel(elseLabel);
+    methodVisitor.visitTypeInsn(Opcodes.NEW, "java/lang/Long");
+    methodVisitor.visitInsn(Opcodes.DUP);
+    methodVisitor.visitInsn(Opcodes.LCONST_0);
+    methodVisitor.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/Long", "<init>", "(J)V", false);
+    methodVisitor.visitLabel(endLabel);
+    methodVisitor.visitInsn(Opcodes.ARETURN);
+    methodVisitor.visitMaxs(0, 0);
+    methodVisitor.visitEnd();
+    classWriter.visitEnd();
+    return classWriter.toByteArray();
+  }
+}
@@ -0,0 +1,291 @@
+// ASM: a very small and fast Java bytecode manipulation framework
+// Copyright (c) 2000-2011 INRIA, France Telecom
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+// 1. Redistributions of source code must retain the above copyright
+//    notice, this list of conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright
+//    notice, this list of conditions and the following disclaimer in the
+//    documentation and/or other materials provided with the distribution.
+// 3. Neither the name of the copyright holders nor the names of its
+//    contributors may be used to endorse or promote products derived from
+//    this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+// THE POSSIBILITY OF SUCH DAMAGE.
+package org.objectweb.asm.benchmarks;
+
+import java.io.FileInputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.function.BiFunction;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.tree.ClassNode;
+
+/**
+ * A gate to detect allocation regressions in the main ASM code paths. This tool measures, on a
+ * fixed corpus of classes, the number of bytes allocated per input class by several workloads of
+ * {@link CorpusBenchmark}, and the number of objects retained by a {@link ClassNode} per input
+ * class. It then compares these measures with those of a baseline file, and fails if one of them
+ * exceeds its baseline value by more than a given tolerance.
+ *
+ * <p>Usage: AllocationGate [-update] [-tolerance &lt;ratio&gt;] &lt;corpus&gt; &lt;baseline
+ * file&gt;. The corpus can be a jar, a directory of class files or a "jrt:/&lt;module&gt;" URI.
+ * With -update, the baseline file is rewritten with the current measures instead.
+ */
+public final class AllocationGate {
+
+  /** The default relative tolerance between the measures and their baseline values. */
+  static final double DEFAULT_TOLERANCE = 0.05;
+
+  /**
+   * An absolute tolerance, in bytes or objects, to absorb the small variations in the allocations
+   * of the JVM itself (e.g. due to escape analysis) for the workloads which allocate very little.
+   */
+  static final long ABSOLUTE_TOLERANCE = 16;
+
+  /** The number of passes over the corpus before measuring the allocations. */
+  private static final int WARMUP_PASSES = 5;
+
+  /** The number of passes over the corpus used to measure the allocations. */
+  private static final int MEASUREMENT_PASSES = 5;
+
+  private static final String USAGE =
+      "Checks the allocations of ASM against a baseline.\n"
+          + "Usage: AllocationGate [-update] [-tolerance <ratio>] <corpus> <baseline file>";
+
+  private AllocationGate() {}
+
+  public static void main(final String[] args) throws IOException {
+    System.exit(main(args, System.out, System.err));
+  }
+
+  static int main(final String[] args, final PrintStream output, final PrintStream logger)
+      throws IOException {
+    boolean update = false;
+    double tolerance = DEFAULT_TOLERANCE;
+    int argIndex = 0;
+    while (argIndex < args.length && args[argIndex].startsWith("-")) {
+      if (args[argIndex].equals("-update")) {
+        update = true;
+        argIndex += 1;
+      } else if (args[argIndex].equals("-tolerance") && argIndex + 1 < args.length) {
+        tolerance = Double.parseDouble(args[argIndex + 1]);
+        argIndex += 2;
+      } else {
+        logger.println(USAGE);
+        return 2;
+      }
+    }
+    if (args.length != argIndex + 2) {
+      logger.println(USAGE);
+      return 2;
+    }
+    Map<String, Long> measures = measure(args[argIndex]);
+    String baselineFile = args[argIndex + 1];
+    if (update) {
+      writeBaseline(measures, baselineFile);
+      output.println("Updated " + baselineFile);
+      return 0;
+    }
+    Properties baseline = new Properties();
+    try (InputStream inputStream = new FileInputStream(baselineFile)) {
+      baseline.load(inputStream);
+    }
+    return compare(measures, baseline, tolerance, output) ? 0 : 1;
+  }
+
+  /**
+   * Returns the allocation measures of the ASM workloads on the given corpus.
+   *
+   * @param corpusLocation a jar, a directory of class files or a "jrt:/&lt;module&gt;" URI.
+   * @return the allocation measures, indexed by name.
+   * @throws IOException if the corpus can't be read.
+   */
+  static Map<String, Long> measure(final String corpusLocation) throws IOException {
+    CorpusBenchmark.Corpus corpus = new CorpusBenchmark.Corpus();
+    corpus.corpus = corpusLocation;
+    corpus.maxClasses = Integer.MAX_VALUE;
+    corpus.prepare();
+    CorpusBenchmark benchmark = new CorpusBenchmark();
+
+    Map<String, BiFunction<CorpusBenchmark.Corpus, CorpusBenchmark.Cursor, Object>> workloads =
+        new LinkedHashMap<>();
+    workloads.put("read", benchmark::read);
+    workloads.put("readWrite", benchmark::readWrite);
+    workloads.put("readWriteWithCopyPool", benchmark::readWriteWithCopyPool);
+    workloads.put("readWriteComputeMaxs", benchmark::readWriteComputeMaxs);
+    workloads.put("readWriteComputeFrames", benchmark::readWriteComputeFrames);
+    workloads.put("treeRoundTrip", benchmark::treeRoundTrip);
+    workloads.put("remap", benchmark::remap);
+
+    Map<String, Long> measures = new LinkedHashMap<>();
+    int numClasses = corpus.classFiles.length;
+    for (Map.Entry<String, BiFunction<CorpusBenchmark.Corpus, CorpusBenchmark.Cursor, Object>>
+        workload : workloads.entrySet()) {
+      CorpusBenchmark.Cursor cursor = new CorpusBenchmark.Cursor();
+      for (int i = 0; i < WARMUP_PASSES * numClasses; ++i) {
+        workload.getValue().apply(corpus, cursor);
+      }
+      long allocatedBytes = getAllocatedBytes();
+      for (int i = 0; i < MEASUREMENT_PASSES * numClasses; ++i) {
+        workload.getValue().apply(corpus, cursor);
+      }
+      allocatedBytes = getAllocatedBytes() - allocatedBytes;
+      measures.put(
+          workload.getKey() + ".bytesPerClass",
+          allocatedBytes / ((long) MEASUREMENT_PASSES * numClasses));
+    }
+
+    long retainedObjects = 0;
+    for (byte[] classFile : corpus.classFiles) {
+      ClassNode classNode = new ClassNode();
+      new ClassReader(classFile).accept(classNode, 0);
+      retainedObjects += countObjects(classNode);
+    }
+    measures.put("classNode.objectsPerClass", retainedObjects / numClasses);
+    return measures;
+  }
+
+  /**
+   * Returns the number of bytes allocated so far by the current thread.
+   *
+   * @return the number of bytes allocated so far by the current thread.
+   */
+  private static long getAllocatedBytes() {
+    com.sun.management.ThreadMXBean threadMxBean =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    return threadMxBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+
+  /**
+   * Returns the number of objects reachable from the given object. The fields of the ASM objects
+   * are followed, as well as the elements of the arrays, collections and maps. The other objects
+   * (e.g. strings) are counted as one object.
+   *
+   * @param root an object.
+   * @return the number of objects reachable from root.
+   */
+  static long countObjects(final Object root) {
+    Set<Object> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+    ArrayDeque<Object> objectsToVisit = new ArrayDeque<>();
+    objectsToVisit.push(root);
+    while (!objectsToVisit.isEmpty()) {
+      Object object = objectsToVisit.pop();
+      if (!visited.add(object)) {
+        continue;
+      }
+      Class<?> objectClass = object.getClass();
+      if (objectClass.isArray()) {
+        if (!objectClass.getComponentType().isPrimitive()) {
+          for (int i = 0; i < Array.getLength(object); ++i) {
+            pushIfNotNull(objectsToVisit, Array.get(object, i));
+          }
+        }
+      } else if (object instanceof Collection) {
+        for (Object element : (Collection<?>) object) {
+          pushIfNotNull(objectsToVisit, element);
+        }
+      } else if (object instanceof Map) {
+        for (Map.Entry<?, ?> entry : ((Map<?, ?>) object).entrySet()) {
+          pushIfNotNull(objectsToVisit, entry.getKey());
+          pushIfNotNull(objectsToVisit, entry.getValue());
+        }
+      } else if (objectClass.getName().startsWith("org.objectweb.asm.")) {
+        for (Class<?> c = objectClass; c != Object.class; c = c.getSuperclass()) {
+          for (Field field : c.getDeclaredFields()) {
+            if (!Modifier.isStatic(field.getModifiers()) && !field.getType().isPrimitive()) {
+              field.setAccessible(true);
+              try {
+                pushIfNotNull(objectsToVisit, field.get(object));
+              } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+              }
+            }
+          }
+        }
+      }
+    }
+    return visited.size();
+  }
+
+  private static void pushIfNotNull(final ArrayDeque<Object> objectsToVisit, final Object object) {
+    if (object != null) {
+      objectsToVisit.push(object);
+    }
+  }
+
+  /**
+   * Compares some measures with their baseline values, and prints the result of this comparison.
+   *
+   * @param measures some measures, indexed by name.
+   * @param baseline the baseline values of these measures, indexed by name.
+   * @param tolerance the maximum allowed relative increase of each measure.
+   * @param output where the comparison result must be printed.
+   * @return whether all the measures are within their budget.
+   */
+  static boolean compare(
+      final Map<String, Long> measures,
+      final Properties baseline,
+      final double tolerance,
+      final PrintStream output) {
+    boolean success = true;
+    output.println(
+        String.format("%-40s %12s %12s %9s", "Measure", "Baseline", "Current", "Change"));
+    for (Map.Entry<String, Long> entry : measures.entrySet()) {
+      String name = entry.getKey();
+      long current = entry.getValue();
+      String baselineValue = baseline.getProperty(name);
+      if (baselineValue == null) {
+        output.println(String.format("%-40s %12s %12d  MISSING BASELINE", name, "-", current));
+        success = false;
+        continue;
+      }
+      long expected = Long.parseLong(baselineValue.trim());
+      long budget = (long) (expected * (1 + tolerance)) + ABSOLUTE_TOLERANCE;
+      String status = current > budget ? "EXCEEDED" : "OK";
+      success &= current <= budget;
+      double change = expected == 0 ? 0 : 100.0 * (current - expected) / expected;
+      output.println(
+          String.format("%-40s %12d %12d %+8.1f%%  %s", name, expected, current, change, status));
+    }
+    return success;
+  }
+
+  private static void writeBaseline(final Map<String, Long> measures, final String baselineFile)
+      throws IOException {
+    try (PrintWriter printWriter = new PrintWriter(new FileWriter(baselineFile))) {
+      printWriter.println("# Allocation baseline of AllocationGate. Do not edit, use -update.");
+      for (Map.Entry<String, Long> entry : measures.entrySet()) {
+        printWriter.println(entry.getKey() + "=" + entry.getValue());
+      }
+    }
+  }
+}
@@ -0,0 +1,158 @@
+// ASM: a very small and fast Java bytecode manipulation framework
+// Copyright (c) 2000-2011 INRIA, France Telecom
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+// 1. Redistributions of source code must retain the above copyright
+//    notice, this list of conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright
+//    notice, this list of conditions and the following disclaimer in the
+//    documentation and/or other materials provided with the distribution.
+// 3. Neither the name of the copyright holders nor the names of its
+//    contributors may be used to endorse or promote products derived from
+//    this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+// THE POSSIBILITY OF SUCH DAMAGE.
+package org.objectweb.asm.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.commons.AnalyzerAdapter;
+import org.objectweb.asm.commons.ArrayAnalyzerAdapter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * A benchmark to compare the performance of {@link AnalyzerAdapter} and {@link
+ * ArrayAnalyzerAdapter}, when simulating the execution of all the methods of some Java 8 classes
+ * (which contain stack map frames).
+ */
+@Fork(1)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 10, time = 1, timeUnit = TimeUnit.SECONDS)
+@State(Scope.Thread)
+public class AnalyzerAdapterBenchmark extends AbstractBenchmark {
+
+  public AnalyzerAdapterBenchmark() {
+    super("org.objectweb.asm.benchmarks.AnalyzerAdapter");
+  }
+
+  @Setup
+  public void prepare() throws Exception {
+    prepareClasses();
+  }
+
+  @Benchmark
+  public void analyzerAdapter(final Blackhole blackhole) {
+    for (byte[] classFile : java8classFiles) {
+      new ClassReader(classFile)
+          .accept(new AnalyzingClassVisitor(blackhole, false), ClassReader.EXPAND_FRAMES);
+    }
+  }
+
+  @Benchmark
+  public void arrayAnalyzerAdapter(final Blackhole blackhole) {
+    for (byte[] classFile : java8classFiles) {
+      new ClassReader(classFile)
+          .accept(new AnalyzingClassVisitor(blackhole, true), ClassReader.EXPAND_FRAMES);
+    }
+  }
+
+  /**
+   * A ClassVisitor which analyzes each method with an {@link AnalyzerAdapter} or with an {@link
+   * ArrayAnalyzerAdapter}, and consumes the stack size before each instruction.
+   */
+  static class AnalyzingClassVisitor extends ClassVisitor {
+
+    final Blackhole blackhole;
+    final boolean useArrayAnalyzerAdapter;
+    String owner;
+
+    AnalyzingClassVisitor(final Blackhole blackhole, final boolean useArrayAnalyzerAdapter) {
+      super(Opcodes.ASM9);
+      this.blackhole = blackhole;
+      this.useArrayAnalyzerAdapter = useArrayAnalyzerAdapter;
+    }
+
+    @Override
+    public void visit(
+        final int version,
+        final int access,
+        final String name,
+        final String signature,
+        final String superName,
+        final String[] interfaces) {
+      owner = name;
+    }
+
+    @Override
+    public MethodVisitor visitMethod(
+        final int access,
+        final String name,
+        final String descriptor,
+        final String signature,
+        final String[] exceptions) {
+      StackSizeConsumer stackSizeConsumer = new StackSizeConsumer(blackhole);
+      if (useArrayAnalyzerAdapter) {
+        ArrayAnalyzerAdapter analyzerAdapter =
+            new ArrayAnalyzerAdapter(api, owner, access, name, descriptor, stackSizeConsumer);
+        stackSizeConsumer.arrayAnalyzerAdapter = analyzerAdapter;
+        return analyzerAdapter;
+      } else {
+        AnalyzerAdapter analyzerAdapter =
+            new AnalyzerAdapter(api, owner, access, name, descriptor, stackSizeConsumer);
+        stackSizeConsumer.analyzerAdapter = analyzerAdapter;
+        return analyzerAdapter;
+      }
+    }
+  }
+
+  /** A MethodVisitor which consumes the stack size computed by an analyzer adapter. */
+  static class StackSizeConsumer extends MethodVisitor {
+
+    final Blackhole blackhole;
+    AnalyzerAdapter analyzerAdapter;
+    ArrayAnalyzerAdapter arrayAnalyzerAdapter;
+
+    StackSizeConsumer(final Blackhole blackhole) {
+      super(Opcodes.ASM9);
+      this.blackhole = blackhole;
+    }
+
+    @Override
+    public void visitInsn(final int opcode) {
+      if (analyzerAdapter != null) {
+        blackhole.consume(analyzerAdapter.stack == null ? -1 : analyzerAdapter.stack.size());
+      } else {
+        blackhole.consume(arrayAnalyzerAdapter.getNumStack());
+      }
+    }
+
+    @Override
+    public void visitMaxs(final int maxStack, final int maxLocals) {
+      blackhole.consume(maxStack);
+      blackhole.consume(maxLocals);
+    }
+  }
+}
@@ -0,0 +1,182 @@
+// ASM: a very small and fast Java bytecode manipulation framework
+// Copyright (c) 2000-2011 INRIA, France Telecom
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+// 1. Redistributions of source code must retain the above copyright
+//    notice, this list of conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright
+//    notice, this list of conditions and the following disclaimer in the
+//    documentation and/or other materials provided with the distribution.
+// 3. Neither the name of the copyright holders nor the names of its
+//    contributors may be used to endorse or promote products derived from
+//    this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+// THE POSSIBILITY OF SUCH DAMAGE.
+package org.objectweb.asm.benchmarks;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.tree.ClassNode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * A benchmark to measure how the throughput of {@link ClassReader} scales with the number of
+ * threads, when the same ClassReader instances are shared by all the threads. Each benchmark
+ * operation reads one class, and there is one benchmark per workload (read only, read and write,
+ * and tree building) and per number of threads (1, 2, 4 and the number of available processors).
+ * With linear scaling, the throughput of the N threads benchmarks should be N times that of the
+ * single thread ones. The read only workload visits the method code too, with a {@link
+ * CorpusBenchmark.CountingClassVisitor}.
+ *
+ * <p>The corpus is specified with the "corpus" parameter, as in {@link CorpusBenchmark}.
+ */
+@Fork(1)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+public class ClassReaderScalingBenchmark {
+
+  /** The ClassReader instances of the corpus classes, shared by all the benchmark threads. */
+  @State(Scope.Benchmark)
+  public static class SharedReaders {
+
+    /** The location of the corpus classes (a jar, a directory or a "jrt:/" URI). */
+    @Param({"jrt:/java.base"})
+    public String corpus;
+
+    /** The maximum number of corpus classes to use. */
+    @Param({"2000"})
+    public int maxClasses;
+
+    ClassReader[] classReaders;
+
+    @Setup
+    public void prepare() throws IOException {
+      List<byte[]> classFiles = CorpusBenchmark.readClasses(corpus, maxClasses);
+      classReaders = new ClassReader[classFiles.size()];
+      for (int i = 0; i < classReaders.length; ++i) {
+        classReaders[i] = new ClassReader(classFiles.get(i));
+      }
+    }
+
+    ClassReader next(final CorpusBenchmark.Cursor cursor) {
+      return classReaders[cursor.next(classReaders.length)];
+    }
+  }
+
+  @Benchmark
+  @Threads(1)
+  public int read1(final SharedReaders readers, final CorpusBenchmark.Cursor cursor) {
+    return read(readers, cursor);
+  }
+
+  @Benchmark
+  @Threads(2)
+  public int read2(final SharedReaders readers, final CorpusBenchmark.Cursor cursor) {
+    return read(readers, cursor);
+  }
+
+  @Benchmark
+  @Threads(4)
+  public int read4(final SharedReaders readers, final CorpusBenchmark.Cursor cursor) {
+    return read(readers, cursor);
+  }
+
+  @Benchmark
+  @Threads(Threads.MAX)
+  public int readMax(final SharedReaders readers, final CorpusBenchmark.Cursor cursor) {
+    return read(readers, cursor);
+  }
+
+  @Benchmark
+  @Threads(1)
+  public byte[] readWrite1(final SharedReaders readers, final CorpusBenchmark.Cursor cursor) {
+    return readWrite(readers, cursor);
+  }
+
+  @Benchmark
+  @Threads(2)
+  public byte[] readWrite2(final SharedReaders readers, final CorpusBenchmark.Cursor cursor) {
+    return readWrite(readers, cursor);
+  }
+
+  @Benchmark
+  @Threads(4)
+  public byte[] readWrite4(final SharedReaders readers, final CorpusBenchmark.Cursor cursor) {
+    return readWrite(readers, cursor);
+  }
+
+  @Benchmark
+  @Threads(Threads.MAX)
+  public byte[] readWriteMax(final SharedReaders readers, final CorpusBenchmark.Cursor cursor) {
+    return readWrite(readers, cursor);
+  }
+
+  @Benchmark
+  @Threads(1)
+  public ClassNode buildTree1(final SharedReaders readers, final CorpusBenchmark.Cursor cursor) {
+    return buildTree(readers, cursor);
+  }
+
+  @Benchmark
+  @Threads(2)
+  public ClassNode buildTree2(final SharedReaders readers, final CorpusBenchmark.Cursor cursor) {
+    return buildTree(readers, cursor);
+  }
+
+  @Benchmark
+  @Threads(4)
+  public ClassNode buildTree4(final SharedReaders readers, final CorpusBenchmark.Cursor cursor) {
+    return buildTree(readers, cursor);
+  }
+
+  @Benchmark
+  @Threads(Threads.MAX)
+  public ClassNode buildTreeMax(final SharedReaders readers, final CorpusBenchmark.Cursor cursor) {
+    return buildTree(readers, cursor);
+  }
+
+  private static int read(final SharedReaders readers, final CorpusBenchmark.Cursor cursor) {
+    CorpusBenchmark.CountingClassVisitor countingVisitor =
+        new CorpusBenchmark.CountingClassVisitor();
+    readers.next(cursor).accept(countingVisitor, 0);
+    return countingVisitor.count;
+  }
+
+  private static byte[] readWrite(
+      final SharedReaders readers, final CorpusBenchmark.Cursor cursor) {
+    ClassWriter classWriter = new ClassWriter(0);
+    readers.next(cursor).accept(classWriter, 0);
+    return classWriter.toByteArray();
+  }
+
+  private static ClassNode buildTree(
+      final SharedReaders readers, final CorpusBenchmark.Cursor cursor) {
+    ClassNode classNode = new ClassNode();
+    readers.next(cursor).accept(classNode, 0);
+    return classNode;
+  }
+}
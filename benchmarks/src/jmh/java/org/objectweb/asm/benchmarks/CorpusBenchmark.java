@@ -0,0 +1,585 @@
+// ASM: a very small and fast Java bytecode manipulation framework
+// Copyright (c) 2000-2011 INRIA, France Telecom
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+// 1. Redistributions of source code must retain the above copyright
+//    notice, this list of conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright
+//    notice, this list of conditions and the following disclaimer in the
+//    documentation and/or other materials provided with the distribution.
+// 3. Neither the name of the copyright holders nor the names of its
+//    contributors may be used to endorse or promote products derived from
+//    this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+// THE POSSIBILITY OF SUCH DAMAGE.
+package org.objectweb.asm.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.commons.ClassRemapper;
+import org.objectweb.asm.commons.SimpleRemapper;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.MethodNode;
+import org.objectweb.asm.tree.analysis.Analyzer;
+import org.objectweb.asm.tree.analysis.AnalyzerException;
+import org.objectweb.asm.tree.analysis.BasicInterpreter;
+import org.objectweb.asm.tree.analysis.BasicVerifier;
+import org.objectweb.asm.tree.analysis.Interpreter;
+import org.objectweb.asm.tree.analysis.SimpleVerifier;
+import org.objectweb.asm.tree.analysis.SourceInterpreter;
+import org.objectweb.asm.tree.analysis.Value;
+import org.objectweb.asm.util.CheckClassAdapter;
+import org.objectweb.asm.util.Textifier;
+import org.objectweb.asm.util.TraceClassVisitor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * A benchmark to measure the performance of the main ASM code paths on a real-world corpus of
+ * classes: reading, writing (with and without a constant pool copy, with COMPUTE_MAXS and with
+ * COMPUTE_FRAMES), asm-tree round trips, {@link Analyzer} with each interpreter, {@link
+ * ClassRemapper}, {@link Textifier} and {@link CheckClassAdapter}.
+ *
+ * <p>The "read" benchmarks visit the classes with a {@link CountingClassVisitor}, so that the
+ * method code is decoded too (ClassReader skips the code of the methods for which no MethodVisitor
+ * is returned).
+ *
+ * <p>Each benchmark operation processes one class of the corpus, so that the throughput and the
+ * allocation rate reported by the "gc" profiler ("gc.alloc.rate.norm") are per class. The
+ * benchmarks whose name ends with "Retained" keep a reference to their result, so that {@link
+ * MemoryProfiler} reports the retained memory per class. The benchmarks whose name ends with
+ * "MultiThreaded" run in several threads, each thread iterating over the whole corpus.
+ *
+ * <p>The corpus is specified with the "corpus" parameter (e.g. "-p corpus=/path/to/some.jar" on the
+ * JMH command line, or "-PjmhCorpus=/path/to/some.jar" with Gradle). It can be a jar file, a
+ * directory containing class files, or a "jrt:/&lt;module&gt;" URI to use the classes of a module
+ * of the running JDK.
+ */
+@Fork(1)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+public class CorpusBenchmark {
+
+  /** The corpus classes, shared by all the benchmark threads. */
+  @State(Scope.Benchmark)
+  public static class Corpus {
+
+    /** The location of the corpus classes (a jar, a directory or a "jrt:/" URI). */
+    @Param({"jrt:/java.base"})
+    public String corpus;
+
+    /** The maximum number of corpus classes to use. */
+    @Param({"2000"})
+    public int maxClasses;
+
+    /** The corpus class files. */
+    byte[][] classFiles;
+
+    /** The corpus classes, parsed into ClassNode objects (with frames). */
+    ClassNode[] classNodes;
+
+    /** A remapper renaming all the corpus classes. */
+    SimpleRemapper remapper;
+
+    /** The class loader to use to load the corpus classes. */
+    ClassLoader classLoader;
+
+    @Setup
+    public void prepare() throws IOException {
+      List<byte[]> classFileList = readClasses(corpus, maxClasses);
+      if (classFileList.isEmpty()) {
+        throw new IllegalArgumentException("No class found in " + corpus);
+      }
+      classFiles = classFileList.toArray(new byte[0][]);
+      classNodes = new ClassNode[classFiles.length];
+      Map<String, String> mapping = new HashMap<>();
+      for (int i = 0; i < classFiles.length; ++i) {
+        ClassNode classNode = new ClassNode();
+        new ClassReader(classFiles[i]).accept(classNode, 0);
+        classNodes[i] = classNode;
+        mapping.put(classNode.name, "remapped/" + classNode.name);
+      }
+      remapper = new SimpleRemapper(Opcodes.ASM9, mapping);
+      classLoader =
+          corpus.startsWith("jrt:")
+              ? ClassLoader.getSystemClassLoader()
+              : new URLClassLoader(new URL[] {new File(corpus).toURI().toURL()});
+    }
+  }
+
+  /** The index of the next corpus class to process, for each benchmark thread. */
+  @State(Scope.Thread)
+  public static class Cursor {
+
+    int index;
+
+    int next(final int numClasses) {
+      int result = index;
+      index = result + 1 == numClasses ? 0 : result + 1;
+      return result;
+    }
+  }
+
+  @Benchmark
+  public int read(final Corpus corpus, final Cursor cursor) {
+    byte[] classFile = corpus.classFiles[cursor.next(corpus.classFiles.length)];
+    CountingClassVisitor countingVisitor = new CountingClassVisitor();
+    new ClassReader(classFile).accept(countingVisitor, 0);
+    return countingVisitor.count;
+  }
+
+  @Benchmark
+  public int readSkipDebugAndFrames(final Corpus corpus, final Cursor cursor) {
+    byte[] classFile = corpus.classFiles[cursor.next(corpus.classFiles.length)];
+    CountingClassVisitor countingVisitor = new CountingClassVisitor();
+    new ClassReader(classFile)
+        .accept(countingVisitor, ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+    return countingVisitor.count;
+  }
+
+  @Benchmark
+  public byte[] readWrite(final Corpus corpus, final Cursor cursor) {
+    byte[] classFile = corpus.classFiles[cursor.next(corpus.classFiles.length)];
+    ClassWriter classWriter = new ClassWriter(0);
+    new ClassReader(classFile).accept(classWriter, 0);
+    return classWriter.toByteArray();
+  }
+
+  @Benchmark
+  public byte[] readWriteWithCopyPool(final Corpus corpus, final Cursor cursor) {
+    byte[] classFile = corpus.classFiles[cursor.next(corpus.classFiles.length)];
+    ClassReader classReader = new ClassReader(classFile);
+    ClassWriter classWriter = new ClassWriter(classReader, 0, null);
+    classReader.accept(classWriter, 0);
+    return classWriter.toByteArray();
+  }
+
+  @Benchmark
+  public byte[] readWriteComputeMaxs(final Corpus corpus, final Cursor cursor) {
+    byte[] classFile = corpus.classFiles[cursor.next(corpus.classFiles.length)];
+    ClassWriter classWriter = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+    new ClassReader(classFile).accept(classWriter, 0);
+    return classWriter.toByteArray();
+  }
+
+  @Benchmark
+  public byte[] readWriteComputeFrames(final Corpus corpus, final Cursor cursor) {
+    return computeFrames(corpus, cursor);
+  }
+
+  @Benchmark
+  public byte[] treeRoundTrip(final Corpus corpus, final Cursor cursor) {
+    return treeRoundTrip(corpus, cursor, new ClassNode());
+  }
+
+  @Benchmark
+  public ClassNode treeRetained(final Corpus corpus, final Cursor cursor) {
+    ClassNode classNode = new ClassNode();
+    new ClassReader(corpus.classFiles[cursor.next(corpus.classFiles.length)]).accept(classNode, 0);
+    MemoryProfiler.keepReference(classNode);
+    return classNode;
+  }
+
+  @Benchmark
+  public void analyzeBasicInterpreter(
+      final Corpus corpus, final Cursor cursor, final Blackhole blackhole) {
+    analyze(corpus, cursor, new BasicInterpreter(), blackhole);
+  }
+
+  @Benchmark
+  public void analyzeBasicVerifier(
+      final Corpus corpus, final Cursor cursor, final Blackhole blackhole) {
+    analyze(corpus, cursor, new BasicVerifier(), blackhole);
+  }
+
+  @Benchmark
+  public void analyzeSourceInterpreter(
+      final Corpus corpus, final Cursor cursor, final Blackhole blackhole) {
+    analyze(corpus, cursor, new SourceInterpreter(), blackhole);
+  }
+
+  @Benchmark
+  public void analyzeSimpleVerifier(
+      final Corpus corpus, final Cursor cursor, final Blackhole blackhole) {
+    ClassNode classNode = corpus.classNodes[cursor.next(corpus.classNodes.length)];
+    SimpleVerifier simpleVerifier = new SimpleVerifier();
+    simpleVerifier.setClassLoader(corpus.classLoader);
+    analyze(classNode, simpleVerifier, blackhole);
+  }
+
+  @Benchmark
+  public byte[] remap(final Corpus corpus, final Cursor cursor) {
+    byte[] classFile = corpus.classFiles[cursor.next(corpus.classFiles.length)];
+    ClassWriter classWriter = new ClassWriter(0);
+    new ClassReader(classFile).accept(new ClassRemapper(classWriter, corpus.remapper), 0);
+    return classWriter.toByteArray();
+  }
+
+  @Benchmark
+  public void textify(final Corpus corpus, final Cursor cursor) {
+    byte[] classFile = corpus.classFiles[cursor.next(corpus.classFiles.length)];
+    Textifier textifier = new Textifier();
+    textifier.setOutput(new NullWriter());
+    new ClassReader(classFile).accept(new TraceClassVisitor(null, textifier, null), 0);
+  }
+
+  @Benchmark
+  public void checkClassAdapter(final Corpus corpus, final Cursor cursor) {
+    byte[] classFile = corpus.classFiles[cursor.next(corpus.classFiles.length)];
+    new ClassReader(classFile).accept(new CheckClassAdapter(null, false), 0);
+  }
+
+  @Benchmark
+  @Threads(4)
+  public int readMultiThreaded(final Corpus corpus, final Cursor cursor) {
+    return read(corpus, cursor);
+  }
+
+  @Benchmark
+  @Threads(4)
+  public byte[] readWriteMultiThreaded(final Corpus corpus, final Cursor cursor) {
+    return readWrite(corpus, cursor);
+  }
+
+  @Benchmark
+  @Threads(4)
+  public byte[] readWriteComputeFramesMultiThreaded(final Corpus corpus, final Cursor cursor) {
+    return computeFrames(corpus, cursor);
+  }
+
+  @Benchmark
+  @Threads(4)
+  public byte[] treeRoundTripMultiThreaded(final Corpus corpus, final Cursor cursor) {
+    return treeRoundTrip(corpus, cursor, new ClassNode());
+  }
+
+  @Benchmark
+  @Threads(4)
+  public void analyzeBasicVerifierMultiThreaded(
+      final Corpus corpus, final Cursor cursor, final Blackhole blackhole) {
+    analyze(corpus, cursor, new BasicVerifier(), blackhole);
+  }
+
+  private static byte[] computeFrames(final Corpus corpus, final Cursor cursor) {
+    byte[] classFile = corpus.classFiles[cursor.next(corpus.classFiles.length)];
+    ClassLoader classLoader = corpus.classLoader;
+    ClassWriter classWriter =
+        new ClassWriter(ClassWriter.COMPUTE_FRAMES) {
+          @Override
+          public ClassLoader getClassLoader() {
+            return classLoader;
+          }
+        };
+    new ClassReader(classFile).accept(classWriter, ClassReader.SKIP_FRAMES);
+    return classWriter.toByteArray();
+  }
+
+  private static byte[] treeRoundTrip(
+      final Corpus corpus, final Cursor cursor, final ClassNode classNode) {
+    byte[] classFile = corpus.classFiles[cursor.next(corpus.classFiles.length)];
+    new ClassReader(classFile).accept(classNode, 0);
+    ClassWriter classWriter = new ClassWriter(0);
+    classNode.accept(classWriter);
+    return classWriter.toByteArray();
+  }
+
+  private static void analyze(
+      final Corpus corpus,
+      final Cursor cursor,
+      final Interpreter<?> interpreter,
+      final Blackhole blackhole) {
+    analyze(corpus.classNodes[cursor.next(corpus.classNodes.length)], interpreter, blackhole);
+  }
+
+  private static <V extends Value> void analyze(
+      final ClassNode classNode, final Interpreter<V> interpreter, final Blackhole blackhole) {
+    Analyzer<V> analyzer = new Analyzer<>(interpreter);
+    for (MethodNode methodNode : classNode.methods) {
+      try {
+        blackhole.consume(analyzer.analyze(classNode.name, methodNode));
+      } catch (AnalyzerException e) {
+        blackhole.consume(e);
+      }
+    }
+  }
+
+  /**
+   * Returns the class files of a corpus.
+   *
+   * @param corpus a jar file, a directory containing class files, or a "jrt:/&lt;module&gt;" URI.
+   * @param maxClasses the maximum number of class files to return.
+   * @return at most maxClasses class files from the given corpus, sorted by name.
+   * @throws IOException if the corpus can't be read.
+   */
+  static List<byte[]> readClasses(final String corpus, final int maxClasses) throws IOException {
+    List<byte[]> classFiles = new ArrayList<>();
+    if (corpus.startsWith("jrt:")) {
+      FileSystem fileSystem = FileSystems.getFileSystem(URI.create("jrt:/"));
+      String module = corpus.substring("jrt:".length()).replace("/", "");
+      Path root = fileSystem.getPath("/modules", module);
+      List<Path> paths;
+      try (Stream<Path> stream = Files.walk(root)) {
+        paths =
+            stream
+                .filter(path -> isCorpusClass(path.toString()))
+                .sorted()
+                .limit(maxClasses)
+                .collect(Collectors.toList());
+      }
+      for (Path path : paths) {
+        classFiles.add(Files.readAllBytes(path));
+      }
+    } else if (new File(corpus).isDirectory()) {
+      ArrayList<byte[]> allClassFiles = new ArrayList<>();
+      AbstractBenchmark.findClasses(new File(corpus), allClassFiles);
+      classFiles.addAll(allClassFiles.subList(0, Math.min(maxClasses, allClassFiles.size())));
+    } else {
+      try (ZipFile zipFile = new ZipFile(corpus)) {
+        List<ZipEntry> entries = new ArrayList<>();
+        Enumeration<? extends ZipEntry> enumeration = zipFile.entries();
+        while (enumeration.hasMoreElements()) {
+          ZipEntry entry = enumeration.nextElement();
+          if (isCorpusClass(entry.getName())) {
+            entries.add(entry);
+          }
+        }
+        Collections.sort(entries, (entry1, entry2) -> entry1.getName().compareTo(entry2.getName()));
+        for (ZipEntry entry : entries.subList(0, Math.min(maxClasses, entries.size()))) {
+          try (InputStream inputStream = zipFile.getInputStream(entry)) {
+            classFiles.add(AbstractBenchmark.readInputStream(inputStream));
+          }
+        }
+      }
+    }
+    return classFiles;
+  }
+
+  private static boolean isCorpusClass(final String path) {
+    return path.endsWith(".class")
+        && !path.endsWith("module-info.class")
+        && !path.startsWith("META-INF/");
+  }
+
+  /**
+   * A ClassVisitor which counts the visited fields, methods and instructions. A single
+   * MethodVisitor is used for all the methods, so that this visitor does not allocate anything
+   * after its construction.
+   */
+  static class CountingClassVisitor extends ClassVisitor {
+
+    /** The number of visited elements. */
+    int count;
+
+    final MethodVisitor methodVisitor =
+        new MethodVisitor(Opcodes.ASM9) {
+
+          @Override
+          public void visitFrame(
+              final int type,
+              final int numLocal,
+              final Object[] local,
+              final int numStack,
+              final Object[] stack) {
+            ++count;
+          }
+
+          @Override
+          public void visitInsn(final int opcode) {
+            ++count;
+          }
+
+          @Override
+          public void visitIntInsn(final int opcode, final int operand) {
+            ++count;
+          }
+
+          @Override
+          public void visitVarInsn(final int opcode, final int varIndex) {
+            ++count;
+          }
+
+          @Override
+          public void visitTypeInsn(final int opcode, final String type) {
+            ++count;
+          }
+
+          @Override
+          public void visitFieldInsn(
+              final int opcode, final String owner, final String name, final String descriptor) {
+            ++count;
+          }
+
+          @Override
+          public void visitMethodInsn(
+              final int opcode,
+              final String owner,
+              final String name,
+              final String descriptor,
+              final boolean isInterface) {
+            ++count;
+          }
+
+          @Override
+          public void visitInvokeDynamicInsn(
+              final String name,
+              final String descriptor,
+              final Handle bootstrapMethodHandle,
+              final Object... bootstrapMethodArguments) {
+            ++count;
+          }
+
+          @Override
+          public void visitJumpInsn(final int opcode, final Label label) {
+            ++count;
+          }
+
+          @Override
+          public void visitLabel(final Label label) {
+            ++count;
+          }
+
+          @Override
+          public void visitLdcInsn(final Object value) {
+            ++count;
+          }
+
+          @Override
+          public void visitIincInsn(final int varIndex, final int increment) {
+            ++count;
+          }
+
+          @Override
+          public void visitTableSwitchInsn(
+              final int min, final int max, final Label dflt, final Label... labels) {
+            ++count;
+          }
+
+          @Override
+          public void visitLookupSwitchInsn(
+              final Label dflt, final int[] keys, final Label[] labels) {
+            ++count;
+          }
+
+          @Override
+          public void visitMultiANewArrayInsn(final String descriptor, final int numDimensions) {
+            ++count;
+          }
+
+          @Override
+          public void visitTryCatchBlock(
+              final Label start, final Label end, final Label handler, final String type) {
+            ++count;
+          }
+
+          @Override
+          public void visitLocalVariable(
+              final String name,
+              final String descriptor,
+              final String signature,
+              final Label start,
+              final Label end,
+              final int index) {
+            ++count;
+          }
+
+          @Override
+          public void visitLineNumber(final int line, final Label start) {
+            ++count;
+          }
+        };
+
+    CountingClassVisitor() {
+      super(Opcodes.ASM9);
+    }
+
+    @Override
+    public FieldVisitor visitField(
+        final int access,
+        final String name,
+        final String descriptor,
+        final String signature,
+        final Object value) {
+      ++count;
+      return null;
+    }
+
+    @Override
+    public MethodVisitor visitMethod(
+        final int access,
+        final String name,
+        final String descriptor,
+        final String signature,
+        final String[] exceptions) {
+      ++count;
+      return methodVisitor;
+    }
+  }
+
+  /** A Writer which discards everything written to it. */
+  static class NullWriter extends Writer {
+
+    @Override
+    public void write(final char[] buffer, final int offset, final int length) {
+      // Nothing to do.
+    }
+
+    @Override
+    public void flush() {
+      // Nothing to do.
+    }
+
+    @Override
+    public void close() {
+      // Nothing to do.
+    }
+  }
+}
@@ -30,6 +30,7 @@ package org.objectweb.asm.benchmarks;
 import java.lang.management.GarbageCollectorMXBean;
 import java.lang.management.ManagementFactory;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
@@ -60,6 +61,9 @@ public class MemoryProfiler implements InternalProfiler {
   public static long usedMemoryBeforeIteration;
 
   public static void keepReference(final Object reference) {
+    if (referenceCount == references.length) {
+      references = Arrays.copyOf(references, 2 * referenceCount);
+    }
     references[referenceCount++] = reference;
   }
 
@@ -99,7 +103,8 @@ public class MemoryProfiler implements InternalProfiler {
   }
 
   public static boolean appliesToBenchmark(final BenchmarkParams benchmarkParams) {
-    return benchmarkParams.getBenchmark().contains("MemoryBenchmark");
+    String benchmark = benchmarkParams.getBenchmark();
+    return benchmark.contains("MemoryBenchmark") || benchmark.endsWith("Retained");
   }
 
   static class MemoryProbe {
@@ -86,6 +86,12 @@ public final class Retrofitter {
   /** The name of the java.base module. */
   public static final String JAVA_BASE_MODULE = "java.base";
 
+  /** The name of the java.instrument module. */
+  public static final String JAVA_INSTRUMENT_MODULE = "java.instrument";
+
+  /** The internal name of the package provided by the java.instrument module. */
+  public static final String JAVA_INSTRUMENT_PACKAGE = "java/lang/instrument";
+
   /** Bootstrap method for the string concatenation using indy. */
   public static final Handle STRING_CONCAT_FACTORY_HANDLE =
       new Handle(
@@ -355,6 +361,9 @@ public final class Retrofitter {
         moduleVisitor.visitRequire(importName.replace('/', '.'), Opcodes.ACC_TRANSITIVE, null);
       }
     }
+    if (imports.contains(JAVA_INSTRUMENT_PACKAGE)) {
+      moduleVisitor.visitRequire(JAVA_INSTRUMENT_MODULE, Opcodes.ACC_TRANSITIVE, null);
+    }
     moduleVisitor.visitRequire(JAVA_BASE_MODULE, Opcodes.ACC_MANDATED, null);
 
     for (String exportName : exports) {
@@ -440,6 +449,14 @@ public final class Retrofitter {
       owner = name;
       concatMethodId = 0;
       addPackageReferences(Type.getObjectType(name), /* export= */ true);
+      if (superName != null) {
+        addPackageReferences(Type.getObjectType(superName), /* export= */ false);
+      }
+      if (interfaces != null) {
+        for (String interfaceName : interfaces) {
+          addPackageReferences(Type.getObjectType(interfaceName), /* export= */ false);
+        }
+      }
       super.visit(Opcodes.V1_5, access, name, signature, superName, interfaces);
     }
 